@@ -0,0 +1,285 @@
+package jmh.main.java.benchmark;
+
+import main.java.OpCode;
+import main.java.Utils.RequestFactory;
+import main.java.buffer.SharedFrame;
+import main.java.reader.Reader;
+import main.java.reader.message.RequestRelayReader;
+import main.java.request.Request;
+import main.java.request.RequestFusionCapabilities;
+import main.java.request.RequestMessageBatch;
+import main.java.request.RequestRelayed;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the codec of every {@link Request}: {@link Request#encode()}, {@link Request#encodeTo(ByteBuffer)} and
+ * {@link Request#bufferLength()} of each record, and {@link Reader#process(ByteBuffer)} of every reader registered
+ * in {@link OpCode}, relay readers included.
+ * <p>
+ * A reader decodes the same frame again and again, fed as a single contiguous read, one byte per read, or reads of
+ * random sizes between 1 and 64 bytes. The bytes allocated per operation are given by the gc profiler, enabled in
+ * the build.
+ * <p>
+ * Usage: gradle jmh -PjmhIncludes=CodecBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class CodecBenchmark {
+    private static final int MAX_RANDOM_READ = 64;
+
+    /**
+     * The ways a frame is cut into reads
+     */
+    public enum Fragmentation {
+        CONTIGUOUS, BYTE_BY_BYTE, RANDOM;
+
+        /**
+         * Cuts a frame into reads, the random ones are the same for every run
+         * @param length the length of the frame
+         * @return the offset in the frame where each read ends
+         */
+        private int[] reads(int length) {
+            if (length == 0) {
+                return new int[]{0}; // a frame made of its OpCode only is still processed once
+            }
+            return switch (this) {
+                case CONTIGUOUS -> new int[]{length};
+                case BYTE_BY_BYTE -> {
+                    var reads = new int[length];
+                    for (int i = 0; i < length; i++) {
+                        reads[i] = i + 1;
+                    }
+                    yield reads;
+                }
+                case RANDOM -> {
+                    var random = new Random(length);
+                    var reads = new ArrayList<Integer>();
+                    for (int end = 0; end < length; ) {
+                        end = Math.min(length, end + 1 + random.nextInt(MAX_RANDOM_READ));
+                        reads.add(end);
+                    }
+                    yield reads.stream().mapToInt(Integer::intValue).toArray();
+                }
+            };
+        }
+    }
+
+    /**
+     * A sample of every {@link Request}, to encode
+     */
+    @State(Scope.Thread)
+    public static class Encoding {
+        @Param({"LOGIN_ANONYMOUS", "LOGIN_PASSWORD", "LOGIN_ACCEPTED", "LOGIN_REFUSED", "MESSAGE", "PRIVATE_MESSAGE",
+                "FILE_PRIVATE", "FUSION_INIT", "FUSION_INIT_OK", "FUSION_INIT_KO", "FUSION_INIT_FWD", "FUSION_REQUEST",
+                "FUSION_REQUEST_RESPONSE", "FUSION_CHANGE_LEADER", "FUSION_MERGE", "FUSION_CAPABILITIES",
+                "MESSAGE_BATCH", "FUSION_DEFLATE", "RELAY_ADDRESS", "RELAY_PARENT", "RELAY_JOIN", "DIRECT_LOOKUP",
+                "DIRECT_ADDRESS", "DIRECT_JOIN", "FILE_OFFER", "FILE_RESUME", "FILE_BLOCK", "FILE_DECLINED"})
+        public String request;
+        private Request sample;
+        private ByteBuffer target;
+
+        @Setup
+        public void setup() {
+            sample = sample(OpCode.valueOf(request));
+            target = ByteBuffer.allocateDirect(sample.bufferLength());
+        }
+    }
+
+    /**
+     * A sample of every relayed {@link Request}, read the way a server relaying it does
+     */
+    @State(Scope.Thread)
+    public static class Relayed {
+        @Param({"MESSAGE", "PRIVATE_MESSAGE", "FILE_PRIVATE", "FILE_OFFER", "FILE_RESUME", "FILE_BLOCK", "FILE_DECLINED"})
+        public String request;
+        private Request relayed;
+        private ByteBuffer target;
+
+        @Setup
+        public void setup() {
+            var opCode = OpCode.valueOf(request);
+            var frame = sample(opCode).encode();
+            Reader<Request> reader = new RequestRelayReader(opCode);
+            frame.get(); // the OpCode
+            if (reader.process(frame) != Reader.ProcessStatus.DONE) {
+                throw new IllegalStateException("Malformed frame");
+            }
+            relayed = reader.get();
+            target = ByteBuffer.allocateDirect(relayed.bufferLength());
+        }
+    }
+
+    /**
+     * A frame of every {@link Request}, to decode with the reader of its {@link OpCode}
+     */
+    @State(Scope.Thread)
+    public static class Decoding {
+        @Param({"LOGIN_ANONYMOUS", "LOGIN_PASSWORD", "LOGIN_ACCEPTED", "LOGIN_REFUSED", "MESSAGE", "PRIVATE_MESSAGE",
+                "FILE_PRIVATE", "FUSION_INIT", "FUSION_INIT_OK", "FUSION_INIT_KO", "FUSION_INIT_FWD", "FUSION_REQUEST",
+                "FUSION_REQUEST_RESPONSE", "FUSION_CHANGE_LEADER", "FUSION_MERGE", "FUSION_CAPABILITIES",
+                "MESSAGE_BATCH", "FUSION_DEFLATE", "RELAY_ADDRESS", "RELAY_PARENT", "RELAY_JOIN", "DIRECT_LOOKUP",
+                "DIRECT_ADDRESS", "DIRECT_JOIN", "FILE_OFFER", "FILE_RESUME", "FILE_BLOCK", "FILE_DECLINED"})
+        public String request;
+        @Param
+        public Fragmentation fragmentation;
+        private Frame frame;
+
+        @Setup
+        public void setup() {
+            var opCode = OpCode.valueOf(request);
+            frame = new Frame(opCode.newRequestReader(), sample(opCode), fragmentation);
+        }
+    }
+
+    /**
+     * A frame of every relayed {@link Request}, to decode with a {@link RequestRelayReader}
+     */
+    @State(Scope.Thread)
+    public static class RelayDecoding {
+        @Param({"MESSAGE", "PRIVATE_MESSAGE", "FILE_PRIVATE", "FILE_OFFER", "FILE_RESUME", "FILE_BLOCK", "FILE_DECLINED"})
+        public String request;
+        @Param
+        public Fragmentation fragmentation;
+        private Frame frame;
+
+        @Setup
+        public void setup() {
+            var opCode = OpCode.valueOf(request);
+            frame = new Frame(new RequestRelayReader(opCode), sample(opCode), fragmentation);
+        }
+    }
+
+    /**
+     * A frame cut into reads, decoded by the same reader every time
+     */
+    private static final class Frame {
+        private final Reader<Request> reader;
+        private final ByteBuffer bytes;
+        private final int[] reads;
+
+        private Frame(Reader<Request> reader, Request request, Fragmentation fragmentation) {
+            this.reader = reader;
+            var encoded = request.encode();
+            encoded.get(); // the OpCode is read by the connection, not by the reader
+            this.bytes = ByteBuffer.allocateDirect(encoded.remaining()).put(encoded).flip();
+            this.reads = fragmentation.reads(bytes.remaining());
+        }
+
+        private Request decode() {
+            bytes.clear();
+            var status = Reader.ProcessStatus.REFILL;
+            for (int i = 0; i < reads.length && status == Reader.ProcessStatus.REFILL; i++) {
+                bytes.limit(reads[i]);
+                status = reader.process(bytes);
+            }
+            if (status != Reader.ProcessStatus.DONE) {
+                throw new IllegalStateException("The frame did not decode: " + status);
+            }
+            var decoded = reader.get();
+            if (decoded instanceof RequestRelayed relayed) {
+                relayed.release();
+            } else if (decoded instanceof RequestMessageBatch batch) {
+                batch.messages().forEach(SharedFrame::release);
+            }
+            reader.reset();
+            return decoded;
+        }
+    }
+
+    /**
+     * Gets a sample of the {@link Request} of an {@link OpCode}
+     * @param opCode the {@link OpCode}
+     * @return the request
+     */
+    private static Request sample(OpCode opCode) {
+        var address = new InetSocketAddress("127.0.0.1", 7777);
+        var message = "a".repeat(100);
+        return switch (opCode) {
+            case LOGIN_ANONYMOUS -> RequestFactory.loginAnonymous("login");
+            case LOGIN_PASSWORD -> RequestFactory.loginPassword("login", "password");
+            case LOGIN_ACCEPTED -> RequestFactory.loginAccepted("server");
+            case LOGIN_REFUSED -> RequestFactory.loginRefused();
+            case MESSAGE -> RequestFactory.publicMessage("server", "login", message);
+            case PRIVATE_MESSAGE -> RequestFactory.privateMessage("server", "login", "other", "friend", message);
+            case FILE_PRIVATE -> RequestFactory.privateFile("server", "other", "login", "friend", "file.txt", 10, 4096, new byte[4096]);
+            case FUSION_INIT -> RequestFactory.fusionInit("server", address, 3, "a", "b", "c");
+            case FUSION_INIT_OK -> RequestFactory.fusionInitOK("server", address, 3, "a", "b", "c");
+            case FUSION_INIT_KO -> RequestFactory.fusionInitKO();
+            case FUSION_INIT_FWD -> RequestFactory.fusionInitForward(address);
+            case FUSION_REQUEST -> RequestFactory.fusionRequest(address);
+            case FUSION_REQUEST_RESPONSE -> RequestFactory.fusionRequestAccepted();
+            case FUSION_CHANGE_LEADER -> RequestFactory.fusionChangeLeader(address);
+            case FUSION_MERGE -> RequestFactory.fusionMerge("server");
+            case FUSION_CAPABILITIES -> RequestFactory.fusionCapabilities(RequestFusionCapabilities.MESSAGE_BATCH);
+            case MESSAGE_BATCH -> {
+                var batched = new Request[32];
+                Arrays.setAll(batched, i -> RequestFactory.publicMessage("server", "login" + i, message));
+                yield RequestFactory.messageBatch(batched);
+            }
+            case FUSION_DEFLATE -> RequestFactory.fusionDeflate();
+            case RELAY_ADDRESS -> RequestFactory.relayAddress(address);
+            case RELAY_PARENT -> RequestFactory.relayParent("relay", address);
+            case RELAY_JOIN -> RequestFactory.relayJoin("server");
+            case DIRECT_LOOKUP -> RequestFactory.directLookup("member");
+            case DIRECT_ADDRESS -> RequestFactory.directAddress("member", address);
+            case DIRECT_JOIN -> RequestFactory.directJoin("server", "member");
+            case FILE_OFFER -> RequestFactory.fileOffer("server", "login", "other", "friend", "file.txt", 1L << 30, new byte[32]);
+            case FILE_RESUME -> RequestFactory.fileResume("other", "friend", "server", "login", "file.txt", new long[]{0, 4096, 1L << 20, 1L << 20});
+            case FILE_BLOCK -> RequestFactory.fileBlock("server", "login", "other", "friend", "file.txt", 1L << 20, 42, 4096, new byte[4096]);
+            case FILE_DECLINED -> RequestFactory.fileDeclined("server", "login", "other", "friend", "file.txt");
+            case IDLE -> throw new IllegalArgumentException("No request for " + opCode);
+        };
+    }
+
+    @Benchmark
+    public ByteBuffer encode(Encoding state) {
+        return state.sample.encode();
+    }
+
+    @Benchmark
+    public ByteBuffer encodeTo(Encoding state) {
+        state.sample.encodeTo(state.target.clear());
+        return state.target;
+    }
+
+    @Benchmark
+    public int bufferLength(Encoding state) {
+        return state.sample.bufferLength();
+    }
+
+    @Benchmark
+    public ByteBuffer relayedEncodeTo(Relayed state) {
+        state.relayed.encodeTo(state.target.clear());
+        return state.target;
+    }
+
+    @Benchmark
+    public Request process(Decoding state) {
+        return state.frame.decode();
+    }
+
+    @Benchmark
+    public Request relayProcess(RelayDecoding state) {
+        return state.frame.decode();
+    }
+}
@@ -0,0 +1,140 @@
+package jmh.main.java.benchmark;
+
+import main.java.OpCode;
+import main.java.Utils.RequestFactory;
+import main.java.reader.Reader;
+import main.java.reader.ReaderSet;
+import main.java.request.Request;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the decoding throughput of the {@link Reader}s the way a connection drives them.
+ * <p>
+ * A stream of identical frames is copied into a direct buffer by reads of a fixed size, as a socket would,
+ * then the buffer is decoded by the readers of {@link OpCode} and compacted once per read.
+ * Small reads show the cost of a frame fragmented over many reads, reads of the buffer size the cost of
+ * many frames decoded from the same read. Besides the streams decoded per second, the frames and the bytes
+ * decoded per second are reported.
+ * <p>
+ * Usage: gradle jmh -PjmhIncludes=ReaderBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+@State(Scope.Thread)
+public class ReaderBenchmark {
+    private static final int BUFFER_SIZE = 8096;
+    private static final int STREAM_SIZE = 1024 * 1024;
+
+    @Param({"MESSAGE", "PRIVATE_MESSAGE", "FILE_PRIVATE", "FUSION_INIT"})
+    public String request;
+    @Param({"8096", "1500", "64"})
+    public int readSize;
+    private ByteBuffer stream;
+    private ByteBuffer bufferIn;
+    private ReaderSet readers;
+
+    /**
+     * The frames and the bytes decoded, reported per second
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Decoded {
+        public long frames;
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            frames = 0;
+            bytes = 0;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        stream = stream(frame(request));
+        bufferIn = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        readers = new ReaderSet();
+    }
+
+    private static Request frame(String request) {
+        var address = new InetSocketAddress("127.0.0.1", 7777);
+        return switch (request) {
+            case "MESSAGE" -> RequestFactory.publicMessage("server", "login", "a".repeat(100));
+            case "PRIVATE_MESSAGE" -> RequestFactory.privateMessage("server", "login", "other", "friend", "a".repeat(100));
+            case "FILE_PRIVATE" -> RequestFactory.privateFile("server", "other", "login", "friend", "file.txt", 10, 4096, new byte[4096]);
+            case "FUSION_INIT" -> RequestFactory.fusionInit("server", address, 3, "a", "b", "c");
+            default -> throw new IllegalArgumentException("No frame for " + request);
+        };
+    }
+
+    /**
+     * Encodes the same frame until the stream is full
+     * @param request the {@link Request} to encode
+     * @return the stream, in read-mode
+     */
+    private static ByteBuffer stream(Request request) {
+        var frame = request.encode();
+        var stream = ByteBuffer.allocate(STREAM_SIZE - STREAM_SIZE % frame.remaining());
+        while (stream.hasRemaining()) {
+            stream.put(frame.duplicate());
+        }
+        return stream.flip();
+    }
+
+    /**
+     * Decodes the stream the way a connection does, one read of readSize bytes at a time
+     * @param decoded the counters of the frames and bytes decoded
+     * @return the number of frames decoded
+     */
+    @Benchmark
+    public long decode(Decoded decoded) {
+        var source = stream.duplicate();
+        bufferIn.clear();
+        Reader<Request> reader = null;
+        long frames = 0;
+        while (source.hasRemaining()) {
+            var length = Math.min(Math.min(readSize, source.remaining()), bufferIn.remaining());
+            bufferIn.put(bufferIn.position(), source, source.position(), length).position(bufferIn.position() + length);
+            source.position(source.position() + length);
+
+            bufferIn.flip();
+            while (bufferIn.hasRemaining()) {
+                if (reader == null) {
+                    reader = readers.requestReader(OpCode.getOpCodeFromByte(bufferIn.get()).orElseThrow());
+                }
+                var status = reader.process(bufferIn);
+                if (status == Reader.ProcessStatus.ERROR) {
+                    throw new IllegalStateException("Malformed frame");
+                }
+                if (status == Reader.ProcessStatus.DONE) {
+                    reader.get();
+                    reader = null;
+                    frames++;
+                }
+            }
+            bufferIn.compact();
+        }
+        decoded.frames += frames;
+        decoded.bytes += stream.remaining();
+        return frames;
+    }
+}
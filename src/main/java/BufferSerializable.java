@@ -26,4 +26,15 @@ public interface BufferSerializable {
      * @return a {@link ByteBuffer} containing the object in UTF-8 encoding
      */
     ByteBuffer encode();
+
+    /**
+     * Encode the object in UTF-8 encoding at the position of the given {@link ByteBuffer}, without allocating a new one
+     * <p>
+     * The buffer should be in write-mode and have at least {@link #bufferLength()} bytes remaining
+     *
+     * @param buffer the {@link ByteBuffer} to fill
+     */
+    default void encodeTo(ByteBuffer buffer) {
+        buffer.put(encode());
+    }
 }
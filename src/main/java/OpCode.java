@@ -6,20 +6,38 @@ import main.java.reader.login.RequestLoginAcceptedReader;
 import main.java.reader.login.RequestLoginAnonymousReader;
 import main.java.reader.login.RequestLoginPasswordReader;
 import main.java.reader.login.RequestLoginRefusedReader;
+import main.java.reader.message.RequestFileBlockReader;
+import main.java.reader.message.RequestFileDeclinedReader;
+import main.java.reader.message.RequestFileOfferReader;
 import main.java.reader.message.RequestFilePrivateReader;
+import main.java.reader.message.RequestFileResumeReader;
+import main.java.reader.message.RequestMessageBatchReader;
 import main.java.reader.message.RequestMessagePrivateReader;
 import main.java.reader.message.RequestMessagePublicReader;
 import main.java.request.Request;
 
 import java.util.HashMap;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 public enum OpCode {
-    LOGIN_ANONYMOUS(0, new RequestLoginAnonymousReader()), LOGIN_PASSWORD(1, new RequestLoginPasswordReader()), LOGIN_ACCEPTED(2, new RequestLoginAcceptedReader()), LOGIN_REFUSED(3, new RequestLoginRefusedReader()),
+    LOGIN_ANONYMOUS(0, RequestLoginAnonymousReader::new), LOGIN_PASSWORD(1, RequestLoginPasswordReader::new), LOGIN_ACCEPTED(2, RequestLoginAcceptedReader::new), LOGIN_REFUSED(3, RequestLoginRefusedReader::new),
 
-    MESSAGE(4, new RequestMessagePublicReader()), PRIVATE_MESSAGE(5, new RequestMessagePrivateReader()), FILE_PRIVATE(6, new RequestFilePrivateReader()),
+    MESSAGE(4, RequestMessagePublicReader::new), PRIVATE_MESSAGE(5, RequestMessagePrivateReader::new), FILE_PRIVATE(6, RequestFilePrivateReader::new),
 
-    FUSION_INIT(8, new RequestFusionInitReader()), FUSION_INIT_OK(9, new RequestFusionInitOKReader()), FUSION_INIT_KO(10, new RequestFusionInitKOReader()), FUSION_INIT_FWD(11, new RequestFusionFWDReader()), FUSION_REQUEST(12, new RequestFusionRequestReader()), FUSION_REQUEST_RESPONSE(13, new RequestFusionRequestResponseReader()), FUSION_CHANGE_LEADER(14, new RequestFusionChangeLeaderReader()), FUSION_MERGE(15, new RequestFusionMergeReader()),
+    FUSION_INIT(8, RequestFusionInitReader::new), FUSION_INIT_OK(9, RequestFusionInitOKReader::new), FUSION_INIT_KO(10, RequestFusionInitKOReader::new), FUSION_INIT_FWD(11, RequestFusionFWDReader::new), FUSION_REQUEST(12, RequestFusionRequestReader::new), FUSION_REQUEST_RESPONSE(13, RequestFusionRequestResponseReader::new), FUSION_CHANGE_LEADER(14, RequestFusionChangeLeaderReader::new), FUSION_MERGE(15, RequestFusionMergeReader::new),
+
+    // Extensions negotiated between servers, see RequestFusionCapabilities
+    FUSION_CAPABILITIES(16, RequestFusionCapabilitiesReader::new), MESSAGE_BATCH(17, RequestMessageBatchReader::new), FUSION_DEFLATE(18, RequestFusionDeflateReader::new),
+
+    // The broadcast tree of a mega-server, see RelayTree
+    RELAY_ADDRESS(19, RequestRelayAddressReader::new), RELAY_PARENT(20, RequestRelayParentReader::new), RELAY_JOIN(21, RequestRelayJoinReader::new),
+
+    // The direct links between the members of a mega-server, see DirectLinks
+    DIRECT_LOOKUP(22, RequestDirectLookupReader::new), DIRECT_ADDRESS(23, RequestDirectAddressReader::new), DIRECT_JOIN(24, RequestDirectJoinReader::new),
+
+    // The resumable file transfers between clients, see main.java.client.FileChatFusion
+    FILE_OFFER(25, RequestFileOfferReader::new), FILE_RESUME(26, RequestFileResumeReader::new), FILE_BLOCK(27, RequestFileBlockReader::new), FILE_DECLINED(28, RequestFileDeclinedReader::new),
 
     // Idle is used as a placeholder waiting for a new OpCode for clients and server
     IDLE(-1, null);
@@ -33,11 +51,11 @@ public enum OpCode {
     }
 
     private final int opCode;
-    private final Reader<Request> requestReader;
+    private final Supplier<Reader<Request>> readerFactory;
 
-    OpCode(int opCode, Reader<Request> requestReader) {
+    OpCode(int opCode, Supplier<Reader<Request>> readerFactory) {
         this.opCode = opCode;
-        this.requestReader = requestReader;
+        this.readerFactory = readerFactory;
     }
 
     /**
@@ -51,12 +69,11 @@ public enum OpCode {
     }
 
     /**
-     * Gets a Reader of request
+     * Creates a Reader of request, owned by a single connection, see {@link main.java.reader.ReaderSet}
      * @return the {@link Reader}
      */
-    public Reader<Request> getRequestReader() {
-        requestReader.reset();
-        return requestReader;
+    public Reader<Request> newRequestReader() {
+        return readerFactory.get();
     }
 
     /**
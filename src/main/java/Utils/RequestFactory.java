@@ -1,5 +1,6 @@
 package main.java.Utils;
 
+import main.java.buffer.SharedFrame;
 import main.java.request.*;
 import main.java.wrapper.InetIpv4ChatFusion;
 import main.java.wrapper.StringChatFusion;
@@ -18,7 +19,7 @@ public class RequestFactory {
      * @return the {@link RequestLoginAnonymous} created
      */
     public static Request loginAnonymous(String login) {
-        return new RequestLoginAnonymous(new StringChatFusion(login));
+        return new RequestLoginAnonymous(StringChatFusion.of(login));
     }
 
     /**
@@ -28,7 +29,7 @@ public class RequestFactory {
      * @return the {@link RequestLoginPassword} created
      */
     public static Request loginPassword(String login, String password) {
-        var strLogin = new StringChatFusion(login);
+        var strLogin = StringChatFusion.of(login);
         var strPassword = new StringChatFusion(password);
 
         return new RequestLoginPassword(strLogin, strPassword);
@@ -48,7 +49,7 @@ public class RequestFactory {
      * @return the {@link RequestLoginAccepted} created
      */
     public static Request loginAccepted(String serverName) {
-        return new RequestLoginAccepted(new StringChatFusion(serverName));
+        return new RequestLoginAccepted(StringChatFusion.of(serverName));
     }
 
     /**
@@ -59,7 +60,7 @@ public class RequestFactory {
      * @return the {@link RequestMessagePublic} created
      */
     public static Request publicMessage(String serverName, String login, String message) {
-        return new RequestMessagePublic(new StringChatFusion(serverName), new StringChatFusion(login), new StringChatFusion(message));
+        return new RequestMessagePublic(StringChatFusion.of(serverName), StringChatFusion.of(login), new StringChatFusion(message));
     }
 
     /**
@@ -72,7 +73,7 @@ public class RequestFactory {
      * @return the {@link RequestMessagePrivate} created
      */
     public static Request privateMessage(String serverSrc, String loginSrc, String serverDst, String loginDst, String message) {
-        return new RequestMessagePrivate(new StringChatFusion(serverSrc), new StringChatFusion(loginSrc), new StringChatFusion(serverDst), new StringChatFusion(loginDst), new StringChatFusion(message));
+        return new RequestMessagePrivate(StringChatFusion.of(serverSrc), StringChatFusion.of(loginSrc), StringChatFusion.of(serverDst), StringChatFusion.of(loginDst), new StringChatFusion(message));
     }
 
     /**
@@ -87,10 +88,10 @@ public class RequestFactory {
      * @return the {@link RequestMessageFilePrivate} created
      */
     public static Request privateFile(String strServerSrc, String strServerDst, String strLoginSrc, String strLoginDst, String strFilename, int nbBlocksMax, int blockSize, byte[] block) {
-        var serverSrc = new StringChatFusion(strServerSrc);
-        var serverDst = new StringChatFusion(strServerDst);
-        var loginSrc = new StringChatFusion(strLoginSrc);
-        var loginDst = new StringChatFusion(strLoginDst);
+        var serverSrc = StringChatFusion.of(strServerSrc);
+        var serverDst = StringChatFusion.of(strServerDst);
+        var loginSrc = StringChatFusion.of(strLoginSrc);
+        var loginDst = StringChatFusion.of(strLoginDst);
         var filename = new StringChatFusion(strFilename);
 
         return new RequestMessageFilePrivate(serverSrc, serverDst, loginSrc, loginDst, filename, nbBlocksMax, blockSize, block);
@@ -105,9 +106,9 @@ public class RequestFactory {
      * @return the {@link RequestFusionInit} created
      */
     public static Request fusionInit(String serverName, InetSocketAddress address, int nbMembers, String... names) {
-        var scfServerName = new StringChatFusion(serverName);
+        var scfServerName = StringChatFusion.of(serverName);
         var acfAddress = new InetIpv4ChatFusion(address);
-        var lstNames = Arrays.stream(names).map(StringChatFusion::new).toList();
+        var lstNames = Arrays.stream(names).map(StringChatFusion::of).toList();
 
         return new RequestFusionInit(scfServerName, acfAddress, nbMembers, lstNames);
     }
@@ -129,7 +130,7 @@ public class RequestFactory {
      * @return the  {@link RequestFusionInitOK} created
      */
     public static Request fusionInitOK(String serverName, InetSocketAddress address, int nbMember, String... names) {
-        return new RequestFusionInitOK(new StringChatFusion(serverName), new InetIpv4ChatFusion(address), nbMember, Arrays.stream(names).map(StringChatFusion::new).toList());
+        return new RequestFusionInitOK(StringChatFusion.of(serverName), new InetIpv4ChatFusion(address), nbMember, Arrays.stream(names).map(StringChatFusion::of).toList());
     }
 
     /**
@@ -147,7 +148,7 @@ public class RequestFactory {
      * @return the {@link RequestFusionMerge} created
      */
     public static Request fusionMerge(String serverName) {
-        return new RequestFusionMerge(new StringChatFusion(serverName));
+        return new RequestFusionMerge(StringChatFusion.of(serverName));
     }
 
     /**
@@ -183,4 +184,146 @@ public class RequestFactory {
     public static Request fusionRequestRefused() {
         return new RequestFusionRequestResponse((byte) 0);
     }
+
+    /**
+     * Creates a {@link RequestFusionCapabilities} from the given extensions
+     * @param capabilities the extensions supported by the {@link main.java.server.ServerChatFusion}, one bit per extension
+     * @return the {@link RequestFusionCapabilities} created
+     */
+    public static Request fusionCapabilities(int capabilities) {
+        return new RequestFusionCapabilities(capabilities);
+    }
+
+    /**
+     * Creates a {@link RequestFusionDeflate}
+     * @return the {@link RequestFusionDeflate} created
+     */
+    public static Request fusionDeflate() {
+        return new RequestFusionDeflate();
+    }
+
+    /**
+     * Creates a {@link RequestRelayAddress} from the given address
+     * @param address the address the {@link main.java.server.ServerChatFusion} relaying the public messages listens on
+     * @return the {@link RequestRelayAddress} created
+     */
+    public static Request relayAddress(InetSocketAddress address) {
+        return new RequestRelayAddress(new InetIpv4ChatFusion(address));
+    }
+
+    /**
+     * Creates a {@link RequestRelayParent} from the given relay
+     * @param serverName the name of the relay, empty for the leader
+     * @param address the address of the relay
+     * @return the {@link RequestRelayParent} created
+     */
+    public static Request relayParent(String serverName, InetSocketAddress address) {
+        return new RequestRelayParent(StringChatFusion.of(serverName), new InetIpv4ChatFusion(address));
+    }
+
+    /**
+     * Creates a {@link RequestRelayJoin} from the given name
+     * @param serverName the name of the {@link main.java.server.ServerChatFusion} joining its relay
+     * @return the {@link RequestRelayJoin} created
+     */
+    public static Request relayJoin(String serverName) {
+        return new RequestRelayJoin(StringChatFusion.of(serverName));
+    }
+
+    /**
+     * Creates a {@link RequestDirectLookup} from the given name
+     * @param serverName the name of the member whose address is asked for
+     * @return the {@link RequestDirectLookup} created
+     */
+    public static Request directLookup(String serverName) {
+        return new RequestDirectLookup(StringChatFusion.of(serverName));
+    }
+
+    /**
+     * Creates a {@link RequestDirectAddress} from the given member
+     * @param serverName the name of the member
+     * @param address the address the member listens on
+     * @return the {@link RequestDirectAddress} created
+     */
+    public static Request directAddress(String serverName, InetSocketAddress address) {
+        return new RequestDirectAddress(StringChatFusion.of(serverName), new InetIpv4ChatFusion(address));
+    }
+
+    /**
+     * Creates a {@link RequestDirectJoin} from the given members
+     * @param serverSrc the name of the member which opened the direct link
+     * @param serverDst the name of the member at the other end of the direct link
+     * @return the {@link RequestDirectJoin} created
+     */
+    public static Request directJoin(String serverSrc, String serverDst) {
+        return new RequestDirectJoin(StringChatFusion.of(serverSrc), StringChatFusion.of(serverDst));
+    }
+
+    /**
+     * Creates a {@link RequestFileOffer} from the given arguments
+     * @param serverSrc the name of the {@link main.java.server.ServerChatFusion} of the sender
+     * @param loginSrc the login of the {@link main.java.client.ClientChatFusion} sending the file
+     * @param serverDst the name of the {@link main.java.server.ServerChatFusion} of the recipient
+     * @param loginDst the login of the {@link main.java.client.ClientChatFusion} receiving the file
+     * @param filename the name of the file
+     * @param fileSize the number of bytes of the file
+     * @param digest the SHA-256 of the first block of the file
+     * @return the {@link RequestFileOffer} created
+     */
+    public static Request fileOffer(String serverSrc, String loginSrc, String serverDst, String loginDst, String filename, long fileSize, byte[] digest) {
+        return new RequestFileOffer(StringChatFusion.of(serverSrc), StringChatFusion.of(loginSrc), StringChatFusion.of(serverDst), StringChatFusion.of(loginDst), new StringChatFusion(filename), fileSize, digest);
+    }
+
+    /**
+     * Creates a {@link RequestFileResume} from the given arguments
+     * @param serverSrc the name of the {@link main.java.server.ServerChatFusion} of the recipient of the file
+     * @param loginSrc the login of the {@link main.java.client.ClientChatFusion} receiving the file
+     * @param serverDst the name of the {@link main.java.server.ServerChatFusion} of the sender of the file
+     * @param loginDst the login of the {@link main.java.client.ClientChatFusion} sending the file
+     * @param filename the name of the file
+     * @param ranges the offset then the number of bytes of each part of the file already received
+     * @return the {@link RequestFileResume} created
+     */
+    public static Request fileResume(String serverSrc, String loginSrc, String serverDst, String loginDst, String filename, long[] ranges) {
+        return new RequestFileResume(StringChatFusion.of(serverSrc), StringChatFusion.of(loginSrc), StringChatFusion.of(serverDst), StringChatFusion.of(loginDst), new StringChatFusion(filename), ranges);
+    }
+
+    /**
+     * Creates a {@link RequestFileBlock} from the given arguments
+     * @param serverSrc the name of the {@link main.java.server.ServerChatFusion} of the sender
+     * @param loginSrc the login of the {@link main.java.client.ClientChatFusion} sending the file
+     * @param serverDst the name of the {@link main.java.server.ServerChatFusion} of the recipient
+     * @param loginDst the login of the {@link main.java.client.ClientChatFusion} receiving the file
+     * @param filename the name of the file
+     * @param offset the position of the block in the file
+     * @param crc the CRC32C of the block
+     * @param blockSize the size of the block
+     * @param block the bytes of the block
+     * @return the {@link RequestFileBlock} created
+     */
+    public static Request fileBlock(String serverSrc, String loginSrc, String serverDst, String loginDst, String filename, long offset, int crc, int blockSize, byte[] block) {
+        return new RequestFileBlock(StringChatFusion.of(serverSrc), StringChatFusion.of(loginSrc), StringChatFusion.of(serverDst), StringChatFusion.of(loginDst), new StringChatFusion(filename), offset, crc, blockSize, block);
+    }
+
+    /**
+     * Creates a {@link RequestFileDeclined} from the given arguments
+     * @param serverSrc the name of the {@link main.java.server.ServerChatFusion} of the recipient of the file
+     * @param loginSrc the login of the {@link main.java.client.ClientChatFusion} the file was offered to
+     * @param serverDst the name of the {@link main.java.server.ServerChatFusion} of the sender of the file
+     * @param loginDst the login of the {@link main.java.client.ClientChatFusion} offering the file
+     * @param filename the name of the file
+     * @return the {@link RequestFileDeclined} created
+     */
+    public static Request fileDeclined(String serverSrc, String loginSrc, String serverDst, String loginDst, String filename) {
+        return new RequestFileDeclined(StringChatFusion.of(serverSrc), StringChatFusion.of(loginSrc), StringChatFusion.of(serverDst), StringChatFusion.of(loginDst), new StringChatFusion(filename));
+    }
+
+    /**
+     * Creates a {@link RequestMessageBatch} from the given public messages
+     * @param messages the {@link RequestMessagePublic}s to send in a single frame
+     * @return the {@link RequestMessageBatch} created
+     */
+    public static Request messageBatch(Request... messages) {
+        return new RequestMessageBatch(Arrays.stream(messages).map(SharedFrame::encode).toList());
+    }
 }
@@ -0,0 +1,226 @@
+package main.java.benchmark;
+
+import main.java.OpCode;
+import main.java.Utils.RequestFactory;
+import main.java.reader.Reader;
+import main.java.reader.login.RequestLoginAcceptedReader;
+import main.java.reader.message.RequestMessagePublicReader;
+import main.java.request.Request;
+import main.java.request.RequestMessagePublic;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the engines of {@link main.java.server.ServerChatFusion} under the same public-message load.
+ * <p>
+ * The server runs in a child JVM so that its CPU time is measured apart from the one of the simulated clients.
+ * Every client logs in anonymously, then the clients take turns sending public messages at a fixed rate.
+ * Each message carries its sending time, every delivery to a client records an end-to-end latency.
+ * <p>
+ * Usage: java main.java.benchmark.EngineBenchmark [reactor|threads] nbReactors nbClients nbMessages messagesPerSecond port
+ */
+public class EngineBenchmark {
+    private static final int BUFFER_SIZE = 8096;
+    private static final String SERVER_NAME = "bench";
+    private static final long LOGIN_TIMEOUT = 10_000;
+    private static final long DRAIN_TIMEOUT = 5_000;
+
+    private final Selector selector = Selector.open();
+    private final List<BenchClient> clients = new ArrayList<>();
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private int loggedIn;
+
+    private EngineBenchmark() throws IOException {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length != 6) {
+            usage();
+            return;
+        }
+        var engine = args[0];
+        var nbReactors = Integer.parseInt(args[1]);
+        var nbClients = Integer.parseInt(args[2]);
+        var nbMessages = Integer.parseInt(args[3]);
+        var rate = Integer.parseInt(args[4]);
+        var port = Integer.parseInt(args[5]);
+
+        var server = startServer(engine.equals("threads") ? "threads" : String.valueOf(nbReactors), port);
+        try {
+            new EngineBenchmark().run(engine, server, new InetSocketAddress("127.0.0.1", port), nbClients, nbMessages, rate);
+        } finally {
+            server.destroy();
+        }
+    }
+
+    private static void usage() {
+        System.out.println("Usage : EngineBenchmark [reactor|threads] nbReactors nbClients nbMessages messagesPerSecond port");
+    }
+
+    /**
+     * Starts a {@link main.java.server.ServerChatFusion} in a child JVM sharing the class path of this one
+     * @param engineArgument the last argument of the server command line
+     * @param port the port of the server
+     * @return the {@link Process} of the server
+     * @throws IOException If an I/O error occurs
+     */
+    private static Process startServer(String engineArgument, int port) throws IOException {
+        var java = ProcessHandle.current().info().command().orElse("java");
+        return new ProcessBuilder(java, "--enable-preview", "-cp", System.getProperty("java.class.path"), "main.java.server.ServerChatFusion", SERVER_NAME, String.valueOf(port), engineArgument)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+    }
+
+    /**
+     * Gets the CPU time consumed so far by a process
+     * @param process the process
+     * @return the CPU time, zero if the platform does not report it
+     */
+    private static Duration cpuTime(Process process) {
+        return process.toHandle().info().totalCpuDuration().orElse(Duration.ZERO);
+    }
+
+    private void run(String engine, Process server, InetSocketAddress address, int nbClients, int nbMessages, int rate) throws IOException, InterruptedException {
+        for (int i = 0; i < nbClients; i++) {
+            clients.add(connect(address, "c" + i, i == 0));
+        }
+        var deadline = System.currentTimeMillis() + LOGIN_TIMEOUT;
+        while (loggedIn < nbClients && System.currentTimeMillis() < deadline) {
+            poll();
+        }
+
+        var cpuBefore = cpuTime(server);
+        var start = System.nanoTime();
+        var interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        for (int i = 0; i < nbMessages; i++) {
+            var sendTime = start + i * interval;
+            while (System.nanoTime() < sendTime) {
+                poll();
+            }
+            var sender = clients.get(i % clients.size());
+            sender.send(RequestFactory.publicMessage(SERVER_NAME, sender.login, Long.toString(System.nanoTime())));
+        }
+        var expected = (long) nbMessages * loggedIn;
+        deadline = System.currentTimeMillis() + DRAIN_TIMEOUT;
+        while (latencies.count() < expected && System.currentTimeMillis() < deadline) {
+            poll();
+        }
+        var elapsed = System.nanoTime() - start;
+        var cpu = cpuTime(server).minus(cpuBefore);
+
+        var delivered = Math.max(1, latencies.count());
+        System.out.printf("""
+                        engine=%s connections=%d/%d messages=%d delivered=%d/%d in %d ms
+                        latency p50=%d us p99=%d us p999=%d us max=%d us
+                        server cpu=%d ms, %d ns per delivered message, %d ns per sent message
+                        """,
+                engine, loggedIn, nbClients, nbMessages, latencies.count(), expected, TimeUnit.NANOSECONDS.toMillis(elapsed),
+                latencies.percentile(0.5), latencies.percentile(0.99), latencies.percentile(0.999), latencies.max(),
+                cpu.toMillis(), cpu.toNanos() / delivered, cpu.toNanos() / Math.max(1, nbMessages));
+    }
+
+    private BenchClient connect(InetSocketAddress address, String login, boolean retry) throws IOException, InterruptedException {
+        // The first connection waits for the child JVM to bind its port
+        for (int attempt = 0; ; attempt++) {
+            try {
+                var sc = SocketChannel.open(address);
+                sc.configureBlocking(false);
+                var client = new BenchClient(sc, login);
+                sc.register(selector, SelectionKey.OP_READ, client);
+                client.send(RequestFactory.loginAnonymous(login));
+                return client;
+            } catch (IOException e) {
+                if (!retry || attempt == 50) {
+                    throw e;
+                }
+                Thread.sleep(100);
+            }
+        }
+    }
+
+    private void poll() throws IOException {
+        try {
+            selector.selectNow(key -> {
+                try {
+                    ((BenchClient) key.attachment()).doRead();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException tunneled) {
+            throw tunneled.getCause();
+        }
+    }
+
+    /**
+     * A simulated client, owning its own readers since every client is decoded by the same thread
+     */
+    private class BenchClient {
+        private final SocketChannel sc;
+        private final String login;
+        private final ByteBuffer bufferIn = ByteBuffer.allocate(BUFFER_SIZE);
+        private final Reader<Request> loginAcceptedReader = new RequestLoginAcceptedReader();
+        private final Reader<Request> messageReader = new RequestMessagePublicReader();
+        private Reader<Request> requestReader;
+
+        private BenchClient(SocketChannel sc, String login) {
+            this.sc = sc;
+            this.login = login;
+        }
+
+        private void send(Request request) throws IOException {
+            var buffer = request.encode();
+            while (buffer.hasRemaining()) {
+                sc.write(buffer);
+            }
+        }
+
+        private void doRead() throws IOException {
+            if (sc.read(bufferIn) == -1) {
+                throw new IOException("Connection of " + login + " closed by the server");
+            }
+            bufferIn.flip();
+            try {
+                while (bufferIn.hasRemaining()) {
+                    if (requestReader == null) {
+                        var opCode = OpCode.getOpCodeFromByte(bufferIn.get()).orElseThrow();
+                        requestReader = switch (opCode) {
+                            case LOGIN_ACCEPTED -> loginAcceptedReader;
+                            case MESSAGE -> messageReader;
+                            default -> throw new IOException("Unexpected " + opCode + " for " + login);
+                        };
+                        requestReader.reset();
+                    }
+                    switch (requestReader.process(bufferIn)) {
+                        case DONE -> {
+                            var request = requestReader.get();
+                            requestReader = null;
+                            if (request instanceof RequestMessagePublic message) {
+                                latencies.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - Long.parseLong(message.message().string())));
+                            } else {
+                                loggedIn++;
+                            }
+                        }
+                        case REFILL -> {
+                            return;
+                        }
+                        case ERROR -> throw new IOException("Malformed frame received by " + login);
+                    }
+                }
+            } finally {
+                bufferIn.compact();
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package main.java.benchmark;
+
+/**
+ * Histogram of latencies with a bounded relative error (below 1%) and a fixed memory footprint,
+ * whatever the number of recorded values.
+ * <p>
+ * Values below 256 have their own bucket, greater values are split in 128 buckets per power of two.
+ * This class is not thread safe, each recording thread should own its histogram and {@link #add(LatencyHistogram)} them at the end.
+ */
+public final class LatencyHistogram {
+    private static final int LINEAR_BUCKETS = 256;
+    private static final int SUB_BUCKETS = 128;
+    private final long[] counts = new long[LINEAR_BUCKETS + (63 - 8 + 1) * SUB_BUCKETS];
+    private long totalCount;
+    private long max;
+
+    /**
+     * Records a value
+     * @param value the value to record, negative values are recorded as 0
+     */
+    public void record(long value) {
+        value = Math.max(0, value);
+        counts[indexOf(value)]++;
+        totalCount++;
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Adds every value recorded by another histogram to this one
+     * @param other the other histogram
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Gets the number of recorded values
+     * @return the number of recorded values
+     */
+    public long count() {
+        return totalCount;
+    }
+
+    /**
+     * Gets the greatest recorded value
+     * @return the greatest recorded value, 0 if nothing has been recorded
+     */
+    public long max() {
+        return max;
+    }
+
+    /**
+     * Gets the value below which the given fraction of the recorded values fall
+     * @param percentile the fraction, between 0 and 1 (0.99 for the p99)
+     * @return the lower bound of the bucket containing the percentile, 0 if nothing has been recorded
+     */
+    public long percentile(double percentile) {
+        if (percentile < 0 || percentile > 1) {
+            throw new IllegalArgumentException("percentile must be between 0 and 1");
+        }
+        var target = (long) Math.ceil(percentile * totalCount);
+        long cumulated = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulated += counts[i];
+            if (cumulated >= target && cumulated != 0) {
+                return Math.min(valueOf(i), max);
+            }
+        }
+        return max;
+    }
+
+    private static int indexOf(long value) {
+        if (value < LINEAR_BUCKETS) {
+            return (int) value;
+        }
+        var magnitude = 63 - Long.numberOfLeadingZeros(value);
+        var sub = (int) (value >>> (magnitude - 7)) & (SUB_BUCKETS - 1);
+        return LINEAR_BUCKETS + (magnitude - 8) * SUB_BUCKETS + sub;
+    }
+
+    private static long valueOf(int index) {
+        if (index < LINEAR_BUCKETS) {
+            return index;
+        }
+        var magnitude = 8 + (index - LINEAR_BUCKETS) / SUB_BUCKETS;
+        var sub = (index - LINEAR_BUCKETS) % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + sub) << (magnitude - 7);
+    }
+}
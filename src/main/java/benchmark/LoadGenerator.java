@@ -0,0 +1,522 @@
+package main.java.benchmark;
+
+import main.java.OpCode;
+import main.java.Utils.RequestFactory;
+import main.java.reader.Reader;
+import main.java.reader.login.RequestLoginAcceptedReader;
+import main.java.reader.login.RequestLoginRefusedReader;
+import main.java.reader.message.RequestFilePrivateReader;
+import main.java.reader.message.RequestMessagePrivateReader;
+import main.java.reader.message.RequestMessagePublicReader;
+import main.java.request.Request;
+import main.java.request.RequestLoginAccepted;
+import main.java.request.RequestLoginRefused;
+import main.java.request.RequestMessageFilePrivate;
+import main.java.request.RequestMessagePrivate;
+import main.java.request.RequestMessagePublic;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Simulates thousands of clients against a {@link main.java.server.ServerChatFusion} or a whole mega-server,
+ * without any console.
+ * <p>
+ * The clients are spread over the given servers and log in anonymously, then they send public messages,
+ * private messages and private files at a target rate, in the proportions of the mix. Every message carries its
+ * sending time: each delivery records its end-to-end latency in the histogram of its kind of traffic.
+ * Connection churn closes random clients and opens new ones at a fixed rate, recording the latency of their login.
+ * <p>
+ * The clients are shared between I/O threads, each of them with its own selector, histograms and readers.
+ * The clients choose the recipients of their private messages among the clients of their thread.
+ * <p>
+ * Usage: java main.java.benchmark.LoadGenerator host:port[,host:port...] [option=value...] with the options
+ * clients (1000), seconds (30), rate (1000 messages per second), mix (public:80,private:19,file:1),
+ * fileSize (4096 bytes), churn (0 reconnections per second) and threads (2)
+ */
+public class LoadGenerator {
+    private static final int BUFFER_SIZE = 8096;
+    private static final int MAX_BLOCK_SIZE = 5000;
+    private static final int MAX_PENDING_LOGINS = 64;
+    private static final long DRAIN_MILLIS = 2_000;
+    private static final long SELECT_MILLIS = 10;
+
+    private final Options options;
+    private final List<Worker> workers = new ArrayList<>();
+    private volatile boolean sending = true;
+    private volatile boolean running = true;
+
+    private LoadGenerator(Options options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length == 0) {
+            usage();
+            return;
+        }
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            usage();
+            return;
+        }
+        new LoadGenerator(options).run();
+    }
+
+    private static void usage() {
+        System.out.println("Usage : LoadGenerator host:port[,host:port...] [clients=1000] [seconds=30] [rate=1000] "
+                + "[mix=public:80,private:19,file:1] [fileSize=4096] [churn=0] [threads=2]");
+    }
+
+    private void run() throws IOException, InterruptedException {
+        var threads = new ArrayList<Thread>();
+        for (int i = 0; i < options.threads(); i++) {
+            var worker = new Worker(i);
+            workers.add(worker);
+            var thread = new Thread(worker, "load-" + i);
+            thread.start();
+            threads.add(thread);
+        }
+
+        var start = System.nanoTime();
+        var end = start + TimeUnit.SECONDS.toNanos(options.seconds());
+        long lastSent = 0;
+        long lastDelivered = 0;
+        while (System.nanoTime() < end) {
+            Thread.sleep(1_000);
+            var sent = sum(worker -> worker.sent);
+            var delivered = sum(worker -> worker.delivered);
+            System.out.printf("%3d s  connected=%d  sent=%d/s  delivered=%d/s  reconnections=%d  errors=%d%n",
+                    TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start), sum(worker -> worker.connected),
+                    sent - lastSent, delivered - lastDelivered, sum(worker -> worker.reconnections), sum(worker -> worker.errors));
+            lastSent = sent;
+            lastDelivered = delivered;
+        }
+        var elapsed = System.nanoTime() - start;
+        sending = false;
+        Thread.sleep(DRAIN_MILLIS);
+        running = false;
+        for (var thread : threads) {
+            thread.join();
+        }
+        report(elapsed);
+    }
+
+    private long sum(Function<Worker, LongAdder> counter) {
+        return workers.stream().mapToLong(worker -> counter.apply(worker).sum()).sum();
+    }
+
+    private void report(long elapsedNanos) {
+        var seconds = Math.max(1e-9, elapsedNanos / 1e9);
+        System.out.printf("%nclients=%d servers=%d threads=%d in %.1f s%n", options.clients(), options.servers().size(), options.threads(), seconds);
+        System.out.printf("sent=%d (%.0f/s) delivered=%d (%.0f/s)%n", sum(worker -> worker.sent), sum(worker -> worker.sent) / seconds,
+                sum(worker -> worker.delivered), sum(worker -> worker.delivered) / seconds);
+        System.out.printf("logins=%d refused=%d reconnections=%d closed by server=%d errors=%d%n", sum(worker -> worker.logins),
+                sum(worker -> worker.refused), sum(worker -> worker.reconnections), sum(worker -> worker.closedByServer), sum(worker -> worker.errors));
+        for (var traffic : Traffic.values()) {
+            var histogram = new LatencyHistogram();
+            workers.forEach(worker -> histogram.add(worker.latencies[traffic.ordinal()]));
+            print(traffic.name().toLowerCase() + " latency", histogram);
+        }
+        var logins = new LatencyHistogram();
+        workers.forEach(worker -> logins.add(worker.loginLatencies));
+        print("login latency", logins);
+    }
+
+    private static void print(String name, LatencyHistogram histogram) {
+        System.out.printf("%-16s count=%d p50=%d us p99=%d us p999=%d us max=%d us%n", name, histogram.count(),
+                histogram.percentile(0.5), histogram.percentile(0.99), histogram.percentile(0.999), histogram.max());
+    }
+
+    /**
+     * The kinds of traffic sent by the clients
+     */
+    private enum Traffic {
+        PUBLIC, PRIVATE, FILE
+    }
+
+    /**
+     * The options of the command line
+     * @param weights the weight of each {@link Traffic} in the mix
+     */
+    private record Options(List<InetSocketAddress> servers, int clients, int seconds, int rate, int[] weights,
+                           int fileSize, int churn, int threads) {
+
+        private static Options parse(String[] args) {
+            var servers = Arrays.stream(args[0].split(",")).map(Options::address).toList();
+            var values = new HashMap<String, String>();
+            for (int i = 1; i < args.length; i++) {
+                var option = args[i].split("=", 2);
+                if (option.length != 2) {
+                    throw new IllegalArgumentException("Malformed option " + args[i]);
+                }
+                values.put(option[0], option[1]);
+            }
+            var options = new Options(servers, integer(values, "clients", 1000), integer(values, "seconds", 30),
+                    integer(values, "rate", 1000), mix(values.getOrDefault("mix", "public:80,private:19,file:1")),
+                    integer(values, "fileSize", 4096), integer(values, "churn", 0), integer(values, "threads", 2));
+            values.keySet().removeAll(List.of("clients", "seconds", "rate", "mix", "fileSize", "churn", "threads"));
+            if (!values.isEmpty()) {
+                throw new IllegalArgumentException("Unknown options " + values.keySet());
+            }
+            if (options.clients() < 1 || options.threads() < 1 || options.rate() < 0 || options.churn() < 0
+                    || options.fileSize() < Long.BYTES || options.fileSize() > MAX_BLOCK_SIZE) {
+                throw new IllegalArgumentException("Invalid options");
+            }
+            return options;
+        }
+
+        private static InetSocketAddress address(String address) {
+            var separator = address.lastIndexOf(':');
+            if (separator == -1) {
+                throw new IllegalArgumentException("Malformed address " + address);
+            }
+            return new InetSocketAddress(address.substring(0, separator), Integer.parseInt(address.substring(separator + 1)));
+        }
+
+        private static int integer(Map<String, String> values, String name, int defaultValue) {
+            var value = values.get(name);
+            try {
+                return value == null ? defaultValue : Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Malformed " + name + " " + value);
+            }
+        }
+
+        private static int[] mix(String mix) {
+            var weights = new int[Traffic.values().length];
+            for (var part : mix.split(",")) {
+                var weight = part.split(":");
+                if (weight.length != 2) {
+                    throw new IllegalArgumentException("Malformed mix " + mix);
+                }
+                weights[Traffic.valueOf(weight[0].toUpperCase()).ordinal()] = Integer.parseInt(weight[1]);
+            }
+            if (Arrays.stream(weights).sum() <= 0) {
+                throw new IllegalArgumentException("Empty mix " + mix);
+            }
+            return weights;
+        }
+    }
+
+    /**
+     * An I/O thread owning a share of the clients, and of the rate
+     */
+    private final class Worker implements Runnable {
+        private final int id;
+        private final Random random;
+        private final Selector selector;
+        private final List<LoadClient> loggedIn = new ArrayList<>();
+        private final LatencyHistogram[] latencies = new LatencyHistogram[Traffic.values().length];
+        private final LatencyHistogram loginLatencies = new LatencyHistogram();
+        private final LongAdder sent = new LongAdder();
+        private final LongAdder delivered = new LongAdder();
+        private final LongAdder connected = new LongAdder();
+        private final LongAdder logins = new LongAdder();
+        private final LongAdder refused = new LongAdder();
+        private final LongAdder reconnections = new LongAdder();
+        private final LongAdder closedByServer = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final byte[] block = new byte[options.fileSize()];
+        private final int weightSum = Arrays.stream(options.weights()).sum();
+        private int nextLogin;
+        private int pendingLogins;
+        private int missingClients;
+
+        private Worker(int id) throws IOException {
+            this.id = id;
+            this.random = new Random(id);
+            this.selector = Selector.open();
+            for (int i = 0; i < latencies.length; i++) {
+                latencies[i] = new LatencyHistogram();
+            }
+            // the clients are shared as evenly as possible between the workers
+            missingClients = options.clients() / options.threads() + (id < options.clients() % options.threads() ? 1 : 0);
+        }
+
+        @Override
+        public void run() {
+            var rate = (double) options.rate() / options.threads();
+            var churn = (double) options.churn() / options.threads();
+            var start = System.nanoTime();
+            long messages = 0;
+            long churned = 0;
+            try {
+                while (running) {
+                    openClients();
+                    var elapsedSeconds = (System.nanoTime() - start) / 1e9;
+                    // the messages late because of a slow iteration are sent at once
+                    for (var due = (long) (elapsedSeconds * rate); sending && messages < due; messages++) {
+                        sendRandomMessage();
+                    }
+                    for (var due = (long) (elapsedSeconds * churn); sending && churned < due; churned++) {
+                        reconnectRandomClient();
+                    }
+                    selector.select(this::treatKey, SELECT_MILLIS);
+                }
+            } catch (IOException e) {
+                errors.increment();
+                e.printStackTrace();
+            } finally {
+                for (var key : selector.keys()) {
+                    ((LoadClient) key.attachment()).close();
+                }
+            }
+        }
+
+        /**
+         * Opens the missing clients, keeping a bounded number of logins in flight
+         * @throws IOException If an I/O error occurs
+         */
+        private void openClients() throws IOException {
+            while (missingClients > 0 && pendingLogins < MAX_PENDING_LOGINS) {
+                var index = nextLogin++;
+                var login = "w" + id + "c" + index;
+                var address = options.servers().get((index * options.threads() + id) % options.servers().size());
+                var sc = SocketChannel.open();
+                sc.configureBlocking(false);
+                var client = new LoadClient(this, sc, login);
+                if (sc.connect(address)) {
+                    sc.register(selector, SelectionKey.OP_READ, client);
+                } else {
+                    sc.register(selector, SelectionKey.OP_CONNECT, client);
+                }
+                client.send(RequestFactory.loginAnonymous(login));
+                missingClients--;
+                pendingLogins++;
+            }
+        }
+
+        private void treatKey(SelectionKey key) {
+            var client = (LoadClient) key.attachment();
+            try {
+                if (key.isValid() && key.isConnectable()) {
+                    client.doConnect();
+                }
+                if (key.isValid() && key.isWritable()) {
+                    client.doWrite();
+                }
+                if (key.isValid() && key.isReadable()) {
+                    client.doRead();
+                }
+            } catch (IOException e) {
+                if (running) {
+                    errors.increment();
+                }
+                client.close();
+                forget(client);
+            }
+        }
+
+        /**
+         * Sends a message of a random kind, drawn from the mix, from a random client
+         * @throws IOException If an I/O error occurs
+         */
+        private void sendRandomMessage() throws IOException {
+            if (loggedIn.isEmpty()) {
+                return;
+            }
+            var sender = loggedIn.get(random.nextInt(loggedIn.size()));
+            var draw = random.nextInt(weightSum);
+            var traffic = Traffic.PUBLIC;
+            for (var candidate : Traffic.values()) {
+                draw -= options.weights()[candidate.ordinal()];
+                if (draw < 0) {
+                    traffic = candidate;
+                    break;
+                }
+            }
+            var recipient = loggedIn.get(random.nextInt(loggedIn.size()));
+            var now = Long.toString(System.nanoTime());
+            switch (traffic) {
+                case PUBLIC -> sender.send(RequestFactory.publicMessage(sender.serverName, sender.login, now));
+                case PRIVATE -> sender.send(RequestFactory.privateMessage(sender.serverName, sender.login, recipient.serverName, recipient.login, now));
+                case FILE -> {
+                    ByteBuffer.wrap(block).putLong(0, System.nanoTime());
+                    // the arguments are positional, in the order of the fields of RequestMessageFilePrivate
+                    sender.send(RequestFactory.privateFile(sender.serverName, sender.login, recipient.serverName, recipient.login, "load", 1, block.length, block));
+                }
+            }
+            sent.increment();
+        }
+
+        /**
+         * Closes a random client and opens a new one in its place
+         */
+        private void reconnectRandomClient() {
+            if (loggedIn.isEmpty()) {
+                return;
+            }
+            var client = loggedIn.get(random.nextInt(loggedIn.size()));
+            client.close();
+            forget(client);
+            missingClients++;
+            reconnections.increment();
+        }
+
+        private void loggedIn(LoadClient client, String serverName) {
+            client.serverName = serverName;
+            loggedIn.add(client);
+            pendingLogins--;
+            logins.increment();
+            connected.increment();
+            loginLatencies.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - client.openTime));
+        }
+
+        private void forget(LoadClient client) {
+            if (client.serverName == null) {
+                pendingLogins--;
+            } else if (loggedIn.remove(client)) {
+                connected.decrement();
+            }
+        }
+
+        private void delivered(Traffic traffic, long sendTime) {
+            delivered.increment();
+            latencies[traffic.ordinal()].record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - sendTime));
+        }
+    }
+
+    /**
+     * A simulated client, owning its own readers since every client of a worker is decoded by the same thread
+     */
+    private final class LoadClient {
+        private final Worker worker;
+        private final SocketChannel sc;
+        private final String login;
+        private final long openTime = System.nanoTime();
+        private final ByteBuffer bufferIn = ByteBuffer.allocate(BUFFER_SIZE);
+        private final ArrayDeque<ByteBuffer> queue = new ArrayDeque<>();
+        private final Map<OpCode, Reader<Request>> readers = new EnumMap<>(OpCode.class);
+        private Reader<Request> requestReader;
+        // null until LOGIN_ACCEPTED
+        private String serverName;
+        private boolean closed;
+
+        private LoadClient(Worker worker, SocketChannel sc, String login) {
+            this.worker = worker;
+            this.sc = sc;
+            this.login = login;
+        }
+
+        private void send(Request request) throws IOException {
+            queue.add(request.encode());
+            if (sc.isConnected()) {
+                doWrite();
+            }
+        }
+
+        private void doConnect() throws IOException {
+            if (!sc.finishConnect()) {
+                return;
+            }
+            doWrite();
+        }
+
+        private void doWrite() throws IOException {
+            while (!queue.isEmpty()) {
+                var buffer = queue.peek();
+                sc.write(buffer);
+                if (buffer.hasRemaining()) {
+                    break;
+                }
+                queue.poll();
+            }
+            var key = sc.keyFor(worker.selector);
+            if (key != null && key.isValid()) {
+                key.interestOps(queue.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            }
+        }
+
+        private void doRead() throws IOException {
+            if (sc.read(bufferIn) == -1) {
+                if (sending) {
+                    worker.closedByServer.increment();
+                }
+                throw new IOException("Connection of " + login + " closed by the server");
+            }
+            bufferIn.flip();
+            try {
+                while (!closed && bufferIn.hasRemaining()) {
+                    if (requestReader == null) {
+                        var opCode = OpCode.getOpCodeFromByte(bufferIn.get())
+                                .orElseThrow(() -> new IOException("Unknown OpCode received by " + login));
+                        requestReader = readers.computeIfAbsent(opCode, LoadClient::reader);
+                    }
+                    switch (requestReader.process(bufferIn)) {
+                        case DONE -> {
+                            var request = requestReader.get();
+                            requestReader.reset();
+                            requestReader = null;
+                            handle(request);
+                        }
+                        case REFILL -> {
+                            return;
+                        }
+                        case ERROR -> throw new IOException("Malformed frame received by " + login);
+                    }
+                }
+            } finally {
+                bufferIn.compact();
+            }
+        }
+
+        /**
+         * Creates the reader of the frames a client receives
+         * @param opCode the {@link OpCode} of the frame
+         * @return the reader created
+         * @throws IllegalStateException if a client does not expect such frames
+         */
+        private static Reader<Request> reader(OpCode opCode) {
+            return switch (opCode) {
+                case LOGIN_ACCEPTED -> new RequestLoginAcceptedReader();
+                case LOGIN_REFUSED -> new RequestLoginRefusedReader();
+                case MESSAGE -> new RequestMessagePublicReader();
+                case PRIVATE_MESSAGE -> new RequestMessagePrivateReader();
+                case FILE_PRIVATE -> new RequestFilePrivateReader();
+                default -> throw new IllegalStateException("Unexpected " + opCode);
+            };
+        }
+
+        private void handle(Request request) throws IOException {
+            switch (request) {
+                case RequestLoginAccepted accepted -> worker.loggedIn(this, accepted.serverName().string());
+                case RequestLoginRefused ignored -> {
+                    worker.refused.increment();
+                    throw new IOException("Login " + login + " refused");
+                }
+                case RequestMessagePublic message -> worker.delivered(Traffic.PUBLIC, Long.parseLong(message.message().string()));
+                case RequestMessagePrivate message -> worker.delivered(Traffic.PRIVATE, Long.parseLong(message.message().string()));
+                case RequestMessageFilePrivate file -> worker.delivered(Traffic.FILE, ByteBuffer.wrap(file.block()).getLong(0));
+                default -> throw new IOException("Unexpected " + request.getOpCode() + " received by " + login);
+            }
+        }
+
+        private void close() {
+            closed = true;
+            try {
+                sc.close();
+            } catch (IOException e) {
+                // ignore exception
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package main.java.buffer;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of direct {@link ByteBuffer}s of one capacity, carved out of bigger direct slabs.
+ * <p>
+ * Connections lease their I/O buffers only while they have bytes in flight and release them once idle,
+ * so the direct memory in use follows the traffic rather than the number of connections.
+ * A new slab is allocated when every buffer is leased, slabs are kept for the lifetime of the pool.
+ * The pool can be shared by several threads, a leased buffer belongs to a single one until released.
+ */
+public final class BufferPool {
+    private final int bufferSize;
+    private final int buffersPerSlab;
+    private final ConcurrentLinkedQueue<ByteBuffer> available = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger slabs = new AtomicInteger();
+    private final AtomicInteger leased = new AtomicInteger();
+
+    /**
+     * Creates an empty pool, the first slab is allocated by the first lease
+     * @param bufferSize the capacity of every buffer
+     * @param buffersPerSlab the number of buffers carved out of each slab
+     */
+    public BufferPool(int bufferSize, int buffersPerSlab) {
+        if (bufferSize <= 0 || buffersPerSlab <= 0) {
+            throw new IllegalArgumentException("bufferSize and buffersPerSlab must be positive");
+        }
+        this.bufferSize = bufferSize;
+        this.buffersPerSlab = buffersPerSlab;
+    }
+
+    /**
+     * Leases a buffer, allocating a new slab if none is available
+     * @return a cleared direct {@link ByteBuffer}, in write-mode
+     */
+    public ByteBuffer lease() {
+        var buffer = available.poll();
+        while (buffer == null) {
+            allocateSlab();
+            buffer = available.poll();
+        }
+        leased.incrementAndGet();
+        return buffer.clear();
+    }
+
+    /**
+     * Gives a leased buffer back to the pool, it must not be used afterwards
+     * @param buffer the buffer obtained from {@link #lease()}
+     * @throws IllegalArgumentException if the buffer does not come from a pool of this capacity
+     */
+    public void release(ByteBuffer buffer) {
+        if (!buffer.isDirect() || buffer.capacity() != bufferSize) {
+            throw new IllegalArgumentException("buffer not leased from this pool");
+        }
+        leased.decrementAndGet();
+        available.add(buffer);
+    }
+
+    private synchronized void allocateSlab() {
+        if (!available.isEmpty()) {
+            return; // another thread allocated a slab meanwhile
+        }
+        var slab = ByteBuffer.allocateDirect(bufferSize * buffersPerSlab);
+        for (int i = 0; i < buffersPerSlab; i++) {
+            available.add(slab.slice(i * bufferSize, bufferSize));
+        }
+        slabs.incrementAndGet();
+    }
+
+    /**
+     * Gets the number of buffers currently leased
+     * @return the number of leased buffers
+     */
+    public int leased() {
+        return leased.get();
+    }
+
+    /**
+     * Gets the number of buffers carved out of the allocated slabs
+     * @return the number of buffers, leased or not
+     */
+    public int capacity() {
+        return slabs.get() * buffersPerSlab;
+    }
+
+    /**
+     * Gets the direct memory allocated by the pool
+     * @return the number of bytes of every slab
+     */
+    public long allocatedBytes() {
+        return (long) slabs.get() * buffersPerSlab * bufferSize;
+    }
+
+    @Override
+    public String toString() {
+        return leased() + "/" + capacity() + " buffers leased, " + slabs.get() + " slabs (" + allocatedBytes() / 1024 + " KiB direct)";
+    }
+}
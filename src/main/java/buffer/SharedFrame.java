@@ -0,0 +1,166 @@
+package main.java.buffer;
+
+import main.java.OpCode;
+import main.java.request.Request;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * An encoded frame shared by every connection it is sent to.
+ * <p>
+ * The frame is encoded once into a pooled buffer and never modified afterwards, each recipient writes it
+ * from its own {@link #view()}. The frame counts its references: the creator owns the first one, each
+ * recipient must be given its own with {@link #retain()} and {@link #release()} it once the frame is written.
+ * When the last reference is released, the buffer goes back to the pool to encode another frame.
+ * <p>
+ * Pooled buffers are direct, so that channels write them, gathered or not, without an intermediate copy.
+ */
+public final class SharedFrame {
+    private static final int MIN_POOLED_CAPACITY = 256;
+    private static final int MAX_POOLED_CAPACITY = 8192;
+    private static final int MAX_POOLED_BUFFERS = 1024;
+    // One pool per power of two between MIN_POOLED_CAPACITY and MAX_POOLED_CAPACITY
+    private static final Pool[] POOLS = new Pool[Integer.numberOfTrailingZeros(MAX_POOLED_CAPACITY / MIN_POOLED_CAPACITY) + 1];
+
+    static {
+        for (int i = 0; i < POOLS.length; i++) {
+            POOLS[i] = new Pool(MIN_POOLED_CAPACITY << i);
+        }
+    }
+
+    // Counts the references without an AtomicInteger per frame, a frame is created for every message relayed
+    private static final AtomicIntegerFieldUpdater<SharedFrame> REFERENCES = AtomicIntegerFieldUpdater.newUpdater(SharedFrame.class, "references");
+
+    private final OpCode opCode;
+    // In read-mode, its position and limit never change until it goes back to the pool
+    private final ByteBuffer buffer;
+    private volatile int references = 1;
+
+    private SharedFrame(OpCode opCode, ByteBuffer buffer) {
+        this.opCode = opCode;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Encodes a {@link Request} once into a pooled buffer
+     * @param request the {@link Request} to encode
+     * @return the {@link SharedFrame} created, holding one reference owned by the caller
+     */
+    public static SharedFrame encode(Request request) {
+        var buffer = lease(request.bufferLength());
+        request.encodeTo(buffer);
+        return new SharedFrame(request.getOpCode(), buffer.flip());
+    }
+
+    /**
+     * Shares a frame already encoded in a buffer obtained from {@link #lease(int)}
+     * @param opCode the {@link OpCode} of the frame
+     * @param buffer the buffer containing the whole frame, in read-mode, it must not be modified afterwards
+     * @return the {@link SharedFrame} created, holding one reference owned by the caller
+     */
+    public static SharedFrame wrap(OpCode opCode, ByteBuffer buffer) {
+        return new SharedFrame(opCode, buffer);
+    }
+
+    /**
+     * Gets the {@link OpCode} of the encoded frame
+     * @return the {@link OpCode} of the frame
+     */
+    public OpCode opCode() {
+        return opCode;
+    }
+
+    /**
+     * Gets the number of bytes of the encoded frame
+     * @return the length of the frame
+     */
+    public int length() {
+        return buffer.remaining();
+    }
+
+    /**
+     * Creates a read-only view over the encoded frame, with its own position and limit
+     * @return a {@link ByteBuffer} in read-mode containing the whole frame
+     */
+    public ByteBuffer view() {
+        return buffer.asReadOnlyBuffer();
+    }
+
+    /**
+     * Adds a reference to this frame, to give to another recipient
+     * @return this frame
+     * @throws IllegalStateException if the frame has already been released
+     */
+    public SharedFrame retain() {
+        if (REFERENCES.getAndIncrement(this) <= 0) {
+            throw new IllegalStateException("frame already released");
+        }
+        return this;
+    }
+
+    /**
+     * Releases a reference to this frame, the last one gives the buffer back to the pool
+     * @throws IllegalStateException if the frame has already been released
+     */
+    public void release() {
+        var remaining = REFERENCES.decrementAndGet(this);
+        if (remaining < 0) {
+            throw new IllegalStateException("frame already released");
+        }
+        if (remaining == 0) {
+            recycle(buffer);
+        }
+    }
+
+    /**
+     * Leases a buffer from the pool, to fill before giving it to {@link #wrap(OpCode, ByteBuffer)}
+     * @param length the number of bytes needed
+     * @return a {@link ByteBuffer} in write-mode with at least length bytes remaining
+     */
+    public static ByteBuffer lease(int length) {
+        if (length > MAX_POOLED_CAPACITY) {
+            return ByteBuffer.allocate(length);
+        }
+        var index = indexOf(length);
+        var buffer = POOLS[index].buffers.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(POOLS[index].capacity);
+        }
+        POOLS[index].size.decrementAndGet();
+        return buffer.clear();
+    }
+
+    /**
+     * Gives back to the pool a buffer obtained from {@link #lease(int)} that will not be wrapped
+     * @param buffer the buffer, it must not be used afterwards
+     */
+    public static void recycle(ByteBuffer buffer) {
+        var capacity = buffer.capacity();
+        if (!buffer.isDirect() || capacity > MAX_POOLED_CAPACITY || Integer.bitCount(capacity) != 1) {
+            return; // not leased from a pool
+        }
+        var pool = POOLS[indexOf(capacity)];
+        if (pool.size.incrementAndGet() > MAX_POOLED_BUFFERS) {
+            pool.size.decrementAndGet();
+            return;
+        }
+        pool.buffers.add(buffer);
+    }
+
+    private static int indexOf(int length) {
+        var capacity = Math.max(MIN_POOLED_CAPACITY, Integer.highestOneBit(length - 1) << 1);
+        return Integer.numberOfTrailingZeros(capacity / MIN_POOLED_CAPACITY);
+    }
+
+    /**
+     * The recycled buffers of one capacity
+     */
+    private record Pool(int capacity, ConcurrentLinkedQueue<ByteBuffer> buffers, AtomicInteger size) {
+        private Pool(int capacity) {
+            this(capacity, new ConcurrentLinkedQueue<>(), new AtomicInteger());
+        }
+    }
+}
@@ -2,8 +2,10 @@ package main.java.client;
 
 import main.java.OpCode;
 import main.java.Utils.RequestFactory;
+import main.java.buffer.BufferPool;
 import main.java.exceptions.FileChatFusionException;
 import main.java.reader.Reader;
+import main.java.reader.ReaderSet;
 import main.java.request.*;
 import main.java.request.Request.ReadingState;
 
@@ -23,11 +25,21 @@ import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.logging.Logger;
 
 public class ClientChatFusion {
     private static final Charset UTF8 = StandardCharsets.UTF_8;
     static private final int BUFFER_SIZE = 8096;
+    static private final int BUFFERS_PER_SLAB = 4;
+    // Computes the SHA-256 of the files being sent, the selector thread does not read a whole file at once
+    static private final ExecutorService digests = Executors.newSingleThreadExecutor(task -> {
+        var thread = new Thread(task, "digest");
+        thread.setDaemon(true);
+        return thread;
+    });
+    static private final BufferPool bufferPool = new BufferPool(BUFFER_SIZE, BUFFERS_PER_SLAB);
     static private final Logger logger = Logger.getLogger(ClientChatFusion.class.getName());
     private final SocketChannel sc;
     private final SendThreadSafe sendThreadSafe = new SendThreadSafe();
@@ -125,6 +137,7 @@ public class ClientChatFusion {
             try {
                 selector.select(this::treatKey);
                 processCommand();
+                uniqueContext.checkDigests();
             } catch (UncheckedIOException tunneled) {
                 throw tunneled.getCause();
             }
@@ -138,6 +151,7 @@ public class ClientChatFusion {
         System.out.println("""
                 List of commands:
                     - /help -> print this usage section
+                    - /transfers -> print the progress and the throughput of the files being sent and received
                     - @[login_client]:[server_destination_name] [message] -> whisper a private message to a client
                     - /[login_client]:[server_destination_name] [filename_in_the_transfert_directory]-> whisper a private file to a client
                 """);
@@ -154,6 +168,7 @@ public class ClientChatFusion {
 
         switch (msg) {
             case String msgString && msgString.startsWith("/help") -> printConsoleUsage();
+            case String msgString && msgString.startsWith("/transfers") -> uniqueContext.printTransfers();
             case String msgString && msgString.startsWith("/") -> {
                 var message = stripMessageIntoCommand(msgString);
                 if (message == null) return;
@@ -164,13 +179,8 @@ public class ClientChatFusion {
                 var filepath = Path.of(transfertDir, message[1]);
                 try {
                     var fileChatFusion = FileChatFusion.initToSend(filepath);
-
-                    var nbBlocksMax = fileChatFusion.getNbBlocksMax();
-                    for (int i = 0; i < nbBlocksMax; i++) {
-                        var block = fileChatFusion.write();
-                        uniqueContext.sendFilePrivate(login, serverDst, loginDst, filepath.getFileName().toString(), nbBlocksMax, block.length, block);
-                    }
-                } catch (FileChatFusionException e) {
+                    uniqueContext.sendFilePrivate(login, serverDst, loginDst, filepath.getFileName().toString(), fileChatFusion);
+                } catch (FileChatFusionException | IOException e) {
                     System.out.println(e.getMessage());
                 }
             }
@@ -276,18 +286,34 @@ public class ClientChatFusion {
         private final SelectionKey key;
         private final SocketChannel sc;
         private final String login;
-        private final ByteBuffer bufferIn = ByteBuffer.allocate(BUFFER_SIZE);
-        private final ByteBuffer bufferOut = ByteBuffer.allocate(BUFFER_SIZE);
         private final ArrayDeque<Request> requestQueue = new ArrayDeque<>();
-        private final ArrayDeque<Request> fileRequestQueue = new ArrayDeque<>();
-        private final Map<String, FileChatFusion> mapFile = new HashMap<>();
+        // The files being sent, a block of each in turn, each block transferred from the disk once bufferOut has room
+        // for the header of its FILE_PRIVATE
+        private final ArrayDeque<FileToSend> fileQueue = new ArrayDeque<>();
+        // The header of a block of the first file is in bufferOut, its bytes are transferred once bufferOut is written
+        private boolean blockPending;
+        // The files to offer, waiting for their SHA-256, carried by their offer
+        private final ArrayDeque<FileToSend> digestQueue = new ArrayDeque<>();
+        // The files offered, waiting for their recipient to tell the parts it already has, by recipient and name. No
+        // block is sent meanwhile
+        private final Map<TransferKey, FileToSend> offers = new HashMap<>();
+        // The resumable files whose blocks have all been sent, waiting for their recipient to confirm it has them all
+        private final ArrayDeque<FileToSend> sentQueue = new ArrayDeque<>();
+        // The files being received, by sender and name
+        private final Map<TransferKey, FileChatFusion> mapFile = new HashMap<>();
         private final String transfertDir;
         private String serverName;
         private String password;
+        // The server announced {@link RequestFusionCapabilities#RESUME}: the files are offered before being sent
+        private boolean resumable;
         private boolean closed = false;
         private State state;
         private ReadingState readingState = ReadingState.WAITING_FOR_REQUEST;
+        private final ReaderSet readers = new ReaderSet();
         private Reader<Request> requestReader;
+        // Leased from the pool while bytes are in flight, null when the connection is idle
+        private ByteBuffer bufferIn;
+        private ByteBuffer bufferOut;
 
         private Context(SelectionKey key, String login, String transfertDir) {
             this.key = key;
@@ -307,39 +333,43 @@ public class ClientChatFusion {
          * Process the content of bufferIn
          * <p>
          * The convention is that bufferIn is in write-mode before the call to process
-         * and after the call
+         * and after the call, the readers work on it in read-mode and it is compacted once at the end
          */
         private void processIn() throws IOException {
-            while (bufferIn.position() != 0) {
-                if (readingState == ReadingState.WAITING_FOR_REQUEST) {
-                    bufferIn.flip();
-                    var optionalWatcher = OpCode.getOpCodeFromByte(bufferIn.get());
-                    if (optionalWatcher.isPresent()) {
-                        requestReader = optionalWatcher.get().getRequestReader();
-                        readingState = ReadingState.READING_REQUEST;
-                    } else {
-                        // Close the connection if it sent a wrong OpCode
-                        silentlyClose();
-                    }
-                    bufferIn.compact();
-                }
-                // Read the request
-                var requestStatus = requestReader.process(bufferIn);
-                switch (requestStatus) {
-                    case DONE -> {
-                        Request request = requestReader.get();
-                        requestHandler(request);
-                        readingState = ReadingState.WAITING_FOR_REQUEST;
+            bufferIn.flip();
+            try {
+                while (!closed && bufferIn.hasRemaining()) {
+                    if (readingState == ReadingState.WAITING_FOR_REQUEST) {
+                        var optionalWatcher = OpCode.getOpCodeFromByte(bufferIn.get());
+                        if (optionalWatcher.isPresent()) {
+                            requestReader = readers.requestReader(optionalWatcher.get());
+                            readingState = ReadingState.READING_REQUEST;
+                        } else {
+                            // Close the connection if it sent a wrong OpCode
+                            silentlyClose();
+                            return;
+                        }
                     }
-                    case REFILL -> {
-                        return;
-                    }
-                    case ERROR -> {
-                        silentlyClose();
-                        logger.severe("Error reading, closing connection");
-                        return;
+                    // Read the request
+                    var requestStatus = requestReader.process(bufferIn);
+                    switch (requestStatus) {
+                        case DONE -> {
+                            Request request = requestReader.get();
+                            requestHandler(request);
+                            readingState = ReadingState.WAITING_FOR_REQUEST;
+                        }
+                        case REFILL -> {
+                            return;
+                        }
+                        case ERROR -> {
+                            silentlyClose();
+                            logger.severe("Error reading, closing connection");
+                            return;
+                        }
                     }
                 }
+            } finally {
+                bufferIn.compact();
             }
         }
 
@@ -357,9 +387,14 @@ public class ClientChatFusion {
                         state = State.CONNECTED;
                         serverName = requestLoginAccepted.serverName().string();
                         logger.info("\t" + "Connection established with server: " + requestLoginAccepted.serverName().string());
+                        // the files are sent with FILE_PRIVATE until the server tells it supports the resumable transfers
+                        queueRequest(RequestFactory.fusionCapabilities(RequestFusionCapabilities.RESUME));
                     }
                 }
 
+                case RequestFusionCapabilities requestFusionCapabilities ->
+                        resumable = requestFusionCapabilities.supports(RequestFusionCapabilities.RESUME);
+
                 case RequestLoginRefused requestLoginRefused -> {
                     System.out.println("Connexion refused");
                     silentlyClose();
@@ -389,14 +424,108 @@ public class ClientChatFusion {
 
                 case RequestMessageFilePrivate requestMessageFilePrivate -> {
                     var filename = requestMessageFilePrivate.filename().string();
-                    var file = mapFile.getOrDefault(filename, FileChatFusion.initToReceive(Path.of(transfertDir, filename), requestMessageFilePrivate.nbBlocksMax()));
+                    var transfer = new TransferKey(requestMessageFilePrivate.serverSrc().string(), requestMessageFilePrivate.loginSrc().string(), filename);
+                    var file = mapFile.get(transfer);
+                    if (file == null || file.isResumable()) {
+                        if (file != null) {
+                            file.close();
+                        }
+                        try {
+                            file = FileChatFusion.initToReceive(Path.of(transfertDir, filename), requestMessageFilePrivate.nbBlocksMax());
+                        } catch (IOException e) {
+                            System.out.println("File " + filename + " could not be created: " + e.getMessage());
+                            return;
+                        }
+                        mapFile.put(transfer, file);
+                    }
 
                     if (file.readUntilWriteAvailable(requestMessageFilePrivate.block(), requestMessageFilePrivate.loginSrc().string(), requestMessageFilePrivate.serverSrc().string())) {
-                        mapFile.remove(filename);
+                        mapFile.remove(transfer);
+                    }
+                }
+
+                case RequestFileOffer requestFileOffer -> {
+                    var serverSrc = requestFileOffer.serverSrc().string();
+                    var loginSrc = requestFileOffer.loginSrc().string();
+                    var filename = requestFileOffer.filename().string();
+                    var transfer = new TransferKey(serverSrc, loginSrc, filename);
+                    var previous = mapFile.remove(transfer);
+                    if (previous != null) {
+                        previous.close();
+                    }
+                    FileChatFusion file;
+                    try {
+                        file = FileChatFusion.initToResume(Path.of(transfertDir, filename), serverSrc, loginSrc, requestFileOffer.fileSize(), requestFileOffer.digest());
+                    } catch (IOException e) {
+                        System.out.println("File " + filename + " could not be created: " + e.getMessage());
+                        queueRequest(RequestFactory.fileDeclined(serverName, login, serverSrc, loginSrc, filename));
                         return;
                     }
+                    System.out.println("File from " + loginSrc + "[" + serverSrc + "]: " + filename + " offered, " + file.getNbBlockCurrent() + "/" + file.getNbBlocksMax() + " blocks already received");
+                    mapFile.put(transfer, file);
+                    var download = file.finishIfComplete();
+                    if (download == FileChatFusion.Download.PENDING) {
+                        queueRequest(RequestFactory.fileResume(serverName, login, serverSrc, loginSrc, filename, file.getRanges()));
+                    } else {
+                        // every part was received before, the file is finished without any block
+                        answerDownload(transfer, file, download);
+                    }
+                }
 
-                    mapFile.put(filename, file);
+                case RequestFileResume requestFileResume -> {
+                    var transfer = new TransferKey(requestFileResume.serverSrc().string(), requestFileResume.loginSrc().string(), requestFileResume.filename().string());
+                    var file = offers.remove(transfer);
+                    var offered = file != null;
+                    if (!offered) {
+                        // a block arrived corrupted or the file with a wrong digest, or the file has been received
+                        file = sending(transfer);
+                    }
+                    if (file == null || !file.file().isResumable()) {
+                        return;
+                    }
+                    if (file.file().resume(requestFileResume.ranges())) {
+                        System.out.println("File " + file.filename() + " received by " + file.loginDst() + "[" + file.serverDst() + "]");
+                        endFile(file);
+                        return;
+                    }
+                    if (offered) {
+                        printResumed(file);
+                    }
+                    if (!fileQueue.contains(file)) {
+                        sentQueue.remove(file);
+                        queueFileToSend(file);
+                    }
+                }
+
+                case RequestFileDeclined requestFileDeclined -> {
+                    var transfer = new TransferKey(requestFileDeclined.serverSrc().string(), requestFileDeclined.loginSrc().string(), requestFileDeclined.filename().string());
+                    var file = offers.remove(transfer);
+                    if (file != null) {
+                        System.out.println("File " + file.filename() + " sent without resume, " + file.loginDst() + "[" + file.serverDst() + "] cannot resume it");
+                        file.file().sendWithoutResume();
+                        queueFileToSend(file);
+                        return;
+                    }
+                    file = sending(transfer);
+                    if (file == null || !file.file().isResumable()) {
+                        return;
+                    }
+                    System.out.println("File " + file.filename() + " given up by " + file.loginDst() + "[" + file.serverDst() + "]");
+                    file.file().cancel();
+                    endFile(file);
+                }
+
+                case RequestFileBlock requestFileBlock -> {
+                    var serverSrc = requestFileBlock.serverSrc().string();
+                    var loginSrc = requestFileBlock.loginSrc().string();
+                    var filename = requestFileBlock.filename().string();
+                    var transfer = new TransferKey(serverSrc, loginSrc, filename);
+                    var file = mapFile.get(transfer);
+                    if (file == null || !file.isResumable()) {
+                        // the offer of the file has not been received
+                        return;
+                    }
+                    answerDownload(transfer, file, file.writeBlock(requestFileBlock.offset(), requestFileBlock.crc(), requestFileBlock.block(), loginSrc, serverSrc));
                 }
 
                 default -> { // Unsupported request, we end the connection with the client
@@ -406,6 +535,30 @@ public class ClientChatFusion {
             }
         }
 
+        /**
+         * Tells the sender of a resumable file the state of its download: the parts received once a block arrived
+         * corrupted, none once the file arrived with a wrong digest, every part once the file has been downloaded
+         *
+         * @param transfer the sender and the name of the file
+         * @param file     the file being received
+         * @param download the state of the download
+         */
+        private void answerDownload(TransferKey transfer, FileChatFusion file, FileChatFusion.Download download) {
+            switch (download) {
+                case PENDING -> {
+                }
+                case CORRUPTED, RESTARTED -> queueRequest(RequestFactory.fileResume(serverName, login, transfer.server(), transfer.login(), transfer.filename(), file.getRanges()));
+                case DOWNLOADED -> {
+                    mapFile.remove(transfer);
+                    queueRequest(RequestFactory.fileResume(serverName, login, transfer.server(), transfer.login(), transfer.filename(), file.getRanges()));
+                }
+                case FAILED -> {
+                    mapFile.remove(transfer);
+                    queueRequest(RequestFactory.fileDeclined(serverName, login, transfer.server(), transfer.login(), transfer.filename()));
+                }
+            }
+        }
+
         /**
          * Add a request to the request queue, tries to fill bufferOut and updateInterestOps
          */
@@ -416,18 +569,30 @@ public class ClientChatFusion {
         }
 
         /**
-         * Add a file request to the request queue, tries to fill bufferOut and updateInterestOps
+         * Add a file to the file queue, tries to fill bufferOut with the header of its first block and updateInterestOps
          */
-        public void queueFileToSend(Request request) {
-            fileRequestQueue.add(request);
+        public void queueFileToSend(FileToSend file) {
+            fileQueue.add(file);
             processOut();
             updateInterestOps();
         }
 
         /**
          * Try to fill bufferOut from the message queue
+         * <p>
+         * Only the header of a FILE_PRIVATE is put in bufferOut, the block is then transferred from the file to sc by
+         * doWrite: nothing more is put in bufferOut until the block has been written
          */
         private void processOut() {
+            if (blockPending) {
+                return;
+            }
+            if (bufferOut == null) {
+                if (requestQueue.isEmpty() && fileQueue.isEmpty()) {
+                    return;
+                }
+                bufferOut = bufferPool.lease();
+            }
             while (!requestQueue.isEmpty()) {
                 if (bufferOut.remaining() < requestQueue.peek().bufferLength()) {
                     return;
@@ -438,16 +603,157 @@ public class ClientChatFusion {
                 bufferOut.put(encode);
             }
 
-            while (!fileRequestQueue.isEmpty()) {
-                // inferior to 6_000 byte to prioritise other request than file
-                if (bufferOut.remaining() < 6_000 || bufferOut.remaining() < fileRequestQueue.peek().bufferLength()) {
+            while (!fileQueue.isEmpty()) {
+                var file = fileQueue.peek();
+                // the room of the whole frame is asked for, as if the block was in bufferOut, to prioritise the other
+                // requests. It is checked before the block is read: each block is read, and its checksum computed, once
+                if (bufferOut.remaining() < file.nextFrameLength()) {
                     return;
                 }
-                var file = fileRequestQueue.poll();
-                assert file != null;
-                var encode = file.encode();
-                bufferOut.put(encode);
+                Request header;
+                try {
+                    header = file.nextBlock();
+                } catch (IOException e) {
+                    System.out.println("File " + file.filename() + " could not be read: " + e.getMessage());
+                    file.file().close();
+                    fileQueue.poll();
+                    continue;
+                }
+                header.encodeTo(bufferOut);
+                blockPending = true;
+                return;
+            }
+        }
+
+        /**
+         * Transfers the block whose header has been written from the first file to sc, the file then goes to the end of
+         * the queue: the files being sent share the connection block by block, whatever their size
+         *
+         * @throws IOException If an I/O error occurs, the block is cut and the connection cannot be used anymore
+         */
+        private void transferBlock() throws IOException {
+            var file = fileQueue.peek();
+            assert file != null;
+            try {
+                if (!file.file().transferBlock(sc)) {
+                    return;
+                }
+            } catch (IOException e) {
+                System.out.println("File " + file.filename() + " could not be read: " + e.getMessage());
+                throw e;
+            }
+            blockPending = false;
+            fileQueue.poll();
+            if (file.file().hasRemaining()) {
+                fileQueue.add(file);
+            } else {
+                finishFile(file);
+            }
+        }
+
+        /**
+         * Ends the sending of a file whose blocks have all been sent: a resumable file waits for its recipient to
+         * confirm it has every part, unless it already did or gave the file up
+         *
+         * @param file the file sent
+         */
+        private void finishFile(FileToSend file) {
+            if (!file.file().isResumable() || file.file().isDone()) {
+                file.file().close();
+                return;
+            }
+            sentQueue.add(file);
+        }
+
+        /**
+         * Stops sending a resumable file its recipient has or gave up. A file whose block is being written is closed
+         * once the block is written, see {@link #finishFile(FileToSend)}
+         *
+         * @param file the file sent
+         */
+        private void endFile(FileToSend file) {
+            if (blockPending && fileQueue.peek() == file) {
+                return;
+            }
+            fileQueue.remove(file);
+            sentQueue.remove(file);
+            file.file().close();
+        }
+
+        /**
+         * Offers the files whose SHA-256 has been computed, the offer carrying it. A file which could not be read is
+         * not sent
+         */
+        private void checkDigests() {
+            for (var iterator = digestQueue.iterator(); iterator.hasNext(); ) {
+                var file = iterator.next();
+                if (!file.file().isDigestDone()) {
+                    continue;
+                }
+                iterator.remove();
+                byte[] digest;
+                try {
+                    digest = file.file().getDigest();
+                } catch (IOException e) {
+                    System.out.println("File " + file.filename() + " could not be read: " + e.getMessage());
+                    file.file().close();
+                    continue;
+                }
+                offers.put(file.transfer(), file);
+                queueRequest(RequestFactory.fileOffer(file.serverSrc(), file.loginSrc(), file.serverDst(), file.loginDst(), file.filename(), file.file().getSize(), digest));
+            }
+        }
+
+        /**
+         * Finds a resumable file being sent, whose offer has been answered
+         *
+         * @param transfer the recipient and the name of the file
+         * @return the file, null if it is not being sent anymore
+         */
+        private FileToSend sending(TransferKey transfer) {
+            for (var queue : List.of(fileQueue, sentQueue)) {
+                for (var file : queue) {
+                    if (file.transfer().equals(transfer)) {
+                        return file;
+                    }
+                }
             }
+            return null;
+        }
+
+        /**
+         * Tells how many blocks of a file are left to send, once its recipient answered the offer of the file
+         *
+         * @param file the file offered
+         */
+        private static void printResumed(FileToSend file) {
+            var total = (file.file().getSize() + FileChatFusion.BLOCK_SIZE - 1) / FileChatFusion.BLOCK_SIZE;
+            if (file.file().getNbBlocksMax() < total) {
+                System.out.println("File " + file.filename() + " resumed, " + file.file().getNbBlocksMax() + "/" + total + " blocks left to send");
+            }
+        }
+
+        /**
+         * Prints the progress and the throughput of the files being sent and received
+         */
+        private void printTransfers() {
+            if (digestQueue.isEmpty() && offers.isEmpty() && fileQueue.isEmpty() && sentQueue.isEmpty() && mapFile.isEmpty()) {
+                System.out.println("No file being transferred");
+                return;
+            }
+            digestQueue.forEach(file -> System.out.println("To " + file.loginDst() + "[" + file.serverDst() + "]: " + file.filename() + " digest being computed"));
+            offers.values().forEach(file -> System.out.println("To " + file.loginDst() + "[" + file.serverDst() + "]: " + file.filename() + " offered"));
+            sentQueue.forEach(file -> System.out.println("To " + file.loginDst() + "[" + file.serverDst() + "]: " + file.filename() + " sent, confirmation pending"));
+            fileQueue.forEach(file -> printTransfer("To " + file.loginDst() + "[" + file.serverDst() + "]: " + file.filename(), file.file()));
+            mapFile.forEach((transfer, file) -> printTransfer("From " + transfer.login() + "[" + transfer.server() + "]: " + transfer.filename(), file));
+        }
+
+        private static void printTransfer(String transfer, FileChatFusion file) {
+            var current = file.getNbBlockCurrent();
+            var max = file.getNbBlocksMax();
+            // an empty file has no block to transfer
+            var percent = max == 0 ? 100L : 100L * current / max;
+            System.out.printf("%s %d/%d blocks (%d%%), %.1f kB/s%n", transfer, current, max, percent, file.getThroughput() / 1_000);
         }
 
         /**
@@ -462,10 +768,10 @@ public class ClientChatFusion {
         private void updateInterestOps() {
             int ops = 0;
 
-            if (!closed && bufferIn.hasRemaining()) {
+            if (!closed && (bufferIn == null || bufferIn.hasRemaining())) {
                 ops |= SelectionKey.OP_READ;
             }
-            if (!closed && bufferOut.position() != 0) {
+            if (!closed && ((bufferOut != null && bufferOut.position() != 0) || blockPending)) {
                 ops |= SelectionKey.OP_WRITE;
             }
 
@@ -484,6 +790,17 @@ public class ClientChatFusion {
             } catch (IOException e) {
                 // ignore exception
             }
+            fileQueue.forEach(file -> file.file().close());
+            fileQueue.clear();
+            digestQueue.forEach(file -> file.file().close());
+            digestQueue.clear();
+            offers.values().forEach(file -> file.file().close());
+            offers.clear();
+            sentQueue.forEach(file -> file.file().close());
+            sentQueue.clear();
+            // the blocks already received stay in the .part files
+            mapFile.values().forEach(FileChatFusion::close);
+            mapFile.clear();
         }
 
         /**
@@ -495,10 +812,14 @@ public class ClientChatFusion {
          * @throws IOException
          */
         private void doRead() throws IOException {
+            if (bufferIn == null) {
+                bufferIn = bufferPool.lease();
+            }
             closed = (sc.read(bufferIn) == -1);
             if (!closed) {
                 processIn();
             }
+            releaseIdleBuffers();
             updateInterestOps();
         }
 
@@ -513,10 +834,28 @@ public class ClientChatFusion {
         private void doWrite() throws IOException {
             sc.write(bufferOut.flip());
             bufferOut.compact();
+            if (blockPending && bufferOut.position() == 0) {
+                transferBlock();
+            }
             processOut();
+            releaseIdleBuffers();
             updateInterestOps();
         }
 
+        /**
+         * Gives back to the pool the buffers holding no byte in flight, both of them once the connection is closed
+         */
+        private void releaseIdleBuffers() {
+            if (bufferIn != null && (closed || bufferIn.position() == 0)) {
+                bufferPool.release(bufferIn);
+                bufferIn = null;
+            }
+            if (bufferOut != null && (closed || (bufferOut.position() == 0 && requestQueue.isEmpty() && fileQueue.isEmpty()))) {
+                bufferPool.release(bufferOut);
+                bufferOut = null;
+            }
+        }
+
         /**
          * Fill the bufferout with the login information to
          * connect to the server
@@ -564,18 +903,105 @@ public class ClientChatFusion {
         }
 
         /**
-         * Add a {@link Request} associated with the PrivateMessage command into the queueRequest
+         * Offers a file to its recipient, with its SHA-256 computed off the selector thread, if the server supports the
+         * resumable transfers: the parts the recipient does not have yet are sent once it answers the offer, read from
+         * the disk as they are sent, and the whole file with FILE_PRIVATE if the offer is declined. Otherwise, the
+         * file is sent with FILE_PRIVATE at once
          *
-         * @param serverDst  the {@link main.java.server.ServerChatFusion} destination
-         * @param loginSrc   the sender of the message
-         * @param loginDst   the {@link ClientChatFusion} destination of the message
-         * @param nbBlockMax the number of file blocks
-         * @param blockSize  the size of the different blocks
-         * @param block      the paquet containing the file
+         * @param loginSrc  the sender of the file
+         * @param serverDst the {@link main.java.server.ServerChatFusion} destination
+         * @param loginDst  the {@link ClientChatFusion} destination of the file
+         * @param filename  the name of the file
+         * @param file      the {@link FileChatFusion} opened to send, closed once sent
          */
-        public void sendFilePrivate(String loginSrc, String serverDst, String loginDst, String filename, int nbBlockMax, int blockSize, byte[] block) {
-            queueFileToSend(RequestFactory.privateFile(serverName, loginSrc, serverDst, loginDst, filename, nbBlockMax, blockSize, block));
+        public void sendFilePrivate(String loginSrc, String serverDst, String loginDst, String filename, FileChatFusion file) {
+            if (!file.hasRemaining()) {
+                // an empty file has no block to send
+                file.close();
+                return;
+            }
+            var toSend = new FileToSend(serverName, loginSrc, serverDst, loginDst, filename, file);
+            for (var iterator = sentQueue.iterator(); iterator.hasNext(); ) {
+                var sent = iterator.next();
+                if (sent.transfer().equals(toSend.transfer())) {
+                    // its recipient may have left before confirming it, the new offer tells what it has
+                    iterator.remove();
+                    sent.file().close();
+                }
+            }
+            if (offers.containsKey(toSend.transfer()) || sending(toSend.transfer()) != null || digestQueue.stream().anyMatch(other -> other.transfer().equals(toSend.transfer()))) {
+                // the blocks of both would be written to the same file
+                System.out.println("File " + filename + " already being sent to " + loginDst + "[" + serverDst + "]");
+                file.close();
+                return;
+            }
+            if (!resumable) {
+                queueFileToSend(toSend);
+                return;
+            }
+            digestQueue.add(toSend);
+            var selector = key.selector();
+            file.offer(digests).whenComplete((digest, e) -> selector.wakeup());
+        }
+    }
+
+    /**
+     * A file being sent or received, identified by the client at the other end and its name
+     *
+     * @param server   the {@link main.java.server.ServerChatFusion} of the other client
+     * @param login    the sender or the recipient of the file
+     * @param filename the name of the file
+     */
+    private record TransferKey(String server, String login, String filename) {
+    }
 
+    /**
+     * A file being sent to a client, whose blocks are transferred from the disk one at a time
+     *
+     * @param serverSrc the {@link main.java.server.ServerChatFusion} of the sender
+     * @param loginSrc  the sender of the file
+     * @param serverDst the {@link main.java.server.ServerChatFusion} destination
+     * @param loginDst  the {@link ClientChatFusion} destination of the file
+     * @param filename  the name of the file
+     * @param file      the {@link FileChatFusion} reading the file
+     */
+    private record FileToSend(String serverSrc, String loginSrc, String serverDst, String loginDst, String filename, FileChatFusion file) {
+        private static final byte[] NO_BYTES = new byte[0];
+
+        /**
+         * Gets the recipient and the name of the file
+         *
+         * @return the {@link TransferKey} of the file on the side of the sender
+         */
+        private TransferKey transfer() {
+            return new TransferKey(serverDst, loginDst, filename);
+        }
+
+        /**
+         * Gets the length of the frame of the next block, without reading the block
+         *
+         * @return the number of bytes of the frame, the block included
+         */
+        private int nextFrameLength() {
+            return header(file.nextBlockSize()).bufferLength();
+        }
+
+        /**
+         * Starts sending the next block of the file
+         *
+         * @return the FILE_BLOCK of a resumable file, the FILE_PRIVATE otherwise, announcing the block without its
+         * bytes, which are written afterwards
+         * @throws IOException If an I/O error occurs
+         */
+        private Request nextBlock() throws IOException {
+            return header(file.nextBlock());
+        }
+
+        private Request header(int blockSize) {
+            if (file.isResumable()) {
+                return RequestFactory.fileBlock(serverSrc, loginSrc, serverDst, loginDst, filename, file.getBlockPosition(), file.getBlockCrc(), blockSize, NO_BYTES);
+            }
+            return RequestFactory.privateFile(serverSrc, loginSrc, serverDst, loginDst, filename, file.getNbBlocksMax(), blockSize, NO_BYTES);
         }
     }
 }
\ No newline at end of file
@@ -1,63 +1,184 @@
 package main.java.client;
 
 import main.java.exceptions.FileChatFusionException;
+import main.java.request.RequestFileOffer;
+import main.java.request.RequestFileResume;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.zip.CRC32C;
 
 /**
  * This class represent a file being sent or being downloaded by client.
- * As this class can handle both, there is only 2 factory constructor that init a
+ * As this class can handle both, there is only 3 factory constructor that init a
  * {@link FileChatFusion} either to a client sending file, or a client receiving file.
  *
  * Any use of method for sending file for a client receiving file, {@link FileChatFusionException} will occurs
  *
  * This class allows to handle the sending a file while continuing the flow process of the application.
  * Keeping tract of the sending and keeping track of the downloading
+ * <p>
+ * A file being sent is transferred from the disk to the connection one block at a time, without being copied in the
+ * memory of the client, and a file being
+ * received is written to the disk block by block, at its offset, as the blocks arrive: the memory of a transfer does
+ * not depend on the size of the file. The blocks received are written to a `.part` file of their own, renamed once
+ * complete, which keeps what has been received if the client stops in the middle of a download: two files of the same
+ * name received at the same time do not overwrite each other
+ * <p>
+ * A file offered with a FILE_OFFER is resumable: its blocks carry their offset and their CRC32C, and are only sent
+ * once the recipient answered the offer with the parts it already has. The SHA-256 of the whole file is computed on an
+ * executor before the offer, which carries it, see {@link #offer(Executor)}. The `.part` file is named after the
+ * sender, the size and the SHA-256 of the file, and the parts received are saved next to it, in a `.ranges` file, so
+ * that a later offer of the same file only asks for the parts still missing, see
+ * {@link #initToResume(Path, String, String, long, byte[])} and {@link #resume(long[])}
+ * <p>
+ * The progress and the throughput of a transfer are given by {@link #getNbBlockCurrent()} and {@link #getThroughput()}
  */
 public final class FileChatFusion {
-    private final int nbBlocksMax;
-    private final ByteBuffer content;
+    /**
+     * The maximum number of bytes of the file carried by a FILE_PRIVATE or a FILE_BLOCK
+     */
+    public static final int BLOCK_SIZE = 5_000;
+    private static final String PART_SUFFIX = ".part";
+    private static final String RANGES_SUFFIX = ".ranges";
+    // The ranges received are saved every SAVE_PERIOD blocks, and when the file is closed
+    private static final int SAVE_PERIOD = 256;
+    private static final int DIGEST_BUFFER_SIZE = 64 * 1024;
+    private final long start = System.nanoTime();
+    private int nbBlocksMax;
+    // The file being sent, read block by block, or the .part file being received, written block by block
+    private final FileChannel channel;
     private final State state;
     private Path filepath;
+    // The .part file being received, null for a file being sent
+    private final Path partPath;
     private int nbBlockCurrent;
+    // The parts left to send, or the parts received of a resumable file
+    private final FileRanges ranges = new FileRanges();
+    // The size of a resumable file, and its SHA-256: computed on an executor for a file being sent, received with the
+    // offer for a file being received
+    private final long size;
+    private CompletableFuture<byte[]> digestTask;
+    private byte[] digest;
+    private boolean resumable;
+    // The recipient has the whole file, or gave it up: nothing more is sent once the block being sent is written
+    private boolean done;
+    // The file being received has been downloaded again from its start once, after a wrong digest
+    private boolean restarted;
+    private int unsaved;
+    // The position in the file, the length and the number of bytes left of the block being sent
+    private long blockPosition;
+    private int blockLength;
+    private int blockRemaining;
+    // The bytes and the CRC32C of the block being sent, read before it is written when resumable
+    private ByteBuffer block;
+    private int blockCrc;
+    // The number of bytes sent or received, the offset of the next block received in the file
+    private long transferred;
 
-    private FileChatFusion(Path filepath, int nbBlocksMax, ByteBuffer content, State state) {
+    private FileChatFusion(Path filepath, Path partPath, int nbBlocksMax, long size, FileChannel channel, State state) {
         this.filepath = filepath;
+        this.partPath = partPath;
         this.nbBlocksMax = nbBlocksMax;
-        this.content = content;
+        this.size = size;
+        this.channel = channel;
         this.state = state;
     }
 
     /**
-     * Prepare a {@link FileChatFusion} to send to another client
+     * Prepare a {@link FileChatFusion} to send to another client, the file is opened but not read yet
      *
      * @param filePath path of the file to read the bytes through
-     * @return a FileChatFusion, containing the bytes of a file
-     * @throws IOException if any I/O exception occurs while reading the file
+     * @return a FileChatFusion, reading the blocks of the file on demand, to close once sent
+     * @throws IOException if any I/O exception occurs while opening the file
      */
     public static FileChatFusion initToSend(Path filePath) throws IOException {
         if (!Files.isReadable(filePath)) {
             throw new FileChatFusionException("Wrong file path");
         }
 
-        var content = Files.readAllBytes(filePath);
-        var nbBlocksMax = (int) Math.ceil(content.length / 5000d);
+        var channel = FileChannel.open(filePath, StandardOpenOption.READ);
+        var size = channel.size();
+        if (size > (long) BLOCK_SIZE * Integer.MAX_VALUE) {
+            channel.close();
+            throw new FileChatFusionException("File too large");
+        }
 
-        return new FileChatFusion(filePath, nbBlocksMax, ByteBuffer.allocateDirect(content.length).put(content).flip(), State.WRITE);
+        var file = new FileChatFusion(filePath, null, nbBlocks(size), size, channel, State.WRITE);
+        file.ranges.add(0, size);
+        return file;
     }
 
     /**
-     * Prepare a {@link FileChatFusion} to receive an incoming file from a client
+     * Prepare a {@link FileChatFusion} to receive an incoming file from a client, the blocks are written to a new
+     * `.part` file next to the given path
      *
      * @param filepath the path of the file
      * @param nbBlocksMax the number of file blocks
      * @return the {@link FileChatFusion} created
+     * @throws IOException if any I/O exception occurs while creating the `.part` file
      */
-    public static FileChatFusion initToReceive(Path filepath, int nbBlocksMax) {
-        return new FileChatFusion(filepath, nbBlocksMax, ByteBuffer.allocateDirect(5_000 * nbBlocksMax), State.READ);
+    public static FileChatFusion initToReceive(Path filepath, int nbBlocksMax) throws IOException {
+        var partPath = Files.createTempFile(filepath.toAbsolutePath().getParent(), filepath.getFileName() + ".", PART_SUFFIX);
+        var channel = FileChannel.open(partPath, StandardOpenOption.WRITE);
+        return new FileChatFusion(filepath, partPath, nbBlocksMax, 0, channel, State.READ);
+    }
+
+    /**
+     * Prepare a {@link FileChatFusion} to receive a resumable file offered by a client. The blocks are written to the
+     * `.part` file named after the sender, the size and the digest of the file, next to the given path: the parts of
+     * the same file received before, recorded in its `.ranges` file, are kept, while another file of the same name,
+     * sent by another client or changed since, gets a `.part` file of its own
+     *
+     * @param filepath the path of the file
+     * @param serverSrc the server of the sender
+     * @param loginSrc the sender of the file
+     * @param size the number of bytes of the file
+     * @param digest the SHA-256 of the whole file, from its offer, checked once every part is received
+     * @return the {@link FileChatFusion} created, see {@link #getRanges()} for the parts it already has
+     * @throws IOException if any I/O exception occurs while opening the `.part` file
+     */
+    public static FileChatFusion initToResume(Path filepath, String serverSrc, String loginSrc, long size, byte[] digest) throws IOException {
+        var sha = sha256();
+        sha.update(serverSrc.getBytes(StandardCharsets.UTF_8));
+        sha.update((byte) 0);
+        sha.update(loginSrc.getBytes(StandardCharsets.UTF_8));
+        sha.update((byte) 0);
+        sha.update(ByteBuffer.allocate(Long.BYTES).putLong(size).flip());
+        sha.update(digest);
+        var name = filepath.getFileName() + "." + HexFormat.of().formatHex(sha.digest(), 0, 8);
+        var partPath = filepath.toAbsolutePath().resolveSibling(name + PART_SUFFIX);
+        var channel = FileChannel.open(partPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        var file = new FileChatFusion(filepath, partPath, nbBlocks(size), size, channel, State.READ);
+        file.resumable = true;
+        file.digest = digest.clone();
+        try {
+            file.loadRanges();
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return file;
+    }
+
+    private static int nbBlocks(long size) {
+        return (int) ((size + BLOCK_SIZE - 1) / BLOCK_SIZE);
     }
 
     /**
@@ -69,88 +190,514 @@ public final class FileChatFusion {
     }
 
     /**
-     * Write the byte contained within a real file.
+     * Gets the number of file blocks sent or received so far
+     * @return number of file blocks transferred
+     */
+    public int getNbBlockCurrent() {
+        return nbBlockCurrent;
+    }
+
+    /**
+     * Gets the mean throughput of the transfer since the file was opened
+     * @return the number of bytes of the file sent or received per second
+     */
+    public double getThroughput() {
+        var seconds = (System.nanoTime() - start) / 1e9;
+        return seconds == 0 ? 0 : transferred / seconds;
+    }
+
+    /**
+     * Gets the number of bytes of the file
+     * @return the size of the file, 0 for a file received with FILE_PRIVATE
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Sends the blocks of the file with FILE_BLOCK, once the recipient answered the offer of the file, and starts
+     * computing the SHA-256 of the whole file, carried by the offer, on the given executor, rather than on the selector
+     * thread
+     * @param executor the executor reading the file
+     * @return the digest being computed, completed exceptionally if the file could not be read
+     * @throws FileChatFusionException if the {@link FileChatFusion} is in READ mode
+     */
+    public CompletableFuture<byte[]> offer(Executor executor) {
+        if (state == State.READ) {
+            throw new FileChatFusionException("Method prohibited");
+        }
+        resumable = true;
+        digestTask = CompletableFuture.supplyAsync(() -> {
+            try {
+                return digest(channel, size);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, executor);
+        return digestTask;
+    }
+
+    /**
+     * Tells if the SHA-256 of a file being sent has been computed, or could not be
+     * @return true once {@link #getDigest()} does not wait
+     */
+    public boolean isDigestDone() {
+        return digestTask != null && digestTask.isDone();
+    }
+
+    /**
+     * Gets the SHA-256 of a file being sent, waiting for it to be computed
+     * @return the digest of the whole file
+     * @throws IOException if any I/O exception occurred while reading the file
+     */
+    public byte[] getDigest() throws IOException {
+        try {
+            return digestTask.join();
+        } catch (CompletionException | CancellationException e) {
+            if (e.getCause() instanceof UncheckedIOException cause) {
+                throw cause.getCause();
+            }
+            throw new IOException(e);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e); // every JVM provides SHA-256
+        }
+    }
+
+    private static byte[] digest(FileChannel channel, long size) throws IOException {
+        var sha = sha256();
+        var buffer = ByteBuffer.allocateDirect((int) Math.min(size, DIGEST_BUFFER_SIZE));
+        for (long position = 0; position < size; ) {
+            var read = channel.read(buffer.clear(), position);
+            if (read == -1) {
+                break;
+            }
+            position += read;
+            sha.update(buffer.flip());
+        }
+        return sha.digest();
+    }
+
+    /**
+     * Gets the parts of a resumable file received so far
+     * @return the offset then the number of bytes of each part, the first {@link RequestFileResume#MAX_RANGES} ones
+     */
+    public long[] getRanges() {
+        return ranges.toArray(RequestFileResume.MAX_RANGES);
+    }
+
+    /**
+     * Tells if the blocks of the file are sent with FILE_BLOCK, from the offer of the file
+     * @return true if the file is resumable
+     */
+    public boolean isResumable() {
+        return resumable;
+    }
+
+    /**
+     * Sends every part of the file the recipient does not have, from its answer to the offer of the file, or once a
+     * block arrived corrupted or the file arrived with a wrong digest. The block being sent, if any, is sent entirely
+     * first
+     * @param received the offset then the number of bytes of each part the recipient has, from its FILE_RESUME
+     * @return true if the recipient has the whole file, and checked its digest: nothing is left to send
+     * @throws FileChatFusionException if the {@link FileChatFusion} is in READ mode
+     */
+    public boolean resume(long[] received) {
+        if (state == State.READ) {
+            throw new FileChatFusionException("Method prohibited");
+        }
+        var missing = FileRanges.of(received, size).missing(size);
+        ranges.clear();
+        if (missing.isEmpty()) {
+            done = true;
+            nbBlocksMax = nbBlockCurrent;
+            return true;
+        }
+        if (blockRemaining > 0) {
+            // the block started may already be on its way, it is sent entirely
+            missing.add(blockPosition, blockLength);
+        }
+        ranges.addAll(missing);
+        nbBlocksMax = nbBlockCurrent + (int) ranges.blocks(BLOCK_SIZE);
+        return false;
+    }
+
+    /**
+     * Stops sending a resumable file the recipient gave up, once the block being sent is written
+     * @throws FileChatFusionException if the {@link FileChatFusion} is in READ mode
+     */
+    public void cancel() {
+        if (state == State.READ) {
+            throw new FileChatFusionException("Method prohibited");
+        }
+        done = true;
+        ranges.clear();
+        nbBlocksMax = nbBlockCurrent;
+    }
+
+    /**
+     * Tells if the recipient of a resumable file has the whole file or gave it up: no answer is awaited anymore
+     * @return true once {@link #resume(long[])} returned true or {@link #cancel()} has been called
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * Sends the file with FILE_PRIVATE, without resume, when its offer has been declined: the recipient, or a server
+     * on its way, does not support the resumable transfers. No block has been sent yet
+     * @throws FileChatFusionException if the {@link FileChatFusion} is in READ mode
+     */
+    public void sendWithoutResume() {
+        if (state == State.READ) {
+            throw new FileChatFusionException("Method prohibited");
+        }
+        if (digestTask != null) {
+            digestTask.cancel(false);
+        }
+        resumable = false;
+    }
+
+    /**
+     * Renames the complete `.part` file to the name of the file.
      *
      * If the file already exist, a mease will duplicate the file by adding `filename (n).exmpl` to the file name
      *
      * @return return the path where the file were written
-     * @throws IOException
+     * @throws IOException If an I/O error occurs
      */
     private Path writeFile() throws IOException {
         int i = 1;
+        var name = filepath.getFileName().toString();
+        var dot = name.lastIndexOf('.');
+        var file = dot <= 0 ? name : name.substring(0, dot);
+        var extension = dot <= 0 ? "" : name.substring(dot);
 
         // Ensure the file can be created if a file with same name already exist
-        while (Files.exists(filepath)) {
-            var extensionSplitted = filepath.getFileName().toString().split("\\.");
-            var file = extensionSplitted[0];
-            var extension = extensionSplitted[1];
-
-            var filename = file + " (" + i++ + ")." + extension;
-            filepath = Path.of(filepath.getParent().toString(), filename);
+        var target = filepath;
+        while (Files.exists(target)) {
+            target = filepath.resolveSibling(file + " (" + i++ + ")" + extension);
         }
 
-        var block = new byte[content.remaining()];
-        content.get(block);
-        Files.write(filepath, block);
-        return filepath;
+        Files.move(partPath, target);
+        return target;
     }
 
     /**
-     * Writes partially the contained file stored in the byte array.
-     * Uses this method to send a block of the file content
+     * Tells if blocks of the file are left to send
      *
-     * @return byte array to send to client
-     * @throws FileChatFusionException if the {@link FileChatFusion} is in READ mode
+     * @return true if {@link #transferBlock(WritableByteChannel)} has not written every block yet
      */
-    public byte[] write() {
-        if (state == State.READ) {
+    public boolean hasRemaining() {
+        return !ranges.isEmpty();
+    }
+
+    /**
+     * Gets the number of bytes of the next block of the file, without reading it
+     *
+     * @return the number of bytes of the block {@link #nextBlock()} starts sending
+     * @throws FileChatFusionException if the {@link FileChatFusion} is in READ mode or if every block has been sent
+     */
+    public int nextBlockSize() {
+        if (state == State.READ || !hasRemaining()) {
             throw new FileChatFusionException("Method prohibited");
         }
-        var delta = Math.min(content.remaining(), 5_000);
-        var oldLimit = content.limit();
-        content.limit(delta + content.position());
+        var first = ranges.first();
+        return (int) Math.min(first.getValue() - first.getKey(), BLOCK_SIZE);
+    }
+
+    /**
+     * Starts sending the next block of the file, whose bytes are then written by
+     * {@link #transferBlock(WritableByteChannel)}. The bytes of the block of a resumable file are read to compute its
+     * CRC32C, the other ones are only read when written
+     *
+     * @return the number of bytes of the block
+     * @throws IOException if any I/O exception occurs while reading the file, or if the file was shortened
+     * @throws FileChatFusionException if the {@link FileChatFusion} is in READ mode or if every block has been sent
+     */
+    public int nextBlock() throws IOException {
+        blockLength = nextBlockSize();
+        blockPosition = ranges.first().getKey();
+        blockRemaining = blockLength;
+        if (blockPosition + blockLength > channel.size()) {
+            throw new IOException("File " + filepath.getFileName() + " shortened while being sent");
+        }
+        if (resumable) {
+            if (block == null) {
+                block = ByteBuffer.allocateDirect(BLOCK_SIZE);
+            }
+            block.clear().limit(blockLength);
+            while (block.hasRemaining()) {
+                if (channel.read(block, blockPosition + block.position()) == -1) {
+                    throw new IOException("File " + filepath.getFileName() + " shortened while being sent");
+                }
+            }
+            var crc = new CRC32C();
+            crc.update(block.flip());
+            blockCrc = (int) crc.getValue();
+            block.rewind();
+        }
+        return blockLength;
+    }
+
+    /**
+     * Gets the position in the file of the block being sent
+     * @return the offset of the block
+     */
+    public long getBlockPosition() {
+        return blockPosition;
+    }
+
+    /**
+     * Gets the CRC32C of the block being sent, for a resumable file
+     * @return the checksum of the block
+     */
+    public int getBlockCrc() {
+        return blockCrc;
+    }
 
-        var result = new byte[content.remaining()];
-        content.get(result);
+    /**
+     * Writes the bytes left of the block being sent to the given channel. They go straight from the file to the
+     * channel with {@link FileChannel#transferTo(long, long, WritableByteChannel)}, without being copied in the memory
+     * of the client, unless the file is resumable: they are then written from the buffer they were read in to compute
+     * their checksum
+     *
+     * @param target the channel to write the block to, which may not accept every byte at once
+     * @return true if the whole block has been written, false if bytes are left to write
+     * @throws IOException if any I/O exception occurs while reading the file or writing to the channel, or if the
+     * file was shortened
+     */
+    public boolean transferBlock(WritableByteChannel target) throws IOException {
+        long written;
+        if (resumable) {
+            written = target.write(block);
+        } else {
+            var position = blockPosition + blockLength - blockRemaining;
+            written = channel.transferTo(position, blockRemaining, target);
+            if (written == 0 && position >= channel.size()) {
+                throw new IOException("File " + filepath.getFileName() + " shortened while being sent");
+            }
+        }
+        blockRemaining -= (int) written;
+        transferred += written;
+        if (blockRemaining > 0) {
+            return false;
+        }
 
-        content.limit(oldLimit);
+        ranges.remove(blockPosition, blockLength);
         nbBlockCurrent++;
+        nbBlocksMax = Math.max(nbBlocksMax, nbBlockCurrent);
         System.out.println("File " + filepath.getFileName().toString() + " sent as " + nbBlockCurrent + "/" + nbBlocksMax);
-        return result;
+        return true;
     }
 
     /**
-     * Read the content of the file, and stores it. If the file is complete, then the file is written in the given client path
+     * Closes the file being sent or received, whether it has been transferred completely or not. The parts of a
+     * resumable file received so far are saved
+     */
+    public void close() {
+        if (channel == null || !channel.isOpen()) {
+            return;
+        }
+        if (digestTask != null) {
+            digestTask.cancel(false);
+        }
+        try {
+            channel.close();
+            if (resumable && state == State.READ) {
+                saveRanges();
+            }
+        } catch (IOException e) {
+            // ignore exception
+        }
+    }
+
+    /**
+     * Writes a block of the file to the disk, after the blocks already received. If the file is complete, then it is
+     * renamed in the given client path
      *
      * @param block tthe block containing file data
      * @param loginSrc the sender of the file
      * @param serverNameSrc the server of the sender
-     * @return if the file has been download return true, otherwise false
-     * @throws IOException If an I/O error occurs
+     * @return true once the download is over, the file downloaded or the download failed, otherwise false
      * @throws FileChatFusionException If the {@link FileChatFusion} is in WRITE mode
      */
-    public boolean readUntilWriteAvailable(byte[] block, String loginSrc, String serverNameSrc) throws IOException {
-        if (state == State.WRITE) {
+    public boolean readUntilWriteAvailable(byte[] block, String loginSrc, String serverNameSrc) {
+        if (state == State.WRITE || resumable) {
             throw new FileChatFusionException("Method prohibited");
         }
-        content.put(block);
-        nbBlockCurrent++;
+        Path filePath = null;
+        try {
+            var buffer = ByteBuffer.wrap(block);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, transferred + buffer.position());
+            }
+            transferred += block.length;
+            nbBlockCurrent++;
+            System.out.println("File from " + loginSrc + "[" + serverNameSrc + "]: " + filepath.getFileName().toString() + " download in process " + nbBlockCurrent + "/" + nbBlocksMax);
+            if (nbBlockCurrent < nbBlocksMax) {
+                return false;
+            }
+            channel.close();
+            filePath = writeFile();
+        } catch (IOException e) {
+            close();
+        }
+
+        System.out.println(filePath == null ? "File download failed" : "File downloaded to: " + filePath.toAbsolutePath());
+        return true;
+    }
+
+    /**
+     * Writes a block of a resumable file to the disk, at its offset, once its checksum checked. If the file is
+     * complete, then it is finished, see {@link #finishIfComplete()}
+     *
+     * @param offset the position of the block in the file
+     * @param crc the CRC32C of the block
+     * @param block the bytes of the block
+     * @param loginSrc the sender of the file
+     * @param serverNameSrc the server of the sender
+     * @return the state of the download after this block
+     * @throws FileChatFusionException If the {@link FileChatFusion} is in WRITE mode or not resumable
+     */
+    public Download writeBlock(long offset, int crc, byte[] block, String loginSrc, String serverNameSrc) {
+        if (state == State.WRITE || !resumable) {
+            throw new FileChatFusionException("Method prohibited");
+        }
+        var checksum = new CRC32C();
+        checksum.update(block);
+        if ((int) checksum.getValue() != crc || offset > size - block.length) {
+            System.out.println("File from " + loginSrc + "[" + serverNameSrc + "]: " + filepath.getFileName() + " block at " + offset + " corrupted");
+            return Download.CORRUPTED;
+        }
+        try {
+            var buffer = ByteBuffer.wrap(block);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, offset + buffer.position());
+            }
+            ranges.add(offset, block.length);
+            transferred += block.length;
+            nbBlockCurrent = nbBlocks(ranges.covered());
+            if (++unsaved == SAVE_PERIOD) {
+                saveRanges();
+            }
+        } catch (IOException e) {
+            close();
+            System.out.println("File download failed");
+            return Download.FAILED;
+        }
         System.out.println("File from " + loginSrc + "[" + serverNameSrc + "]: " + filepath.getFileName().toString() + " download in process " + nbBlockCurrent + "/" + nbBlocksMax);
-        if (nbBlockCurrent == nbBlocksMax) {
-            Path filePath;
-            try {
-                content.flip();
+        return finishIfComplete();
+    }
+
+    /**
+     * Checks the digest of a resumable file, given by its offer, once every part has been received, and renames it in
+     * the given client path. A file whose digest differs is downloaded again from its start, once: it is deleted if
+     * its digest differs again
+     *
+     * @return the state of the download: {@link Download#PENDING} if parts are missing
+     * @throws FileChatFusionException If the {@link FileChatFusion} is in WRITE mode or not resumable
+     */
+    public Download finishIfComplete() {
+        if (state == State.WRITE || !resumable) {
+            throw new FileChatFusionException("Method prohibited");
+        }
+        if (ranges.covered() < size) {
+            return Download.PENDING;
+        }
+        Path filePath = null;
+        try {
+            if (Arrays.equals(digest, digest(channel, size))) {
+                channel.close();
                 filePath = writeFile();
-            } catch (IOException e) {
-                System.out.println("File download failed");
-                return false;
+                Files.deleteIfExists(rangesPath());
+            } else if (!restarted) {
+                System.out.println("File " + filepath.getFileName() + " received with a wrong digest, downloaded again");
+                restarted = true;
+                ranges.clear();
+                channel.truncate(0);
+                nbBlockCurrent = 0;
+                saveRanges();
+                return Download.RESTARTED;
+            } else {
+                System.out.println("File " + filepath.getFileName() + " received with a wrong digest");
+                channel.close();
+                Files.deleteIfExists(partPath);
+                Files.deleteIfExists(rangesPath());
             }
+        } catch (IOException e) {
+            close();
+        }
 
-            System.out.println("File downloaded to: " + filePath.toAbsolutePath());
-            return true;
+        System.out.println(filePath == null ? "File download failed" : "File downloaded to: " + filePath.toAbsolutePath());
+        return filePath == null ? Download.FAILED : Download.DOWNLOADED;
+    }
+
+    private Path rangesPath() {
+        return partPath.resolveSibling(partPath.getFileName() + RANGES_SUFFIX);
+    }
+
+    /**
+     * Records the parts received in the `.ranges` file, as the offset then the length of each part. The file is
+     * written aside then renamed, a client stopped while saving keeps the parts saved before
+     */
+    private void saveRanges() throws IOException {
+        unsaved = 0;
+        var values = ranges.toArray(Integer.MAX_VALUE);
+        var buffer = ByteBuffer.allocate(values.length * Long.BYTES);
+        buffer.asLongBuffer().put(values);
+        var rangesPath = rangesPath();
+        var saving = rangesPath.resolveSibling(rangesPath.getFileName() + ".tmp");
+        Files.write(saving, buffer.array());
+        Files.move(saving, rangesPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads the parts received before from the `.ranges` file, a `.part` file without them is started again
+     */
+    private void loadRanges() throws IOException {
+        var rangesPath = rangesPath();
+        if (Files.exists(rangesPath)) {
+            var bytes = Files.readAllBytes(rangesPath);
+            var values = new long[bytes.length / Long.BYTES];
+            ByteBuffer.wrap(bytes).asLongBuffer().get(values);
+            ranges.addAll(FileRanges.of(values, Math.min(size, channel.size())));
         }
+        if (ranges.isEmpty()) {
+            channel.truncate(0);
+        }
+        nbBlockCurrent = nbBlocks(ranges.covered());
+    }
 
-        return false;
+    /**
+     * The state of the download of a resumable file after a block
+     */
+    public enum Download {
+        /**
+         * Parts of the file are still missing
+         */
+        PENDING,
+        /**
+         * The block was corrupted and ignored, the sender should be told the parts received
+         */
+        CORRUPTED,
+        /**
+         * The file was received with a wrong digest, the sender should send it again from its start
+         */
+        RESTARTED,
+        /**
+         * The file has been downloaded, the sender should be told it has every part
+         */
+        DOWNLOADED,
+        /**
+         * The download failed, the sender should stop sending the file
+         */
+        FAILED
     }
 
     private enum State {
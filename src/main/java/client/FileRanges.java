@@ -0,0 +1,176 @@
+package main.java.client;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The parts of a file, as disjoint ranges of bytes sorted by offset: the parts received of a file being received, the
+ * parts left to send of a file being sent. Adjacent or overlapping ranges are merged as they are added
+ */
+public final class FileRanges {
+    // The end of each range, exclusive, by its offset
+    private final TreeMap<Long, Long> ranges = new TreeMap<>();
+    private long covered;
+
+    /**
+     * Creates the ranges given by offset then length, as sent in a FILE_RESUME
+     * @param values the offset then the number of bytes of each range
+     * @param size the size of the file, the ranges outside of it are ignored
+     * @return the {@link FileRanges}
+     */
+    public static FileRanges of(long[] values, long size) {
+        var ranges = new FileRanges();
+        for (int i = 0; i + 1 < values.length; i += 2) {
+            var offset = values[i];
+            var length = values[i + 1];
+            if (offset >= 0 && length > 0 && length <= size - offset) {
+                ranges.add(offset, length);
+            }
+        }
+        return ranges;
+    }
+
+    /**
+     * Adds a range, merged with the ranges it touches
+     * @param offset the offset of the range
+     * @param length the number of bytes of the range
+     */
+    public void add(long offset, long length) {
+        if (length <= 0) {
+            return;
+        }
+        var start = offset;
+        var end = offset + length;
+        var before = ranges.floorEntry(start);
+        if (before != null && before.getValue() >= start) {
+            start = before.getKey();
+        }
+        for (var next = ranges.ceilingEntry(start); next != null && next.getKey() <= end; next = ranges.ceilingEntry(start)) {
+            end = Math.max(end, next.getValue());
+            covered -= next.getValue() - next.getKey();
+            ranges.remove(next.getKey());
+        }
+        ranges.put(start, end);
+        covered += end - start;
+    }
+
+    /**
+     * Adds every range of other ranges
+     * @param other the {@link FileRanges} to add
+     */
+    public void addAll(FileRanges other) {
+        other.ranges.forEach((start, end) -> add(start, end - start));
+    }
+
+    /**
+     * Removes a range, the ranges it overlaps are cut
+     * @param offset the offset of the range
+     * @param length the number of bytes of the range
+     */
+    public void remove(long offset, long length) {
+        var end = offset + length;
+        var before = ranges.floorKey(offset);
+        var overlapping = List.copyOf(ranges.subMap(before == null ? offset : before, true, end, false).entrySet());
+        for (var range : overlapping) {
+            var rangeStart = range.getKey();
+            var rangeEnd = range.getValue();
+            if (rangeEnd <= offset) {
+                continue;
+            }
+            ranges.remove(rangeStart);
+            covered -= rangeEnd - rangeStart;
+            if (rangeStart < offset) {
+                ranges.put(rangeStart, offset);
+                covered += offset - rangeStart;
+            }
+            if (rangeEnd > end) {
+                ranges.put(end, rangeEnd);
+                covered += rangeEnd - end;
+            }
+        }
+    }
+
+    /**
+     * Removes every range of other ranges
+     * @param other the {@link FileRanges} to remove
+     */
+    public void removeAll(FileRanges other) {
+        other.ranges.forEach((start, end) -> remove(start, end - start));
+    }
+
+    /**
+     * Removes every range
+     */
+    public void clear() {
+        ranges.clear();
+        covered = 0;
+    }
+
+    /**
+     * Gets the first range
+     * @return the offset of the first range, mapped to its end, null if there is none
+     */
+    public Map.Entry<Long, Long> first() {
+        return ranges.firstEntry();
+    }
+
+    /**
+     * Gets the parts of a file outside of these ranges
+     * @param size the size of the file
+     * @return the missing ranges
+     */
+    public FileRanges missing(long size) {
+        var missing = new FileRanges();
+        var position = 0L;
+        for (var range : ranges.entrySet()) {
+            missing.add(position, Math.min(range.getKey(), size) - position);
+            position = Math.max(position, range.getValue());
+        }
+        missing.add(position, size - position);
+        return missing;
+    }
+
+    /**
+     * Gets the ranges by offset then length, as sent in a FILE_RESUME
+     * @param maxRanges the number of ranges given at most, the first ones
+     * @return the offset then the number of bytes of each range
+     */
+    public long[] toArray(int maxRanges) {
+        var values = new long[2 * Math.min(maxRanges, ranges.size())];
+        var i = 0;
+        for (var range : ranges.entrySet()) {
+            if (i == values.length) {
+                break;
+            }
+            values[i++] = range.getKey();
+            values[i++] = range.getValue() - range.getKey();
+        }
+        return values;
+    }
+
+    /**
+     * Gets the number of blocks the ranges are sent in, each range cut in blocks of the given size
+     * @param blockSize the maximum number of bytes of a block
+     * @return the number of blocks
+     */
+    public long blocks(int blockSize) {
+        return ranges.entrySet().stream().mapToLong(range -> (range.getValue() - range.getKey() + blockSize - 1) / blockSize).sum();
+    }
+
+    /**
+     * Gets the number of bytes in the ranges
+     * @return the sum of their lengths
+     */
+    public long covered() {
+        return covered;
+    }
+
+    /**
+     * Tells if there is no range
+     * @return true if no byte is in the ranges
+     */
+    public boolean isEmpty() {
+        return ranges.isEmpty();
+    }
+}
@@ -54,20 +54,13 @@ public class InetSocketAddressReader implements Reader<InetSocketAddress> {
         }
 
         if (state == State.WAIT_IP) {
-            bb.flip();
-            try {
-                if (bb.remaining() <= this.addressBuffer.remaining()) {
-                    this.addressBuffer.put(bb);
-                } else {
-                    int oldLimit = bb.limit();
-                    var remaining = this.addressBuffer.remaining();
-                    var delta = bb.position() == 0 ? 0 : size - bb.position() + 1;
-                    bb.limit(remaining + delta);
-                    this.addressBuffer.put(bb);
-                    bb.limit(oldLimit);
-                }
-            } finally {
-                bb.compact();
+            if (bb.remaining() <= this.addressBuffer.remaining()) {
+                this.addressBuffer.put(bb);
+            } else {
+                int oldLimit = bb.limit();
+                bb.limit(bb.position() + this.addressBuffer.remaining());
+                this.addressBuffer.put(bb);
+                bb.limit(oldLimit);
             }
 
             if (this.addressBuffer.hasRemaining()) {
@@ -19,18 +19,14 @@ public class IntReader implements Reader<Integer> {
         if (state == State.DONE || state == State.ERROR) {
             throw new IllegalStateException();
         }
-        buffer.flip();
-        try {
-            if (buffer.remaining() <= internalBuffer.remaining()) {
-                internalBuffer.put(buffer);
-            } else {
-                var oldLimit = buffer.limit();
-                buffer.limit(internalBuffer.remaining());
-                internalBuffer.put(buffer);
-                buffer.limit(oldLimit);
-            }
-        } finally {
-            buffer.compact();
+        if (internalBuffer.position() == 0 && buffer.remaining() >= Integer.BYTES) {
+            // the whole int is available, no need to copy it
+            state = State.DONE;
+            value = buffer.getInt();
+            return ProcessStatus.DONE;
+        }
+        while (internalBuffer.hasRemaining() && buffer.hasRemaining()) {
+            internalBuffer.put(buffer.get());
         }
         if (internalBuffer.hasRemaining()) {
             return ProcessStatus.REFILL;
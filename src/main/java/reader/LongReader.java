@@ -0,0 +1,69 @@
+package main.java.reader;
+
+import java.nio.ByteBuffer;
+
+public class LongReader implements Reader<Long> {
+
+    private final ByteBuffer internalBuffer = ByteBuffer.allocate(Long.BYTES); // write-mode
+    private State state = State.WAITING;
+    private long value;
+
+    /**
+     * Retrieves the {@link Long} from the {@link ByteBuffer} and stores them
+     * @param buffer the bytebuffer containing data
+     * @return the status of the buffer data recovery
+     * @throws IllegalStateException if the state of the recovery is DONE or ERROR
+     */
+    @Override
+    public ProcessStatus process(ByteBuffer buffer) {
+        if (state == State.DONE || state == State.ERROR) {
+            throw new IllegalStateException();
+        }
+        if (internalBuffer.position() == 0 && buffer.remaining() >= Long.BYTES) {
+            // the whole long is available, no need to copy it
+            state = State.DONE;
+            value = buffer.getLong();
+            return ProcessStatus.DONE;
+        }
+        while (internalBuffer.hasRemaining() && buffer.hasRemaining()) {
+            internalBuffer.put(buffer.get());
+        }
+        if (internalBuffer.hasRemaining()) {
+            return ProcessStatus.REFILL;
+        }
+        state = State.DONE;
+        internalBuffer.flip();
+        value = internalBuffer.getLong();
+        return ProcessStatus.DONE;
+    }
+
+    /**
+     * Gets the {@link Long} retrieved by the process method
+     * @return the {@link Long} associated with the {@link Reader}
+     * @throws IllegalStateException If the process method is not DONE
+     */
+    @Override
+    public Long get() {
+        if (state != State.DONE) {
+            throw new IllegalStateException();
+        }
+        return value;
+    }
+
+    /**
+     * Resets the {@link Reader} to make it reusable
+     */
+    @Override
+    public void reset() {
+        state = State.WAITING;
+        internalBuffer.clear();
+    }
+
+    /**
+     * The different possible states for the buffer data recovery
+     */
+    public enum State {
+        DONE, WAITING, ERROR
+    }
+
+}
\ No newline at end of file
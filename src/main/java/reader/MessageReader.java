@@ -27,7 +27,7 @@ public class MessageReader implements Reader<Message> {
             switch (status) {
                 case DONE -> {
                     if (state == State.WAIT_LOGIN) {
-                        login = stringReader.get();
+                        login = stringReader.getName();
                         stringReader.reset();
                         state = State.WAIT_MSG;
                         break;
@@ -59,7 +59,7 @@ public class MessageReader implements Reader<Message> {
         if (this.state != State.DONE) {
             throw new IllegalStateException();
         } else {
-            return new Message(new StringChatFusion(login), new StringChatFusion((msg)));
+            return new Message(StringChatFusion.of(login), new StringChatFusion((msg)));
         }
     }
 
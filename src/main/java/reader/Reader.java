@@ -2,12 +2,22 @@ package main.java.reader;
 
 import java.nio.ByteBuffer;
 
+/**
+ * Decodes a value from the bytes received on a connection, whatever the way they are fragmented.
+ * <p>
+ * The buffer given to {@link #process(ByteBuffer)} is in read-mode. A reader consumes the bytes it needs from
+ * the position of the buffer, advancing it, and never flips nor compacts the buffer: the bytes following the
+ * value stay in the buffer for the next reader. The connection owning the buffer compacts it once
+ * all the bytes it received have been processed.
+ *
+ * @param <T> the type of the decoded value
+ */
 public interface Reader<T> {
 
     /**
      * Retrieves data from the {@link ByteBuffer} and stores them
-     * @param bb the {@link ByteBuffer} containing data
-     * @return the status of the buffer data recovery
+     * @param bb the {@link ByteBuffer} containing data, in read-mode, its position is moved after the bytes consumed
+     * @return the status of the buffer data recovery, REFILL if every remaining byte has been consumed
      * @throws IllegalStateException if the state of the recovery is DONE or ERROR
      */
         ProcessStatus process(ByteBuffer bb);
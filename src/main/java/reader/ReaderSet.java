@@ -0,0 +1,61 @@
+package main.java.reader;
+
+import main.java.OpCode;
+import main.java.reader.message.RequestRelayReader;
+import main.java.request.Request;
+
+/**
+ * The readers of a single connection, one per {@link OpCode}.
+ * <p>
+ * A reader keeps the state of the frame it decodes between two reads of its connection, so it cannot be shared
+ * with another connection: two connections receiving the same request in several reads would mix their bytes.
+ * Each connection owns its set, whatever the thread serving it. A reader is created the first time its
+ * {@link OpCode} is received on the connection, then reset and reused for every following frame.
+ * <p>
+ * A set is used by one thread at a time, the one reading the connection.
+ */
+public final class ReaderSet {
+    private static final OpCode[] OP_CODES = OpCode.values();
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private final Reader<Request>[] requestReaders = new Reader[OP_CODES.length];
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private final Reader<Request>[] relayReaders = new Reader[OP_CODES.length];
+
+    /**
+     * Gets the reader decoding every field of the requests of the given {@link OpCode}, ready for a new frame
+     * @param opCode the {@link OpCode} just received
+     * @return the {@link Reader}
+     */
+    public Reader<Request> requestReader(OpCode opCode) {
+        var reader = requestReaders[opCode.ordinal()];
+        if (reader == null) {
+            reader = opCode.newRequestReader();
+            requestReaders[opCode.ordinal()] = reader;
+        } else {
+            reader.reset();
+        }
+        return reader;
+    }
+
+    /**
+     * Gets the reader a server uses for the requests of the given {@link OpCode}, ready for a new frame:
+     * a {@link RequestRelayReader} keeping the original bytes if the server only forwards the request,
+     * the reader of {@link #requestReader(OpCode)} otherwise
+     * @param opCode the {@link OpCode} just received
+     * @return the {@link Reader}
+     */
+    public Reader<Request> relayReader(OpCode opCode) {
+        if (!RequestRelayReader.isRelayable(opCode)) {
+            return requestReader(opCode);
+        }
+        var reader = relayReaders[opCode.ordinal()];
+        if (reader == null) {
+            reader = new RequestRelayReader(opCode);
+            relayReaders[opCode.ordinal()] = reader;
+        } else {
+            reader.reset();
+        }
+        return reader;
+    }
+}
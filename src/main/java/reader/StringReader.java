@@ -1,21 +1,33 @@
 package main.java.reader;
 
+import main.java.wrapper.StringPool;
+
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 
+/**
+ * Reader of a string sent as its size followed by its bytes in UTF-8
+ * <p>
+ * The short strings are read in a buffer reused by every string. The server names and the logins, asked for with
+ * {@link #getName()}, are interned by {@link StringPool}: a name already seen is neither decoded nor allocated again.
+ * The other strings, the messages, the passwords and the filenames, are asked for with {@link #get()} and never
+ * interned, they would only evict the names from the pool and keep a password in a global table.
+ */
 public class StringReader implements Reader<String> {
     private static final int BUFFER_SIZE = 1024;
     private static final Charset UTF8 = StandardCharsets.UTF_8;
     private final IntReader intReader = new IntReader();
-    private ByteBuffer internalBuffer = ByteBuffer.allocate(Integer.BYTES);
+    private final byte[] shortBytes = new byte[StringPool.MAX_LENGTH];
+    private byte[] bytes = shortBytes;
+    private int size;
+    private int filled;
     private State state = State.WAIT_INT;
     private String value;
-    private int sizeValue = -1;
 
     /**
      * Retrieves the {@link String} from the {@link ByteBuffer} and stores them
-     * @param buffer the {@link ByteBuffer} containing data
+     * @param buffer the {@link ByteBuffer} containing data, in read-mode
      * @return the status of the buffer data recovery
      * @throws IllegalStateException if the state of the recovery is DONE or ERROR
      */
@@ -28,13 +40,16 @@ public class StringReader implements Reader<String> {
             var status = intReader.process(buffer);
             switch (status) {
                 case DONE -> {
-                    sizeValue = intReader.get();
+                    var sizeValue = intReader.get();
                     if (sizeValue < 0 || sizeValue > BUFFER_SIZE) {
                         this.state = State.ERROR;
                         return ProcessStatus.ERROR;
                     }
                     intReader.reset();
-                    internalBuffer = ByteBuffer.allocate(sizeValue);
+                    bytes = sizeValue <= shortBytes.length ? shortBytes : new byte[sizeValue];
+                    size = sizeValue;
+                    filled = 0;
+                    this.state = State.WAIT_STRING;
                 }
                 case REFILL -> {
                     return ProcessStatus.REFILL;
@@ -46,32 +61,16 @@ public class StringReader implements Reader<String> {
             }
         }
 
-        buffer.flip();
-        try {
-            if (buffer.remaining() <= this.internalBuffer.remaining()) {
-                this.internalBuffer.put(buffer);
-            } else {
-                int oldLimit = buffer.limit();
-                var remaining = this.internalBuffer.remaining();
-                var delta = buffer.position() == 0 ? 0 : sizeValue - buffer.position() + 1;
-                buffer.limit(remaining + delta);
-                this.internalBuffer.put(buffer);
-                buffer.limit(oldLimit);
-            }
-        } finally {
-            buffer.compact();
-        }
+        var length = Math.min(buffer.remaining(), size - filled);
+        buffer.get(bytes, filled, length);
+        filled += length;
 
-        if (this.internalBuffer.hasRemaining()) {
+        if (filled < size) {
             return ProcessStatus.REFILL;
-        } else {
-            this.internalBuffer.flip();
-            this.state = State.DONE;
-            this.value = UTF8.decode(internalBuffer).toString();
-            internalBuffer = ByteBuffer.allocate(Integer.BYTES);
-            return ProcessStatus.DONE;
         }
-
+        this.state = State.DONE;
+        this.value = null;
+        return ProcessStatus.DONE;
     }
 
     /**
@@ -82,9 +81,26 @@ public class StringReader implements Reader<String> {
     public String get() {
         if (this.state != State.DONE) {
             throw new IllegalStateException();
-        } else {
-            return this.value;
         }
+        if (this.value == null) {
+            this.value = new String(bytes, 0, size, UTF8);
+        }
+        return this.value;
+    }
+
+    /**
+     * Gets the server name or the login retrieved by the process method, interned
+     * @return the {@link String} associated with the {@link Reader}, shared with the other frames carrying it
+     * @throws IllegalStateException If the process method is not DONE
+     */
+    public String getName() {
+        if (this.state != State.DONE) {
+            throw new IllegalStateException();
+        }
+        if (this.value == null) {
+            this.value = bytes == shortBytes ? StringPool.intern(bytes, 0, size).string() : new String(bytes, 0, size, UTF8);
+        }
+        return this.value;
     }
 
     /**
@@ -92,9 +108,8 @@ public class StringReader implements Reader<String> {
      */
     public void reset() {
         this.state = State.WAIT_INT;
-        this.internalBuffer = ByteBuffer.allocate(Integer.BYTES);
+        this.bytes = shortBytes;
         intReader.reset();
-
     }
 
     /**
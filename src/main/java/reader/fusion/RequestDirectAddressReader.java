@@ -0,0 +1,90 @@
+package main.java.reader.fusion;
+
+import main.java.Utils.RequestFactory;
+import main.java.reader.InetSocketAddressReader;
+import main.java.reader.Reader;
+import main.java.reader.StringReader;
+import main.java.request.Request;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+
+public class RequestDirectAddressReader implements Reader<Request> {
+    private final StringReader stringReader = new StringReader();
+    private final Reader<InetSocketAddress> addressReader = new InetSocketAddressReader();
+    private String serverName;
+    private InetSocketAddress address;
+    private State state = State.WAIT_NAME;
+
+    /**
+     * Retrieves data from the {@link ByteBuffer} and stores them
+     * @param bb the {@link ByteBuffer} containing data
+     * @return the status of the buffer data recovery
+     * @throws IllegalStateException if the state of the recovery is DONE or ERROR
+     */
+    @Override
+    public ProcessStatus process(ByteBuffer bb) {
+        for (; ; ) {
+            switch (state) {
+                case DONE, ERROR -> throw new IllegalStateException();
+
+                case WAIT_NAME -> {
+                    var nameStatus = stringReader.process(bb);
+                    if (nameStatus != ProcessStatus.DONE) {
+                        if (nameStatus == ProcessStatus.ERROR) {
+                            state = State.ERROR;
+                        }
+                        return nameStatus;
+                    }
+                    serverName = stringReader.getName();
+                    stringReader.reset();
+                    state = State.WAIT_ADDRESS;
+                }
+
+                case WAIT_ADDRESS -> {
+                    var addressStatus = addressReader.process(bb);
+                    if (addressStatus != ProcessStatus.DONE) {
+                        if (addressStatus == ProcessStatus.ERROR) {
+                            state = State.ERROR;
+                        }
+                        return addressStatus;
+                    }
+                    address = addressReader.get();
+                    addressReader.reset();
+                    state = State.DONE;
+                    return ProcessStatus.DONE;
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the {@link Request} retrieved by the process method
+     * @return the {@link Request} associated with the {@link Reader}
+     * @throws IllegalStateException If the process method is not DONE
+     */
+    @Override
+    public Request get() {
+        if (state != State.DONE) {
+            throw new IllegalStateException();
+        }
+        return RequestFactory.directAddress(serverName, address);
+    }
+
+    /**
+     * Resets the {@link Reader} to make it reusable
+     */
+    @Override
+    public void reset() {
+        stringReader.reset();
+        addressReader.reset();
+        state = State.WAIT_NAME;
+    }
+
+    /**
+     * The different possible states for the buffer data recovery
+     */
+    private enum State {
+        DONE, WAIT_NAME, WAIT_ADDRESS, ERROR
+    }
+}
@@ -0,0 +1,86 @@
+package main.java.reader.fusion;
+
+import main.java.Utils.RequestFactory;
+import main.java.reader.Reader;
+import main.java.reader.StringReader;
+import main.java.request.Request;
+
+import java.nio.ByteBuffer;
+
+public class RequestDirectJoinReader implements Reader<Request> {
+    private final StringReader stringReader = new StringReader();
+    private String serverSrc;
+    private String serverDst;
+    private State state = State.WAIT_SRC;
+
+    /**
+     * Retrieves data from the {@link ByteBuffer} and stores them
+     * @param bb the {@link ByteBuffer} containing data
+     * @return the status of the buffer data recovery
+     * @throws IllegalStateException if the state of the recovery is DONE or ERROR
+     */
+    @Override
+    public ProcessStatus process(ByteBuffer bb) {
+        for (; ; ) {
+            switch (state) {
+                case DONE, ERROR -> throw new IllegalStateException();
+
+                case WAIT_SRC -> {
+                    var srcStatus = stringReader.process(bb);
+                    if (srcStatus != ProcessStatus.DONE) {
+                        if (srcStatus == ProcessStatus.ERROR) {
+                            state = State.ERROR;
+                        }
+                        return srcStatus;
+                    }
+                    serverSrc = stringReader.getName();
+                    stringReader.reset();
+                    state = State.WAIT_DST;
+                }
+
+                case WAIT_DST -> {
+                    var dstStatus = stringReader.process(bb);
+                    if (dstStatus != ProcessStatus.DONE) {
+                        if (dstStatus == ProcessStatus.ERROR) {
+                            state = State.ERROR;
+                        }
+                        return dstStatus;
+                    }
+                    serverDst = stringReader.getName();
+                    stringReader.reset();
+                    state = State.DONE;
+                    return ProcessStatus.DONE;
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the {@link Request} retrieved by the process method
+     * @return the {@link Request} associated with the {@link Reader}
+     * @throws IllegalStateException If the process method is not DONE
+     */
+    @Override
+    public Request get() {
+        if (state != State.DONE) {
+            throw new IllegalStateException();
+        }
+        return RequestFactory.directJoin(serverSrc, serverDst);
+    }
+
+    /**
+     * Resets the {@link Reader} to make it reusable
+     */
+    @Override
+    public void reset() {
+        stringReader.reset();
+        state = State.WAIT_SRC;
+    }
+
+    /**
+     * The different possible states for the buffer data recovery
+     */
+    private enum State {
+        DONE, WAIT_SRC, WAIT_DST, ERROR
+    }
+}
@@ -0,0 +1,62 @@
+package main.java.reader.fusion;
+
+import main.java.Utils.RequestFactory;
+import main.java.reader.IntReader;
+import main.java.reader.Reader;
+import main.java.request.Request;
+
+import java.nio.ByteBuffer;
+
+public class RequestFusionCapabilitiesReader implements Reader<Request> {
+    private final IntReader intReader = new IntReader();
+    private int capabilities;
+    private State state = State.WAIT_CAPABILITIES;
+
+    /**
+     * Retrieves data from the {@link ByteBuffer} and stores them
+     * @param bb the {@link ByteBuffer} containing data
+     * @return the status of the buffer data recovery
+     * @throws IllegalStateException if the state of the recovery is DONE or ERROR
+     */
+    @Override
+    public ProcessStatus process(ByteBuffer bb) {
+        if (state == State.DONE || state == State.ERROR) {
+            throw new IllegalStateException();
+        }
+        var status = intReader.process(bb);
+        if (status == ProcessStatus.DONE) {
+            capabilities = intReader.get();
+            state = State.DONE;
+        }
+        return status;
+    }
+
+    /**
+     * Gets the {@link Request} retrieved by the process method
+     * @return the {@link Request} associated with the {@link Reader}
+     * @throws IllegalStateException If the process method is not DONE
+     */
+    @Override
+    public Request get() {
+        if (state != State.DONE) {
+            throw new IllegalStateException();
+        }
+        return RequestFactory.fusionCapabilities(capabilities);
+    }
+
+    /**
+     * Resets the {@link Reader} to make it reusable
+     */
+    @Override
+    public void reset() {
+        state = State.WAIT_CAPABILITIES;
+        intReader.reset();
+    }
+
+    /**
+     * The different possible states for the buffer data recovery
+     */
+    private enum State {
+        DONE, WAIT_CAPABILITIES, ERROR
+    }
+}
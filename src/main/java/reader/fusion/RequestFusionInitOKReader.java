@@ -11,7 +11,7 @@ import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 
 public class RequestFusionInitOKReader implements Reader<Request> {
-    Reader<String> stringReader = new StringReader();
+    StringReader stringReader = new StringReader();
     Reader<InetSocketAddress> addressReader = new InetSocketAddressReader();
     Reader<Integer> intReader = new IntReader();
     String serverName;
@@ -39,7 +39,7 @@ public class RequestFusionInitOKReader implements Reader<Request> {
                 case WAIT_NAME -> {
                     var serverStatus = stringReader.process(bb);
                     if (serverStatus == ProcessStatus.DONE) {
-                        serverName = stringReader.get();
+                        serverName = stringReader.getName();
                         stringReader.reset();
                         state = State.WAIT_ADDRESS;
                     } else {
@@ -79,10 +79,9 @@ public class RequestFusionInitOKReader implements Reader<Request> {
 
                     var serverStatus = stringReader.process(bb);
                     if (serverStatus == ProcessStatus.DONE) {
-                        serverName = stringReader.get();
+                        serverNames[index_members++] = stringReader.getName();
                         stringReader.reset();
 
-                        serverNames[index_members++] = serverName;
                         if (index_members == nbMembers) {
                             state = State.DONE;
                             return ProcessStatus.DONE;
@@ -11,7 +11,7 @@ import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 
 public class RequestFusionInitReader implements Reader<Request> {
-    Reader<String> stringReader = new StringReader();
+    StringReader stringReader = new StringReader();
     Reader<InetSocketAddress> addressReader = new InetSocketAddressReader();
     Reader<Integer> intReader = new IntReader();
     String serverName;
@@ -39,7 +39,7 @@ public class RequestFusionInitReader implements Reader<Request> {
                 case WAIT_NAME -> {
                     var serverStatus = stringReader.process(bb);
                     if (serverStatus == ProcessStatus.DONE) {
-                        serverName = stringReader.get();
+                        serverName = stringReader.getName();
                         stringReader.reset();
                         state = State.WAIT_ADDRESS;
                     } else {
@@ -78,7 +78,7 @@ public class RequestFusionInitReader implements Reader<Request> {
                     }
                     var serverStatus = stringReader.process(bb);
                     if (serverStatus == ProcessStatus.DONE) {
-                        var serverMemberName = stringReader.get();
+                        var serverMemberName = stringReader.getName();
                         stringReader.reset();
 
                         serverNames[index_members++] = serverMemberName;
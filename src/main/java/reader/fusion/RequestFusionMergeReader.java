@@ -27,7 +27,7 @@ public class RequestFusionMergeReader implements Reader<Request> {
         var status = stringReader.process(bb);
         return switch (status) {
             case DONE -> {
-                serverName = stringReader.get();
+                serverName = stringReader.getName();
                 state = State.DONE;
                 yield ProcessStatus.DONE;
             }
@@ -21,11 +21,11 @@ public class RequestFusionRequestResponseReader implements Reader<Request> {
         if (state == State.DONE || state == State.ERROR) {
             throw new IllegalStateException();
         }
-        if(state == State.WAIT_STATUS) {
-            status = bb.get();
-            bb.flip();
-            state = State.DONE;
+        if (!bb.hasRemaining()) {
+            return ProcessStatus.REFILL;
         }
+        status = bb.get();
+        state = State.DONE;
         return ProcessStatus.DONE;
     }
 
@@ -9,7 +9,7 @@ import java.nio.ByteBuffer;
 
 public class RequestLoginAcceptedReader implements Reader<Request> {
     String serverName;
-    Reader<String> stringReader = new StringReader();
+    StringReader stringReader = new StringReader();
     private State state = State.WAIT_SERVER_NAME;
 
     /**
@@ -27,7 +27,7 @@ public class RequestLoginAcceptedReader implements Reader<Request> {
         var status = stringReader.process(bb);
         return switch (status) {
             case DONE -> {
-                serverName = stringReader.get();
+                serverName = stringReader.getName();
                 state = State.DONE;
                 yield ProcessStatus.DONE;
             }
@@ -9,7 +9,7 @@ import java.nio.ByteBuffer;
 
 public class RequestLoginAnonymousReader implements Reader<Request> {
     String login;
-    Reader<String> stringReader = new StringReader();
+    StringReader stringReader = new StringReader();
     private State state = State.WAIT_LOGIN;
 
     /**
@@ -27,7 +27,7 @@ public class RequestLoginAnonymousReader implements Reader<Request> {
         var status = stringReader.process(bb);
         return switch (status) {
             case DONE -> {
-                login = stringReader.get();
+                login = stringReader.getName();
                 state = State.DONE;
                 yield ProcessStatus.DONE;
             }
@@ -29,7 +29,7 @@ public class RequestLoginPasswordReader implements Reader<Request> {
             switch (status) {
                 case DONE -> {
                     if(state == State.WAIT_LOGIN) {
-                        login = stringReader.get();
+                        login = stringReader.getName();
                         stringReader.reset();
                         state = State.WAIT_PSWD;
                         break;
@@ -0,0 +1,151 @@
+package main.java.reader.message;
+
+import main.java.Utils.RequestFactory;
+import main.java.reader.IntReader;
+import main.java.reader.LongReader;
+import main.java.reader.Reader;
+import main.java.reader.StringReader;
+import main.java.request.Request;
+
+import java.nio.ByteBuffer;
+
+public class RequestFileBlockReader implements Reader<Request> {
+    private static final int MAX_BLOCK_SIZE = 5000;
+    private final StringReader stringReader = new StringReader();
+    private final Reader<Integer> intReader = new IntReader();
+    private final Reader<Long> longReader = new LongReader();
+    private String serverSrc;
+    private String loginSrc;
+    private String serverDst;
+    private String loginDst;
+    private String filename;
+    private long offset;
+    private int crc;
+    private ByteBuffer block;
+    private State state = State.WAIT_SERVER_SRC;
+
+    /**
+     * Retrieves data from the {@link ByteBuffer} and stores them
+     * @param bb the {@link ByteBuffer} containing data
+     * @return the status of the buffer data recovery
+     * @throws IllegalStateException if the state of the recovery is DONE or ERROR
+     */
+    @Override
+    public ProcessStatus process(ByteBuffer bb) {
+        for (; ; ) {
+            switch (state) {
+                case DONE, ERROR -> throw new IllegalStateException();
+
+                case WAIT_SERVER_SRC, WAIT_LOGIN_SRC, WAIT_SERVER_DST, WAIT_LOGIN_DST, WAIT_FILENAME -> {
+                    var status = stringReader.process(bb);
+                    if (status != ProcessStatus.DONE) {
+                        return fail(status);
+                    }
+                    var value = state == State.WAIT_FILENAME ? stringReader.get() : stringReader.getName();
+                    stringReader.reset();
+                    switch (state) {
+                        case WAIT_SERVER_SRC -> serverSrc = value;
+                        case WAIT_LOGIN_SRC -> loginSrc = value;
+                        case WAIT_SERVER_DST -> serverDst = value;
+                        case WAIT_LOGIN_DST -> loginDst = value;
+                        default -> filename = value;
+                    }
+                    state = State.values()[state.ordinal() + 1];
+                }
+
+                case WAIT_OFFSET -> {
+                    var status = longReader.process(bb);
+                    if (status != ProcessStatus.DONE) {
+                        return fail(status);
+                    }
+                    offset = longReader.get();
+                    longReader.reset();
+                    if (offset < 0) {
+                        state = State.ERROR;
+                        return ProcessStatus.ERROR;
+                    }
+                    state = State.WAIT_CRC;
+                }
+
+                case WAIT_CRC -> {
+                    var status = intReader.process(bb);
+                    if (status != ProcessStatus.DONE) {
+                        return fail(status);
+                    }
+                    crc = intReader.get();
+                    intReader.reset();
+                    state = State.WAIT_BLOCK_SIZE;
+                }
+
+                case WAIT_BLOCK_SIZE -> {
+                    var status = intReader.process(bb);
+                    if (status != ProcessStatus.DONE) {
+                        return fail(status);
+                    }
+                    var blockSize = intReader.get();
+                    intReader.reset();
+                    if (blockSize < 0 || blockSize > MAX_BLOCK_SIZE) {
+                        state = State.ERROR;
+                        return ProcessStatus.ERROR;
+                    }
+                    block = ByteBuffer.allocate(blockSize);
+                    state = State.WAIT_BLOCK;
+                }
+
+                case WAIT_BLOCK -> {
+                    if (bb.remaining() <= block.remaining()) {
+                        block.put(bb);
+                    } else {
+                        var oldLimit = bb.limit();
+                        bb.limit(bb.position() + block.remaining());
+                        block.put(bb);
+                        bb.limit(oldLimit);
+                    }
+                    if (block.hasRemaining()) {
+                        return ProcessStatus.REFILL;
+                    }
+                    state = State.DONE;
+                    return ProcessStatus.DONE;
+                }
+            }
+        }
+    }
+
+    private ProcessStatus fail(ProcessStatus status) {
+        if (status == ProcessStatus.ERROR) {
+            state = State.ERROR;
+        }
+        return status;
+    }
+
+    /**
+     * Gets the {@link Request} retrieved by the process method
+     * @return the {@link Request} associated with the {@link Reader}
+     * @throws IllegalStateException If the process method is not DONE
+     */
+    @Override
+    public Request get() {
+        if (state != State.DONE) {
+            throw new IllegalStateException();
+        }
+        return RequestFactory.fileBlock(serverSrc, loginSrc, serverDst, loginDst, filename, offset, crc, block.capacity(), block.array());
+    }
+
+    /**
+     * Resets the {@link Reader} to make it reusable
+     */
+    @Override
+    public void reset() {
+        stringReader.reset();
+        intReader.reset();
+        longReader.reset();
+        state = State.WAIT_SERVER_SRC;
+    }
+
+    /**
+     * The different possible states for the buffer data recovery, the strings in the order they are read
+     */
+    private enum State {
+        WAIT_SERVER_SRC, WAIT_LOGIN_SRC, WAIT_SERVER_DST, WAIT_LOGIN_DST, WAIT_FILENAME, WAIT_OFFSET, WAIT_CRC, WAIT_BLOCK_SIZE, WAIT_BLOCK, DONE, ERROR
+    }
+}
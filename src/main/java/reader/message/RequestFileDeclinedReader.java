@@ -0,0 +1,86 @@
+package main.java.reader.message;
+
+import main.java.Utils.RequestFactory;
+import main.java.reader.Reader;
+import main.java.reader.StringReader;
+import main.java.request.Request;
+
+import java.nio.ByteBuffer;
+
+public class RequestFileDeclinedReader implements Reader<Request> {
+    private final StringReader stringReader = new StringReader();
+    private String serverSrc;
+    private String loginSrc;
+    private String serverDst;
+    private String loginDst;
+    private String filename;
+    private State state = State.WAIT_SERVER_SRC;
+
+    /**
+     * Retrieves data from the {@link ByteBuffer} and stores them
+     * @param bb the {@link ByteBuffer} containing data
+     * @return the status of the buffer data recovery
+     * @throws IllegalStateException if the state of the recovery is DONE or ERROR
+     */
+    @Override
+    public ProcessStatus process(ByteBuffer bb) {
+        for (; ; ) {
+            switch (state) {
+                case DONE, ERROR -> throw new IllegalStateException();
+
+                case WAIT_SERVER_SRC, WAIT_LOGIN_SRC, WAIT_SERVER_DST, WAIT_LOGIN_DST, WAIT_FILENAME -> {
+                    var status = stringReader.process(bb);
+                    if (status != ProcessStatus.DONE) {
+                        if (status == ProcessStatus.ERROR) {
+                            state = State.ERROR;
+                        }
+                        return status;
+                    }
+                    var value = state == State.WAIT_FILENAME ? stringReader.get() : stringReader.getName();
+                    stringReader.reset();
+                    switch (state) {
+                        case WAIT_SERVER_SRC -> serverSrc = value;
+                        case WAIT_LOGIN_SRC -> loginSrc = value;
+                        case WAIT_SERVER_DST -> serverDst = value;
+                        case WAIT_LOGIN_DST -> loginDst = value;
+                        default -> {
+                            filename = value;
+                            state = State.DONE;
+                            return ProcessStatus.DONE;
+                        }
+                    }
+                    state = State.values()[state.ordinal() + 1];
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the {@link Request} retrieved by the process method
+     * @return the {@link Request} associated with the {@link Reader}
+     * @throws IllegalStateException If the process method is not DONE
+     */
+    @Override
+    public Request get() {
+        if (state != State.DONE) {
+            throw new IllegalStateException();
+        }
+        return RequestFactory.fileDeclined(serverSrc, loginSrc, serverDst, loginDst, filename);
+    }
+
+    /**
+     * Resets the {@link Reader} to make it reusable
+     */
+    @Override
+    public void reset() {
+        stringReader.reset();
+        state = State.WAIT_SERVER_SRC;
+    }
+
+    /**
+     * The different possible states for the buffer data recovery, the strings in the order they are read
+     */
+    private enum State {
+        WAIT_SERVER_SRC, WAIT_LOGIN_SRC, WAIT_SERVER_DST, WAIT_LOGIN_DST, WAIT_FILENAME, DONE, ERROR
+    }
+}
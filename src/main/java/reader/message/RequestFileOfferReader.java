@@ -0,0 +1,135 @@
+package main.java.reader.message;
+
+import main.java.Utils.RequestFactory;
+import main.java.reader.IntReader;
+import main.java.reader.LongReader;
+import main.java.reader.Reader;
+import main.java.reader.StringReader;
+import main.java.request.Request;
+import main.java.request.RequestFileOffer;
+
+import java.nio.ByteBuffer;
+
+public class RequestFileOfferReader implements Reader<Request> {
+    private final StringReader stringReader = new StringReader();
+    private final Reader<Integer> intReader = new IntReader();
+    private final Reader<Long> longReader = new LongReader();
+    private final ByteBuffer digest = ByteBuffer.allocate(RequestFileOffer.DIGEST_SIZE);
+    private String serverSrc;
+    private String loginSrc;
+    private String serverDst;
+    private String loginDst;
+    private String filename;
+    private long fileSize;
+    private State state = State.WAIT_SERVER_SRC;
+
+    /**
+     * Retrieves data from the {@link ByteBuffer} and stores them
+     * @param bb the {@link ByteBuffer} containing data
+     * @return the status of the buffer data recovery
+     * @throws IllegalStateException if the state of the recovery is DONE or ERROR
+     */
+    @Override
+    public ProcessStatus process(ByteBuffer bb) {
+        for (; ; ) {
+            switch (state) {
+                case DONE, ERROR -> throw new IllegalStateException();
+
+                case WAIT_SERVER_SRC, WAIT_LOGIN_SRC, WAIT_SERVER_DST, WAIT_LOGIN_DST, WAIT_FILENAME -> {
+                    var status = stringReader.process(bb);
+                    if (status != ProcessStatus.DONE) {
+                        return fail(status);
+                    }
+                    var value = state == State.WAIT_FILENAME ? stringReader.get() : stringReader.getName();
+                    stringReader.reset();
+                    switch (state) {
+                        case WAIT_SERVER_SRC -> serverSrc = value;
+                        case WAIT_LOGIN_SRC -> loginSrc = value;
+                        case WAIT_SERVER_DST -> serverDst = value;
+                        case WAIT_LOGIN_DST -> loginDst = value;
+                        default -> filename = value;
+                    }
+                    state = State.values()[state.ordinal() + 1];
+                }
+
+                case WAIT_FILE_SIZE -> {
+                    var status = longReader.process(bb);
+                    if (status != ProcessStatus.DONE) {
+                        return fail(status);
+                    }
+                    fileSize = longReader.get();
+                    longReader.reset();
+                    if (fileSize < 0) {
+                        state = State.ERROR;
+                        return ProcessStatus.ERROR;
+                    }
+                    state = State.WAIT_DIGEST_SIZE;
+                }
+
+                case WAIT_DIGEST_SIZE -> {
+                    var status = intReader.process(bb);
+                    if (status != ProcessStatus.DONE) {
+                        return fail(status);
+                    }
+                    var size = intReader.get();
+                    intReader.reset();
+                    if (size != RequestFileOffer.DIGEST_SIZE) {
+                        state = State.ERROR;
+                        return ProcessStatus.ERROR;
+                    }
+                    state = State.WAIT_DIGEST;
+                }
+
+                case WAIT_DIGEST -> {
+                    while (digest.hasRemaining() && bb.hasRemaining()) {
+                        digest.put(bb.get());
+                    }
+                    if (digest.hasRemaining()) {
+                        return ProcessStatus.REFILL;
+                    }
+                    state = State.DONE;
+                    return ProcessStatus.DONE;
+                }
+            }
+        }
+    }
+
+    private ProcessStatus fail(ProcessStatus status) {
+        if (status == ProcessStatus.ERROR) {
+            state = State.ERROR;
+        }
+        return status;
+    }
+
+    /**
+     * Gets the {@link Request} retrieved by the process method
+     * @return the {@link Request} associated with the {@link Reader}
+     * @throws IllegalStateException If the process method is not DONE
+     */
+    @Override
+    public Request get() {
+        if (state != State.DONE) {
+            throw new IllegalStateException();
+        }
+        return RequestFactory.fileOffer(serverSrc, loginSrc, serverDst, loginDst, filename, fileSize, digest.array().clone());
+    }
+
+    /**
+     * Resets the {@link Reader} to make it reusable
+     */
+    @Override
+    public void reset() {
+        stringReader.reset();
+        intReader.reset();
+        longReader.reset();
+        digest.clear();
+        state = State.WAIT_SERVER_SRC;
+    }
+
+    /**
+     * The different possible states for the buffer data recovery, the strings in the order they are read
+     */
+    private enum State {
+        WAIT_SERVER_SRC, WAIT_LOGIN_SRC, WAIT_SERVER_DST, WAIT_LOGIN_DST, WAIT_FILENAME, WAIT_FILE_SIZE, WAIT_DIGEST_SIZE, WAIT_DIGEST, DONE, ERROR
+    }
+}
@@ -9,7 +9,7 @@ import main.java.request.Request;
 import java.nio.ByteBuffer;
 
 public class RequestFilePrivateReader implements Reader<Request> {
-    private final Reader<String> stringReader = new StringReader();
+    private final StringReader stringReader = new StringReader();
     private final Reader<Integer> intReader = new IntReader();
     private String serverSrc;
     private String serverDst;
@@ -45,22 +45,22 @@ public class RequestFilePrivateReader implements Reader<Request> {
                 case DONE -> {
                     switch (state) {
                         case WAIT_SERVER_SRC -> {
-                            serverSrc = stringReader.get();
+                            serverSrc = stringReader.getName();
                             stringReader.reset();
                             state = State.WAIT_LOGIN_SRC;
                         }
                         case WAIT_LOGIN_SRC -> {
-                            loginSrc = stringReader.get();
+                            loginSrc = stringReader.getName();
                             stringReader.reset();
                             state = State.WAIT_SERVER_DST;
                         }
                         case WAIT_SERVER_DST -> {
-                            serverDst = stringReader.get();
+                            serverDst = stringReader.getName();
                             stringReader.reset();
                             state = State.WAIT_LOGIN_DST;
                         }
                         case WAIT_LOGIN_DST -> {
-                            loginDst = stringReader.get();
+                            loginDst = stringReader.getName();
                             stringReader.reset();
                             state = State.WAIT_FILENAME;
                         }
@@ -93,20 +93,13 @@ public class RequestFilePrivateReader implements Reader<Request> {
             }
         }
 
-        bb.flip();
-        try {
-            if (bb.remaining() <= this.internalBuffer.remaining()) {
-                this.internalBuffer.put(bb);
-            } else {
-                int oldLimit = bb.limit();
-                var remaining = this.internalBuffer.remaining();
-                var delta = bb.position() == 0 ? 0 : blockSize - bb.position() + 1;
-                bb.limit(remaining + delta);
-                this.internalBuffer.put(bb);
-                bb.limit(oldLimit);
-            }
-        } finally {
-            bb.compact();
+        if (bb.remaining() <= this.internalBuffer.remaining()) {
+            this.internalBuffer.put(bb);
+        } else {
+            int oldLimit = bb.limit();
+            bb.limit(bb.position() + this.internalBuffer.remaining());
+            this.internalBuffer.put(bb);
+            bb.limit(oldLimit);
         }
 
         if (this.internalBuffer.hasRemaining()) {
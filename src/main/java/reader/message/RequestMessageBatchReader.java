@@ -0,0 +1,152 @@
+package main.java.reader.message;
+
+import main.java.OpCode;
+import main.java.buffer.SharedFrame;
+import main.java.reader.IntReader;
+import main.java.reader.Reader;
+import main.java.request.Request;
+import main.java.request.RequestMessageBatch;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Reader of MESSAGE_BATCH: the size of the content, then complete MESSAGE frames.
+ * <p>
+ * The content is copied into a buffer reused for every batch, then checked: it must be made of MESSAGE frames
+ * only, whose strings respect the limits of MESSAGE, and end with the last of them. Each message is then copied
+ * into a pooled {@link SharedFrame}, the way {@link RequestRelayReader} would have read it alone.
+ */
+public class RequestMessageBatchReader implements Reader<Request> {
+    /**
+     * The biggest content a batch may have, in bytes
+     */
+    public static final int MAX_BATCH_SIZE = 65_536;
+    private static final int MAX_STRING_SIZE = 1024;
+    private static final int STRINGS_PER_MESSAGE = 3;
+
+    private final IntReader intReader = new IntReader();
+    private byte[] content = new byte[1024];
+    private int size;
+    private int filled;
+    // The offset in content where each message ends
+    private int[] ends = new int[64];
+    private int count;
+    private RequestMessageBatch request;
+    private State state = State.WAIT_SIZE;
+
+    /**
+     * Retrieves data from the {@link ByteBuffer} and stores them
+     * @param bb the {@link ByteBuffer} containing data
+     * @return the status of the buffer data recovery
+     * @throws IllegalStateException if the state of the recovery is DONE or ERROR
+     */
+    @Override
+    public ProcessStatus process(ByteBuffer bb) {
+        if (state == State.DONE || state == State.ERROR) {
+            throw new IllegalStateException();
+        }
+        if (state == State.WAIT_SIZE) {
+            var status = intReader.process(bb);
+            if (status == ProcessStatus.REFILL) {
+                return ProcessStatus.REFILL;
+            }
+            size = intReader.get();
+            if (size <= 0 || size > MAX_BATCH_SIZE) {
+                state = State.ERROR;
+                return ProcessStatus.ERROR;
+            }
+            if (content.length < size) {
+                content = new byte[Math.max(size, content.length * 2)];
+            }
+            filled = 0;
+            state = State.WAIT_MESSAGES;
+        }
+        var length = Math.min(bb.remaining(), size - filled);
+        bb.get(content, filled, length);
+        filled += length;
+        if (filled < size) {
+            return ProcessStatus.REFILL;
+        }
+        if (!split()) {
+            state = State.ERROR;
+            return ProcessStatus.ERROR;
+        }
+        state = State.DONE;
+        return ProcessStatus.DONE;
+    }
+
+    /**
+     * Finds where each message of the content ends
+     * @return false if the content is not a sequence of valid MESSAGE frames
+     */
+    private boolean split() {
+        var wrapped = ByteBuffer.wrap(content, 0, size);
+        count = 0;
+        while (wrapped.hasRemaining()) {
+            if (wrapped.get() != OpCode.MESSAGE.getOpCode()) {
+                return false;
+            }
+            for (int i = 0; i < STRINGS_PER_MESSAGE; i++) {
+                if (wrapped.remaining() < Integer.BYTES) {
+                    return false;
+                }
+                var length = wrapped.getInt();
+                if (length < 0 || length > MAX_STRING_SIZE || length > wrapped.remaining()) {
+                    return false;
+                }
+                wrapped.position(wrapped.position() + length);
+            }
+            if (count == ends.length) {
+                ends = Arrays.copyOf(ends, count * 2);
+            }
+            ends[count++] = wrapped.position();
+        }
+        return true;
+    }
+
+    /**
+     * Gets the {@link Request} retrieved by the process method
+     * <p>
+     * The frames of the messages belong to the caller, who must release them once broadcast.
+     * @return the {@link Request} associated with the {@link Reader}
+     * @throws IllegalStateException If the process method is not DONE
+     */
+    @Override
+    public Request get() {
+        if (state != State.DONE) {
+            throw new IllegalStateException();
+        }
+        if (request != null) {
+            return request;
+        }
+        var messages = new ArrayList<SharedFrame>(count);
+        var start = 0;
+        for (int i = 0; i < count; i++) {
+            var length = ends[i] - start;
+            var buffer = SharedFrame.lease(length).put(content, start, length).flip();
+            messages.add(SharedFrame.wrap(OpCode.MESSAGE, buffer));
+            start = ends[i];
+        }
+        request = new RequestMessageBatch(messages);
+        return request;
+    }
+
+    /**
+     * Resets the {@link Reader} to make it reusable
+     */
+    @Override
+    public void reset() {
+        state = State.WAIT_SIZE;
+        request = null;
+        intReader.reset();
+    }
+
+    /**
+     * The different possible states for the buffer data recovery
+     */
+    private enum State {
+        DONE, WAIT_SIZE, WAIT_MESSAGES, ERROR
+    }
+}
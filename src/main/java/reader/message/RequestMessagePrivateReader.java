@@ -8,7 +8,7 @@ import main.java.request.Request;
 import java.nio.ByteBuffer;
 
 public class RequestMessagePrivateReader implements Reader<Request> {
-    private final Reader<String> stringReader = new StringReader();
+    private final StringReader stringReader = new StringReader();
     private String serverSrc;
     private String serverDst;
     private String loginSrc;
@@ -34,22 +34,22 @@ public class RequestMessagePrivateReader implements Reader<Request> {
                 case DONE -> {
                     switch (state) {
                         case WAIT_SERVER_SRC -> {
-                            serverSrc = stringReader.get();
+                            serverSrc = stringReader.getName();
                             stringReader.reset();
                             state = State.WAIT_LOGIN_SRC;
                         }
                         case WAIT_LOGIN_SRC -> {
-                            loginSrc = stringReader.get();
+                            loginSrc = stringReader.getName();
                             stringReader.reset();
                             state = State.WAIT_SERVER_DST;
                         }
                         case WAIT_SERVER_DST -> {
-                            serverDst = stringReader.get();
+                            serverDst = stringReader.getName();
                             stringReader.reset();
                             state = State.WAIT_LOGIN_DST;
                         }
                         case WAIT_LOGIN_DST -> {
-                            loginDst = stringReader.get();
+                            loginDst = stringReader.getName();
                             stringReader.reset();
                             state = State.WAIT_MSG;
                         }
@@ -8,7 +8,7 @@ import main.java.request.Request;
 import java.nio.ByteBuffer;
 
 public class RequestMessagePublicReader implements Reader<Request> {
-    private final Reader<String> stringReader = new StringReader();
+    private final StringReader stringReader = new StringReader();
     private String serverName;
     private String login;
     private String msg;
@@ -32,12 +32,12 @@ public class RequestMessagePublicReader implements Reader<Request> {
                 case DONE -> {
                     switch (state) {
                         case WAIT_SERVER_NAME -> {
-                            serverName = stringReader.get();
+                            serverName = stringReader.getName();
                             stringReader.reset();
                             state = State.WAIT_LOGIN;
                         }
                         case WAIT_LOGIN -> {
-                            login = stringReader.get();
+                            login = stringReader.getName();
                             stringReader.reset();
                             state = State.WAIT_MSG;
                         }
@@ -0,0 +1,272 @@
+package main.java.reader.message;
+
+import main.java.OpCode;
+import main.java.buffer.SharedFrame;
+import main.java.reader.Reader;
+import main.java.request.Request;
+import main.java.request.RequestRelayed;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reader of the requests a server forwards without consuming them: MESSAGE, PRIVATE_MESSAGE, FILE_PRIVATE and the
+ * requests of the resumable file transfers, FILE_OFFER, FILE_RESUME, FILE_BLOCK and FILE_DECLINED.
+ * <p>
+ * The bytes of the request are copied as they arrive into a pooled buffer, which becomes the {@link SharedFrame}
+ * sent to the recipients. Only the lengths of the fields are read to find the end of the request,
+ * and only the offsets of serverDst and loginDst are recorded, the contents of the messages and of the files stay untouched.
+ */
+public class RequestRelayReader implements Reader<Request> {
+    private static final int MAX_STRING_SIZE = 1024;
+    private static final int MAX_BLOCK_SIZE = 5000;
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final OpCode opCode;
+    private final Field[] fields;
+    private final int serverDstField;
+    private final int loginDstField;
+    private ByteBuffer frame;
+    // The offset in the frame where the element being read ends
+    private int end;
+    // The offset in the frame where the value of the current field starts
+    private int valueStart;
+    private int field;
+    private boolean waitingSize;
+    private int lastInt;
+    // The offsets and lengths of serverDst and loginDst in the frame, decoded only if the server asks for them
+    private int serverDstOffset;
+    private int serverDstLength;
+    private int loginDstOffset;
+    private int loginDstLength;
+    // The view given for the previous request, reused once released by the server
+    private RequestRelayed view;
+    private RequestRelayed request;
+    private State state = State.WAITING;
+
+    /**
+     * Creates the relay reader of the given {@link OpCode}
+     * @param opCode the {@link OpCode} of the requests to read, see {@link #isRelayable(OpCode)}
+     * @throws IllegalArgumentException if the requests of this {@link OpCode} cannot be relayed
+     */
+    public RequestRelayReader(OpCode opCode) {
+        this.opCode = opCode;
+        switch (opCode) {
+            case MESSAGE -> {
+                fields = new Field[]{Field.STRING, Field.STRING, Field.STRING};
+                serverDstField = -1;
+                loginDstField = -1;
+            }
+            case PRIVATE_MESSAGE -> {
+                fields = new Field[]{Field.STRING, Field.STRING, Field.STRING, Field.STRING, Field.STRING};
+                serverDstField = 2;
+                loginDstField = 3;
+            }
+            case FILE_PRIVATE -> {
+                fields = new Field[]{Field.STRING, Field.STRING, Field.STRING, Field.STRING, Field.STRING, Field.INT, Field.INT, Field.BLOCK};
+                serverDstField = 2;
+                loginDstField = 3;
+            }
+            case FILE_OFFER -> {
+                fields = new Field[]{Field.STRING, Field.STRING, Field.STRING, Field.STRING, Field.STRING, Field.LONG, Field.INT, Field.BLOCK};
+                serverDstField = 2;
+                loginDstField = 3;
+            }
+            case FILE_RESUME -> {
+                fields = new Field[]{Field.STRING, Field.STRING, Field.STRING, Field.STRING, Field.STRING, Field.INT, Field.BLOCK};
+                serverDstField = 2;
+                loginDstField = 3;
+            }
+            case FILE_BLOCK -> {
+                fields = new Field[]{Field.STRING, Field.STRING, Field.STRING, Field.STRING, Field.STRING, Field.LONG, Field.INT, Field.INT, Field.BLOCK};
+                serverDstField = 2;
+                loginDstField = 3;
+            }
+            case FILE_DECLINED -> {
+                fields = new Field[]{Field.STRING, Field.STRING, Field.STRING, Field.STRING, Field.STRING};
+                serverDstField = 2;
+                loginDstField = 3;
+            }
+            default -> throw new IllegalArgumentException(opCode + " cannot be relayed");
+        }
+    }
+
+    /**
+     * Tells if the requests of the given {@link OpCode} can be read by a relay reader
+     * @param opCode the {@link OpCode}
+     * @return true if the requests are only forwarded by a server
+     */
+    public static boolean isRelayable(OpCode opCode) {
+        return switch (opCode) {
+            case MESSAGE, PRIVATE_MESSAGE, FILE_PRIVATE, FILE_OFFER, FILE_RESUME, FILE_BLOCK, FILE_DECLINED -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Retrieves data from the {@link ByteBuffer} and stores them
+     * @param bb the {@link ByteBuffer} containing data
+     * @return the status of the buffer data recovery
+     * @throws IllegalStateException if the state of the recovery is DONE or ERROR
+     */
+    @Override
+    public ProcessStatus process(ByteBuffer bb) {
+        if (this.state == State.DONE || this.state == State.ERROR) {
+            throw new IllegalStateException();
+        }
+        if (state == State.WAITING) {
+            start();
+        }
+
+        for (; ; ) {
+            var missing = end - frame.position();
+            if (bb.remaining() > missing) {
+                var oldLimit = bb.limit();
+                bb.limit(bb.position() + missing);
+                frame.put(bb);
+                bb.limit(oldLimit);
+            } else {
+                frame.put(bb);
+            }
+            if (frame.position() < end) {
+                return ProcessStatus.REFILL;
+            }
+            if (!nextElement()) {
+                state = State.ERROR;
+                return ProcessStatus.ERROR;
+            }
+            if (state == State.DONE) {
+                return ProcessStatus.DONE;
+            }
+        }
+    }
+
+    private void start() {
+        frame = SharedFrame.lease(INITIAL_CAPACITY);
+        frame.put(opCode.getOpCode());
+        field = 0;
+        waitingSize = fields[0] == Field.STRING;
+        end = frame.position() + Integer.BYTES;
+        serverDstOffset = -1;
+        loginDstOffset = -1;
+        request = null;
+        state = State.WORKING;
+    }
+
+    /**
+     * Moves to the next element once the current one is completely in the frame
+     * @return false if the element read is invalid
+     */
+    private boolean nextElement() {
+        if (waitingSize) {
+            var size = frame.getInt(end - Integer.BYTES);
+            if (size < 0 || size > MAX_STRING_SIZE) {
+                return false;
+            }
+            waitingSize = false;
+            valueStart = end;
+            end += size;
+            ensureCapacity(end);
+            if (size != 0) {
+                return true;
+            }
+        } else if (fields[field] == Field.INT) {
+            lastInt = frame.getInt(end - Integer.BYTES);
+        }
+        if (field == serverDstField) {
+            serverDstOffset = valueStart;
+            serverDstLength = end - valueStart;
+        } else if (field == loginDstField) {
+            loginDstOffset = valueStart;
+            loginDstLength = end - valueStart;
+        }
+
+        field++;
+        if (field == fields.length) {
+            state = State.DONE;
+            return true;
+        }
+        // a BLOCK is sized by the INT preceding it, an INT and a LONG have no size
+        if (fields[field] == Field.STRING) {
+            waitingSize = true;
+            end += Integer.BYTES;
+        } else if (fields[field] == Field.INT) {
+            end += Integer.BYTES;
+        } else if (fields[field] == Field.LONG) {
+            end += Long.BYTES;
+        } else {
+            if (lastInt < 0 || lastInt > MAX_BLOCK_SIZE) {
+                return false;
+            }
+            valueStart = end;
+            end += lastInt;
+        }
+        ensureCapacity(end);
+        return true;
+    }
+
+    /**
+     * Moves the frame to a bigger pooled buffer if the next element does not fit
+     * @param capacity the number of bytes the frame must be able to hold
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity <= frame.capacity()) {
+            return;
+        }
+        var bigger = SharedFrame.lease(capacity);
+        bigger.put(frame.flip());
+        SharedFrame.recycle(frame);
+        frame = bigger;
+    }
+
+    /**
+     * Gets the {@link Request} retrieved by the process method
+     * <p>
+     * The frame of the request belongs to the caller, who must release it with {@link RequestRelayed#release()}
+     * once forwarded, the view is then reused for a following request.
+     * @return the {@link Request} associated with the {@link Reader}
+     * @throws IllegalStateException If the process method is not DONE
+     */
+    @Override
+    public Request get() {
+        if (this.state != State.DONE) {
+            throw new IllegalStateException();
+        }
+        if (request == null) {
+            var shared = SharedFrame.wrap(opCode, frame.flip());
+            if (view != null && view.isReleased()) {
+                request = view.reuse(opCode, shared, serverDstOffset, serverDstLength, loginDstOffset, loginDstLength);
+            } else {
+                request = new RequestRelayed(opCode, shared, serverDstOffset, serverDstLength, loginDstOffset, loginDstLength);
+                view = request;
+            }
+            frame = null;
+        }
+        return request;
+    }
+
+    /**
+     * Resets the {@link Reader} to make it reusable
+     */
+    @Override
+    public void reset() {
+        if (frame != null) {
+            SharedFrame.recycle(frame);
+            frame = null;
+        }
+        this.state = State.WAITING;
+    }
+
+    /**
+     * The kinds of fields of the relayed requests
+     */
+    private enum Field {
+        STRING, INT, LONG, BLOCK
+    }
+
+    /**
+     * The different possible states for the buffer data recovery
+     */
+    private enum State {
+        DONE, WAITING, WORKING, ERROR
+    }
+}
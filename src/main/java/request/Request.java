@@ -8,7 +8,7 @@ import main.java.OpCode;
  * <p>
  * The buffer is in read-mode when get
  */
-public sealed interface Request extends BufferSerializable permits RequestFusionChangeLeader, RequestFusionInit, RequestFusionInitFWD, RequestFusionInitKO, RequestFusionInitOK, RequestFusionMerge, RequestFusionRequest, RequestFusionRequestResponse, RequestLoginAccepted, RequestLoginAnonymous, RequestLoginPassword, RequestLoginRefused, RequestMessageFilePrivate, RequestMessagePrivate, RequestMessagePublic {
+public sealed interface Request extends BufferSerializable permits RequestDirectAddress, RequestDirectJoin, RequestDirectLookup, RequestFileBlock, RequestFileDeclined, RequestFileOffer, RequestFileResume, RequestFusionCapabilities, RequestFusionChangeLeader, RequestFusionDeflate, RequestFusionInit, RequestFusionInitFWD, RequestFusionInitKO, RequestFusionInitOK, RequestFusionMerge, RequestFusionRequest, RequestFusionRequestResponse, RequestLoginAccepted, RequestLoginAnonymous, RequestLoginPassword, RequestLoginRefused, RequestMessageBatch, RequestMessageFilePrivate, RequestMessagePrivate, RequestMessagePublic, RequestRelayAddress, RequestRelayed, RequestRelayJoin, RequestRelayParent {
 
     /**
      * Gets the {@link OpCode} associated with the {@link Request}
@@ -0,0 +1,44 @@
+package main.java.request;
+
+import main.java.OpCode;
+import main.java.wrapper.InetIpv4ChatFusion;
+import main.java.wrapper.StringChatFusion;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Sent by the leader of a mega-server in response to a {@link RequestDirectLookup}: the address another member
+ * listens on
+ *
+ * @param serverName the name of the other member
+ * @param address the address the other member listens on
+ */
+public record RequestDirectAddress(StringChatFusion serverName, InetIpv4ChatFusion address) implements Request {
+
+    /**
+     * Returns the length of a {@link ByteBuffer} containing the {@link Request} data
+     * @return the length of the {@link ByteBuffer}
+     */
+    @Override
+    public int bufferLength() {
+        return 1 + serverName.bufferLength() + address.bufferLength();
+    }
+
+    /**
+     * Encodes the necessary data and puts it in the {@link ByteBuffer}
+     * @return the {@link ByteBuffer} filled
+     */
+    @Override
+    public ByteBuffer encode() {
+        return ByteBuffer.allocate(bufferLength()).put(getOpCode().getOpCode()).put(serverName.encode()).put(address.encode()).flip();
+    }
+
+    /**
+     * Gets the {@link OpCode} associated with the {@link Request}
+     * @return the {@link OpCode} associated with the {@link Request}
+     */
+    @Override
+    public OpCode getOpCode() {
+        return OpCode.DIRECT_ADDRESS;
+    }
+}
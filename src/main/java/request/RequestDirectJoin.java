@@ -0,0 +1,45 @@
+package main.java.request;
+
+import main.java.OpCode;
+import main.java.wrapper.StringChatFusion;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Sent by a member of a mega-server once it opened a direct link with another member, twice: on the direct link, to
+ * name itself, then through the leader, which forwards it to the other member. The second one comes after every
+ * private frame sent through the leader before the switch: the other member holds the frames of the direct link until
+ * it receives it, so that they are not delivered before the ones still on their way through the leader
+ *
+ * @param serverSrc the name of the member which opened the direct link
+ * @param serverDst the name of the member at the other end of the direct link
+ */
+public record RequestDirectJoin(StringChatFusion serverSrc, StringChatFusion serverDst) implements Request {
+
+    /**
+     * Returns the length of a {@link ByteBuffer} containing the {@link Request} data
+     * @return the length of the {@link ByteBuffer}
+     */
+    @Override
+    public int bufferLength() {
+        return 1 + serverSrc.bufferLength() + serverDst.bufferLength();
+    }
+
+    /**
+     * Encodes the necessary data and puts it in the {@link ByteBuffer}
+     * @return the {@link ByteBuffer} filled
+     */
+    @Override
+    public ByteBuffer encode() {
+        return ByteBuffer.allocate(bufferLength()).put(getOpCode().getOpCode()).put(serverSrc.encode()).put(serverDst.encode()).flip();
+    }
+
+    /**
+     * Gets the {@link OpCode} associated with the {@link Request}
+     * @return the {@link OpCode} associated with the {@link Request}
+     */
+    @Override
+    public OpCode getOpCode() {
+        return OpCode.DIRECT_JOIN;
+    }
+}
@@ -0,0 +1,42 @@
+package main.java.request;
+
+import main.java.OpCode;
+import main.java.wrapper.StringChatFusion;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Sent by a member of a mega-server to its leader to get the address of another member, before opening a direct link
+ * with it for the private messages and files
+ *
+ * @param serverName the name of the other member
+ */
+public record RequestDirectLookup(StringChatFusion serverName) implements Request {
+
+    /**
+     * Returns the length of a {@link ByteBuffer} containing the {@link Request} data
+     * @return the length of the {@link ByteBuffer}
+     */
+    @Override
+    public int bufferLength() {
+        return 1 + serverName.bufferLength();
+    }
+
+    /**
+     * Encodes the necessary data and puts it in the {@link ByteBuffer}
+     * @return the {@link ByteBuffer} filled
+     */
+    @Override
+    public ByteBuffer encode() {
+        return ByteBuffer.allocate(bufferLength()).put(getOpCode().getOpCode()).put(serverName.encode()).flip();
+    }
+
+    /**
+     * Gets the {@link OpCode} associated with the {@link Request}
+     * @return the {@link OpCode} associated with the {@link Request}
+     */
+    @Override
+    public OpCode getOpCode() {
+        return OpCode.DIRECT_LOOKUP;
+    }
+}
@@ -0,0 +1,96 @@
+package main.java.request;
+
+import main.java.OpCode;
+import main.java.wrapper.StringChatFusion;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A block of a file sent after a {@link RequestFileOffer}, with its place in the file and its checksum: the blocks can
+ * be sent in any order, only the missing ones once the transfer is resumed
+ *
+ * @param serverSrc the server of the sender
+ * @param loginSrc the sender of the file
+ * @param serverDst the server of the recipient
+ * @param loginDst the recipient of the file
+ * @param filename the name of the file
+ * @param offset the position of the block in the file
+ * @param crc the CRC32C of the block
+ * @param blockSize the number of bytes of the block
+ * @param block the bytes of the block, empty when only the header is encoded and the bytes are written afterwards
+ */
+public record RequestFileBlock(StringChatFusion serverSrc, StringChatFusion loginSrc,
+                               StringChatFusion serverDst, StringChatFusion loginDst,
+                               StringChatFusion filename, long offset, int crc, int blockSize,
+                               byte[] block) implements Request {
+    public RequestFileBlock {
+        if (serverSrc.size() > 100) {
+            throw new IllegalArgumentException("Server_src length superior than 100 UTF8 characters");
+        }
+        if (serverDst.size() > 100) {
+            throw new IllegalArgumentException("Server_dst length superior than 100 UTF8 characters");
+        }
+        if (loginSrc.size() > 30) {
+            throw new IllegalArgumentException("login_src length superior than 30 UTF8 characters");
+        }
+        if (loginDst.size() > 30) {
+            throw new IllegalArgumentException("login_dst length superior than 30 UTF8 characters");
+        }
+        if (filename.size() > 30) {
+            throw new IllegalArgumentException("filename length superior than 30 UTF8 characters");
+        }
+        if (offset < 0) {
+            throw new IllegalArgumentException("negative offset");
+        }
+        if (blockSize > 5000) {
+            throw new IllegalArgumentException("block size superior than 5000 bytes");
+        }
+    }
+
+    /**
+     * Returns the length of a {@link ByteBuffer} containing the {@link Request} data
+     * @return the length of the {@link ByteBuffer}
+     */
+    @Override
+    public int bufferLength() {
+        return 1 + serverSrc.bufferLength() + loginSrc.bufferLength() + serverDst.bufferLength() + loginDst.bufferLength() + filename.bufferLength() + Long.BYTES + Integer.BYTES * 2 + blockSize;
+    }
+
+    /**
+     * Encodes the necessary data and puts it in the {@link ByteBuffer}
+     * @return the {@link ByteBuffer} filled
+     */
+    @Override
+    public ByteBuffer encode() {
+        var buffer = ByteBuffer.allocate(bufferLength());
+        encodeTo(buffer);
+        return buffer.flip();
+    }
+
+    /**
+     * Encodes the necessary data at the position of the given {@link ByteBuffer}
+     * @param buffer the {@link ByteBuffer} to fill, in write-mode
+     */
+    @Override
+    public void encodeTo(ByteBuffer buffer) {
+        buffer.put(getOpCode().getOpCode());
+        serverSrc.encodeTo(buffer);
+        loginSrc.encodeTo(buffer);
+        serverDst.encodeTo(buffer);
+        loginDst.encodeTo(buffer);
+        filename.encodeTo(buffer);
+        buffer.putLong(offset)
+                .putInt(crc)
+                .putInt(blockSize)
+                .put(block);
+    }
+
+    /**
+     * Gets the {@link OpCode} associated with the {@link Request}
+     * @return the {@link OpCode} associated with the {@link Request}
+     */
+    @Override
+    public OpCode getOpCode() {
+        return OpCode.FILE_BLOCK;
+    }
+}
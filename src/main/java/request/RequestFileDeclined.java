@@ -0,0 +1,83 @@
+package main.java.request;
+
+import main.java.OpCode;
+import main.java.wrapper.StringChatFusion;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Sent back to the sender of a file offered with a {@link RequestFileOffer} which will not be received resumably: by
+ * the server of the recipient, or by a server on the way, if the recipient or the next server did not announce the
+ * resumable transfers, or by the recipient if the file could not be received. The sender sends a file whose offer
+ * has not been answered with FILE_PRIVATE, and stops sending the other ones
+ *
+ * @param serverSrc the server of the recipient
+ * @param loginSrc the recipient of the file
+ * @param serverDst the server of the sender
+ * @param loginDst the sender of the file
+ * @param filename the name of the file
+ */
+public record RequestFileDeclined(StringChatFusion serverSrc, StringChatFusion loginSrc,
+                                  StringChatFusion serverDst, StringChatFusion loginDst,
+                                  StringChatFusion filename) implements Request {
+    public RequestFileDeclined {
+        if (serverSrc.size() > 100) {
+            throw new IllegalArgumentException("Server_src length superior than 100 UTF8 characters");
+        }
+        if (serverDst.size() > 100) {
+            throw new IllegalArgumentException("Server_dst length superior than 100 UTF8 characters");
+        }
+        if (loginSrc.size() > 30) {
+            throw new IllegalArgumentException("login_src length superior than 30 UTF8 characters");
+        }
+        if (loginDst.size() > 30) {
+            throw new IllegalArgumentException("login_dst length superior than 30 UTF8 characters");
+        }
+        if (filename.size() > 30) {
+            throw new IllegalArgumentException("filename length superior than 30 UTF8 characters");
+        }
+    }
+
+    /**
+     * Returns the length of a {@link ByteBuffer} containing the {@link Request} data
+     * @return the length of the {@link ByteBuffer}
+     */
+    @Override
+    public int bufferLength() {
+        return 1 + serverSrc.bufferLength() + loginSrc.bufferLength() + serverDst.bufferLength() + loginDst.bufferLength() + filename.bufferLength();
+    }
+
+    /**
+     * Encodes the necessary data and puts it in the {@link ByteBuffer}
+     * @return the {@link ByteBuffer} filled
+     */
+    @Override
+    public ByteBuffer encode() {
+        var buffer = ByteBuffer.allocate(bufferLength());
+        encodeTo(buffer);
+        return buffer.flip();
+    }
+
+    /**
+     * Encodes the necessary data at the position of the given {@link ByteBuffer}
+     * @param buffer the {@link ByteBuffer} to fill, in write-mode
+     */
+    @Override
+    public void encodeTo(ByteBuffer buffer) {
+        buffer.put(getOpCode().getOpCode());
+        serverSrc.encodeTo(buffer);
+        loginSrc.encodeTo(buffer);
+        serverDst.encodeTo(buffer);
+        loginDst.encodeTo(buffer);
+        filename.encodeTo(buffer);
+    }
+
+    /**
+     * Gets the {@link OpCode} associated with the {@link Request}
+     * @return the {@link OpCode} associated with the {@link Request}
+     */
+    @Override
+    public OpCode getOpCode() {
+        return OpCode.FILE_DECLINED;
+    }
+}
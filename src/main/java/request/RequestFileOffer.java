@@ -0,0 +1,96 @@
+package main.java.request;
+
+import main.java.OpCode;
+import main.java.wrapper.StringChatFusion;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Sent by a client before the blocks of a file, to the client receiving it, which answers with a
+ * {@link RequestFileResume} giving the parts of the file it already has, or by a {@link RequestFileDeclined} if it
+ * cannot receive the file resumably. The blocks are only sent once the offer is answered
+ *
+ * @param serverSrc the server of the sender
+ * @param loginSrc the sender of the file
+ * @param serverDst the server of the recipient
+ * @param loginDst the recipient of the file
+ * @param filename the name of the file
+ * @param fileSize the number of bytes of the file
+ * @param digest the SHA-256 of the whole file, which tells it from another file of the same name and size
+ */
+public record RequestFileOffer(StringChatFusion serverSrc, StringChatFusion loginSrc,
+                               StringChatFusion serverDst, StringChatFusion loginDst,
+                               StringChatFusion filename, long fileSize, byte[] digest) implements Request {
+    /**
+     * The number of bytes of the digest of a file
+     */
+    public static final int DIGEST_SIZE = 32;
+
+    public RequestFileOffer {
+        if (serverSrc.size() > 100) {
+            throw new IllegalArgumentException("Server_src length superior than 100 UTF8 characters");
+        }
+        if (serverDst.size() > 100) {
+            throw new IllegalArgumentException("Server_dst length superior than 100 UTF8 characters");
+        }
+        if (loginSrc.size() > 30) {
+            throw new IllegalArgumentException("login_src length superior than 30 UTF8 characters");
+        }
+        if (loginDst.size() > 30) {
+            throw new IllegalArgumentException("login_dst length superior than 30 UTF8 characters");
+        }
+        if (filename.size() > 30) {
+            throw new IllegalArgumentException("filename length superior than 30 UTF8 characters");
+        }
+        if (fileSize < 0) {
+            throw new IllegalArgumentException("negative file size");
+        }
+        if (digest.length != DIGEST_SIZE) {
+            throw new IllegalArgumentException("digest size different from " + DIGEST_SIZE + " bytes");
+        }
+    }
+
+    /**
+     * Returns the length of a {@link ByteBuffer} containing the {@link Request} data
+     * @return the length of the {@link ByteBuffer}
+     */
+    @Override
+    public int bufferLength() {
+        return 1 + serverSrc.bufferLength() + loginSrc.bufferLength() + serverDst.bufferLength() + loginDst.bufferLength() + filename.bufferLength() + Long.BYTES + Integer.BYTES + digest.length;
+    }
+
+    /**
+     * Encodes the necessary data and puts it in the {@link ByteBuffer}
+     * @return the {@link ByteBuffer} filled
+     */
+    @Override
+    public ByteBuffer encode() {
+        var buffer = ByteBuffer.allocate(bufferLength());
+        encodeTo(buffer);
+        return buffer.flip();
+    }
+
+    /**
+     * Encodes the necessary data at the position of the given {@link ByteBuffer}
+     * @param buffer the {@link ByteBuffer} to fill, in write-mode
+     */
+    @Override
+    public void encodeTo(ByteBuffer buffer) {
+        buffer.put(getOpCode().getOpCode());
+        serverSrc.encodeTo(buffer);
+        loginSrc.encodeTo(buffer);
+        serverDst.encodeTo(buffer);
+        loginDst.encodeTo(buffer);
+        filename.encodeTo(buffer);
+        buffer.putLong(fileSize).putInt(digest.length).put(digest);
+    }
+
+    /**
+     * Gets the {@link OpCode} associated with the {@link Request}
+     * @return the {@link OpCode} associated with the {@link Request}
+     */
+    @Override
+    public OpCode getOpCode() {
+        return OpCode.FILE_OFFER;
+    }
+}
@@ -0,0 +1,94 @@
+package main.java.request;
+
+import main.java.OpCode;
+import main.java.wrapper.StringChatFusion;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Sent by a client receiving a file to its sender, after a {@link RequestFileOffer} or once a block arrived corrupted:
+ * the parts of the file it already has, the sender only sends the other ones
+ *
+ * @param serverSrc the server of the recipient of the file, which sends this request
+ * @param loginSrc the recipient of the file
+ * @param serverDst the server of the sender of the file
+ * @param loginDst the sender of the file
+ * @param filename the name of the file
+ * @param ranges the offset then the number of bytes of each part already received, at most {@link #MAX_RANGES}
+ */
+public record RequestFileResume(StringChatFusion serverSrc, StringChatFusion loginSrc,
+                                StringChatFusion serverDst, StringChatFusion loginDst,
+                                StringChatFusion filename, long[] ranges) implements Request {
+    /**
+     * The number of parts a request gives at most, the ranges fit in the 5000 bytes of a block
+     */
+    public static final int MAX_RANGES = 5000 / (2 * Long.BYTES);
+
+    public RequestFileResume {
+        if (serverSrc.size() > 100) {
+            throw new IllegalArgumentException("Server_src length superior than 100 UTF8 characters");
+        }
+        if (serverDst.size() > 100) {
+            throw new IllegalArgumentException("Server_dst length superior than 100 UTF8 characters");
+        }
+        if (loginSrc.size() > 30) {
+            throw new IllegalArgumentException("login_src length superior than 30 UTF8 characters");
+        }
+        if (loginDst.size() > 30) {
+            throw new IllegalArgumentException("login_dst length superior than 30 UTF8 characters");
+        }
+        if (filename.size() > 30) {
+            throw new IllegalArgumentException("filename length superior than 30 UTF8 characters");
+        }
+        if (ranges.length % 2 != 0 || ranges.length / 2 > MAX_RANGES) {
+            throw new IllegalArgumentException("ranges not made of at most " + MAX_RANGES + " offsets and lengths");
+        }
+    }
+
+    /**
+     * Returns the length of a {@link ByteBuffer} containing the {@link Request} data
+     * @return the length of the {@link ByteBuffer}
+     */
+    @Override
+    public int bufferLength() {
+        return 1 + serverSrc.bufferLength() + loginSrc.bufferLength() + serverDst.bufferLength() + loginDst.bufferLength() + filename.bufferLength() + Integer.BYTES + ranges.length * Long.BYTES;
+    }
+
+    /**
+     * Encodes the necessary data and puts it in the {@link ByteBuffer}
+     * @return the {@link ByteBuffer} filled
+     */
+    @Override
+    public ByteBuffer encode() {
+        var buffer = ByteBuffer.allocate(bufferLength());
+        encodeTo(buffer);
+        return buffer.flip();
+    }
+
+    /**
+     * Encodes the necessary data at the position of the given {@link ByteBuffer}
+     * @param buffer the {@link ByteBuffer} to fill, in write-mode
+     */
+    @Override
+    public void encodeTo(ByteBuffer buffer) {
+        buffer.put(getOpCode().getOpCode());
+        serverSrc.encodeTo(buffer);
+        loginSrc.encodeTo(buffer);
+        serverDst.encodeTo(buffer);
+        loginDst.encodeTo(buffer);
+        filename.encodeTo(buffer);
+        buffer.putInt(ranges.length * Long.BYTES); // size of the ranges, in bytes
+        for (var value : ranges) {
+            buffer.putLong(value);
+        }
+    }
+
+    /**
+     * Gets the {@link OpCode} associated with the {@link Request}
+     * @return the {@link OpCode} associated with the {@link Request}
+     */
+    @Override
+    public OpCode getOpCode() {
+        return OpCode.FILE_RESUME;
+    }
+}
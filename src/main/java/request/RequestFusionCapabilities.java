@@ -0,0 +1,79 @@
+package main.java.request;
+
+import main.java.OpCode;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The extensions of the protocol a server supports, sent on a link with another server once it is established.
+ * A server only uses an extension on a link if the other server announced it. A client announces {@link #RESUME} to
+ * its server once logged in, which answers with the extensions it supports among it
+ *
+ * @param capabilities the extensions supported, one bit per extension, see {@link #MESSAGE_BATCH}, {@link #DEFLATE}, {@link #RELAY}, {@link #DIRECT} and {@link #RESUME}
+ */
+public record RequestFusionCapabilities(int capabilities) implements Request {
+    /**
+     * The server unpacks the MESSAGE_BATCH frames, its link can carry several public messages per frame
+     */
+    public static final int MESSAGE_BATCH = 1;
+
+    /**
+     * The server inflates the bytes following a FUSION_DEFLATE, the other server may compress its side of the link
+     */
+    public static final int DEFLATE = 2;
+
+    /**
+     * The server takes part in the broadcast tree of its mega-server: a member can relay the public messages to
+     * other members, a leader places the members announcing their address in the tree
+     */
+    public static final int RELAY = 4;
+
+    /**
+     * The server accepts direct links from the other members of its mega-server: a leader answers the DIRECT_LOOKUP
+     * and forwards the DIRECT_JOIN, a member holds the frames of a direct link until its DIRECT_JOIN comes through
+     * the leader
+     */
+    public static final int DIRECT = 8;
+
+    /**
+     * The client or the server takes part in the resumable transfers: a FILE_OFFER is only sent to it, a server
+     * answers an offer it cannot send on with a FILE_DECLINED on behalf of the recipient
+     */
+    public static final int RESUME = 16;
+
+    /**
+     * Tells if the given extension is supported
+     * @param capability the bit of the extension
+     * @return true if the extension is supported
+     */
+    public boolean supports(int capability) {
+        return (capabilities & capability) != 0;
+    }
+
+    /**
+     * Returns the length of a {@link ByteBuffer} containing the {@link Request} data
+     * @return the length of the {@link ByteBuffer}
+     */
+    @Override
+    public int bufferLength() {
+        return 1 + Integer.BYTES;
+    }
+
+    /**
+     * Encodes the necessary data and puts it in the {@link ByteBuffer}
+     * @return the {@link ByteBuffer} filled
+     */
+    @Override
+    public ByteBuffer encode() {
+        return ByteBuffer.allocate(bufferLength()).put(getOpCode().getOpCode()).putInt(capabilities).flip();
+    }
+
+    /**
+     * Gets the {@link OpCode} associated with the {@link Request}
+     * @return the {@link OpCode} associated with the {@link Request}
+     */
+    @Override
+    public OpCode getOpCode() {
+        return OpCode.FUSION_CAPABILITIES;
+    }
+}
@@ -0,0 +1,39 @@
+package main.java.request;
+
+import main.java.OpCode;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Sent on a link with another server which announced {@link RequestFusionCapabilities#DEFLATE}: every byte sent
+ * after this frame, in this direction of the link, belongs to a single DEFLATE stream
+ */
+public record RequestFusionDeflate() implements Request {
+
+    /**
+     * Returns the length of a {@link ByteBuffer} containing the {@link Request} data
+     * @return the length of the {@link ByteBuffer}
+     */
+    @Override
+    public int bufferLength() {
+        return 1; // OpCode
+    }
+
+    /**
+     * Encodes the necessary data and puts it in the {@link ByteBuffer}
+     * @return the {@link ByteBuffer} filled
+     */
+    @Override
+    public ByteBuffer encode() {
+        return ByteBuffer.allocate(bufferLength()).put(getOpCode().getOpCode()).flip(); // OpCode
+    }
+
+    /**
+     * Gets the {@link OpCode} associated with the {@link Request}
+     * @return the {@link OpCode} associated with the {@link Request}
+     */
+    @Override
+    public OpCode getOpCode() {
+        return OpCode.FUSION_DEFLATE;
+    }
+}
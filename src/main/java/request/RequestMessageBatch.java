@@ -0,0 +1,68 @@
+package main.java.request;
+
+import main.java.OpCode;
+import main.java.buffer.SharedFrame;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Several public messages sent as a single frame on a link between two servers.
+ * <p>
+ * The frame holds the size of its content followed by complete MESSAGE frames, {@link OpCode} included.
+ * Once read, every message is a {@link SharedFrame} of its own, broadcast like a MESSAGE received alone:
+ * whoever handles the batch owns a reference to each of them.
+ *
+ * @param messages the MESSAGE frames of the batch, in the order they were sent
+ */
+public record RequestMessageBatch(List<SharedFrame> messages) implements Request {
+    /**
+     * The number of bytes preceding the messages in the frame: the {@link OpCode} and the size of the content
+     */
+    public static final int HEADER_SIZE = 1 + Integer.BYTES;
+
+    /**
+     * Returns the length of a {@link ByteBuffer} containing the {@link Request} data
+     * @return the length of the {@link ByteBuffer}
+     */
+    @Override
+    public int bufferLength() {
+        var length = HEADER_SIZE;
+        for (var message : messages) {
+            length += message.length();
+        }
+        return length;
+    }
+
+    /**
+     * Encodes the necessary data and puts it in the {@link ByteBuffer}
+     * @return the {@link ByteBuffer} filled
+     */
+    @Override
+    public ByteBuffer encode() {
+        var buffer = ByteBuffer.allocate(bufferLength());
+        encodeTo(buffer);
+        return buffer.flip();
+    }
+
+    /**
+     * Encodes the batch at the position of the given {@link ByteBuffer}
+     * @param buffer the {@link ByteBuffer} to fill, in write-mode
+     */
+    @Override
+    public void encodeTo(ByteBuffer buffer) {
+        buffer.put(getOpCode().getOpCode()).putInt(bufferLength() - HEADER_SIZE);
+        for (var message : messages) {
+            buffer.put(message.view());
+        }
+    }
+
+    /**
+     * Gets the {@link OpCode} associated with the {@link Request}
+     * @return the {@link OpCode} associated with the {@link Request}
+     */
+    @Override
+    public OpCode getOpCode() {
+        return OpCode.MESSAGE_BATCH;
+    }
+}
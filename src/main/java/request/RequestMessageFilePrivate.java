@@ -46,17 +46,26 @@ public record RequestMessageFilePrivate(StringChatFusion serverSrc, StringChatFu
      */
     @Override
     public ByteBuffer encode() {
-        return ByteBuffer.allocate(bufferLength())
-                .put(getOpCode().getOpCode()) // OpCode
-                .put(serverSrc.encode()) // server source
-                .put(loginSrc.encode()) // login source
-                .put(serverDst.encode()) // server destination
-                .put(loginDst.encode()) // login destination
-                .put(filename.encode()) // filename
-                .putInt(nbBlocksMax) // nbr max of block to send
+        var buffer = ByteBuffer.allocate(bufferLength());
+        encodeTo(buffer);
+        return buffer.flip();
+    }
+
+    /**
+     * Encodes the necessary data at the position of the given {@link ByteBuffer}
+     * @param buffer the {@link ByteBuffer} to fill, in write-mode
+     */
+    @Override
+    public void encodeTo(ByteBuffer buffer) {
+        buffer.put(getOpCode().getOpCode()); // OpCode
+        serverSrc.encodeTo(buffer); // server source
+        loginSrc.encodeTo(buffer); // login source
+        serverDst.encodeTo(buffer); // server destination
+        loginDst.encodeTo(buffer); // login destination
+        filename.encodeTo(buffer); // filename
+        buffer.putInt(nbBlocksMax) // nbr max of block to send
                 .putInt(blockSize) // size of block
-                .put(block) // content of file
-                .flip();
+                .put(block); // content of file
     }
 
     /**
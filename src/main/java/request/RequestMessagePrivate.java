@@ -44,14 +44,23 @@ public record RequestMessagePrivate(StringChatFusion serverSrc,
      */
     @Override
     public ByteBuffer encode() {
-        return ByteBuffer.allocate(bufferLength())
-                .put(getOpCode().getOpCode())
-                .put(serverSrc.encode())
-                .put(loginSrc.encode())
-                .put(serverDst.encode())
-                .put(loginDst.encode())
-                .put(message.encode())
-                .flip();
+        var buffer = ByteBuffer.allocate(bufferLength());
+        encodeTo(buffer);
+        return buffer.flip();
+    }
+
+    /**
+     * Encodes the necessary data at the position of the given {@link ByteBuffer}
+     * @param buffer the {@link ByteBuffer} to fill, in write-mode
+     */
+    @Override
+    public void encodeTo(ByteBuffer buffer) {
+        buffer.put(getOpCode().getOpCode());
+        serverSrc.encodeTo(buffer);
+        loginSrc.encodeTo(buffer);
+        serverDst.encodeTo(buffer);
+        loginDst.encodeTo(buffer);
+        message.encodeTo(buffer);
     }
 
     /**
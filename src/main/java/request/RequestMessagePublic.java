@@ -34,11 +34,21 @@ public record RequestMessagePublic(StringChatFusion serverName, StringChatFusion
      */
     @Override
     public ByteBuffer encode() {
-        return ByteBuffer.allocate(bufferLength()).put(getOpCode().getOpCode()) // OpCode
-                .put(serverName.encode()) // Server Name size + Server name
-                .put(login.encode()) // Login size + login
-                .put(message.encode()).flip(); // message size + message
+        var buffer = ByteBuffer.allocate(bufferLength());
+        encodeTo(buffer);
+        return buffer.flip();
+    }
 
+    /**
+     * Encodes the necessary data at the position of the given {@link ByteBuffer}
+     * @param buffer the {@link ByteBuffer} to fill, in write-mode
+     */
+    @Override
+    public void encodeTo(ByteBuffer buffer) {
+        buffer.put(getOpCode().getOpCode()); // OpCode
+        serverName.encodeTo(buffer); // Server Name size + Server name
+        login.encodeTo(buffer); // Login size + login
+        message.encodeTo(buffer); // message size + message
     }
 
     /**
@@ -0,0 +1,43 @@
+package main.java.request;
+
+import main.java.OpCode;
+import main.java.wrapper.InetIpv4ChatFusion;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Sent by a member of a mega-server to its leader, once the leader announced
+ * {@link RequestFusionCapabilities#RELAY}: the member can relay the public messages to other members, which reach it
+ * at the given address
+ *
+ * @param address the address the member listens on
+ */
+public record RequestRelayAddress(InetIpv4ChatFusion address) implements Request {
+
+    /**
+     * Gets the {@link OpCode} associated with the {@link Request}
+     * @return the {@link OpCode} associated with the {@link Request}
+     */
+    @Override
+    public OpCode getOpCode() {
+        return OpCode.RELAY_ADDRESS;
+    }
+
+    /**
+     * Returns the length of a {@link ByteBuffer} containing the {@link Request} data
+     * @return the length of the {@link ByteBuffer}
+     */
+    @Override
+    public int bufferLength() {
+        return 1/*Byte*/ + address.bufferLength();
+    }
+
+    /**
+     * Encodes the necessary data and puts it in the {@link ByteBuffer}
+     * @return the {@link ByteBuffer} filled
+     */
+    @Override
+    public ByteBuffer encode() {
+        return ByteBuffer.allocate(bufferLength()).put(getOpCode().getOpCode()).put(address.encode()).flip();
+    }
+}
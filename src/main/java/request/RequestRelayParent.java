@@ -0,0 +1,44 @@
+package main.java.request;
+
+import main.java.OpCode;
+import main.java.wrapper.InetIpv4ChatFusion;
+import main.java.wrapper.StringChatFusion;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Sent by the leader of a mega-server to a member whose place in the broadcast tree changes: the member receives the
+ * public messages from the given relay from now on, or from the leader itself if the name is empty
+ *
+ * @param serverName the name of the relay, empty for the leader
+ * @param address the address of the relay, the one of the leader if the name is empty
+ */
+public record RequestRelayParent(StringChatFusion serverName, InetIpv4ChatFusion address) implements Request {
+
+    /**
+     * Returns the length of a {@link ByteBuffer} containing the {@link Request} data
+     * @return the length of the {@link ByteBuffer}
+     */
+    @Override
+    public int bufferLength() {
+        return 1 + serverName.bufferLength() + address.bufferLength();
+    }
+
+    /**
+     * Encodes the necessary data and puts it in the {@link ByteBuffer}
+     * @return the {@link ByteBuffer} filled
+     */
+    @Override
+    public ByteBuffer encode() {
+        return ByteBuffer.allocate(bufferLength()).put(getOpCode().getOpCode()).put(serverName.encode()).put(address.encode()).flip();
+    }
+
+    /**
+     * Gets the {@link OpCode} associated with the {@link Request}
+     * @return the {@link OpCode} associated with the {@link Request}
+     */
+    @Override
+    public OpCode getOpCode() {
+        return OpCode.RELAY_PARENT;
+    }
+}
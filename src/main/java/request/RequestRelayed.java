@@ -0,0 +1,160 @@
+package main.java.request;
+
+import main.java.OpCode;
+import main.java.buffer.SharedFrame;
+import main.java.wrapper.StringChatFusion;
+import main.java.wrapper.StringPool;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A request a server only forwards, kept as the raw bytes it was received as.
+ * <p>
+ * The request is a view over its frame: it only records where the routing fields, serverDst and loginDst, start in
+ * the frame and decodes them the first time they are asked for. Both are null for MESSAGE which goes to everyone.
+ * <p>
+ * The view is a flyweight reused by the {@link main.java.reader.message.RequestRelayReader} that read it: whoever
+ * handles the request owns the reference to the frame and gives both back with {@link #release()}, the view must not
+ * be used afterwards. A view still in use is never reused, the reader creates another one.
+ */
+public final class RequestRelayed implements Request {
+    private OpCode opCode;
+    private SharedFrame frame;
+    // The offsets in the frame where the values of serverDst and loginDst start, -1 for a public message
+    private int serverDstOffset;
+    private int serverDstLength;
+    private int loginDstOffset;
+    private int loginDstLength;
+    private StringChatFusion serverDst;
+    private StringChatFusion loginDst;
+    private volatile boolean released = true;
+
+    /**
+     * Creates a view over a frame
+     * @param opCode the {@link OpCode} of the forwarded request
+     * @param frame the original bytes of the request, {@link OpCode} included
+     * @param serverDstOffset the offset of the value of serverDst in the frame, -1 for a public message
+     * @param serverDstLength the length of the value of serverDst
+     * @param loginDstOffset the offset of the value of loginDst in the frame, -1 for a public message
+     * @param loginDstLength the length of the value of loginDst
+     */
+    public RequestRelayed(OpCode opCode, SharedFrame frame, int serverDstOffset, int serverDstLength, int loginDstOffset, int loginDstLength) {
+        reuse(opCode, frame, serverDstOffset, serverDstLength, loginDstOffset, loginDstLength);
+    }
+
+    /**
+     * Points a released view to another frame, see {@link #RequestRelayed(OpCode, SharedFrame, int, int, int, int)}
+     * @return this view
+     * @throws IllegalStateException if the view is still in use
+     */
+    public RequestRelayed reuse(OpCode opCode, SharedFrame frame, int serverDstOffset, int serverDstLength, int loginDstOffset, int loginDstLength) {
+        if (!released) {
+            throw new IllegalStateException("view still in use");
+        }
+        this.opCode = opCode;
+        this.frame = frame;
+        this.serverDstOffset = serverDstOffset;
+        this.serverDstLength = serverDstLength;
+        this.loginDstOffset = loginDstOffset;
+        this.loginDstLength = loginDstLength;
+        this.serverDst = null;
+        this.loginDst = null;
+        this.released = false;
+        return this;
+    }
+
+    /**
+     * Tells if the view has been released and can point to another frame
+     * @return true if the view is not used anymore
+     */
+    public boolean isReleased() {
+        return released;
+    }
+
+    /**
+     * Releases the reference to the frame owned by the handler of the request, and the view with it
+     * @throws IllegalStateException if the view has already been released
+     */
+    public void release() {
+        if (released) {
+            throw new IllegalStateException("view already released");
+        }
+        var frame = this.frame;
+        this.frame = null;
+        this.serverDst = null;
+        this.loginDst = null;
+        released = true;
+        frame.release();
+    }
+
+    /**
+     * Gets the original bytes of the request
+     * @return the {@link SharedFrame} of the request, {@link OpCode} included
+     */
+    public SharedFrame frame() {
+        return frame;
+    }
+
+    /**
+     * Gets the name of the server of the recipient, decoded the first time
+     * @return the name of the server, null for a public message
+     */
+    public StringChatFusion serverDst() {
+        if (serverDst == null && serverDstOffset >= 0) {
+            serverDst = StringPool.intern(frame.view(), serverDstOffset, serverDstLength);
+        }
+        return serverDst;
+    }
+
+    /**
+     * Gets the login of the recipient, decoded the first time
+     * @return the login of the recipient, null for a public message
+     */
+    public StringChatFusion loginDst() {
+        if (loginDst == null && loginDstOffset >= 0) {
+            loginDst = StringPool.intern(frame.view(), loginDstOffset, loginDstLength);
+        }
+        return loginDst;
+    }
+
+    /**
+     * Returns the length of a {@link ByteBuffer} containing the {@link Request} data
+     * @return the length of the {@link ByteBuffer}
+     */
+    @Override
+    public int bufferLength() {
+        return frame.length();
+    }
+
+    /**
+     * Copies the original bytes of the request in a new {@link ByteBuffer}
+     * @return the {@link ByteBuffer} filled
+     */
+    @Override
+    public ByteBuffer encode() {
+        return ByteBuffer.allocate(bufferLength()).put(frame.view()).flip();
+    }
+
+    /**
+     * Copies the original bytes of the request at the position of the given {@link ByteBuffer}
+     * @param buffer the {@link ByteBuffer} to fill, in write-mode
+     */
+    @Override
+    public void encodeTo(ByteBuffer buffer) {
+        buffer.put(frame.view());
+    }
+
+    /**
+     * Gets the {@link OpCode} associated with the {@link Request}
+     * @return the {@link OpCode} associated with the {@link Request}
+     */
+    @Override
+    public OpCode getOpCode() {
+        return opCode;
+    }
+
+    @Override
+    public String toString() {
+        return "RequestRelayed[opCode=" + opCode + ", serverDst=" + serverDst() + ", loginDst=" + loginDst() + "]";
+    }
+}
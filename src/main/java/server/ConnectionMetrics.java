@@ -0,0 +1,189 @@
+package main.java.server;
+
+import main.java.OpCode;
+
+import java.util.StringJoiner;
+import java.util.function.IntSupplier;
+
+/**
+ * The traffic of a single connection.
+ * <p>
+ * The counters are plain fields, each of them written by a single thread: the reactor of the connection, or the
+ * reading and the writing threads of the thread-per-connection engine. Every update is also added to the
+ * {@link ServerMetrics} of the server. Other threads only read the counters for a report, they may see
+ * them slightly late.
+ */
+public final class ConnectionMetrics {
+    private static final int OP_CODES = OpCode.values().length;
+
+    private final ServerMetrics server;
+    private final String remote;
+    private final IntSupplier queuedFrames;
+    private final long[] framesIn = new long[OP_CODES];
+    private final long[] framesOut = new long[OP_CODES];
+    private volatile String name = "";
+    private long bytesIn;
+    private long bytesOut;
+    private long handled;
+    private long handlerNanos;
+    private long sent;
+    private long decodeErrors;
+    // The bytes given to and produced by the DEFLATE streams of a link with another server, see LinkDeflater
+    private long deflatedIn;
+    private long deflatedOut;
+    private long deflateNanos;
+    private long inflatedIn;
+    private long inflatedOut;
+    private long inflateNanos;
+
+    ConnectionMetrics(ServerMetrics server, String remote, IntSupplier queuedFrames) {
+        this.server = server;
+        this.remote = remote;
+        this.queuedFrames = queuedFrames;
+    }
+
+    /**
+     * Counts the bytes of a read
+     * @param bytes the number of bytes read
+     */
+    public void read(int bytes) {
+        bytesIn += bytes;
+        server.bytesIn.add(bytes);
+    }
+
+    /**
+     * Counts the bytes of a write
+     * @param bytes the number of bytes written
+     */
+    public void written(long bytes) {
+        bytesOut += bytes;
+        server.bytesOut.add(bytes);
+    }
+
+    /**
+     * Counts a frame read and the time spent handling it
+     * @param opCode the {@link OpCode} of the frame
+     * @param nanos the nanoseconds spent handling the frame
+     */
+    public void handled(OpCode opCode, long nanos) {
+        framesIn[opCode.ordinal()]++;
+        handled++;
+        handlerNanos += nanos;
+        server.framesIn[opCode.ordinal()].increment();
+        server.handlerNanos.add(nanos);
+    }
+
+    /**
+     * Counts a frame completely written
+     * @param opCode the {@link OpCode} of the frame
+     */
+    public void sent(OpCode opCode) {
+        framesOut[opCode.ordinal()]++;
+        sent++;
+        server.framesOut[opCode.ordinal()].increment();
+    }
+
+    /**
+     * Counts the frames compressed before being written on a link
+     * @param bytes the number of bytes of the frames
+     * @param compressed the number of compressed bytes produced
+     * @param nanos the nanoseconds spent compressing
+     */
+    public void deflated(int bytes, int compressed, long nanos) {
+        deflatedIn += bytes;
+        deflatedOut += compressed;
+        deflateNanos += nanos;
+        server.compressionNanos.add(nanos);
+    }
+
+    /**
+     * Counts the compressed bytes read on a link and decompressed
+     * @param compressed the number of compressed bytes consumed
+     * @param bytes the number of bytes of frames produced
+     * @param nanos the nanoseconds spent decompressing
+     */
+    public void inflated(int compressed, int bytes, long nanos) {
+        inflatedIn += compressed;
+        inflatedOut += bytes;
+        inflateNanos += nanos;
+        server.compressionNanos.add(nanos);
+    }
+
+    /**
+     * Counts a wrong OpCode or a malformed frame
+     */
+    public void decodeError() {
+        decodeErrors++;
+        server.decodeErrors.increment();
+    }
+
+    /**
+     * Names the connection once it is identified
+     * @param name the login of the client, or the name of the server
+     */
+    public void name(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Gets the number of bytes read and written, the order of the report
+     * @return the number of bytes exchanged
+     */
+    public long traffic() {
+        return bytesIn + bytesOut;
+    }
+
+    /**
+     * Gets the number of frames waiting to be written, read from the counter the queue of the connection keeps for
+     * the other threads
+     * @return the number of frames queued
+     */
+    public int queuedFrames() {
+        return queuedFrames.getAsInt();
+    }
+
+    @Override
+    public String toString() {
+        return (name.isEmpty() ? "" : name + " ") + remote + ": in " + bytesIn + " bytes (" + handled + " frames), out "
+                + bytesOut + " bytes (" + sent + " frames), " + queuedFrames() + " frames queued, " + decodeErrors
+                + " decode errors, " + (handled == 0 ? 0 : handlerNanos / handled) + " ns/frame handling" + compression() + opCodes();
+    }
+
+    /**
+     * Describes the DEFLATE streams of the link, if any: the size of the compressed bytes relative to the frames and
+     * the time spent per KiB of frames
+     * @return the compression in each direction
+     */
+    private String compression() {
+        var text = "";
+        if (deflatedIn != 0) {
+            text += ", deflate " + deflatedIn + " -> " + deflatedOut + " bytes (" + ratio(deflatedOut, deflatedIn)
+                    + ", " + deflateNanos * 1024 / deflatedIn + " ns/KiB)";
+        }
+        if (inflatedOut != 0) {
+            text += ", inflate " + inflatedIn + " -> " + inflatedOut + " bytes (" + ratio(inflatedIn, inflatedOut)
+                    + ", " + inflateNanos * 1024 / inflatedOut + " ns/KiB)";
+        }
+        return text;
+    }
+
+    private static String ratio(long compressed, long bytes) {
+        return String.format("%.1f%%", 100.0 * compressed / bytes);
+    }
+
+    /**
+     * Lists the frames read and written for each {@link OpCode} exchanged on the connection
+     * @return the OpCodes with their frames in/out
+     */
+    private String opCodes() {
+        var joiner = new StringJoiner(", ", " [", "]").setEmptyValue("");
+        for (var opCode : OpCode.values()) {
+            var in = framesIn[opCode.ordinal()];
+            var out = framesOut[opCode.ordinal()];
+            if (in != 0 || out != 0) {
+                joiner.add(opCode + " " + in + "/" + out);
+            }
+        }
+        return joiner.toString();
+    }
+}
@@ -0,0 +1,337 @@
+package main.java.server;
+
+import main.java.Utils.RequestFactory;
+import main.java.buffer.SharedFrame;
+import main.java.server.ServerChatFusion.Connection;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * The direct links between the members of a mega-server, carrying the private messages and files.
+ * <p>
+ * Without them, a private frame between two members goes through the leader: twice the latency, and every private
+ * byte of the mega-server written by the leader. A member sending a private frame to another member asks the leader
+ * for its address, opens a link with it and sends the next private frames on this link. At most maxLinks links are
+ * opened, the least recently used one is closed to open another one once it has been idle for {@link #IDLE_GRACE}.
+ * <p>
+ * The frames sent before the switch may still be on their way through the leader when the first frames of the direct
+ * link arrive: the member receiving them holds the frames of a direct link until the DIRECT_JOIN sent through the
+ * leader after the last of them comes through, so that the private frames of a member are delivered in the order
+ * they were sent, the blocks of a file included. A link is only closed once idle for {@link #IDLE_GRACE}, the frames
+ * it carried are delivered long before the ones sent through the leader afterwards.
+ * <p>
+ * The links are read by every thread routing a private frame, the frames are sent while holding the lock so that a
+ * frame routed during the switch cannot overtake the DIRECT_JOIN.
+ */
+final class DirectLinks {
+    // A link is closed to make room for another one, or because of a lower cap, only once idle for that long
+    static final long IDLE_GRACE = 1_000;
+    // The frames of a direct link are delivered anyway if its DIRECT_JOIN has not come through the leader in time,
+    // in case the leader dropped it
+    private static final long FENCE_TIMEOUT = 10_000;
+    private final String serverName;
+    // Runs a task on the control thread after a delay in milliseconds, to deliver the held frames without waiting
+    // for another frame on their link
+    private final BiConsumer<Long, Runnable> timers;
+    // The link with a leader supporting the direct links, null if it does not
+    private volatile Connection leader;
+    private volatile int maxLinks;
+    // The links opened by this member, by the name of the member at the other end, in access order
+    private final LinkedHashMap<String, Link> links = new LinkedHashMap<>(16, 0.75f, true);
+    private volatile int linkCount;
+    // When the address of a member was last asked for, a member is not asked for again before IDLE_GRACE
+    private final HashMap<String, Long> lookups = new HashMap<>();
+    // The links opened by the other members with this one, and the DIRECT_JOIN come through the leader before them
+    private final HashMap<Connection, Inbound> inbound = new HashMap<>();
+    private final HashMap<String, Integer> earlyJoins = new HashMap<>();
+    // Some frames of a direct link may have to be held, the lock is taken for every private frame received
+    private volatile boolean holding;
+
+    private static final class Link {
+        private final Connection connection;
+        private long lastUse = System.currentTimeMillis();
+
+        private Link(Connection connection) {
+            this.connection = connection;
+        }
+    }
+
+    private static final class Inbound {
+        private final String member;
+        private final ArrayDeque<Held> held = new ArrayDeque<>();
+        private final long since = System.currentTimeMillis();
+        private boolean joined;
+
+        private Inbound(String member) {
+            this.member = member;
+        }
+    }
+
+    private record Held(SharedFrame frame, Connection next) {
+    }
+
+    /**
+     * Creates the direct links of a member
+     * @param serverName the name of this server
+     * @param timers runs a task on the control thread after a delay in milliseconds
+     */
+    DirectLinks(String serverName, BiConsumer<Long, Runnable> timers) {
+        this.serverName = serverName;
+        this.timers = timers;
+    }
+
+    /**
+     * Gets the number of direct links this member opens at most
+     * @return the maximum number of links, 0 if every private frame goes through the leader
+     */
+    int maxLinks() {
+        return maxLinks;
+    }
+
+    /**
+     * Sets the number of direct links this member opens at most, the links above it are closed once idle
+     * @param maxLinks the maximum number of links, 0 to send every private frame through the leader
+     */
+    void maxLinks(int maxLinks) {
+        this.maxLinks = maxLinks;
+    }
+
+    /**
+     * Records the link with the leader once it announced it supports the direct links
+     * @param leader the {@link Connection} with the leader
+     */
+    void leader(Connection leader) {
+        this.leader = leader;
+    }
+
+    /**
+     * Sends a private frame to another member, on the direct link with it if there is one, through the leader
+     * otherwise. The address of the member is asked for the first time, if this member opens direct links
+     * @param member the name of the member
+     * @param frame the frame to send, the reference given is released by the connection once written
+     * @param sender the {@link Connection} the frame was read on
+     * @return false if the leader does not support the direct links, the frame is not sent
+     */
+    boolean send(String member, SharedFrame frame, Connection sender) {
+        var leader = this.leader;
+        if (leader == null) {
+            return false;
+        }
+        if (maxLinks == 0 && linkCount == 0) {
+            leader.send(frame, sender);
+            return true;
+        }
+        Link closed = null;
+        synchronized (this) {
+            var link = links.get(member);
+            var now = System.currentTimeMillis();
+            if (link != null && links.size() > maxLinks && now - link.lastUse >= IDLE_GRACE) {
+                // above a lowered cap
+                closed = links.remove(member);
+                linkCount = links.size();
+                link = null;
+            }
+            if (link != null) {
+                link.lastUse = now;
+                link.connection.send(frame, sender);
+            } else {
+                leader.send(frame, sender);
+                var asked = lookups.get(member);
+                if (maxLinks > 0 && (asked == null || now - asked >= IDLE_GRACE)) {
+                    lookups.put(member, now);
+                    leader.send(RequestFactory.directLookup(member));
+                }
+            }
+        }
+        if (closed != null) {
+            closed.connection.silentlyClose();
+        }
+        return true;
+    }
+
+    /**
+     * Closes the least recently used links until there is room for a link with a member, called by the control thread
+     * @param member the name of the member
+     * @return true if the link can be opened, false if it is already open, if every link is busy or if this member
+     * opens none
+     */
+    boolean makeRoom(String member) {
+        var evicted = new ArrayList<Connection>();
+        boolean room;
+        synchronized (this) {
+            if (links.containsKey(member)) {
+                return false;
+            }
+            var now = System.currentTimeMillis();
+            var iterator = links.values().iterator();
+            while (links.size() >= maxLinks && iterator.hasNext()) {
+                var eldest = iterator.next();
+                if (now - eldest.lastUse < IDLE_GRACE) {
+                    break;
+                }
+                iterator.remove();
+                evicted.add(eldest.connection);
+            }
+            linkCount = links.size();
+            room = links.size() < maxLinks;
+        }
+        evicted.forEach(Connection::silentlyClose);
+        return room;
+    }
+
+    /**
+     * Sends the private frames to a member on a link just opened with it from now on, called by the control thread
+     * <p>
+     * The DIRECT_JOIN is sent on the link, then through the leader once every private frame routed through it before
+     * @param member the name of the member
+     * @param connection the link opened with the member
+     */
+    void add(String member, Connection connection) {
+        var leader = this.leader;
+        var join = RequestFactory.directJoin(serverName, member);
+        connection.send(join);
+        synchronized (this) {
+            if (leader == null) {
+                connection.silentlyClose();
+                return;
+            }
+            leader.send(join);
+            var previous = links.put(member, new Link(connection));
+            linkCount = links.size();
+            if (previous != null) {
+                previous.connection.silentlyClose();
+            }
+        }
+    }
+
+    /**
+     * Records a direct link opened by another member, whose frames are held until its DIRECT_JOIN comes through
+     * the leader
+     * @param connection the link opened by the member
+     * @param member the name of the member
+     */
+    synchronized void join(Connection connection, String member) {
+        var link = new Inbound(member);
+        var early = earlyJoins.getOrDefault(member, 0);
+        if (early > 0) {
+            link.joined = true;
+            if (early == 1) {
+                earlyJoins.remove(member);
+            } else {
+                earlyJoins.put(member, early - 1);
+            }
+        }
+        inbound.put(connection, link);
+        updateHolding();
+    }
+
+    /**
+     * Delivers the frames held for the direct link opened by a member, once its DIRECT_JOIN came through the leader
+     * @param member the name of the member
+     */
+    synchronized void joined(String member) {
+        for (var entry : inbound.entrySet()) {
+            var link = entry.getValue();
+            if (!link.joined && link.member.equals(member)) {
+                deliver(entry.getKey(), link);
+                updateHolding();
+                return;
+            }
+        }
+        // the link with the member is not established yet
+        earlyJoins.merge(member, 1, Integer::sum);
+    }
+
+    /**
+     * Holds a private frame read on a direct link whose DIRECT_JOIN has not come through the leader yet. The first
+     * frame held arms the fence timeout, the frames are delivered once it fires even if no other frame is read
+     * @param sender the {@link Connection} the frame was read on
+     * @param frame the frame, the reference given is kept if the frame is held
+     * @param next the {@link Connection} to send the frame on
+     * @return true if the frame is held, false if it can be sent now
+     */
+    boolean hold(Connection sender, SharedFrame frame, Connection next) {
+        if (!holding) {
+            return false;
+        }
+        synchronized (this) {
+            var link = inbound.get(sender);
+            if (link == null || link.joined) {
+                return false;
+            }
+            if (System.currentTimeMillis() - link.since >= FENCE_TIMEOUT) {
+                deliver(sender, link);
+                updateHolding();
+                return false;
+            }
+            if (link.held.isEmpty()) {
+                timers.accept(link.since + FENCE_TIMEOUT - System.currentTimeMillis(), () -> expire(sender, link));
+            }
+            link.held.add(new Held(frame, next));
+            return true;
+        }
+    }
+
+    /**
+     * Delivers the frames held for a direct link whose DIRECT_JOIN has not come through the leader in time
+     * @param sender the {@link Connection} the frames were read on
+     * @param link the direct link, which may have been joined or closed since
+     */
+    private synchronized void expire(Connection sender, Inbound link) {
+        if (inbound.get(sender) != link || link.joined) {
+            return;
+        }
+        deliver(sender, link);
+        updateHolding();
+    }
+
+    private void deliver(Connection sender, Inbound link) {
+        link.joined = true;
+        for (var held = link.held.poll(); held != null; held = link.held.poll()) {
+            held.next.send(held.frame, sender);
+        }
+    }
+
+    private void updateHolding() {
+        holding = inbound.values().stream().anyMatch(link -> !link.joined);
+    }
+
+    /**
+     * Forgets a closed connection, whether it was a direct link or the link with the leader. The frames held for a
+     * direct link are delivered
+     * @param connection the {@link Connection} closed
+     */
+    synchronized void remove(Connection connection) {
+        if (connection.equals(leader)) {
+            leader = null;
+        }
+        links.values().removeIf(link -> link.connection.equals(connection));
+        linkCount = links.size();
+        var link = inbound.remove(connection);
+        if (link != null) {
+            deliver(connection, link);
+            updateHolding();
+        }
+    }
+
+    /**
+     * Forgets every link, once this server joins another mega-server
+     * @return the direct links opened by this member, to close
+     */
+    synchronized List<Connection> clear() {
+        leader = null;
+        var opened = links.values().stream().map(link -> link.connection).toList();
+        links.clear();
+        linkCount = 0;
+        lookups.clear();
+        earlyJoins.clear();
+        inbound.forEach(this::deliver);
+        holding = false;
+        return opened;
+    }
+}
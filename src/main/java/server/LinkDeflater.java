@@ -0,0 +1,108 @@
+package main.java.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.zip.Deflater;
+
+/**
+ * The compression of the frames written on a link with another server, once its FUSION_DEFLATE has been written.
+ * <p>
+ * The frames go through a single DEFLATE stream (zlib format) kept for the whole life of the link, so the server
+ * names, the logins and the words a message repeats from the previous ones cost a few bits. The stream is flushed
+ * with {@link Deflater#SYNC_FLUSH} once every frame ready has been compressed: the other server decodes each frame as
+ * soon as it is received, at the cost of a few bytes per flush.
+ * <p>
+ * A deflater is used by one thread at a time, the one writing the link.
+ */
+final class LinkDeflater {
+    private static final int OUTPUT_SIZE = 16 * 1024;
+
+    private final Deflater deflater;
+    private final ConnectionMetrics metrics;
+    // The compressed bytes not written yet, in write-mode
+    private final ByteBuffer output = ByteBuffer.allocateDirect(OUTPUT_SIZE);
+    // Bytes have been compressed since the last complete flush
+    private boolean flushPending;
+
+    /**
+     * Creates the compression of a link
+     * @param level the compression level, from {@link Deflater#BEST_SPEED} to {@link Deflater#BEST_COMPRESSION}
+     * @param metrics the traffic of the link, counting the bytes compressed and the time spent
+     */
+    LinkDeflater(int level, ConnectionMetrics metrics) {
+        this.deflater = new Deflater(level);
+        this.metrics = metrics;
+    }
+
+    /**
+     * Compresses as many bytes of the given frames as the output can hold, the position of each frame is advanced
+     * past the bytes compressed
+     * @param frames the frames to compress, in read-mode
+     * @param offset the index of the first frame
+     * @param length the number of frames
+     * @param flush true to flush the stream once every frame has been compressed, false if more frames follow
+     * @return true if every frame has been compressed and, if asked, the stream flushed
+     */
+    boolean deflate(ByteBuffer[] frames, int offset, int length, boolean flush) {
+        var start = System.nanoTime();
+        var produced = output.position();
+        var consumed = 0;
+        var done = true;
+        for (int i = offset; i < offset + length && done; i++) {
+            var frame = frames[i];
+            var remaining = frame.remaining();
+            if (remaining == 0) {
+                continue;
+            }
+            deflater.setInput(frame);
+            while (frame.hasRemaining() && output.hasRemaining()) {
+                deflater.deflate(output, Deflater.NO_FLUSH);
+            }
+            consumed += remaining - frame.remaining();
+            flushPending = true;
+            done = !frame.hasRemaining();
+        }
+        if (done && flush && flushPending) {
+            // the flush is complete once it leaves room in the output, otherwise it goes on at the next call
+            var room = output.remaining();
+            flushPending = room == 0 || deflater.deflate(output, Deflater.SYNC_FLUSH) == room;
+            done = !flushPending;
+        }
+        metrics.deflated(consumed, output.position() - produced, System.nanoTime() - start);
+        return done;
+    }
+
+    /**
+     * Tells if compressed bytes are waiting to be written, or to be produced by a flush
+     * @return true if the link must be written again
+     */
+    boolean hasPendingOutput() {
+        return output.position() != 0 || flushPending;
+    }
+
+    /**
+     * Writes the compressed bytes
+     * @param channel the channel of the link
+     * @return the number of bytes written
+     * @throws IOException If an I/O error occurs
+     */
+    long write(WritableByteChannel channel) throws IOException {
+        if (output.position() == 0) {
+            return 0;
+        }
+        output.flip();
+        try {
+            return channel.write(output);
+        } finally {
+            output.compact();
+        }
+    }
+
+    /**
+     * Frees the native memory of the stream, the deflater cannot be used anymore
+     */
+    void end() {
+        deflater.end();
+    }
+}
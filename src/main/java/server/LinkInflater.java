@@ -0,0 +1,80 @@
+package main.java.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * The decompression of the bytes read on a link with another server, once its FUSION_DEFLATE has been read.
+ * <p>
+ * The link is read into the compressed input of the inflater, which fills the input buffer of the connection with
+ * the frames decompressed: the readers decode them the same way as the frames of an uncompressed link.
+ * <p>
+ * An inflater is used by one thread at a time, the one reading the link.
+ */
+final class LinkInflater {
+    private final Inflater inflater = new Inflater();
+    private final ConnectionMetrics metrics;
+    // The compressed bytes not inflated yet, in write-mode
+    private final ByteBuffer input;
+
+    /**
+     * Creates the decompression of a link
+     * @param capacity the number of compressed bytes read at once
+     * @param metrics the traffic of the link, counting the bytes decompressed and the time spent
+     */
+    LinkInflater(int capacity, ConnectionMetrics metrics) {
+        this.input = ByteBuffer.allocateDirect(capacity);
+        this.metrics = metrics;
+    }
+
+    /**
+     * Takes the compressed bytes already read with the FUSION_DEFLATE, the ones following it in the given buffer
+     * @param source the buffer the FUSION_DEFLATE was read from, in read-mode, its remaining bytes are consumed
+     */
+    void feed(ByteBuffer source) {
+        input.put(source);
+    }
+
+    /**
+     * Reads compressed bytes from the link
+     * @param channel the channel of the link
+     * @return the number of bytes read, -1 if the link is closed
+     * @throws IOException If an I/O error occurs
+     */
+    int read(ReadableByteChannel channel) throws IOException {
+        return channel.read(input);
+    }
+
+    /**
+     * Decompresses the bytes read at the position of the given buffer
+     * @param destination the buffer to fill, in write-mode
+     * @return the number of bytes decompressed, 0 if more compressed bytes must be read
+     * @throws ZipException if the bytes read are not a valid DEFLATE stream
+     */
+    int inflate(ByteBuffer destination) throws ZipException {
+        var start = System.nanoTime();
+        input.flip();
+        var remaining = input.remaining();
+        try {
+            inflater.setInput(input);
+            var produced = inflater.inflate(destination);
+            metrics.inflated(remaining - input.remaining(), produced, System.nanoTime() - start);
+            return produced;
+        } catch (DataFormatException e) {
+            throw new ZipException("Invalid DEFLATE stream: " + e.getMessage());
+        } finally {
+            input.compact();
+        }
+    }
+
+    /**
+     * Frees the native memory of the stream, the inflater cannot be used anymore
+     */
+    void end() {
+        inflater.end();
+    }
+}
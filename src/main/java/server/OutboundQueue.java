@@ -0,0 +1,278 @@
+package main.java.server;
+
+import main.java.OpCode;
+import main.java.buffer.SharedFrame;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The frames waiting to be written on a connection, bounded in bytes.
+ * <p>
+ * Each queue has its own limit, every queue of a server also shares a {@link Budget} capping the bytes queued
+ * server-wide. When a frame exceeds either of them, the {@link Policy} of the queue decides what happens to
+ * the frame and to the connection. Frames which are not chat messages are always queued: dropping a login
+ * or a fusion frame would break the protocol, and they are too rare to fill a queue.
+ * <p>
+ * A queue belongs to the thread serving its connection, only its {@link Budget} and the number of frames it holds,
+ * read by the metrics, are shared.
+ */
+public final class OutboundQueue {
+    private final ArrayDeque<SharedFrame> frames = new ArrayDeque<>();
+    private final Budget budget;
+    private final Policy policy;
+    private final int limit;
+    private final long grace;
+    private long bytes;
+    // the number of frames queued, written by the thread serving the connection and read by the metrics
+    private volatile int size;
+    // when the queue went over its limit for the DISCONNECT policy, -1 while it is under
+    private long overSince = -1;
+
+    /**
+     * Creates an empty queue
+     * @param budget the {@link Budget} shared by every queue of the server
+     * @param policy the {@link Policy} applied when the queue is full
+     * @param limit the number of bytes the queue holds before applying its policy
+     * @param grace the milliseconds a queue stays over its limit before the DISCONNECT policy closes the connection
+     */
+    public OutboundQueue(Budget budget, Policy policy, int limit, long grace) {
+        if (limit <= 0 || grace < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.budget = budget;
+        this.policy = policy;
+        this.limit = limit;
+        this.grace = grace;
+    }
+
+    /**
+     * Queues a frame, applying the policy of the queue if it exceeds a limit
+     * @param frame the frame to queue, released by the queue if dropped
+     * @return what happened to the frame, and what the connection should do
+     */
+    public Outcome offer(SharedFrame frame) {
+        var length = frame.length();
+        var full = bytes + length > limit || budget.queued.get() + length > budget.cap;
+        if (!full || !isChat(frame.opCode())) {
+            add(frame);
+            if (bytes <= limit) {
+                overSince = -1;
+            }
+            return Outcome.QUEUED;
+        }
+        switch (policy) {
+            case DROP_OLDEST -> {
+                dropOldestChat(length);
+                if (bytes + length > limit || budget.queued.get() + length > budget.cap) {
+                    drop(frame);
+                    return Outcome.DROPPED;
+                }
+                add(frame);
+                return Outcome.QUEUED;
+            }
+            case DISCONNECT -> {
+                var now = System.currentTimeMillis();
+                if (overSince == -1) {
+                    overSince = now;
+                }
+                if (budget.queued.get() + length > budget.cap || now - overSince > grace) {
+                    drop(frame);
+                    budget.disconnects.increment();
+                    return Outcome.DISCONNECT;
+                }
+                add(frame);
+                return Outcome.QUEUED;
+            }
+            case BACK_PRESSURE -> {
+                add(frame);
+                return Outcome.PUSH_BACK;
+            }
+            default -> throw new AssertionError();
+        }
+    }
+
+    private static boolean isChat(OpCode opCode) {
+        return opCode == OpCode.MESSAGE || opCode == OpCode.PRIVATE_MESSAGE;
+    }
+
+    private void add(SharedFrame frame) {
+        frames.add(frame);
+        size = frames.size();
+        bytes += frame.length();
+        budget.queued.addAndGet(frame.length());
+    }
+
+    private void drop(SharedFrame frame) {
+        budget.droppedFrames.increment();
+        budget.droppedBytes.add(frame.length());
+        frame.release();
+    }
+
+    /**
+     * Drops the oldest chat frames until a frame of the given length fits, or there is no chat frame left
+     * @param length the length of the frame to queue
+     */
+    private void dropOldestChat(int length) {
+        var iterator = frames.iterator();
+        while (iterator.hasNext() && (bytes + length > limit || budget.queued.get() + length > budget.cap)) {
+            var frame = iterator.next();
+            if (isChat(frame.opCode())) {
+                iterator.remove();
+                size = frames.size();
+                bytes -= frame.length();
+                budget.queued.addAndGet(-frame.length());
+                drop(frame);
+            }
+        }
+    }
+
+    /**
+     * Retrieves and removes the oldest frame
+     * @return the oldest frame, null if the queue is empty
+     */
+    public SharedFrame poll() {
+        var frame = frames.poll();
+        if (frame != null) {
+            size = frames.size();
+            bytes -= frame.length();
+            budget.queued.addAndGet(-frame.length());
+            if (bytes <= limit) {
+                overSince = -1;
+            }
+        }
+        return frame;
+    }
+
+    /**
+     * Queues a frame again after it has been polled, without applying any policy
+     * @param frame the frame polled from this queue
+     */
+    public void requeue(SharedFrame frame) {
+        add(frame);
+    }
+
+    /**
+     * Tells if the connection is back under half of its limit, the point at which pushed back senders resume
+     * @return true if the queue holds less than half of its limit
+     */
+    public boolean isDrained() {
+        return bytes <= limit / 2;
+    }
+
+    /**
+     * Tells if no frame is queued
+     * @return true if the queue is empty
+     */
+    public boolean isEmpty() {
+        return frames.isEmpty();
+    }
+
+    /**
+     * Gets the number of frames queued, from any thread
+     * @return the number of frames
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the number of bytes queued
+     * @return the number of bytes of every frame queued
+     */
+    public long bytes() {
+        return bytes;
+    }
+
+    /**
+     * Releases every frame queued, once the connection is closed
+     */
+    public void clear() {
+        SharedFrame frame;
+        while ((frame = poll()) != null) {
+            frame.release();
+        }
+    }
+
+    /**
+     * What a connection does once its queue is full
+     */
+    public enum Policy {
+        /**
+         * The oldest chat frames are dropped to make room for the new one, or the new one is dropped
+         */
+        DROP_OLDEST,
+        /**
+         * Frames are still queued during a grace period, after which the connection is closed
+         */
+        DISCONNECT,
+        /**
+         * Frames are still queued but the connections sending them stop being read until the queue drains
+         */
+        BACK_PRESSURE
+    }
+
+    /**
+     * What happened to an offered frame
+     */
+    public enum Outcome {
+        QUEUED, DROPPED, DISCONNECT, PUSH_BACK
+    }
+
+    /**
+     * The bytes queued by every connection of a server, and the counters of the policies applied
+     */
+    public static final class Budget {
+        private final long cap;
+        private final AtomicLong queued = new AtomicLong();
+        private final LongAdder droppedFrames = new LongAdder();
+        private final LongAdder droppedBytes = new LongAdder();
+        private final LongAdder disconnects = new LongAdder();
+        private final LongAdder pushBacks = new LongAdder();
+
+        /**
+         * Creates a budget
+         * @param cap the number of bytes every queue together can hold
+         */
+        public Budget(long cap) {
+            if (cap <= 0) {
+                throw new IllegalArgumentException();
+            }
+            this.cap = cap;
+        }
+
+        public long queued() {
+            return queued.get();
+        }
+
+        public long droppedFrames() {
+            return droppedFrames.sum();
+        }
+
+        public long droppedBytes() {
+            return droppedBytes.sum();
+        }
+
+        public long disconnects() {
+            return disconnects.sum();
+        }
+
+        public long pushBacks() {
+            return pushBacks.sum();
+        }
+
+        /**
+         * Counts a sender stopped because of a full queue
+         */
+        void countPushBack() {
+            pushBacks.increment();
+        }
+
+        @Override
+        public String toString() {
+            return queued() + "/" + cap + " bytes queued, " + droppedFrames() + " frames dropped (" + droppedBytes() + " bytes), "
+                    + disconnects() + " slow consumers disconnected, " + pushBacks() + " senders pushed back";
+        }
+    }
+}
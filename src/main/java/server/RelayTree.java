@@ -0,0 +1,243 @@
+package main.java.server;
+
+import main.java.buffer.SharedFrame;
+import main.java.server.ServerChatFusion.Connection;
+import main.java.wrapper.StringChatFusion;
+import main.java.wrapper.StringPool;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * The broadcast tree of the public messages of a mega-server.
+ * <p>
+ * Without a tree, the leader writes every public message to every member: its traffic grows with the number of
+ * members. With a fan-out of k, the leader only writes to k members, each of them writes to k others, and so on:
+ * the depth of the tree, and the number of servers a message goes through, grows with the logarithm of the number of
+ * members. The members able to relay, the ones which sent their address, are placed in the order they announced it
+ * in a complete k-ary tree under the leader. The other members stay children of the leader.
+ * <p>
+ * A server never forwards a public message to the child named by the server_src of the message: a server forwards
+ * the messages of its own clients to its children itself, and to the leader which brings them to the rest of the
+ * tree. Every server receives each message once, whatever its place in the tree.
+ * <p>
+ * A member placed under a new relay only receives the messages of the relay once the relay handled its join.
+ * Until the relay reports the join, the leader keeps writing to the member: a message sent while the member changes
+ * of relay may reach it twice, but it is not lost.
+ * <p>
+ * The leader lays the tree out on its control thread, every time the members change. The children and the parent
+ * are read by every thread broadcasting a message, they are replaced rather than modified.
+ */
+public final class RelayTree {
+    // The leader: the members able to relay with their address, in the order they announced it, and the parent
+    // last sent to each member, empty for the leader
+    private final LinkedHashMap<String, InetSocketAddress> relays = new LinkedHashMap<>();
+    private final HashMap<String, String> parents = new HashMap<>();
+    // The leader: the members placed under a relay which did not report their join yet, with the name of the relay
+    private final HashMap<String, String> handovers = new HashMap<>();
+    // The links this server forwards the public messages to, with the name of the server at the other end
+    private volatile Map<Connection, StringChatFusion> children = Map.of();
+    // The leader writes the public messages to its children only, rather than to every member
+    private volatile boolean root;
+    // A member: the relay it receives the public messages from, null if it receives them from the leader
+    private volatile Connection parent;
+    private volatile String parentName = "";
+
+    /**
+     * A change of parent to send to a member
+     * @param member the name of the member
+     * @param parent the name of its new parent, empty for the leader
+     * @param address the address of its new parent, null for the leader
+     */
+    public record Move(String member, String parent, InetSocketAddress address) {
+    }
+
+    /**
+     * Adds a member able to relay, at the end of the tree, called by the leader
+     * @param name the name of the member
+     * @param address the address it listens on
+     */
+    public void addRelay(String name, InetSocketAddress address) {
+        relays.put(name, address);
+    }
+
+    /**
+     * Gets the address a member listens on, called by the leader
+     * @param name the name of the member
+     * @return the address it announced, null if it did not announce one
+     */
+    public InetSocketAddress address(String name) {
+        return relays.get(name);
+    }
+
+    /**
+     * Places every member in the tree, called by the leader each time its members change
+     * @param fanOut the number of children of each node, 0 to write the public messages to every member
+     * @param members the names of the members of the mega-server
+     * @param links gives the link with a member from its name
+     * @return the members whose parent changed
+     */
+    public synchronized List<Move> layout(int fanOut, Set<String> members, Function<String, Connection> links) {
+        relays.keySet().retainAll(members);
+        handovers.keySet().retainAll(members);
+        var layout = new HashMap<String, String>();
+        members.forEach(member -> layout.put(member, ""));
+        if (fanOut > 0) {
+            var ordered = new ArrayList<>(relays.keySet());
+            for (int i = fanOut; i < ordered.size(); i++) {
+                layout.put(ordered.get(i), ordered.get(i / fanOut - 1));
+            }
+        }
+        var moves = new ArrayList<Move>();
+        layout.forEach((member, parent) -> {
+            if (!parent.equals(parents.getOrDefault(member, ""))) {
+                moves.add(new Move(member, parent, relays.get(parent)));
+                if (parent.isEmpty()) {
+                    handovers.remove(member);
+                } else {
+                    handovers.put(member, parent);
+                }
+            }
+        });
+        parents.clear();
+        parents.putAll(layout);
+
+        if (fanOut == 0) {
+            // every member is written to again before the children are forgotten
+            handovers.clear();
+            root = false;
+            children = Map.of();
+            return moves;
+        }
+        // the members moving under a relay are written to until the relay reports their join
+        var direct = new HashMap<Connection, StringChatFusion>();
+        layout.forEach((member, parent) -> {
+            var link = links.apply(member);
+            if ((parent.isEmpty() || handovers.containsKey(member)) && link != null) {
+                direct.put(link, StringChatFusion.of(member));
+            }
+        });
+        children = Map.copyOf(direct);
+        root = true;
+        return moves;
+    }
+
+    /**
+     * Stops writing to a member placed under a relay, once the relay reported its join, called by the leader
+     * @param member the name of the member
+     * @param relay the name of the relay which reported the join
+     * @return true if the member was still written to by the leader, false if the join is not the expected one
+     */
+    public synchronized boolean joined(String member, String relay) {
+        if (!handovers.remove(member, relay)) {
+            return false;
+        }
+        var updated = new HashMap<>(children);
+        updated.values().removeIf(name -> name.string().equals(member));
+        children = Map.copyOf(updated);
+        return true;
+    }
+
+    /**
+     * Tells if the leader writes the public messages to its children only
+     * @return true if a tree has been laid out
+     */
+    public boolean isRoot() {
+        return root;
+    }
+
+    /**
+     * Adds a member which joined this server as its relay
+     * @param child the link opened by the member
+     * @param name the name of the member
+     */
+    public synchronized void addChild(Connection child, StringChatFusion name) {
+        var updated = new HashMap<>(children);
+        updated.put(child, name);
+        children = Map.copyOf(updated);
+    }
+
+    /**
+     * Gets the relay this member receives the public messages from
+     * @return the link with the relay, null if the public messages come from the leader
+     */
+    public Connection parent() {
+        return parent;
+    }
+
+    /**
+     * Gets the name of the relay this member receives the public messages from
+     * @return the name of the relay, empty if the public messages come from the leader
+     */
+    public String parentName() {
+        return parentName;
+    }
+
+    /**
+     * Changes the relay this member receives the public messages from
+     * @param link the link with the new relay, null for the leader
+     * @param name the name of the new relay, empty for the leader
+     * @return the link with the previous relay, to close, null if there was none
+     */
+    public synchronized Connection parent(Connection link, String name) {
+        var previous = parent;
+        parent = link;
+        parentName = name;
+        return previous;
+    }
+
+    /**
+     * Writes a public message to every child but the one it comes from
+     * @param frame the MESSAGE frame, still owned by the caller
+     * @param sender the {@link Connection} the frame was read on
+     */
+    public void forward(SharedFrame frame, Connection sender) {
+        var children = this.children;
+        if (children.isEmpty()) {
+            return;
+        }
+        // the server_src of the message, the first field after the OpCode
+        var view = frame.view();
+        var origin = StringPool.intern(view, 1 + Integer.BYTES, view.getInt(1));
+        children.forEach((child, name) -> {
+            if (!name.equals(origin)) {
+                child.send(frame.retain(), sender);
+            }
+        });
+    }
+
+    /**
+     * Forgets a closed link, whether it was a child or the parent
+     * @param connection the {@link Connection} closed
+     */
+    public synchronized void remove(Connection connection) {
+        if (children.containsKey(connection)) {
+            var updated = new HashMap<>(children);
+            updated.remove(connection);
+            children = Map.copyOf(updated);
+        }
+        if (parent == connection) {
+            parent = null;
+            parentName = "";
+        }
+    }
+
+    /**
+     * Forgets the whole tree, once this server joins another mega-server
+     * @return the link with the relay of this member, to close, null if there was none
+     */
+    public synchronized Connection clear() {
+        relays.clear();
+        parents.clear();
+        handovers.clear();
+        root = false;
+        children = Map.of();
+        return parent(null, "");
+    }
+}
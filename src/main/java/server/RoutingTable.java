@@ -0,0 +1,134 @@
+package main.java.server;
+
+import main.java.server.ServerChatFusion.Connection;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The routes of a {@link ServerChatFusion}: the login of every client connected to it and, on the leader of a
+ * mega-server, the name of every member linked to it.
+ * <p>
+ * Every lookup is a single hash lookup, whatever the number of clients and servers: a private message finds its
+ * recipient by login or its server by name. Both directions are indexed, so a closed connection is removed
+ * without searching for it. The table is shared by the reactors and the control thread.
+ */
+final class RoutingTable {
+    private final ConcurrentHashMap<String, Connection> clients = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Connection, String> logins = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Connection> servers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Connection, String> serverNames = new ConcurrentHashMap<>();
+
+    /**
+     * Adds a client, unless its login is already taken
+     * @param login the login of the client
+     * @param connection the {@link Connection} of the client
+     * @return true if the client was added, false if another client has the same login
+     */
+    boolean addClient(String login, Connection connection) {
+        if (clients.putIfAbsent(login, connection) != null) {
+            return false;
+        }
+        logins.put(connection, login);
+        return true;
+    }
+
+    /**
+     * Gets the connection of a client
+     * @param login the login of the client
+     * @return the {@link Connection} of the client, null if no client has this login
+     */
+    Connection client(String login) {
+        return clients.get(login);
+    }
+
+    /**
+     * Tells if a connection is a logged in client
+     * @param connection the {@link Connection}
+     * @return true if the connection belongs to a client
+     */
+    boolean isClient(Connection connection) {
+        return logins.containsKey(connection);
+    }
+
+    /**
+     * Gets the connections of every client
+     * @return a live view of the connections
+     */
+    Collection<Connection> clients() {
+        return clients.values();
+    }
+
+    /**
+     * Adds a member of the mega-server, replacing any previous link with a server of the same name
+     * @param name the name of the member
+     * @param connection the link with the member
+     */
+    void addServer(String name, Connection connection) {
+        var previous = servers.put(name, connection);
+        if (previous != null && previous != connection) {
+            serverNames.remove(previous);
+        }
+        serverNames.put(connection, name);
+    }
+
+    /**
+     * Gets the link with a member of the mega-server
+     * @param name the name of the member
+     * @return the link, null if no member has this name
+     */
+    Connection server(String name) {
+        return servers.get(name);
+    }
+
+    /**
+     * Gets the name of a member of the mega-server from its link
+     * @param connection the link
+     * @return the name of the member, null if the link is not a member
+     */
+    String serverName(Connection connection) {
+        return serverNames.get(connection);
+    }
+
+    /**
+     * Gets the links with every member of the mega-server
+     * @return a live view of the links
+     */
+    Collection<Connection> servers() {
+        return servers.values();
+    }
+
+    /**
+     * Gets the names of every member of the mega-server
+     * @return a live view of the names
+     */
+    Set<String> serverNames() {
+        return servers.keySet();
+    }
+
+    /**
+     * Forgets every member, once another server leads the mega-server
+     */
+    void clearServers() {
+        servers.clear();
+        serverNames.clear();
+    }
+
+    /**
+     * Removes a closed connection, whether it was a client or a member
+     * @param connection the {@link Connection} closed
+     * @return true if the connection was a member
+     */
+    boolean remove(Connection connection) {
+        var login = logins.remove(connection);
+        if (login != null) {
+            clients.remove(login, connection);
+        }
+        var name = serverNames.remove(connection);
+        if (name != null) {
+            servers.remove(name, connection);
+        }
+        return name != null;
+    }
+}
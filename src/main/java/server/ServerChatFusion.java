@@ -2,12 +2,19 @@ package main.java.server;
 
 import main.java.OpCode;
 import main.java.Utils.RequestFactory;
+import main.java.buffer.BufferPool;
+import main.java.buffer.SharedFrame;
 import main.java.reader.Reader;
+import main.java.reader.ReaderSet;
+import main.java.reader.message.RequestMessageBatchReader;
+import main.java.reader.message.RequestRelayReader;
 import main.java.request.*;
 import main.java.request.Request.ReadingState;
+import main.java.wrapper.StringChatFusion;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.channels.*;
@@ -16,58 +23,175 @@ import java.util.*;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.zip.Deflater;
+import javax.management.JMException;
+import javax.management.ObjectName;
 
 public class ServerChatFusion {
     private static final int BUFFER_SIZE = 8096;
     private static final Logger logger = Logger.getLogger(ServerChatFusion.class.getName());
-    private static final long TIMEOUT = 60_000;
+    // The timeouts of the reactor engine, checked by the timer wheel of each reactor with a precision of a tick
+    private static final long TICK = 1_000;
+    private static final int TICKS_PER_WHEEL = 128;
+    private static final long IDLE_TIMEOUT = 600_000;
+    private static final long LOGIN_TIMEOUT = 10_000;
+    private static final long CONNECT_TIMEOUT = 10_000;
+    private static final long FUSION_TIMEOUT = 30_000;
+    private static final int BUFFERS_PER_SLAB = 64;
+    private static final int MAX_GATHERED_FRAMES = 64;
+    // The number of connections listed by the STATS command
+    private static final int STATS_CONNECTIONS = 10;
+    private static final int QUEUE_LIMIT = 1024 * 1024;
+    private static final long QUEUES_CAP = 256L * 1024 * 1024;
+    private static final long QUEUE_GRACE = 10_000;
+    // The default flush window of the MESSAGE_BATCH frames sent on the links with other servers
+    private static final int BATCH_MAX_BYTES = 8192;
+    private static final long BATCH_MAX_DELAY = 2;
     private final String serverName;
     private final ServerSocketChannel serverSocketChannel;
+    private final Engine engine;
+    // The control reactor owns the ServerSocketChannel, the fusion links and every fusion state field
+    private final Reactor control;
     private final Selector selector;
+    private final Reactor[] reactors;
+    // Runs the fusion operations, the control reactor or a single thread for the thread-per-connection engine
+    private final Executor controlExecutor;
+    // The control thread of the thread-per-connection engine, which has no TimerWheel, null for the reactor engine
+    private final ScheduledExecutorService controlScheduler;
+    private final ThreadFactory connectionThreadFactory;
+    private final Set<BlockingContext> blockingContexts = ConcurrentHashMap.newKeySet();
+    // The I/O buffers of the contexts, leased only while a connection has bytes in flight
+    private final BufferPool bufferPool = new BufferPool(BUFFER_SIZE, BUFFERS_PER_SLAB);
+    private final OutboundQueue.Policy overflowPolicy;
+    private final OutboundQueue.Budget outboundBudget = new OutboundQueue.Budget(QUEUES_CAP);
+    private final ServerMetrics metrics = new ServerMetrics(outboundBudget);
     private final Thread console;
     private final StateServerCommandController stateController = new StateServerCommandController();
-    private final HashMap<SelectionKey, String> clientConnected = new HashMap<>();
-
-    private final HashMap<String, SelectionKey> clientNameConnected = new HashMap<>();
-    private final ConcurrentHashMap<SelectionKey, String> serverConnected = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String, SelectionKey> serverNameConnected = new ConcurrentHashMap<>();
+    // The clients logged in and, on the leader, the members of the mega-server
+    private final RoutingTable routes = new RoutingTable();
+    // The broadcast tree of the public messages, laid out by the leader
+    private final RelayTree relays = new RelayTree();
+    // The links with the other members carrying the private frames without going through the leader
+    private final DirectLinks directs;
+    // The members of the other mega-server expected to send a FUSION_MERGE once this server stays the leader
     private final List<String> memberAddList = new ArrayList<>();
-    private SocketChannel leaderSocketChannel = SocketChannel.open();
-    private SocketChannel actualConnectionSocketChannel = SocketChannel.open();
-    private boolean isLeader = true;
-    private FusionState fusionState = FusionState.IDLE;
-    private Context leader;
-    private Context actualConnection;
+    private volatile boolean isLeader = true;
+    private volatile FusionState fusionState = FusionState.IDLE;
+    private volatile Connection leader;
+    // A batch is sent once it holds batchMaxBytes bytes or once its first message has waited batchMaxDelay ms,
+    // batchMaxBytes at 0 sends every public message alone
+    private volatile int batchMaxBytes = BATCH_MAX_BYTES;
+    private volatile long batchMaxDelay = BATCH_MAX_DELAY;
+    // The compression level of the links with other servers negotiated from now on, 0 leaves them uncompressed
+    private volatile int deflateLevel;
+    // The number of members the leader and each relay write the public messages to, 0 writes them to every member
+    private volatile int relayFanOut;
+    private Connection actualConnection;
+    // Ends the PENDING_FUSION state of the fusion started by this server if it is not answered in time
+    private TimerWheel.Timeout fusionTimeout;
+    private int nextReactor;
 
     public ServerChatFusion(String serverName, InetSocketAddress socketAddress) throws IOException {
+        this(serverName, socketAddress, Engine.REACTOR, 0);
+    }
+
+    /**
+     * Creates a {@link ServerChatFusion} dispatching the accepted connections over several reactors
+     * @param serverName the name of the server
+     * @param socketAddress the address the server listens on
+     * @param nbReactors the number of worker reactors, 0 keeps every connection on the control reactor
+     * @throws IOException If an I/O error occurs
+     */
+    public ServerChatFusion(String serverName, InetSocketAddress socketAddress, int nbReactors) throws IOException {
+        this(serverName, socketAddress, Engine.REACTOR, nbReactors);
+    }
+
+    /**
+     * Creates a {@link ServerChatFusion} running the given engine
+     * @param serverName the name of the server
+     * @param socketAddress the address the server listens on
+     * @param engine the engine serving the connections
+     * @param nbReactors the number of worker reactors of the {@link Engine#REACTOR} engine
+     * @throws IOException If an I/O error occurs
+     */
+    public ServerChatFusion(String serverName, InetSocketAddress socketAddress, Engine engine, int nbReactors) throws IOException {
+        this(serverName, socketAddress, engine, nbReactors, OutboundQueue.Policy.DROP_OLDEST);
+    }
+
+    /**
+     * Creates a {@link ServerChatFusion} running the given engine
+     * @param serverName the name of the server
+     * @param socketAddress the address the server listens on
+     * @param engine the engine serving the connections
+     * @param nbReactors the number of worker reactors of the {@link Engine#REACTOR} engine
+     * @param overflowPolicy what the {@link Engine#REACTOR} engine does with a connection whose outbound queue is full
+     * @throws IOException If an I/O error occurs
+     */
+    public ServerChatFusion(String serverName, InetSocketAddress socketAddress, Engine engine, int nbReactors, OutboundQueue.Policy overflowPolicy) throws IOException {
         Objects.requireNonNull(serverName);
-        if (serverName.isEmpty()) {
+        Objects.requireNonNull(engine);
+        Objects.requireNonNull(overflowPolicy);
+        if (serverName.isEmpty() || nbReactors < 0) {
             throw new IllegalArgumentException();
         }
         this.serverName = serverName;
+        this.directs = new DirectLinks(serverName, this::scheduleOnControl);
+        this.engine = engine;
+        this.overflowPolicy = overflowPolicy;
         serverSocketChannel = ServerSocketChannel.open();
         serverSocketChannel.bind(socketAddress);
 
-        leaderSocketChannel.configureBlocking(false);
-        actualConnectionSocketChannel.configureBlocking(false);
-
-        selector = Selector.open();
+        control = new Reactor(this);
+        selector = control.selector;
+        reactors = new Reactor[nbReactors];
+        for (int i = 0; i < nbReactors; i++) {
+            reactors[i] = new Reactor(this);
+        }
+        controlScheduler = engine == Engine.REACTOR ? null : Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "control");
+            thread.setDaemon(true);
+            return thread;
+        });
+        controlExecutor = engine == Engine.REACTOR ? control::execute : controlScheduler;
+        connectionThreadFactory = engine == Engine.REACTOR ? null : Helpers.connectionThreadFactory();
         this.console = new Thread(this::consoleRun);
         console.setDaemon(true);
     }
 
     public static void main(String[] args) throws NumberFormatException, IOException {
-        if (args.length != 2) {
+        if (args.length < 2 || args.length > 4) {
             usage();
             return;
         }
-        new ServerChatFusion(args[0], new InetSocketAddress("127.0.0.1", Integer.parseInt(args[1]))).launch();
+        var address = new InetSocketAddress("127.0.0.1", Integer.parseInt(args[1]));
+        var policy = OutboundQueue.Policy.DROP_OLDEST;
+        if (args.length == 4) {
+            var optionalPolicy = Helpers.parsePolicy(args[3]);
+            if (optionalPolicy.isEmpty()) {
+                usage();
+                return;
+            }
+            policy = optionalPolicy.get();
+        }
+        if (args.length >= 3 && args[2].equals("threads")) {
+            new ServerChatFusion(args[0], address, Engine.THREAD_PER_CONNECTION, 0, policy).launch();
+            return;
+        }
+        var nbReactors = args.length >= 3 ? Integer.parseInt(args[2]) : 0;
+        new ServerChatFusion(args[0], address, Engine.REACTOR, nbReactors, policy).launch();
     }
 
     private static void usage() {
-        System.out.println("Usage : ServerSumBetter serverName port");
+        System.out.println("Usage : ServerSumBetter serverName port [nbReactors | threads] [dropOldest | disconnect | backPressure]");
     }
 
     /**
@@ -79,10 +203,10 @@ public class ServerChatFusion {
     }
 
     /**
-     * Makes the {@link ServerChatFusion} contained in the {@link Context} become the leader of the Mega-Server
-     * @param context containing the new leader of the Mega-Server
+     * Makes the {@link ServerChatFusion} at the other end of the {@link Connection} become the leader of the Mega-Server
+     * @param context the {@link Connection} with the new leader of the Mega-Server
      */
-    private void setLeader(Context context) {
+    private void setLeader(Connection context) {
         this.leader = context;
         isLeader = false;
     }
@@ -94,7 +218,7 @@ public class ServerChatFusion {
      */
     @Override
     public boolean equals(Object o) {
-        return o instanceof ServerChatFusion that && Objects.equals(serverSocketChannel, that.serverSocketChannel) && Objects.equals(selector, that.selector) && Objects.equals(console, that.console) && Objects.equals(stateController, that.stateController) && Objects.equals(leader, that.leader) && Objects.equals(clientConnected, that.clientConnected);
+        return o instanceof ServerChatFusion that && Objects.equals(serverSocketChannel, that.serverSocketChannel) && Objects.equals(selector, that.selector) && Objects.equals(console, that.console) && Objects.equals(stateController, that.stateController) && Objects.equals(leader, that.leader) && Objects.equals(routes, that.routes);
     }
 
     /**
@@ -103,7 +227,7 @@ public class ServerChatFusion {
      */
     @Override
     public int hashCode() {
-        return Objects.hash(serverSocketChannel, selector, console, stateController, leader, clientConnected);
+        return Objects.hash(serverSocketChannel, selector, console, stateController, leader, routes);
     }
 
     /**
@@ -113,6 +237,11 @@ public class ServerChatFusion {
         System.out.println("""
                 List of commands:
                     - INFO -> Print the number of server and client connected
+                    - STATS -> Print the traffic of the server and of its busiest connections
+                    - BATCH [max_bytes] [max_delay] -> (BATCH 8192 2) - Print or set the flush window of the public messages batched on the links with other servers, BATCH 0 disables batching
+                    - DEFLATE [level] -> (DEFLATE 6) - Print or set the compression level, from 0 to 9, of the links with other servers established from now on, DEFLATE 0 disables compression
+                    - RELAY [fan_out] -> (RELAY 4) - Print or set, on the leader, the number of members each server of the mega-server writes the public messages to, RELAY 0 makes the leader write them to every member
+                    - DIRECT [max_links] -> (DIRECT 8) - Print or set, on a member, the number of direct links it opens at most with other members for the private messages and files, DIRECT 0 sends them through the leader
                     - SHUTDOWN -> Stop any server or client to connect to this server
                     - SHUTDOWNNOW -> End the server and its connections
                     - FUSION [server_address] [port] ->  (FUSION 127.0.0.1 7777) - Ask a fusion to the server corresponding to the given address and port
@@ -128,18 +257,36 @@ public class ServerChatFusion {
             while (scanner.hasNextLine()) {
                 var msg = scanner.nextLine();
                 switch (msg) {
-                    case "INFO" -> System.out.println((selector.keys().size() - 1) + " Server and Client connected");
+                    case "INFO" -> {
+                        System.out.println((connectionCount() - 1) + " Server and Client connected");
+                        System.out.println("I/O buffers: " + bufferPool);
+                        System.out.println("Outbound queues: " + outboundBudget);
+                    }
+
+                    case "STATS" -> System.out.println(metrics.report(STATS_CONNECTIONS));
 
                     case "SHUTDOWN" -> stateController.updateState(State.STOP_ACCEPTING);
 
                     case "SHUTDOWNNOW" -> {
                         stateController.updateState(State.SHUTDOWN);
                         selector.wakeup();
+                        Arrays.stream(reactors).forEach(reactor -> reactor.selector.wakeup());
+                        if (engine == Engine.THREAD_PER_CONNECTION) {
+                            // unblocks the accept loop
+                            silentlyClose(serverSocketChannel);
+                        }
                     }
                     case "/help" -> printConsoleUsage();
 
-                    case String msgString && (msgString.startsWith("FUSION")) ->
-                            stateController.sendCommand(msgString.substring(7), selector);
+                    case String msgString && (msgString.startsWith("FUSION")) -> sendCommand(msgString.substring(7));
+
+                    case String msgString && (msgString.startsWith("BATCH")) -> batchCommand(msgString.substring(5).trim());
+
+                    case String msgString && (msgString.startsWith("DEFLATE")) -> deflateCommand(msgString.substring(7).trim());
+
+                    case String msgString && (msgString.startsWith("RELAY")) -> relayCommand(msgString.substring(5).trim());
+
+                    case String msgString && (msgString.startsWith("DIRECT")) -> directCommand(msgString.substring(6).trim());
 
                     default -> {
                     }
@@ -149,29 +296,214 @@ public class ServerChatFusion {
         logger.info("Console thread stopping");
     }
 
+    /**
+     * Prints or sets the flush window of the MESSAGE_BATCH frames
+     * @param arguments the maximum number of bytes of a batch and, optionally, the maximum delay of its first message
+     *                  in milliseconds, empty to print the current window
+     */
+    private void batchCommand(String arguments) {
+        var maxFrame = RequestMessageBatchReader.MAX_BATCH_SIZE + RequestMessageBatch.HEADER_SIZE;
+        if (!arguments.isEmpty()) {
+            var tokens = arguments.split("\\s+");
+            try {
+                var maxBytes = Integer.parseInt(tokens[0]);
+                var maxDelay = tokens.length > 1 ? Long.parseLong(tokens[1]) : batchMaxDelay;
+                if (maxBytes < 0 || maxBytes > maxFrame || maxDelay < 0) {
+                    System.out.println("max_bytes must be between 0 and " + maxFrame + ", max_delay must be positive");
+                    return;
+                }
+                batchMaxBytes = maxBytes;
+                batchMaxDelay = maxDelay;
+            } catch (NumberFormatException e) {
+                System.out.println("Usage: BATCH [max_bytes] [max_delay]");
+                return;
+            }
+        }
+        System.out.println(batchMaxBytes == 0 ? "Batching disabled" : "Batches of " + batchMaxBytes + " bytes at most, sent " + batchMaxDelay + " ms after their first message at most");
+    }
+
+    /**
+     * Prints or sets the compression level of the links with other servers
+     * @param arguments the level, from 0 to 9, empty to print the current level
+     */
+    private void deflateCommand(String arguments) {
+        if (!arguments.isEmpty()) {
+            try {
+                var level = Integer.parseInt(arguments);
+                if (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+                    System.out.println("level must be between 0 and 9");
+                    return;
+                }
+                deflateLevel = level;
+            } catch (NumberFormatException e) {
+                System.out.println("Usage: DEFLATE [level]");
+                return;
+            }
+        }
+        System.out.println(deflateLevel == 0 ? "Compression disabled" : "Links established from now on are compressed at level " + deflateLevel);
+    }
+
+    /**
+     * Prints or sets the fan-out of the broadcast tree, then lays the tree out again
+     * @param arguments the fan-out, empty to print the current one
+     */
+    private void relayCommand(String arguments) {
+        if (!arguments.isEmpty()) {
+            try {
+                var fanOut = Integer.parseInt(arguments);
+                if (fanOut < 0) {
+                    System.out.println("fan_out must be positive");
+                    return;
+                }
+                relayFanOut = fanOut;
+                onControl(this::layoutRelayTree);
+            } catch (NumberFormatException e) {
+                System.out.println("Usage: RELAY [fan_out]");
+                return;
+            }
+        }
+        System.out.println(relayFanOut == 0 ? "The leader writes the public messages to every member" : "The public messages are relayed by trees of fan-out " + relayFanOut);
+    }
+
+    /**
+     * Prints or sets the maximum number of direct links opened by this member
+     * @param arguments the maximum number of links, empty to print the current one
+     */
+    private void directCommand(String arguments) {
+        if (!arguments.isEmpty()) {
+            try {
+                var maxLinks = Integer.parseInt(arguments);
+                if (maxLinks < 0) {
+                    System.out.println("max_links must be positive");
+                    return;
+                }
+                directs.maxLinks(maxLinks);
+            } catch (NumberFormatException e) {
+                System.out.println("Usage: DIRECT [max_links]");
+                return;
+            }
+        }
+        var maxLinks = directs.maxLinks();
+        System.out.println(maxLinks == 0 ? "The private messages and files go through the leader" : "The private messages and files go through " + maxLinks + " direct links at most");
+    }
+
     /**
      * Launches the {@link ServerChatFusion}
      * @throws IOException If an I/O error occurs
      */
     public void launch() throws IOException {
         System.out.println(serverSocketChannel.getLocalAddress());
+        var metricsName = registerMetrics();
+        try {
+            launchEngine();
+        } finally {
+            unregisterMetrics(metricsName);
+        }
+    }
+
+    /**
+     * Exposes the {@link ServerMetrics} of the server through JMX
+     * @return the name of the MBean registered, null if it could not be registered
+     */
+    private ObjectName registerMetrics() {
+        try {
+            var name = new ObjectName("main.java.server:type=ServerChatFusion,name=" + ObjectName.quote(serverName));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, name);
+            return name;
+        } catch (JMException e) {
+            logger.log(Level.WARNING, "Metrics not exposed through JMX", e);
+            return null;
+        }
+    }
+
+    private static void unregisterMetrics(ObjectName name) {
+        if (name == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException e) {
+            // already unregistered
+        }
+    }
+
+    /**
+     * Runs the engine of the server until it shuts down
+     * @throws IOException If an I/O error occurs
+     */
+    private void launchEngine() throws IOException {
+        if (engine == Engine.THREAD_PER_CONNECTION) {
+            launchThreadPerConnection();
+            return;
+        }
         serverSocketChannel.configureBlocking(false);
         serverSocketChannel.register(selector, SelectionKey.OP_ACCEPT);
+        for (int i = 0; i < reactors.length; i++) {
+            var reactor = reactors[i];
+            var thread = new Thread(() -> {
+                try {
+                    reactor.run();
+                } catch (IOException e) {
+                    logger.log(Level.SEVERE, "Reactor stopped due to IOException", e);
+                }
+            }, "reactor-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
         console.start();
-        var lastCheck = System.currentTimeMillis();
+        control.bindToCurrentThread();
         while (!Thread.interrupted() && stateController.getState() != State.SHUTDOWN) {
             try {
-                if (System.currentTimeMillis() - lastCheck >= TIMEOUT) {
-                    selector.keys().stream().filter(selectionKey -> !(selectionKey.channel() instanceof ServerSocketChannel)).map(selectionKey -> (Context) selectionKey.attachment()).forEach(Context::closeIfInactive);
-                }
-                selector.select(this::treatKey, TIMEOUT);
-                processCommand();
+                control.runOnce();
             } catch (UncheckedIOException tunneled) {
                 throw tunneled.getCause();
             }
         }
 
-        selector.keys().forEach(this::silentlyClose);
+        control.closeAll();
+    }
+
+    /**
+     * Accepts the connections with a blocking {@link ServerSocketChannel} and serves each of them on its own thread
+     * @throws IOException If an I/O error occurs
+     */
+    private void launchThreadPerConnection() throws IOException {
+        console.start();
+        while (!Thread.interrupted() && stateController.getState() != State.SHUTDOWN) {
+            SocketChannel sc;
+            try {
+                sc = serverSocketChannel.accept();
+            } catch (AsynchronousCloseException e) {
+                break; // SHUTDOWNNOW closed the ServerSocketChannel
+            }
+            if (stateController.getState() != State.WORKING) {
+                silentlyClose(sc);
+                continue;
+            }
+            BlockingContext.serve(this, sc);
+        }
+
+        blockingContexts.forEach(BlockingContext::silentlyClose);
+    }
+
+    /**
+     * Counts the connections of the server, the ServerSocketChannel included
+     * @return the number of connections
+     */
+    private int connectionCount() {
+        if (engine == Engine.THREAD_PER_CONNECTION) {
+            return blockingContexts.size() + 1;
+        }
+        return control.selector.keys().size() + Arrays.stream(reactors).mapToInt(reactor -> reactor.selector.keys().size()).sum();
+    }
+
+    /**
+     * Gives a command to the {@link StateServerCommandController} and makes the control thread process it
+     * @param command the command, an address and a port separated by a space
+     */
+    private void sendCommand(String command) {
+        stateController.sendCommand(command, selector);
+        onControl(this::processCommand);
     }
 
     /**
@@ -186,7 +518,7 @@ public class ServerChatFusion {
         var commands = msg.split(" ");
         var remoteServer = new InetSocketAddress(commands[0], Integer.parseInt(commands[1]));
         if (!isLeader()) {
-            leader.queueRequest(RequestFactory.fusionRequest(remoteServer));
+            leader.send(RequestFactory.fusionRequest(remoteServer));
             return;
         }
 
@@ -194,16 +526,70 @@ public class ServerChatFusion {
             actualConnection.silentlyClose();
         }
 
-        updateConnection(actualConnectionSocketChannel, remoteServer);
+        actualConnection = openLink(remoteServer);
 
-        var key = actualConnectionSocketChannel.register(selector, SelectionKey.OP_CONNECT);
-        actualConnection = new Context(this, key);
-        key.attach(actualConnection);
-
-        String[] names = serverNameConnected.keySet().stream().toList().toArray(new String[0]);
-        var request = RequestFactory.fusionInit(serverName, (InetSocketAddress) serverSocketChannel.getLocalAddress(), serverConnected.size(), names);
-        ((Context) key.attachment()).queueRequest(request);
+        String[] names = routes.serverNames().toArray(new String[0]);
+        var request = RequestFactory.fusionInit(serverName, (InetSocketAddress) serverSocketChannel.getLocalAddress(), names.length, names);
+        actualConnection.send(request);
         fusionState = FusionState.PENDING_FUSION;
+        scheduleFusionExpiry();
+    }
+
+    /**
+     * Runs a task on the control thread once a delay has elapsed, in the {@link TimerWheel} of the control reactor
+     * @param delay the delay in milliseconds
+     * @param task the task to run
+     */
+    private void scheduleOnControl(long delay, Runnable task) {
+        if (controlScheduler != null) {
+            controlScheduler.schedule(task, delay, TimeUnit.MILLISECONDS);
+            return;
+        }
+        control.execute(() -> control.timers.schedule(delay, task));
+    }
+
+    /**
+     * Schedules the end of the PENDING_FUSION state, replacing the expiry of the previous fusion
+     */
+    private void scheduleFusionExpiry() {
+        if (engine != Engine.REACTOR) {
+            return;
+        }
+        if (fusionTimeout != null) {
+            fusionTimeout.cancel();
+        }
+        fusionTimeout = control.timers.schedule(FUSION_TIMEOUT, () -> {
+            if (fusionState != FusionState.PENDING_FUSION) {
+                return;
+            }
+            logger.warning("Fusion not answered in time, giving up");
+            if (actualConnection != null) {
+                actualConnection.silentlyClose();
+                actualConnection = null;
+            }
+            memberAddList.clear();
+            fusionState = FusionState.IDLE;
+        });
+    }
+
+    /**
+     * Opens a connection to another {@link ServerChatFusion}, served by the engine of this server
+     * @param address the address of the other server
+     * @return the {@link Connection} created, requests can be sent before the connection is established
+     * @throws IOException If an I/O error occurs
+     */
+    private Connection openLink(InetSocketAddress address) throws IOException {
+        if (engine == Engine.THREAD_PER_CONNECTION) {
+            return BlockingContext.connect(this, address);
+        }
+        var sc = SocketChannel.open();
+        sc.configureBlocking(false);
+        sc.connect(address);
+        var key = sc.register(selector, SelectionKey.OP_CONNECT);
+        var context = new Context(this, control, key);
+        key.attach(context);
+        context.expectConnection();
+        return context;
     }
 
     /**
@@ -248,9 +634,12 @@ public class ServerChatFusion {
         }
 
         sc.configureBlocking(false);
-        var sk = sc.register(selector, SelectionKey.OP_READ);
-        sk.attach(new Context(this, sk));
-
+        if (reactors.length == 0) {
+            control.register(sc);
+            return;
+        }
+        reactors[nextReactor].register(sc);
+        nextReactor = (nextReactor + 1) % reactors.length;
     }
 
     /**
@@ -264,156 +653,253 @@ public class ServerChatFusion {
         } else {
             System.out.println("\tKey for Client ");
         }
-        var serverRemoved = serverConnected.remove(key);
-        if (serverRemoved != null) serverNameConnected.remove(serverRemoved);
-        var clientRemoved = clientConnected.remove(key);
-        if (clientRemoved != null) clientNameConnected.remove(clientRemoved);
+        if (key.attachment() instanceof Connection connection) {
+            unregister(connection);
+            connection.silentlyClose();
+            return;
+        }
+        silentlyClose(sc);
+    }
 
+    /**
+     * Closes the {@link Channel} ignoring any exception
+     * @param channel the {@link Channel} to close
+     */
+    private static void silentlyClose(Channel channel) {
         try {
-            sc.close();
+            channel.close();
         } catch (IOException e) {
             // ignore exception
         }
     }
 
     /**
-     * Add a request to all connected clients queue
+     * Removes a {@link Connection} from the clients and servers connected
+     * @param connection the {@link Connection} closed
+     */
+    private void unregister(Connection connection) {
+        relays.remove(connection);
+        directs.remove(connection);
+        if (routes.remove(connection) && isLeader()) {
+            onControl(this::layoutRelayTree);
+        }
+    }
+
+    /**
+     * Forwards a request read by a {@link RequestRelayReader} as the bytes it was received as
+     * @param request the {@link RequestRelayed} to forward, released with its frame once forwarded
+     * @param sender the {@link Connection} the request was read on
+     */
+    private void relay(RequestRelayed request, Connection sender) {
+        try {
+            switch (request.getOpCode()) {
+                case MESSAGE -> broadcast(request.frame(), sender);
+                case PRIVATE_MESSAGE -> messagePrivate(request, sender);
+                case FILE_PRIVATE, FILE_OFFER, FILE_RESUME, FILE_BLOCK, FILE_DECLINED -> redirectFilePrivate(request, sender);
+                default -> throw new AssertionError("Unexpected relayed " + request.getOpCode());
+            }
+        } finally {
+            request.release();
+        }
+    }
+
+    /**
+     * Broadcasts every public message of a MESSAGE_BATCH received from another server, as if received alone
+     * @param batch the {@link RequestMessageBatch}, the frames of its messages are released once broadcast
+     * @param sender the {@link Connection} the batch was read on
+     */
+    private void unbatch(RequestMessageBatch batch, Connection sender) {
+        for (var message : batch.messages()) {
+            try {
+                broadcast(message, sender);
+            } finally {
+                message.release();
+            }
+        }
+    }
+
+    /**
+     * Add a frame to all connected clients queue
+     * <p>
+     * Every recipient writes the same {@link SharedFrame}, each with its own reference
      *
-     * @param request The request to broadcast to every client
+     * @param frame The frame to broadcast to every client, still owned by the caller
      */
-    private void broadcast(Request request, SelectionKey sender) {
-        clientConnected.keySet().stream().map(key -> (Context) key.attachment()).forEach(context -> context.queueRequest(request));
+    private void broadcast(SharedFrame frame, Connection sender) {
+        routes.clients().forEach(connection -> connection.send(frame.retain(), sender));
         if (isLeader()) {
-            serverConnected.keySet().stream().filter(s -> !s.equals(sender)).map(s -> (Context) s.attachment()).forEach(context -> context.queueRequest(request));
+            if (relays.isRoot()) {
+                relays.forward(frame, sender);
+            } else {
+                routes.servers().stream().filter(s -> !s.equals(sender)).forEach(connection -> connection.send(frame.retain(), sender));
+            }
             return;
         }
-
-        if (!sender.equals(leader.key)) {
-            leader.queueRequest(request);
+        // only the messages of the clients go up to the leader, the ones coming down the tree, even from a relay
+        // being left, have already been through it
+        if (routes.isClient(sender)) {
+            leader.send(frame.retain(), sender);
         }
+        relays.forward(frame, sender);
     }
 
     /**
      * Redirects a private message form the sender to a {@link main.java.client.ClientChatFusion}
-     * @param request the {@link Request} sent by the sender
+     * @param request the {@link RequestRelayed} private message sent by the sender
      * @param sender the sender of the private message
      */
-    private void messagePrivate(RequestMessagePrivate request, SelectionKey sender) {
-        String serverDst = request.serverDst().string();
-        String loginDst = request.loginDst().string();
-        SelectionKey key;
-        var optClient = clientConnected.entrySet().stream().filter(entry -> entry.getValue().equals(loginDst)).findFirst();
-        if (optClient.isPresent()) {
-            key = optClient.get().getKey();
-            ((Context) key.attachment()).queueRequest(request);
-        } else {
-            if (isLeader()) {
-                System.out.println(serverConnected.values());
-                var optServer = serverConnected.entrySet().stream().filter(entry -> entry.getValue().equals(serverDst)).findFirst();
-                System.out.println(serverDst);
-                if (optServer.isPresent()) {
-                    key = optServer.get().getKey();
-                    ((Context) key.attachment()).queueRequest(request);
-                }
-                return;
-            }
-            if (!sender.equals(leader.key)) {
-                leader.queueRequest(request);
-            }
-        }
+    private void messagePrivate(RequestRelayed request, Connection sender) {
+        route(request, sender);
     }
 
 
     /**
-     * Adds a {@link main.java.client.ClientChatFusion} to the clientConnected List
+     * Adds a {@link main.java.client.ClientChatFusion} to the routing table, unless its login is already taken
      * @param login the login of the new {@link main.java.client.ClientChatFusion}
-     * @param key the {@link SelectionKey} associated to the new {@link main.java.client.ClientChatFusion}
+     * @param client the {@link Connection} associated to the new {@link main.java.client.ClientChatFusion}
      */
-    public void addClient(String login, SelectionKey key) {
+    void addClient(String login, Connection client) {
         var refused = login.getBytes(StandardCharsets.UTF_8).length > 30;
-        var client = (Context) key.attachment();
         if (!refused) {
-            refused = (clientNameConnected.put(login, key) != null);
+            refused = !routes.addClient(login, client);
         }
 
         if (refused) {
             // send connection refused
-            client.queueRequest(RequestFactory.loginRefused());
+            client.send(RequestFactory.loginRefused());
             return;
         }
 
-        clientConnected.putIfAbsent(key, login);
+        client.metrics().name(login);
         logger.info("Client " + login + " connected");
         // send connection accept
-        client.queueRequest(RequestFactory.loginAccepted(serverName));
+        client.send(RequestFactory.loginAccepted(serverName));
+    }
+
+    /**
+     * Redirects the private file sent to its destination, a FILE_PRIVATE or a request of a resumable transfer
+     * @param requestMessageFilePrivate the {@link RequestRelayed} containing the private file
+     * @param sender the sender of the private file
+     */
+    private void redirectFilePrivate(RequestRelayed requestMessageFilePrivate, Connection sender) {
+        route(requestMessageFilePrivate, sender);
+    }
+
+    /**
+     * Sends a private request on the next hop to its recipient, see {@link #route(SharedFrame, String, String, boolean, Connection)}
+     *
+     * @param request the {@link RequestRelayed} private message or private file
+     * @param sender the {@link Connection} the request was read on
+     */
+    private void route(RequestRelayed request, Connection sender) {
+        route(request.frame(), request.serverDst().string(), request.loginDst().string(), request.getOpCode() == OpCode.FILE_OFFER, sender);
     }
 
     /**
-     * Redirects the private file sent to its destination
-     * @param requestMessageFilePrivate the {@link Request} containing the private file
+     * Sends a private frame on the next hop to its recipient, found with a single lookup in the routing table:
+     * the client itself if it is connected to this server, the member it is connected to if this server is the
+     * leader, the direct link with the member or the leader otherwise
+     * <p>
+     * The frame is ignored if its recipient or its server does not exist. A FILE_OFFER is answered with a
+     * FILE_DECLINED instead, as when its next hop did not announce {@link RequestFusionCapabilities#RESUME}: the
+     * sender then sends the file with FILE_PRIVATE. A direct link only joins members of this version, it is not checked
+     *
+     * @param frame the frame of the private message or private file, still owned by the caller
+     * @param serverDst the name of the server of the recipient
+     * @param loginDst the login of the recipient
+     * @param offer true if the frame is a FILE_OFFER
+     * @param sender the {@link Connection} the frame was read on, null for a frame of this server
      */
-    private void redirectFilePrivate(RequestMessageFilePrivate requestMessageFilePrivate) {
-        var serverDst = requestMessageFilePrivate.serverDst().string();
+    private void route(SharedFrame frame, String serverDst, String loginDst, boolean offer, Connection sender) {
+        Connection next;
         if (serverName.equals(serverDst)) {
-            var client = clientNameConnected.get(requestMessageFilePrivate.loginDst().string());
-            // Request ignored if the client doest exist
-            if (client != null) {
-                ((Context) client.attachment()).queueRequest(requestMessageFilePrivate);
+            next = routes.client(loginDst);
+            if (offer && (next == null || !next.supports(RequestFusionCapabilities.RESUME))) {
+                declineOffer(frame);
+            } else if (next != null) {
+                var held = frame.retain();
+                // a frame read on a direct link may have to wait for the ones sent before it through the leader
+                if (!directs.hold(sender, held, next)) {
+                    next.send(held, sender);
+                }
             }
             return;
         }
-
-
         if (isLeader()) {
-            var serverKey = this.serverNameConnected.get(serverDst);
-            // ignored if the server doest exist
-            if (serverKey != null) {
-                ((Context) serverKey.attachment()).queueRequest(requestMessageFilePrivate);
-            }
+            next = routes.server(serverDst);
+        } else if (leader.equals(sender)) {
+            next = null;
+        } else if (directs.send(serverDst, frame.retain(), sender)) {
             return;
+        } else {
+            next = leader;
         }
+        if (offer && (next == null || !next.supports(RequestFusionCapabilities.RESUME))) {
+            declineOffer(frame);
+        } else if (next != null) {
+            next.send(frame.retain(), sender);
+        }
+    }
 
-        this.leader.queueRequest(requestMessageFilePrivate);
+    /**
+     * Answers a FILE_OFFER which cannot reach its recipient resumably with a FILE_DECLINED, routed back to its sender
+     * @param offer the frame of the FILE_OFFER, still owned by the caller
+     */
+    private void declineOffer(SharedFrame offer) {
+        var view = offer.view();
+        view.get(); // the opcode
+        var reader = OpCode.FILE_OFFER.newRequestReader();
+        if (reader.process(view) != Reader.ProcessStatus.DONE) {
+            // the relay reader already checked the frame
+            return;
+        }
+        var request = (RequestFileOffer) reader.get();
+        var declined = SharedFrame.encode(RequestFactory.fileDeclined(request.serverDst().string(), request.loginDst().string(), request.serverSrc().string(), request.loginSrc().string(), request.filename().string()));
+        try {
+            route(declined, request.serverSrc().string(), request.loginSrc().string(), false, null);
+        } finally {
+            declined.release();
+        }
     }
 
     /**
      * Handles the FusionInit operation
      * @param requestFusionInit the {@link Request} containing the FusionInit
-     * @param keyServer the {@link SelectionKey} containing the {@link ServerChatFusion} initiating the merge
+     * @param keyServer the {@link Connection} with the {@link ServerChatFusion} initiating the merge
      * @throws IOException If an I/O error occurs
      */
-    private void handleFusionInit(RequestFusionInit requestFusionInit, SelectionKey keyServer) throws IOException {
+    private void handleFusionInit(RequestFusionInit requestFusionInit, Connection keyServer) throws IOException {
         var otherServerName = requestFusionInit.serverName().string();
         var otherServerAddress = requestFusionInit.address().address();
 
-        if (this.serverName.equals(otherServerName) || this.serverNameConnected.contains(otherServerName)) {
-            ((Context) keyServer.attachment()).queueRequest(RequestFactory.fusionInitKO());
+        if (this.serverName.equals(otherServerName) || routes.server(otherServerName) != null) {
+            keyServer.send(RequestFactory.fusionInitKO());
             return;
         }
 
         logger.info("Fusion accepted with: " + otherServerName + ":" + otherServerAddress + " :: " + requestFusionInit.nbMembers() + " :: " + requestFusionInit.names());
 
-        String[] names = this.serverNameConnected.keySet().stream().toList().toArray(new String[0]);
-        ((Context) keyServer.attachment()).queueRequest(RequestFactory.fusionInitOK(this.serverName, (InetSocketAddress) this.serverSocketChannel.getLocalAddress(), this.serverConnected.size(), names));
+        String[] names = routes.serverNames().toArray(new String[0]);
+        keyServer.send(RequestFactory.fusionInitOK(this.serverName, (InetSocketAddress) this.serverSocketChannel.getLocalAddress(), names.length, names));
 
-        updateLeader(otherServerName, otherServerAddress, keyServer);
+        updateLeader(otherServerName, otherServerAddress, keyServer, requestFusionInit.names());
     }
 
     /**
      * Handles the FusionInitRequest operation
      * @param requestFusionRequest the {@link Request} containing the FusionInitRequest
-     * @param serverKey the {@link SelectionKey} containing the {@link ServerChatFusion} asking the merge
+     * @param serverKey the {@link Connection} with the {@link ServerChatFusion} asking the merge
      */
-    private void handleFusionRequest(RequestFusionRequest requestFusionRequest, SelectionKey serverKey) {
+    private void handleFusionRequest(RequestFusionRequest requestFusionRequest, Connection serverKey) {
         if (this.fusionState == FusionState.PENDING_FUSION) {
-            ((Context) serverKey.attachment()).queueRequest(RequestFactory.fusionRequestRefused());
+            serverKey.send(RequestFactory.fusionRequestRefused());
             return;
         }
         var address = requestFusionRequest.address().address();
         var host = address.getHostName();
         var port = address.getPort();
-        this.stateController.sendCommand(host + " " + port, this.selector);
-        ((Context) serverKey.attachment()).queueRequest(RequestFactory.fusionRequestAccepted());
+        sendCommand(host + " " + port);
+        serverKey.send(RequestFactory.fusionRequestAccepted());
     }
 
     /**
@@ -422,26 +908,30 @@ public class ServerChatFusion {
      *
      * @param otherServerName    given sevrer
      * @param otherServerAddress address of the given server
-     * @param otherServerKey     SelectionKey of the otherServer
+     * @param otherServerKey     {@link Connection} with the otherServer
+     * @param otherMembers       members of the given server, they join this server with a FUSION_MERGE if it stays the leader
+     * @throws IOException If an I/O error occurs
      */
-    private void updateLeader(String otherServerName, InetSocketAddress otherServerAddress, SelectionKey otherServerKey) throws IOException {
+    private void updateLeader(String otherServerName, InetSocketAddress otherServerAddress, Connection otherServerKey, List<StringChatFusion> otherMembers) throws IOException {
         if (otherServerName.compareTo(serverName) < 0) {
-            var newLeader = (Context) otherServerKey.attachment();
-            leaderSocketChannel = actualConnectionSocketChannel;
-            setLeader(newLeader);
-            serverConnected.keySet().stream().map(key -> (Context) otherServerKey.attachment()).forEach(server -> server.queueRequest(RequestFactory.fusionChangeLeader(otherServerAddress)));
-            serverConnected.clear();
-            serverNameConnected.clear();
+            setLeader(otherServerKey);
+            routes.servers().forEach(server -> server.send(RequestFactory.fusionChangeLeader(otherServerAddress)));
+            routes.clearServers();
+            relays.clear();
             fusionState = FusionState.IDLE;
             System.out.println("We change leader to: " + otherServerName);
         } else {
-            serverConnected.put(otherServerKey, otherServerName);
-            serverNameConnected.put(otherServerName, otherServerKey);
+            routes.addServer(otherServerName, otherServerKey);
+            otherServerKey.metrics().name(otherServerName);
+            otherMembers.forEach(member -> memberAddList.add(member.string()));
+            if (memberAddList.isEmpty()) {
+                fusionState = FusionState.IDLE;
+            }
+            layoutRelayTree();
             System.out.println("We stay leader");
         }
+        announceCapabilities(otherServerKey);
 
-        actualConnectionSocketChannel = SocketChannel.open();
-        actualConnectionSocketChannel.configureBlocking(false);
         actualConnection = null;
     }
 
@@ -452,26 +942,10 @@ public class ServerChatFusion {
     private void handleForwardingFusion(RequestFusionInitFWD requestFusionInitFWD) throws IOException {
         var leaderAddress = requestFusionInitFWD.address().address();
 
-        updateConnection(actualConnectionSocketChannel, leaderAddress);
+        actualConnection = openLink(leaderAddress);
 
-        var key = actualConnectionSocketChannel.register(selector, SelectionKey.OP_CONNECT);
-        actualConnection = new Context(this, key);
-        key.attach(actualConnection);
-
-        String[] names = serverNameConnected.keySet().stream().toList().toArray(new String[0]);
-        actualConnection.queueRequest(RequestFactory.fusionInit(serverName, (InetSocketAddress) serverSocketChannel.getLocalAddress(), serverConnected.size(), names));
-    }
-
-    /**
-     * Updates the connection between the {@link ServerChatFusion} and the old connected {@link ServerChatFusion} connecting with the new one
-     * @param sc the {@link SocketChannel} of the new connected {@link ServerChatFusion}
-     * @param address the {@link InetSocketAddress} of the new connected {@link ServerChatFusion}
-     * @throws IOException IOException If an I/O error occurs
-     */
-    private void updateConnection(SocketChannel sc, InetSocketAddress address) throws IOException {
-        actualConnectionSocketChannel = SocketChannel.open();
-        actualConnectionSocketChannel.configureBlocking(false);
-        actualConnectionSocketChannel.connect(address);
+        String[] names = routes.serverNames().toArray(new String[0]);
+        actualConnection.send(RequestFactory.fusionInit(serverName, (InetSocketAddress) serverSocketChannel.getLocalAddress(), names.length, names));
     }
 
     /**
@@ -480,61 +954,436 @@ public class ServerChatFusion {
      * @throws IOException IOException If an I/O error occurs
      */
     private void handleChangeLeader(RequestFusionChangeLeader fusionChangeLeader) throws IOException {
-        updateConnection(leaderSocketChannel, fusionChangeLeader.address().address());
-
-        var key = leaderSocketChannel.register(selector, SelectionKey.OP_CONNECT);
-        leader = new Context(this, key);
-        key.attach(leader);
+        // the new leader places this server in its own tree
+        var relay = relays.clear();
+        if (relay != null) {
+            relay.silentlyClose();
+        }
+        directs.clear().forEach(Connection::silentlyClose);
+        leader = openLink(fusionChangeLeader.address().address());
+        leader.send(RequestFactory.fusionMerge(serverName));
+        announceCapabilities(leader);
+    }
 
-        leader.queueRequest(RequestFactory.fusionMerge(serverName));
+    /**
+     * Tells the server at the other end of an established link which extensions of the protocol this server supports
+     * @param link the {@link Connection} with the other server
+     */
+    private void announceCapabilities(Connection link) {
+        link.send(RequestFactory.fusionCapabilities(RequestFusionCapabilities.MESSAGE_BATCH | RequestFusionCapabilities.DEFLATE | RequestFusionCapabilities.RELAY | RequestFusionCapabilities.DIRECT | RequestFusionCapabilities.RESUME));
     }
 
     /**
-     * Handles the FusionMerge operation
-     * @param requestFusionMerge the {@link Request} containing the FusionMerge operation
-     * @param serverKey the {@link SelectionKey} containing the new {@link ServerChatFusion} to connect
+     * Offers this member as a relay of the broadcast tree, once its leader announced it lays one out
+     * @param link the {@link Connection} which announced {@link RequestFusionCapabilities#RELAY}
+     * @throws IOException If an I/O error occurs
      */
-    private void handleFusionMerge(RequestFusionMerge requestFusionMerge, SelectionKey serverKey) {
-        if (this.memberAddList.remove(requestFusionMerge.serverName().string())) {
-            this.serverConnected.put(serverKey, requestFusionMerge.serverName().string());
-            this.serverNameConnected.put(requestFusionMerge.serverName().string(), serverKey);
+    private void offerRelay(Connection link) throws IOException {
+        if (!isLeader() && link.equals(leader)) {
+            link.send(RequestFactory.relayAddress((InetSocketAddress) serverSocketChannel.getLocalAddress()));
         }
+    }
 
-        if (this.memberAddList.isEmpty()) {
-            this.fusionState = FusionState.IDLE;
+    /**
+     * Adds a member able to relay to the broadcast tree
+     * @param requestRelayAddress the {@link RequestRelayAddress} sent by the member
+     * @param link the {@link Connection} with the member
+     * @throws IOException If an I/O error occurs
+     */
+    private void handleRelayAddress(RequestRelayAddress requestRelayAddress, Connection link) throws IOException {
+        var name = routes.serverName(link);
+        if (!isLeader() || name == null) {
+            return;
         }
+        relays.addRelay(name, requestRelayAddress.address().address());
+        layoutRelayTree();
     }
 
     /**
-     * The different states of the server commands
+     * Places every member in the broadcast tree, then tells the members whose parent changed where to receive the
+     * public messages from, if this server is the leader
+     * @throws IOException If an I/O error occurs
      */
-    private enum State {
-        WORKING, STOP_ACCEPTING, SHUTDOWN
+    private void layoutRelayTree() throws IOException {
+        if (!isLeader()) {
+            return;
+        }
+        var address = (InetSocketAddress) serverSocketChannel.getLocalAddress();
+        for (var move : relays.layout(relayFanOut, routes.serverNames(), routes::server)) {
+            var link = routes.server(move.member());
+            if (link != null) {
+                link.send(RequestFactory.relayParent(move.parent(), move.parent().isEmpty() ? address : move.address()));
+            }
+        }
     }
 
     /**
-     * The different states of the fusion operation
+     * Receives the public messages from the relay given by the leader, or from the leader itself
+     * @param requestRelayParent the {@link RequestRelayParent} sent by the leader
+     * @param link the {@link Connection} the request was read on
+     * @throws IOException If an I/O error occurs
      */
-    private enum FusionState {
-        PENDING_FUSION, IDLE
+    private void handleRelayParent(RequestRelayParent requestRelayParent, Connection link) throws IOException {
+        var name = requestRelayParent.serverName().string();
+        if (isLeader() || !link.equals(leader) || name.equals(relays.parentName())) {
+            return;
+        }
+        Connection relay = null;
+        if (!name.isEmpty()) {
+            relay = openLink(requestRelayParent.address().address());
+            relay.send(RequestFactory.relayJoin(serverName));
+            announceCapabilities(relay);
+        }
+        // the link with the previous relay is replaced before being closed, it is not mistaken for the new one
+        var previous = relays.parent(relay, name);
+        if (previous != null) {
+            previous.silentlyClose();
+        }
+        logger.info(name.isEmpty() ? "Public messages received from the leader" : "Public messages received from the relay " + name);
     }
 
     /**
-     *  Class thread safe used to hold and give the commands made by a user.
-     *  It also allows to update state of the server within another thread.
+     * Writes the public messages to a member which joined this server as its relay, then reports the join to the
+     * leader. On the leader, stops writing to the member once its relay reported the join
+     * @param requestRelayJoin the {@link RequestRelayJoin} sent by the member, or reported by its relay
+     * @param link the {@link Connection} opened by the member, or the link with the relay
      */
-    private static class StateServerCommandController {
-        private final Object lock = new Object();
-        private final BlockingQueue<String> queue = new ArrayBlockingQueue<>(10);
-        private State state = State.WORKING;
-
-        /**
-         * Send instructions to the selector via a BlockingQueue and wake it up
-         */
-        public void sendCommand(String msg, Selector selector) {
-            synchronized (lock) {
-                queue.add(msg);
-                selector.wakeup();
+    private void handleRelayJoin(RequestRelayJoin requestRelayJoin, Connection link) {
+        var name = requestRelayJoin.serverName().string();
+        var relay = routes.serverName(link);
+        if (relay != null) {
+            if (isLeader() && relays.joined(name, relay)) {
+                logger.info("Public messages sent to " + name + " by the relay " + relay);
+            }
+            return;
+        }
+        link.metrics().name(name);
+        relays.addChild(link, requestRelayJoin.serverName());
+        announceCapabilities(link);
+        // sent after the child is added: the leader stops writing to the member once every message reaching this
+        // server is forwarded to it
+        var leader = this.leader;
+        if (!isLeader() && leader != null) {
+            leader.send(RequestFactory.relayJoin(name));
+        }
+    }
+
+    /**
+     * Sends the private frames to the other members on direct links, once the leader announced it supports them
+     * @param link the {@link Connection} which announced {@link RequestFusionCapabilities#DIRECT}
+     */
+    private void useDirectLinks(Connection link) {
+        if (!isLeader() && link.equals(leader)) {
+            directs.leader(link);
+        }
+    }
+
+    /**
+     * Gives a member the address of another member it wants to open a direct link with, if this server is the leader
+     * @param requestDirectLookup the {@link RequestDirectLookup} sent by the member
+     * @param link the {@link Connection} with the member
+     */
+    private void handleDirectLookup(RequestDirectLookup requestDirectLookup, Connection link) {
+        var name = requestDirectLookup.serverName().string();
+        var member = routes.server(name);
+        // the addresses are the ones announced for the broadcast tree
+        var address = relays.address(name);
+        if (isLeader() && member != null && !member.equals(link) && address != null) {
+            link.send(RequestFactory.directAddress(name, address));
+        }
+    }
+
+    /**
+     * Opens a direct link with another member, once the leader gave its address
+     * @param requestDirectAddress the {@link RequestDirectAddress} sent by the leader
+     * @param link the {@link Connection} the request was read on
+     * @throws IOException If an I/O error occurs
+     */
+    private void handleDirectAddress(RequestDirectAddress requestDirectAddress, Connection link) throws IOException {
+        var name = requestDirectAddress.serverName().string();
+        if (isLeader() || !link.equals(leader) || !directs.makeRoom(name)) {
+            return;
+        }
+        var direct = openLink(requestDirectAddress.address().address());
+        direct.metrics().name(name);
+        directs.add(name, direct);
+        logger.info("Private frames sent to " + name + " on a direct link");
+    }
+
+    /**
+     * Handles a DIRECT_JOIN: the leader forwards it to the member at the other end of the direct link, this member
+     * records the direct link if it is read on it, or delivers the frames held for it if it comes through the leader
+     * <p>
+     * It is handled by the thread reading the link, in the order of the private frames read on it
+     * @param requestDirectJoin the {@link RequestDirectJoin}
+     * @param link the {@link Connection} the request was read on
+     */
+    private void handleDirectJoin(RequestDirectJoin requestDirectJoin, Connection link) {
+        var serverSrc = requestDirectJoin.serverSrc().string();
+        var serverDst = requestDirectJoin.serverDst().string();
+        if (isLeader()) {
+            var member = routes.server(serverDst);
+            if (member != null && !member.equals(link)) {
+                member.send(requestDirectJoin);
+            }
+        } else if (serverName.equals(serverDst)) {
+            if (link.equals(leader)) {
+                directs.joined(serverSrc);
+            } else {
+                link.metrics().name(serverSrc);
+                directs.join(link, serverSrc);
+            }
+        }
+    }
+
+    /**
+     * Handles the FusionMerge operation
+     * @param requestFusionMerge the {@link Request} containing the FusionMerge operation
+     * @param serverKey the {@link Connection} with the new {@link ServerChatFusion} to connect
+     * @throws IOException If an I/O error occurs
+     */
+    private void handleFusionMerge(RequestFusionMerge requestFusionMerge, Connection serverKey) throws IOException {
+        if (this.memberAddList.remove(requestFusionMerge.serverName().string())) {
+            routes.addServer(requestFusionMerge.serverName().string(), serverKey);
+            serverKey.metrics().name(requestFusionMerge.serverName().string());
+            announceCapabilities(serverKey);
+            layoutRelayTree();
+        }
+
+        if (this.memberAddList.isEmpty()) {
+            this.fusionState = FusionState.IDLE;
+        }
+    }
+
+    /**
+     * Handle the {@link Request} read on a {@link Connection} and act consequently, whatever the engine serving it
+     * @param request The {@link Request} to handle
+     * @param connection The {@link Connection} the request was read on
+     */
+    private void handleRequest(Request request, Connection connection) {
+        switch (request) {
+            case RequestLoginAnonymous requestLoginAnonymous ->
+                    addClient(requestLoginAnonymous.login().string(), connection);
+
+            case RequestLoginPassword requestLoginPassword ->
+                    addClient(requestLoginPassword.login().string(), connection);
+
+            case RequestRelayed requestRelayed -> relay(requestRelayed, connection);
+
+            case RequestMessageBatch requestMessageBatch -> unbatch(requestMessageBatch, connection);
+
+            case RequestFusionCapabilities requestFusionCapabilities -> {
+                if (routes.isClient(connection)) {
+                    // a client only takes part in the resumable transfers, it is told whether this server does
+                    connection.peerCapabilities(new RequestFusionCapabilities(requestFusionCapabilities.capabilities() & RequestFusionCapabilities.RESUME));
+                    connection.send(RequestFactory.fusionCapabilities(RequestFusionCapabilities.RESUME));
+                    break;
+                }
+                connection.peerCapabilities(requestFusionCapabilities);
+                if (requestFusionCapabilities.supports(RequestFusionCapabilities.RELAY)) {
+                    onControl(() -> offerRelay(connection));
+                }
+                if (requestFusionCapabilities.supports(RequestFusionCapabilities.DIRECT)) {
+                    onControl(() -> useDirectLinks(connection));
+                }
+            }
+
+            case RequestFusionDeflate ignored -> connection.startInflating();
+
+            case RequestRelayAddress requestRelayAddress ->
+                    onControl(() -> handleRelayAddress(requestRelayAddress, connection));
+
+            case RequestRelayParent requestRelayParent ->
+                    onControl(() -> handleRelayParent(requestRelayParent, connection));
+
+            case RequestRelayJoin requestRelayJoin -> handleRelayJoin(requestRelayJoin, connection);
+
+            case RequestDirectLookup requestDirectLookup ->
+                    onControl(() -> handleDirectLookup(requestDirectLookup, connection));
+
+            case RequestDirectAddress requestDirectAddress ->
+                    onControl(() -> handleDirectAddress(requestDirectAddress, connection));
+
+            case RequestDirectJoin requestDirectJoin -> handleDirectJoin(requestDirectJoin, connection);
+
+            case RequestFusionInit requestFusionInit ->
+                    onControl(() -> handleFusionInit(requestFusionInit, connection));
+
+            case RequestFusionInitKO ignored -> onControl(() -> {
+                logger.info("Fusion denied !");
+                fusionState = FusionState.IDLE;
+            });
+
+            case RequestFusionInitOK requestFusionInitOK -> onControl(() -> {
+                logger.info("Fusions Init OK From: " + requestFusionInitOK.serverName().string() + ":" + requestFusionInitOK.address().address() + " :: " + requestFusionInitOK.nbMembers() + " :: " + requestFusionInitOK.names());
+                updateLeader(requestFusionInitOK.serverName().string(), requestFusionInitOK.address().address(), connection, requestFusionInitOK.names());
+            });
+
+            case RequestFusionRequest requestFusionRequest ->
+                    onControl(() -> handleFusionRequest(requestFusionRequest, connection));
+
+            case RequestFusionInitFWD requestFusionInitFWD ->
+                    onControl(() -> handleForwardingFusion(requestFusionInitFWD));
+
+            case RequestFusionRequestResponse requestFusionRequestResponse -> {
+                if (requestFusionRequestResponse.status() == 0)
+                    System.out.println("Fusion has been refused by the leader");
+                else System.out.println("Fusion has been accepted by the leader");
+            }
+
+            case RequestFusionChangeLeader fusionChangeLeader ->
+                    onControl(() -> handleChangeLeader(fusionChangeLeader));
+
+            case RequestFusionMerge requestFusionMerge ->
+                    onControl(() -> handleFusionMerge(requestFusionMerge, connection));
+
+            default -> { // Unsupported request, we end the connection with the client
+                logger.severe("Unsupported request:" + request);
+                connection.silentlyClose();
+            }
+        }
+    }
+
+    /**
+     * Runs a fusion operation on the control thread, the only thread allowed to touch the fusion state
+     * @param task the fusion operation
+     */
+    private void onControl(FusionTask task) {
+        controlExecutor.execute(() -> {
+            try {
+                task.run();
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Fusion operation failed due to IOException", e);
+            }
+        });
+    }
+
+    /**
+     * A fusion operation, which may fail while opening a connection to another server
+     */
+    @FunctionalInterface
+    private interface FusionTask {
+        void run() throws IOException;
+    }
+
+    /**
+     * The engines able to serve the connections of a {@link ServerChatFusion}
+     */
+    public enum Engine {
+        /**
+         * Non-blocking connections multiplexed by one control selector and optional worker selectors
+         */
+        REACTOR,
+        /**
+         * Blocking connections, each one served by its own (virtual when available) threads
+         */
+        THREAD_PER_CONNECTION
+    }
+
+    /**
+     * A connection with a client or another server, whatever the engine serving it
+     */
+    public interface Connection {
+        /**
+         * Queues a request to send on the connection, callable from any thread
+         * @param request the request to send
+         */
+        default void send(Request request) {
+            send(SharedFrame.encode(request));
+        }
+
+        /**
+         * Queues an encoded frame to send on the connection, callable from any thread
+         * @param frame the frame to send, the reference given is released by the connection once the frame is written
+         */
+        void send(SharedFrame frame);
+
+        /**
+         * Queues a frame forwarded on behalf of another connection, callable from any thread
+         * @param frame the frame to send, the reference given is released by the connection once the frame is written
+         * @param sender the connection the frame was read on, which may be pushed back if this one cannot keep up
+         */
+        default void send(SharedFrame frame, Connection sender) {
+            send(frame);
+        }
+
+        /**
+         * Stops reading the connection until a matching {@link #resumeReading()}, callable from any thread
+         */
+        default void pauseReading() {
+        }
+
+        /**
+         * Resumes reading the connection once every {@link #pauseReading()} has been matched, callable from any thread
+         */
+        default void resumeReading() {
+        }
+
+        /**
+         * Gets the traffic of the connection
+         * @return the {@link ConnectionMetrics} of the connection
+         */
+        ConnectionMetrics metrics();
+
+        /**
+         * Records the extensions of the protocol supported by the server at the other end of this link
+         * @param capabilities the {@link RequestFusionCapabilities} received on the link
+         */
+        default void peerCapabilities(RequestFusionCapabilities capabilities) {
+        }
+
+        /**
+         * Tells if the client or the server at the other end of this link announced the given extension, callable from
+         * any thread
+         * @param capability the bit of the extension, see {@link RequestFusionCapabilities}
+         * @return true if the extension was announced
+         */
+        default boolean supports(int capability) {
+            return false;
+        }
+
+        /**
+         * Decompresses every byte read on the connection after the FUSION_DEFLATE being handled,
+         * called by the thread reading the connection
+         */
+        void startInflating();
+
+        /**
+         * Closes the connection
+         */
+        void silentlyClose();
+    }
+
+    /**
+     * The different states of the server commands
+     */
+    private enum State {
+        WORKING, STOP_ACCEPTING, SHUTDOWN
+    }
+
+    /**
+     * The different states of the fusion operation
+     */
+    private enum FusionState {
+        PENDING_FUSION, IDLE
+    }
+
+    /**
+     *  Class thread safe used to hold and give the commands made by a user.
+     *  It also allows to update state of the server within another thread.
+     */
+    private static class StateServerCommandController {
+        private final Object lock = new Object();
+        private final BlockingQueue<String> queue = new ArrayBlockingQueue<>(10);
+        private State state = State.WORKING;
+
+        /**
+         * Send instructions to the selector via a BlockingQueue and wake it up
+         */
+        public void sendCommand(String msg, Selector selector) {
+            synchronized (lock) {
+                queue.add(msg);
+                selector.wakeup();
             }
         }
 
@@ -571,22 +1420,270 @@ public class ServerChatFusion {
         }
     }
 
-    static private class Context {
+    /**
+     * A selector thread owning a set of {@link Context}.
+     * <p>
+     * Every other thread talks to the contexts of a reactor through its mailbox, the reactor
+     * runs the queued tasks after each select. The timeouts of the contexts are scheduled in the
+     * {@link TimerWheel} of their reactor, which wakes up at least once a tick to expire them.
+     */
+    private static class Reactor {
+        private final ServerChatFusion server;
+        private final Selector selector;
+        private final ConcurrentLinkedQueue<Runnable> mailbox = new ConcurrentLinkedQueue<>();
+        private final TimerWheel timers;
+        // The contexts with a MESSAGE_BATCH being filled, by deadline, a context flushed early leaves a stale entry.
+        // The BATCH command may lower the delay, a batch started afterwards is due before the ones started earlier
+        private final PriorityQueue<PendingBatch> pendingBatches = new PriorityQueue<>(Comparator.comparingLong(PendingBatch::deadline));
+        private volatile Thread thread;
+        // The time of the last wake up, read by the contexts instead of the clock
+        private long now = System.currentTimeMillis();
+
+        private Reactor(ServerChatFusion server) throws IOException {
+            this.server = server;
+            this.selector = Selector.open();
+            this.timers = new TimerWheel(TICK, TICKS_PER_WHEEL, now);
+        }
+
+        /**
+         * Runs the task on the reactor thread, directly if the caller already is the reactor thread
+         * @param task the task to run
+         */
+        public void execute(Runnable task) {
+            if (Thread.currentThread() == thread) {
+                task.run();
+                return;
+            }
+            mailbox.add(task);
+            selector.wakeup();
+        }
+
+        /**
+         * Registers an accepted {@link SocketChannel} on this reactor and attaches its {@link Context}
+         * @param sc the accepted {@link SocketChannel}, in non-blocking mode
+         */
+        public void register(SocketChannel sc) {
+            execute(() -> {
+                try {
+                    var key = sc.register(selector, SelectionKey.OP_READ);
+                    var context = new Context(server, this, key);
+                    key.attach(context);
+                    context.expectLogin();
+                } catch (ClosedChannelException e) {
+                    logger.info("Connection closed before its registration");
+                }
+            });
+        }
+
+        /**
+         * Makes the calling thread the owner of this reactor
+         */
+        private void bindToCurrentThread() {
+            thread = Thread.currentThread();
+        }
+
+        /**
+         * Loops on the selector until the server shuts down
+         * @throws IOException If an I/O error occurs
+         */
+        private void run() throws IOException {
+            bindToCurrentThread();
+            while (!Thread.interrupted() && server.stateController.getState() != State.SHUTDOWN) {
+                try {
+                    runOnce();
+                } catch (UncheckedIOException tunneled) {
+                    throw tunneled.getCause();
+                }
+            }
+            closeAll();
+        }
+
+        /**
+         * Selects once, then runs the tasks of the mailbox and the expired timeouts
+         * @throws IOException If an I/O error occurs
+         */
+        private void runOnce() throws IOException {
+            var timeout = timers.delayToNextTick(now);
+            if (!pendingBatches.isEmpty()) {
+                timeout = Math.max(1, Math.min(timeout, pendingBatches.peek().deadline() - now));
+            }
+            selector.select(server::treatKey, timeout);
+            now = System.currentTimeMillis();
+            Runnable task;
+            while ((task = mailbox.poll()) != null) {
+                task.run();
+            }
+            timers.advance(now);
+            flushBatches();
+        }
+
+        /**
+         * Remembers to send the batch a context started filling, once its deadline has passed
+         * @param context the {@link Context} filling a batch
+         * @param deadline the time its batch must be sent at the latest
+         */
+        private void scheduleBatch(Context context, long deadline) {
+            pendingBatches.add(new PendingBatch(context, deadline));
+        }
+
+        /**
+         * Sends the batches whose deadline has passed
+         */
+        private void flushBatches() {
+            PendingBatch pending;
+            while ((pending = pendingBatches.peek()) != null && pending.deadline() <= now) {
+                pendingBatches.poll();
+                pending.context().flushBatch(pending.deadline());
+            }
+        }
+
+        /**
+         * Closes every connection of this reactor
+         */
+        private void closeAll() {
+            selector.keys().forEach(server::silentlyClose);
+        }
+    }
+
+    /**
+     * A batch being filled by a context, to send before its deadline
+     */
+    private record PendingBatch(Context context, long deadline) {
+    }
+
+    static private class Context implements Connection {
         private final SelectionKey key;
         private final SocketChannel sc;
-        private final ByteBuffer bufferIn = ByteBuffer.allocate(BUFFER_SIZE);
-        private final ByteBuffer bufferOut = ByteBuffer.allocate(BUFFER_SIZE);
-        private final ArrayDeque<Request> requestQueue = new ArrayDeque<>();
+        private final OutboundQueue requestQueue;
+        // The senders stopped because requestQueue is full, resumed once it drains
+        private final Set<Connection> pushedBackSenders = new HashSet<>();
+        // The frames being written by gathering writes, from gatheredStart (included) to gatheredEnd (excluded)
+        private final SharedFrame[] gatheredFrames = new SharedFrame[MAX_GATHERED_FRAMES];
+        private final ByteBuffer[] gatheredViews = new ByteBuffer[MAX_GATHERED_FRAMES];
+        private int gatheredStart;
+        private int gatheredEnd;
         private final ServerChatFusion server; // we could also have Context as an instance class
+        private final Reactor reactor;
         private ReadingState readingState = ReadingState.WAITING_FOR_REQUEST;
-        private boolean activeSinceLastTimeoutCheck = true;
+        private long lastActivity;
+        // Closes the connection if it does not log in, or is not established, in time
+        private TimerWheel.Timeout handshakeTimeout;
+        private TimerWheel.Timeout idleTimeout;
+        // A logged in client or a link with another server
+        private boolean identified;
+        // Links with other servers are never idle, the protocol has no keep-alive
+        private boolean serverLink;
         private boolean closed = false;
+        private final ReaderSet readers = new ReaderSet();
         private Reader<Request> requestReader;
-
-        private Context(ServerChatFusion server, SelectionKey key) {
+        // Leased from the pool of the server while bytes are in flight, null when the connection is idle
+        private ByteBuffer bufferIn;
+        // The number of full queues this connection is pushed back by, it is read only at 0
+        private int readPauses;
+        // The server at the other end of this link unpacks MESSAGE_BATCH frames
+        private boolean batching;
+        // The extensions announced by the other end, read by the threads routing a request to this connection
+        private volatile int capabilities;
+        // The MESSAGE_BATCH being filled with public messages, null if none, sent before batchDeadline
+        private ByteBuffer batch;
+        private long batchDeadline;
+        private Connection batchSender;
+        // The compression level negotiated for the frames written on this link, 0 if they are not compressed
+        private int deflateLevel;
+        // The FUSION_DEFLATE is gathered: no frame is gathered after it until it is written and deflater created
+        private boolean deflateStarting;
+        // Compresses the frames written after the FUSION_DEFLATE, null before
+        private LinkDeflater deflater;
+        // Decompresses the bytes read after the FUSION_DEFLATE of the other server, null before
+        private LinkInflater inflater;
+        private final ConnectionMetrics metrics;
+
+        private Context(ServerChatFusion server, Reactor reactor, SelectionKey key) {
             this.key = key;
             this.sc = (SocketChannel) key.channel();
             this.server = server;
+            this.reactor = reactor;
+            this.requestQueue = new OutboundQueue(server.outboundBudget, server.overflowPolicy, QUEUE_LIMIT, QUEUE_GRACE);
+            this.lastActivity = reactor.now;
+            this.metrics = server.metrics.open(Helpers.remoteAddressToString(sc), requestQueue::size);
+        }
+
+        /**
+         * Starts the timeouts of an accepted connection: it must log in or start a fusion before LOGIN_TIMEOUT,
+         * and a client is closed once inactive for IDLE_TIMEOUT
+         */
+        private void expectLogin() {
+            handshakeTimeout = reactor.timers.schedule(LOGIN_TIMEOUT, () -> expire("no login"));
+            idleTimeout = reactor.timers.schedule(IDLE_TIMEOUT, this::checkIdle);
+        }
+
+        /**
+         * Starts the timeout of a link opened with another server, which must be established before CONNECT_TIMEOUT
+         */
+        private void expectConnection() {
+            identified = true;
+            serverLink = true;
+            handshakeTimeout = reactor.timers.schedule(CONNECT_TIMEOUT, () -> expire("connection not established"));
+        }
+
+        /**
+         * Marks the connection as identified once it has logged in or sent a fusion request. Any other frame leaves
+         * the connection to its handshake timeout
+         * @param request the {@link Request} just handled
+         */
+        private void identify(Request request) {
+            if (request instanceof RequestLoginAnonymous || request instanceof RequestLoginPassword) {
+                identified = server.routes.isClient(this);
+            } else if (opensServerLink(request.getOpCode())) {
+                identified = true;
+                serverLink = true;
+            }
+            if (identified) {
+                handshakeTimeout.cancel();
+            }
+        }
+
+        /**
+         * Tells if a frame is one a server sends first on a link it opens with this one
+         * @param opCode the {@link OpCode} of the frame
+         * @return true for the fusion handshakes and the joins of a relay or of a direct link
+         */
+        private static boolean opensServerLink(OpCode opCode) {
+            return switch (opCode) {
+                case FUSION_INIT, FUSION_REQUEST, FUSION_MERGE, RELAY_JOIN, DIRECT_JOIN -> true;
+                default -> false;
+            };
+        }
+
+        /**
+         * Closes the client if it has been inactive for IDLE_TIMEOUT, checks it again later otherwise.
+         * The activity is only recorded by the reads and writes, the check runs once per IDLE_TIMEOUT at most
+         */
+        private void checkIdle() {
+            if (closed || serverLink) {
+                return;
+            }
+            var idle = reactor.now - lastActivity;
+            if (readPauses > 0) {
+                // a pushed back connection is not read on purpose
+                idleTimeout = reactor.timers.schedule(IDLE_TIMEOUT, this::checkIdle);
+            } else if (idle >= IDLE_TIMEOUT) {
+                expire("inactive for " + idle / 1000 + " seconds");
+            } else {
+                idleTimeout = reactor.timers.schedule(IDLE_TIMEOUT - idle, this::checkIdle);
+            }
+        }
+
+        /**
+         * Closes the connection when one of its timeouts expires
+         * @param reason the reason logged
+         */
+        private void expire(String reason) {
+            if (closed) {
+                return;
+            }
+            logger.info("Closing connection " + Helpers.remoteAddressToString(sc) + ": " + reason);
+            server.silentlyClose(key);
         }
 
 
@@ -594,45 +1691,58 @@ public class ServerChatFusion {
          * Process the content of bufferIn
          * <p>
          * The convention is that bufferIn is in write-mode before the call to process and
-         * after the call
+         * after the call, the readers work on it in read-mode and it is compacted once at the end
          */
         private void processIn() throws IOException {
-            while (bufferIn.position() != 0) {
-                if (readingState == ReadingState.WAITING_FOR_REQUEST) {
-                    byteOpCodeReader();
-                }
-
-                // Read the request
-                var status = requestReader.process(bufferIn);
-                switch (status) {
-                    case DONE -> {
-                        Request request = requestReader.get();
-                        requestHandler(request);
-                        readingState = ReadingState.WAITING_FOR_REQUEST;
-                    }
-                    case REFILL -> {
+            bufferIn.flip();
+            try {
+                while (!closed && bufferIn.hasRemaining()) {
+                    if (readingState == ReadingState.WAITING_FOR_REQUEST) {
+                        byteOpCodeReader();
+                        if (closed) {
+                            return;
+                        }
                     }
-                    case ERROR -> {
-                        silentlyClose();
-                        readingState = ReadingState.WAITING_FOR_REQUEST;
-                        logger.severe("Error reading, closing connection");
+
+                    // Read the request
+                    var status = requestReader.process(bufferIn);
+                    switch (status) {
+                        case DONE -> {
+                            Request request = requestReader.get();
+                            var start = System.nanoTime();
+                            requestHandler(request);
+                            metrics.handled(request.getOpCode(), System.nanoTime() - start);
+                            readingState = ReadingState.WAITING_FOR_REQUEST;
+                        }
+                        case REFILL -> {
+                        }
+                        case ERROR -> {
+                            metrics.decodeError();
+                            silentlyClose();
+                            readingState = ReadingState.WAITING_FOR_REQUEST;
+                            logger.severe("Error reading, closing connection");
+                        }
                     }
                 }
+            } finally {
+                // a request closing the connection gives bufferIn back to the pool
+                if (bufferIn != null) {
+                    bufferIn.compact();
+                }
             }
         }
 
         /**
-         * Reads the OpCode containing in the {@link ByteBuffer} bufferIn
+         * Reads the OpCode containing in the {@link ByteBuffer} bufferIn, in read-mode
          */
         private void byteOpCodeReader() {
-            bufferIn.flip();
             var optionalOpCode = OpCode.getOpCodeFromByte(bufferIn.get());
-            bufferIn.compact();
             if (optionalOpCode.isPresent()) {
-                requestReader = optionalOpCode.get().getRequestReader();
+                requestReader = readers.relayReader(optionalOpCode.get());
                 readingState = ReadingState.READING_REQUEST;
             } else {
                 // Close the connection if it sent a wrong OpCode
+                metrics.decodeError();
                 silentlyClose();
                 logger.severe("Wrong opCode were read, closing connection");
             }
@@ -641,114 +1751,275 @@ public class ServerChatFusion {
         /**
          * Handle the {@link Request} to read its content and act consequently
          * @param request The {@link Request} to handle
-         * @throws IOException
          */
-        private void requestHandler(Request request) throws IOException {
-            switch (request) {
-                case RequestLoginAnonymous requestLoginAnonymous ->
-                        server.addClient(requestLoginAnonymous.login().string(), key);
+        private void requestHandler(Request request) {
+            server.handleRequest(request, this);
+            if (!identified) {
+                identify(request);
+            }
+        }
 
-                case RequestLoginPassword requestLoginPassword ->
-                        server.addClient(requestLoginPassword.login().string(), key);
+        /**
+         * Add a request to the request queue, schedules it for writing and updateInterestOps
+         *
+         * @param request request containing the opcode of the request and a buffer with the request's content
+         */
+        public void queueRequest(Request request) {
+            queueFrame(SharedFrame.encode(request), null);
+        }
 
-                case RequestMessagePublic requestMessagePublic -> server.broadcast(requestMessagePublic, key);
+        /**
+         * Add an encoded frame to the request queue, schedules it for writing and updateInterestOps
+         * <p>
+         * If the queue is full, its policy may drop the frame, close this connection or push the sender back
+         *
+         * @param frame the frame to send, released once completely written
+         * @param sender the connection the frame was read on, null if the server sends it on its own
+         */
+        private void queueFrame(SharedFrame frame, Connection sender) {
+            if (batching && frame.opCode() == OpCode.MESSAGE && batchFrame(frame, sender)) {
+                return;
+            }
+            // the batch goes first, the frames are sent in the order they were queued
+            flushBatch();
+            offerFrame(frame, sender);
+        }
 
-                case RequestMessagePrivate requestMessagePrivate -> server.messagePrivate(requestMessagePrivate, key);
+        /**
+         * Adds a frame to the request queue, then schedules it for writing
+         * @param frame the frame to send, released once completely written
+         * @param sender the connection the frame was read on, null if the server sends it on its own
+         */
+        private void offerFrame(SharedFrame frame, Connection sender) {
+            switch (requestQueue.offer(frame)) {
+                case QUEUED, DROPPED -> {
+                }
+                case DISCONNECT -> {
+                    logger.warning("Outbound queue full for too long, closing connection");
+                    silentlyClose();
+                    return;
+                }
+                case PUSH_BACK -> {
+                    if (sender != null && sender != this && pushedBackSenders.add(sender)) {
+                        server.outboundBudget.countPushBack();
+                        sender.pauseReading();
+                    }
+                }
+            }
+            processOut();
+            updateInterestOps();
+        }
 
-                case RequestMessageFilePrivate requestMessageFilePrivate ->
-                        server.redirectFilePrivate(requestMessageFilePrivate);
+        /**
+         * Copies a public message at the end of the batch being filled, starting a new batch if needed
+         * @param frame the MESSAGE frame, released once copied
+         * @param sender the connection the frame was read on, pushed back if the batch does not fit in the queue
+         * @return false if the message is sent alone, because batching is disabled or the message is too big
+         */
+        private boolean batchFrame(SharedFrame frame, Connection sender) {
+            var maxBytes = server.batchMaxBytes;
+            if (frame.length() > maxBytes - RequestMessageBatch.HEADER_SIZE) {
+                return false;
+            }
+            if (batch != null && batch.remaining() < frame.length()) {
+                flushBatch();
+            }
+            if (batch == null) {
+                batch = SharedFrame.lease(maxBytes);
+                batch.limit(maxBytes);
+                batch.put(OpCode.MESSAGE_BATCH.getOpCode()).putInt(0);
+                batchDeadline = reactor.now + server.batchMaxDelay;
+                reactor.scheduleBatch(this, batchDeadline);
+            }
+            batch.put(frame.view());
+            batchSender = sender;
+            frame.release();
+            return true;
+        }
 
-                case RequestFusionInit requestFusionInit -> server.handleFusionInit(requestFusionInit, key);
+        /**
+         * Sends the batch being filled if it was started for the given deadline, a batch sent early is not sent twice
+         * @param deadline the deadline of the batch to send
+         */
+        private void flushBatch(long deadline) {
+            if (batch != null && batchDeadline == deadline) {
+                flushBatch();
+            }
+        }
 
-                case RequestFusionInitKO ignored -> {
-                    logger.info("Fusion denied !");
-                    server.fusionState = FusionState.IDLE;
-                }
+        /**
+         * Queues the batch being filled, if any
+         */
+        private void flushBatch() {
+            if (batch == null || closed) {
+                return;
+            }
+            batch.putInt(1, batch.position() - RequestMessageBatch.HEADER_SIZE).flip();
+            var frame = SharedFrame.wrap(OpCode.MESSAGE_BATCH, batch);
+            var sender = batchSender;
+            batch = null;
+            batchSender = null;
+            offerFrame(frame, sender);
+        }
 
-                case RequestFusionInitOK requestFusionInitOK -> {
-                    logger.info("Fusions Init OK From: " + requestFusionInitOK.serverName().string() + ":" + requestFusionInitOK.address().address() + " :: " + requestFusionInitOK.nbMembers() + " :: " + requestFusionInitOK.names());
-                    server.updateLeader(requestFusionInitOK.serverName().string(), requestFusionInitOK.address().address(), key);
+        /**
+         * Queues a frame from any thread, the frame is handed to the reactor owning this {@link Context}
+         * when the caller runs on another one
+         *
+         * @param frame the frame to send
+         */
+        @Override
+        public void send(SharedFrame frame) {
+            send(frame, null);
+        }
+
+        @Override
+        public void send(SharedFrame frame, Connection sender) {
+            reactor.execute(() -> {
+                if (key.isValid()) {
+                    queueFrame(frame, sender);
+                } else {
+                    frame.release();
                 }
+            });
+        }
 
-                case RequestFusionRequest requestFusionRequest -> server.handleFusionRequest(requestFusionRequest, key);
+        @Override
+        public void pauseReading() {
+            reactor.execute(() -> {
+                readPauses++;
+                updateInterestOps();
+            });
+        }
 
-                case RequestFusionInitFWD requestFusionInitFWD -> server.handleForwardingFusion(requestFusionInitFWD);
+        @Override
+        public void resumeReading() {
+            reactor.execute(() -> {
+                readPauses--;
+                updateInterestOps();
+            });
+        }
 
-                case RequestFusionRequestResponse requestFusionRequestResponse -> {
-                    if (requestFusionRequestResponse.status() == 0)
-                        System.out.println("Fusion has been refused by the leader");
-                    else System.out.println("Fusion has been accepted by the leader");
-                }
+        @Override
+        public ConnectionMetrics metrics() {
+            return metrics;
+        }
 
-                case RequestFusionChangeLeader fusionChangeLeader -> server.handleChangeLeader(fusionChangeLeader);
+        @Override
+        public boolean supports(int capability) {
+            return (capabilities & capability) != 0;
+        }
 
-                case RequestFusionMerge requestFusionMerge -> {
-                    server.handleFusionMerge(requestFusionMerge, key);
+        @Override
+        public void peerCapabilities(RequestFusionCapabilities capabilities) {
+            this.capabilities = capabilities.capabilities();
+            reactor.execute(() -> {
+                batching = capabilities.supports(RequestFusionCapabilities.MESSAGE_BATCH);
+                var level = server.deflateLevel;
+                if (capabilities.supports(RequestFusionCapabilities.DEFLATE) && level != 0 && deflateLevel == 0 && !closed) {
+                    deflateLevel = level;
+                    queueFrame(SharedFrame.encode(RequestFactory.fusionDeflate()), null);
                 }
+            });
+        }
 
-                default -> { // Unsupported request, we end the connection with the client
-                    logger.severe("Unsupported request:" + request);
-                    silentlyClose();
-                }
+        @Override
+        public void startInflating() {
+            if (inflater != null) {
+                metrics.decodeError();
+                silentlyClose();
+                logger.severe("FUSION_DEFLATE received twice, closing connection");
+                return;
             }
+            inflater = new LinkInflater(bufferIn.capacity(), metrics);
+            inflater.feed(bufferIn);
         }
 
         /**
-         * Add a request to the request queue, tries to fill bufferOut and updateInterestOps
+         * Decompresses the bytes read on a compressed link into bufferIn and processes them, until every byte
+         * read has been decompressed
+         * <p>
+         * The convention is that bufferIn is in write-mode before the call to inflateIn and after the call
          *
-         * @param request request containing the opcode of the request and a buffer with the request's content
+         * @throws IOException If the bytes read are not a valid DEFLATE stream
          */
-        public void queueRequest(Request request) {
-            requestQueue.add(request);
-            processOut();
-            updateInterestOps();
+        private void inflateIn() throws IOException {
+            while (!closed && inflater.inflate(bufferIn) != 0) {
+                processIn();
+            }
         }
 
         /**
-         * Try to fill bufferOut from the message queue
+         * Resumes the senders pushed back by this connection
          */
-        private void processOut() {
-            while (!requestQueue.isEmpty()) {
-                if (bufferOut.remaining() < requestQueue.peek().bufferLength()) {
-                    return;
-                }
+        private void resumePushedBackSenders() {
+            pushedBackSenders.forEach(Connection::resumeReading);
+            pushedBackSenders.clear();
+        }
 
-                var request = requestQueue.poll();
+        /**
+         * Moves the frames of the message queue to the frames written by the next gathering write
+         */
+        private void processOut() {
+            if (gatheredStart == gatheredEnd) {
+                gatheredStart = 0;
+                gatheredEnd = 0;
+            } else if (gatheredStart != 0) {
+                // make room at the end, the written frames at the front are already released
+                var count = gatheredEnd - gatheredStart;
+                System.arraycopy(gatheredFrames, gatheredStart, gatheredFrames, 0, count);
+                System.arraycopy(gatheredViews, gatheredStart, gatheredViews, 0, count);
+                Arrays.fill(gatheredFrames, count, gatheredEnd, null);
+                Arrays.fill(gatheredViews, count, gatheredEnd, null);
+                gatheredStart = 0;
+                gatheredEnd = count;
+            }
+            // each queued frame is looked at once, so that a dismissed one cannot make this loop spin
+            for (var queued = requestQueue.size(); queued > 0 && gatheredEnd < MAX_GATHERED_FRAMES && !deflateStarting; queued--) {
+                var frame = requestQueue.poll();
                 // If there is a fusion request while the server is pending a fusion,
                 // then it's dismissed waiting for the current fusion to finish by putting
                 // the request to the last request of the queue
-                switch (request) {
-                    case RequestFusionInit ignored && server.fusionState == FusionState.PENDING_FUSION ->
-                            requestQueue.add(request);
-
-                    default -> bufferOut.put(request.encode());
+                if (frame.opCode() == OpCode.FUSION_INIT && server.fusionState == FusionState.PENDING_FUSION) {
+                    requestQueue.requeue(frame);
+                } else {
+                    gatheredFrames[gatheredEnd] = frame;
+                    gatheredViews[gatheredEnd] = frame.view();
+                    gatheredEnd++;
+                    // the frames following it are compressed, they wait until it is written as is
+                    deflateStarting = frame.opCode() == OpCode.FUSION_DEFLATE;
                 }
             }
         }
 
         /**
          * Update the interestOps of the key looking only at values of the boolean
-         * closed and of both ByteBuffers.
+         * closed, of bufferIn and of the frames waiting to be written.
          * <p>
-         * The convention is that both buffers are in write-mode before the call to
+         * The convention is that bufferIn is in write-mode before the call to
          * updateInterestOps and after the call. Also it is assumed that process has
          * been be called just before updateInterestOps.
          */
         private void updateInterestOps() {
+            if (!key.isValid()) {
+                return;
+            }
             int ops = 0;
-            if (key.interestOps() == SelectionKey.OP_CONNECT) {
+            // several frames may be queued before the connection is established
+            if (sc.isConnectionPending()) {
                 ops |= SelectionKey.OP_CONNECT;
             }
 
-            if (!closed && bufferIn.hasRemaining()) {
+            if (!closed && readPauses == 0 && (bufferIn == null || bufferIn.hasRemaining())) {
                 ops |= SelectionKey.OP_READ;
             }
 
-            if (!closed && (bufferOut.position() != 0 || !requestQueue.isEmpty())) {
+            if (!closed && (gatheredStart != gatheredEnd || !requestQueue.isEmpty() || (deflater != null && deflater.hasPendingOutput()))) {
                 ops |= SelectionKey.OP_WRITE;
             }
 
-            if (ops == 0) {
+            // a pushed back connection waits for nothing until it is resumed
+            if (ops == 0 && (closed || readPauses == 0)) {
                 silentlyClose();
                 return;
             }
@@ -757,58 +2028,121 @@ public class ServerChatFusion {
         }
 
         /**
-         * Close the {@link Context} if its inactive
+         * Close the {@link Context}, its buffers go back to the pool and its timeouts are cancelled on the reactor thread
          */
-        public void closeIfInactive() {
-            if (!activeSinceLastTimeoutCheck) {
-                silentlyClose();
+        @Override
+        public void silentlyClose() {
+            closed = true;
+            server.unregister(this);
+            try {
+                sc.close();
+            } catch (IOException e) {
+                // ignore exception
             }
-
-            // disabled for now
-            activeSinceLastTimeoutCheck = true;
+            reactor.execute(this::releaseResources);
         }
 
         /**
-         * Close the {@link Context}
+         * Gives bufferIn back to the pool of the server, releases the frames not written yet and cancels the timeouts
          */
-        private void silentlyClose() {
-            try {
-                sc.close();
-            } catch (IOException e) {
-                // ignore exception
+        private void releaseResources() {
+            server.metrics.close(metrics);
+            if (handshakeTimeout != null) {
+                handshakeTimeout.cancel();
+            }
+            if (idleTimeout != null) {
+                idleTimeout.cancel();
+            }
+            if (bufferIn != null) {
+                server.bufferPool.release(bufferIn);
+                bufferIn = null;
+            }
+            if (batch != null) {
+                SharedFrame.recycle(batch);
+                batch = null;
+                batchSender = null;
+            }
+            if (deflater != null) {
+                deflater.end();
+                deflater = null;
+            }
+            if (inflater != null) {
+                inflater.end();
+                inflater = null;
             }
+            for (int i = gatheredStart; i < gatheredEnd; i++) {
+                gatheredFrames[i].release();
+                gatheredFrames[i] = null;
+                gatheredViews[i] = null;
+            }
+            gatheredStart = 0;
+            gatheredEnd = 0;
+            requestQueue.clear();
+            resumePushedBackSenders();
         }
 
         /**
          * Performs the read action on sc
          * <p>
-         * The convention is that both buffers are in write-mode before the call to
+         * The convention is that bufferIn is in write-mode before the call to
          * doRead and after the call
          *
          * @throws IOException If some I/O exception occurs
          */
         private void doRead() throws IOException {
-            activeSinceLastTimeoutCheck = true;
-            closed = (sc.read(bufferIn) == -1);
+            lastActivity = reactor.now;
+            if (bufferIn == null) {
+                bufferIn = server.bufferPool.lease();
+            }
+            var read = inflater == null ? sc.read(bufferIn) : inflater.read(sc);
+            closed = (read == -1);
             if (!closed) {
+                metrics.read(read);
                 processIn();
+                // the FUSION_DEFLATE may have just been read, with compressed bytes after it
+                if (inflater != null) {
+                    inflateIn();
+                }
+            }
+            // every byte read has been consumed by the readers, the connection is idle again
+            if (bufferIn != null && bufferIn.position() == 0) {
+                server.bufferPool.release(bufferIn);
+                bufferIn = null;
             }
             updateInterestOps();
         }
 
         /**
-         * Performs the write action on sc
-         * <p>
-         * The convention is that both buffers are in write-mode before the call to
-         * doWrite and after the call
+         * Performs the write action on sc, every frame ready is written by a single gathering write
+         * and released once completely written.
+         * On a compressed link, the frames ready are compressed then released, and the compressed bytes are written
          *
          * @throws IOException If some I/O exception occurs
          */
         private void doWrite() throws IOException {
-            activeSinceLastTimeoutCheck = true;
-            sc.write(bufferOut.flip());
-            bufferOut.compact();
+            lastActivity = reactor.now;
+            if (deflater == null) {
+                metrics.written(sc.write(gatheredViews, gatheredStart, gatheredEnd - gatheredStart));
+            } else {
+                deflater.deflate(gatheredViews, gatheredStart, gatheredEnd - gatheredStart, true);
+                metrics.written(deflater.write(sc));
+            }
+            while (gatheredStart != gatheredEnd && !gatheredViews[gatheredStart].hasRemaining()) {
+                var opCode = gatheredFrames[gatheredStart].opCode();
+                if (opCode == OpCode.FUSION_DEFLATE) {
+                    deflater = new LinkDeflater(deflateLevel, metrics);
+                    deflateStarting = false;
+                }
+                metrics.sent(opCode);
+                gatheredFrames[gatheredStart].release();
+                gatheredFrames[gatheredStart] = null;
+                gatheredViews[gatheredStart] = null;
+                gatheredStart++;
+            }
             processOut();
+            if (!pushedBackSenders.isEmpty() && requestQueue.isDrained()) {
+                resumePushedBackSenders();
+            }
             updateInterestOps();
         }
 
@@ -818,6 +2152,7 @@ public class ServerChatFusion {
          */
         public void doConnect() throws IOException {
             if (!sc.finishConnect()) return; // the selector gave a bad hint
+            handshakeTimeout.cancel();
             updateInterestOps();
         }
 
@@ -826,18 +2161,309 @@ public class ServerChatFusion {
         }
     }
 
+    /**
+     * A blocking connection served by two threads: one reading and handling the requests,
+     * one writing the queued requests. Requests are decoded by the same {@link Reader} and routed
+     * by the same methods as the ones of the {@link Context}
+     */
+    static private class BlockingContext implements Connection {
+        private final ServerChatFusion server;
+        private final SocketChannel sc;
+        private final ByteBuffer bufferIn = ByteBuffer.allocate(BUFFER_SIZE);
+        private final LinkedBlockingQueue<SharedFrame> requestQueue = new LinkedBlockingQueue<>();
+        private final Thread writer;
+        private ReadingState readingState = ReadingState.WAITING_FOR_REQUEST;
+        private final ReaderSet readers = new ReaderSet();
+        private Reader<Request> requestReader;
+        private volatile boolean closed = false;
+        // The compression level negotiated for the frames written on this link, 0 if they are not compressed,
+        // set by the reading thread before the FUSION_DEFLATE is queued for the writing thread
+        private volatile int deflateLevel;
+        // The extensions announced by the other end, read by the threads routing a request to this connection
+        private volatile int capabilities;
+        // Decompresses the bytes read after the FUSION_DEFLATE of the other server, only used by the reading thread
+        private LinkInflater inflater;
+        private final ConnectionMetrics metrics;
+
+        private BlockingContext(ServerChatFusion server, SocketChannel sc, String remote) {
+            this.server = server;
+            this.sc = sc;
+            this.writer = server.connectionThreadFactory.newThread(this::writeLoop);
+            this.metrics = server.metrics.open(remote, requestQueue::size);
+        }
+
+        /**
+         * Serves an accepted {@link SocketChannel}
+         * @param server the server accepting the connection
+         * @param sc the accepted {@link SocketChannel}, in blocking mode
+         */
+        private static void serve(ServerChatFusion server, SocketChannel sc) {
+            var context = new BlockingContext(server, sc, Helpers.remoteAddressToString(sc));
+            server.blockingContexts.add(context);
+            context.writer.start();
+            server.connectionThreadFactory.newThread(context::readLoop).start();
+        }
+
+        /**
+         * Connects to another server, the requests sent before the connection is established are queued
+         * @param server the server opening the connection
+         * @param address the address of the other server
+         * @return the {@link BlockingContext} created
+         * @throws IOException If an I/O error occurs
+         */
+        private static BlockingContext connect(ServerChatFusion server, InetSocketAddress address) throws IOException {
+            var context = new BlockingContext(server, SocketChannel.open(), address.toString());
+            server.blockingContexts.add(context);
+            server.connectionThreadFactory.newThread(() -> {
+                try {
+                    context.sc.connect(address);
+                } catch (IOException e) {
+                    logger.log(Level.INFO, "Connection to " + address + " failed", e);
+                    context.silentlyClose();
+                    return;
+                }
+                context.writer.start();
+                context.readLoop();
+            }).start();
+            return context;
+        }
+
+        /**
+         * Reads and handles the requests until the connection is closed
+         */
+        private void readLoop() {
+            try {
+                int read;
+                while (!closed && (read = inflater == null ? sc.read(bufferIn) : inflater.read(sc)) != -1) {
+                    metrics.read(read);
+                    processIn();
+                    while (inflater != null && !closed && inflater.inflate(bufferIn) != 0) {
+                        processIn();
+                    }
+                }
+            } catch (IOException e) {
+                logger.log(Level.INFO, "Connection closed due to IOException", e);
+            } finally {
+                silentlyClose();
+                if (inflater != null) {
+                    inflater.end();
+                }
+            }
+        }
+
+        /**
+         * Writes the queued requests until the connection is closed
+         */
+        private void writeLoop() {
+            LinkDeflater deflater = null;
+            var views = new ByteBuffer[1];
+            SharedFrame frame = null;
+            try {
+                while (!closed) {
+                    frame = requestQueue.take();
+                    var buffer = frame.view();
+                    if (deflater == null) {
+                        while (buffer.hasRemaining()) {
+                            metrics.written(sc.write(buffer));
+                        }
+                    } else {
+                        // the stream is flushed once the queue is empty, the frames queued meanwhile share the flush
+                        views[0] = buffer;
+                        var flush = requestQueue.isEmpty();
+                        boolean done;
+                        do {
+                            done = deflater.deflate(views, 0, 1, flush);
+                            if (!done || flush) {
+                                metrics.written(deflater.write(sc));
+                            }
+                        } while (!done);
+                    }
+                    var opCode = frame.opCode();
+                    metrics.sent(opCode);
+                    frame.release();
+                    frame = null;
+                    if (opCode == OpCode.FUSION_DEFLATE) {
+                        deflater = new LinkDeflater(deflateLevel, metrics);
+                    }
+                }
+            } catch (InterruptedException e) {
+                // the connection has been closed
+            } catch (IOException e) {
+                logger.log(Level.INFO, "Connection closed due to IOException", e);
+                silentlyClose();
+            } finally {
+                if (frame != null) {
+                    frame.release();
+                }
+                releaseQueued();
+                if (deflater != null) {
+                    deflater.end();
+                }
+            }
+        }
+
+        /**
+         * Releases the frames not written yet, the connection being closed
+         */
+        private void releaseQueued() {
+            SharedFrame frame;
+            while ((frame = requestQueue.poll()) != null) {
+                frame.release();
+            }
+        }
+
+        /**
+         * Process the content of bufferIn
+         * <p>
+         * The convention is that bufferIn is in write-mode before the call to process and
+         * after the call
+         */
+        private void processIn() {
+            bufferIn.flip();
+            try {
+                while (!closed && bufferIn.hasRemaining()) {
+                    if (readingState == ReadingState.WAITING_FOR_REQUEST) {
+                        var optionalOpCode = OpCode.getOpCodeFromByte(bufferIn.get());
+                        if (optionalOpCode.isEmpty()) {
+                            metrics.decodeError();
+                            logger.severe("Wrong opCode were read, closing connection");
+                            silentlyClose();
+                            return;
+                        }
+                        requestReader = readers.relayReader(optionalOpCode.get());
+                        readingState = ReadingState.READING_REQUEST;
+                    }
+
+                    switch (requestReader.process(bufferIn)) {
+                        case DONE -> {
+                            readingState = ReadingState.WAITING_FOR_REQUEST;
+                            var request = requestReader.get();
+                            var start = System.nanoTime();
+                            server.handleRequest(request, this);
+                            metrics.handled(request.getOpCode(), System.nanoTime() - start);
+                        }
+                        case REFILL -> {
+                            return;
+                        }
+                        case ERROR -> {
+                            metrics.decodeError();
+                            logger.severe("Error reading, closing connection");
+                            silentlyClose();
+                            return;
+                        }
+                    }
+                }
+            } finally {
+                bufferIn.compact();
+            }
+        }
+
+        @Override
+        public void send(SharedFrame frame) {
+            if (closed) {
+                frame.release();
+                return;
+            }
+            requestQueue.add(frame);
+            // closed meanwhile, the writing thread may already have released the queue
+            if (closed) {
+                releaseQueued();
+            }
+        }
+
+        @Override
+        public ConnectionMetrics metrics() {
+            return metrics;
+        }
+
+        @Override
+        public boolean supports(int capability) {
+            return (capabilities & capability) != 0;
+        }
+
+        @Override
+        public void peerCapabilities(RequestFusionCapabilities capabilities) {
+            this.capabilities = capabilities.capabilities();
+            var level = server.deflateLevel;
+            if (capabilities.supports(RequestFusionCapabilities.DEFLATE) && level != 0 && deflateLevel == 0) {
+                deflateLevel = level;
+                send(RequestFactory.fusionDeflate());
+            }
+        }
+
+        @Override
+        public void startInflating() {
+            if (inflater != null) {
+                metrics.decodeError();
+                logger.severe("FUSION_DEFLATE received twice, closing connection");
+                silentlyClose();
+                return;
+            }
+            inflater = new LinkInflater(bufferIn.capacity(), metrics);
+            inflater.feed(bufferIn);
+        }
+
+        @Override
+        public void silentlyClose() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            server.blockingContexts.remove(this);
+            server.metrics.close(metrics);
+            server.unregister(this);
+            ServerChatFusion.silentlyClose(sc);
+            writer.interrupt();
+            releaseQueued();
+        }
+    }
+
     static class Helpers {
         /***
          * Theses methods are here to help understanding the behavior of the selector
          ***/
         private static String remoteAddressToString(SocketChannel sc) {
             try {
-                return sc.getRemoteAddress().toString();
+                return String.valueOf(sc.getRemoteAddress());
             } catch (IOException e) {
                 return "???";
             }
         }
 
+        /**
+         * Creates the factory of the threads serving the connections of the {@link Engine#THREAD_PER_CONNECTION} engine,
+         * virtual threads when the running JVM provides them, daemon platform threads otherwise
+         * @return the {@link ThreadFactory} created
+         */
+        static ThreadFactory connectionThreadFactory() {
+            try {
+                // looked up reflectively, virtual threads do not exist in the Java version targeted by the project
+                var builder = Thread.class.getMethod("ofVirtual").invoke(null);
+                return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+            } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+                logger.info("Virtual threads are not available, connections are served by platform threads");
+                return runnable -> {
+                    var thread = new Thread(runnable);
+                    thread.setDaemon(true);
+                    return thread;
+                };
+            }
+        }
+
+        /**
+         * Parses the overflow policy given on the command line
+         * @param policy one of dropOldest, disconnect or backPressure
+         * @return the {@link OutboundQueue.Policy} parsed, empty if the argument is unknown
+         */
+        static Optional<OutboundQueue.Policy> parsePolicy(String policy) {
+            return switch (policy) {
+                case "dropOldest" -> Optional.of(OutboundQueue.Policy.DROP_OLDEST);
+                case "disconnect" -> Optional.of(OutboundQueue.Policy.DISCONNECT);
+                case "backPressure" -> Optional.of(OutboundQueue.Policy.BACK_PRESSURE);
+                default -> Optional.empty();
+            };
+        }
+
         /**
          * Prints the content of the {@link SelectionKey} pasted as argument
          * @param key the {@link SelectionKey} to read
@@ -0,0 +1,195 @@
+package main.java.server;
+
+import main.java.OpCode;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * The traffic of a {@link ServerChatFusion}, summed over every connection.
+ * <p>
+ * The counters are {@link LongAdder}s updated by the {@link ConnectionMetrics} of the connections, the reactors
+ * add to them concurrently without contending on a single memory location. Reading them sums their cells,
+ * which is only done by the reports: the STATS command and JMX.
+ */
+public final class ServerMetrics implements ServerMetricsMXBean {
+    private static final OpCode[] OP_CODES = OpCode.values();
+
+    final LongAdder bytesIn = new LongAdder();
+    final LongAdder bytesOut = new LongAdder();
+    final LongAdder decodeErrors = new LongAdder();
+    final LongAdder handlerNanos = new LongAdder();
+    final LongAdder compressionNanos = new LongAdder();
+    final LongAdder[] framesIn = adders();
+    final LongAdder[] framesOut = adders();
+    private final OutboundQueue.Budget budget;
+    private final Set<ConnectionMetrics> connections = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Creates the metrics of a server
+     * @param budget the {@link OutboundQueue.Budget} of the server, reporting its queued bytes and slow consumers
+     */
+    public ServerMetrics(OutboundQueue.Budget budget) {
+        this.budget = budget;
+    }
+
+    private static LongAdder[] adders() {
+        var adders = new LongAdder[OP_CODES.length];
+        for (int i = 0; i < adders.length; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    /**
+     * Starts tracking a new connection
+     * @param remote the remote address of the connection
+     * @param queuedFrames gives the number of frames waiting to be written on the connection, called from any thread
+     * @return the {@link ConnectionMetrics} of the connection
+     */
+    public ConnectionMetrics open(String remote, IntSupplier queuedFrames) {
+        var metrics = new ConnectionMetrics(this, remote, queuedFrames);
+        connections.add(metrics);
+        return metrics;
+    }
+
+    /**
+     * Stops tracking a closed connection, its traffic stays counted in the server totals
+     * @param metrics the {@link ConnectionMetrics} of the connection
+     */
+    public void close(ConnectionMetrics metrics) {
+        connections.remove(metrics);
+    }
+
+    @Override
+    public long getBytesIn() {
+        return bytesIn.sum();
+    }
+
+    @Override
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+
+    @Override
+    public long getFramesIn() {
+        return sum(framesIn);
+    }
+
+    @Override
+    public long getFramesOut() {
+        return sum(framesOut);
+    }
+
+    private static long sum(LongAdder[] adders) {
+        long sum = 0;
+        for (var adder : adders) {
+            sum += adder.sum();
+        }
+        return sum;
+    }
+
+    @Override
+    public Map<String, Long> getFramesInPerOpCode() {
+        return perOpCode(framesIn);
+    }
+
+    @Override
+    public Map<String, Long> getFramesOutPerOpCode() {
+        return perOpCode(framesOut);
+    }
+
+    private static Map<String, Long> perOpCode(LongAdder[] adders) {
+        var frames = new LinkedHashMap<String, Long>();
+        for (var opCode : OP_CODES) {
+            var count = adders[opCode.ordinal()].sum();
+            if (count != 0) {
+                frames.put(opCode.name(), count);
+            }
+        }
+        return frames;
+    }
+
+    @Override
+    public long getDecodeErrors() {
+        return decodeErrors.sum();
+    }
+
+    @Override
+    public long getHandlerNanos() {
+        return handlerNanos.sum();
+    }
+
+    @Override
+    public long getCompressionNanos() {
+        return compressionNanos.sum();
+    }
+
+    @Override
+    public int getConnections() {
+        return connections.size();
+    }
+
+    @Override
+    public long getQueuedFrames() {
+        return connections.stream().mapToLong(ConnectionMetrics::queuedFrames).sum();
+    }
+
+    @Override
+    public long getQueuedBytes() {
+        return budget.queued();
+    }
+
+    @Override
+    public long getDroppedFrames() {
+        return budget.droppedFrames();
+    }
+
+    @Override
+    public long getSlowConsumerDisconnects() {
+        return budget.disconnects();
+    }
+
+    @Override
+    public long getPushBacks() {
+        return budget.pushBacks();
+    }
+
+    @Override
+    public List<String> getConnectionStats() {
+        return connections.stream().map(ConnectionMetrics::toString).toList();
+    }
+
+    /**
+     * Builds the report printed by the STATS command
+     * @param maxConnections the number of connections listed, the ones with the most traffic
+     * @return the report, on several lines
+     */
+    public String report(int maxConnections) {
+        var handled = getFramesIn();
+        var joiner = new StringJoiner(System.lineSeparator());
+        joiner.add(getConnections() + " connections, in " + getBytesIn() + " bytes (" + handled + " frames), out "
+                + getBytesOut() + " bytes (" + getFramesOut() + " frames), " + getDecodeErrors() + " decode errors, "
+                + (handled == 0 ? 0 : getHandlerNanos() / handled) + " ns/frame handling, "
+                + getCompressionNanos() / 1_000_000 + " ms compressing links");
+        joiner.add("Frames in: " + getFramesInPerOpCode());
+        joiner.add("Frames out: " + getFramesOutPerOpCode());
+        joiner.add("Queued: " + getQueuedFrames() + " frames, " + budget);
+        // the counters move while sorting, each connection is sorted on a snapshot
+        record Line(long traffic, String text) {
+        }
+        connections.stream()
+                .map(connection -> new Line(connection.traffic(), connection.toString()))
+                .sorted(Comparator.comparingLong(Line::traffic).reversed())
+                .limit(maxConnections)
+                .forEach(line -> joiner.add("  " + line.text()));
+        return joiner.toString();
+    }
+}
@@ -0,0 +1,106 @@
+package main.java.server;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The traffic of a {@link ServerChatFusion} as exposed through JMX, see {@link ServerMetrics}
+ */
+public interface ServerMetricsMXBean {
+
+    /**
+     * Gets the number of bytes read on every connection
+     * @return the number of bytes read
+     */
+    long getBytesIn();
+
+    /**
+     * Gets the number of bytes written on every connection
+     * @return the number of bytes written
+     */
+    long getBytesOut();
+
+    /**
+     * Gets the number of frames read and handled on every connection
+     * @return the number of frames read
+     */
+    long getFramesIn();
+
+    /**
+     * Gets the number of frames completely written on every connection
+     * @return the number of frames written
+     */
+    long getFramesOut();
+
+    /**
+     * Gets the number of frames read for each {@link main.java.OpCode}
+     * @return the name of each OpCode read at least once mapped to its number of frames
+     */
+    Map<String, Long> getFramesInPerOpCode();
+
+    /**
+     * Gets the number of frames written for each {@link main.java.OpCode}
+     * @return the name of each OpCode written at least once mapped to its number of frames
+     */
+    Map<String, Long> getFramesOutPerOpCode();
+
+    /**
+     * Gets the number of connections closed because of a wrong OpCode or a malformed frame
+     * @return the number of decode errors
+     */
+    long getDecodeErrors();
+
+    /**
+     * Gets the time spent handling the frames read
+     * @return the number of nanoseconds spent in the handlers
+     */
+    long getHandlerNanos();
+
+    /**
+     * Gets the time spent compressing and decompressing the links with other servers
+     * @return the number of nanoseconds spent in the DEFLATE streams
+     */
+    long getCompressionNanos();
+
+    /**
+     * Gets the number of connections opened
+     * @return the number of connections
+     */
+    int getConnections();
+
+    /**
+     * Gets the number of frames waiting to be written on every connection
+     * @return the number of frames queued
+     */
+    long getQueuedFrames();
+
+    /**
+     * Gets the number of bytes waiting to be written on the connections of the reactor engine
+     * @return the number of bytes queued
+     */
+    long getQueuedBytes();
+
+    /**
+     * Gets the number of chat frames dropped by the slow consumer policy
+     * @return the number of frames dropped
+     */
+    long getDroppedFrames();
+
+    /**
+     * Gets the number of connections closed by the slow consumer policy
+     * @return the number of connections closed
+     */
+    long getSlowConsumerDisconnects();
+
+    /**
+     * Gets the number of senders pushed back by the slow consumer policy
+     * @return the number of senders pushed back
+     */
+    long getPushBacks();
+
+    /**
+     * Gets the traffic of every connection
+     * @return a line per connection
+     */
+    List<String> getConnectionStats();
+}
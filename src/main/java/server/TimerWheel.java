@@ -0,0 +1,178 @@
+package main.java.server;
+
+import java.util.ArrayDeque;
+
+/**
+ * A hashed timer wheel, scheduling and cancelling a task in constant time.
+ * <p>
+ * Time is cut into ticks, and the wheel has a slot per tick for a whole revolution. A task is linked into the slot
+ * of the tick it expires at, tasks expiring after more than a revolution share the slot with earlier ones and are
+ * skipped until their tick comes. Advancing the wheel only visits the slots of the ticks elapsed, so expiring
+ * timeouts never scans the tasks which are not due, the precision of a timeout is a tick.
+ * <p>
+ * A wheel is owned by a single thread, which schedules, cancels and runs its tasks.
+ */
+public final class TimerWheel {
+    private final long tickMillis;
+    private final Timeout[] slots;
+    private final int mask;
+    private final ArrayDeque<Timeout> expired = new ArrayDeque<>();
+    private long currentTick;
+    private int size;
+
+    /**
+     * Creates an empty wheel
+     * @param tickMillis the duration of a tick in milliseconds, the precision of the timeouts
+     * @param ticksPerWheel the number of slots of the wheel, rounded up to a power of two
+     * @param now the current time in milliseconds
+     */
+    public TimerWheel(long tickMillis, int ticksPerWheel, long now) {
+        if (tickMillis <= 0 || ticksPerWheel <= 0 || ticksPerWheel > 1 << 20) {
+            throw new IllegalArgumentException();
+        }
+        this.tickMillis = tickMillis;
+        var length = Integer.highestOneBit(ticksPerWheel);
+        if (length < ticksPerWheel) {
+            length <<= 1;
+        }
+        this.slots = new Timeout[length];
+        for (int i = 0; i < length; i++) {
+            // each slot is a circular list starting with a sentinel
+            var sentinel = new Timeout(this, null, 0);
+            sentinel.prev = sentinel;
+            sentinel.next = sentinel;
+            slots[i] = sentinel;
+        }
+        this.mask = length - 1;
+        this.currentTick = now / tickMillis;
+    }
+
+    /**
+     * Schedules a task
+     * @param delayMillis the milliseconds after which the task runs, rounded up to the next tick
+     * @param task the task to run
+     * @return the {@link Timeout} of the task, to cancel it
+     */
+    public Timeout schedule(long delayMillis, Runnable task) {
+        var ticks = Math.max(1, (delayMillis + tickMillis - 1) / tickMillis);
+        var timeout = new Timeout(this, task, currentTick + ticks);
+        var sentinel = slots[(int) (timeout.deadline & mask)];
+        timeout.prev = sentinel.prev;
+        timeout.next = sentinel;
+        sentinel.prev.next = timeout;
+        sentinel.prev = timeout;
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Runs the tasks expired at the given time
+     * @param now the current time in milliseconds
+     */
+    public void advance(long now) {
+        var nowTick = now / tickMillis;
+        if (nowTick <= currentTick) {
+            return;
+        }
+        // after a whole revolution every slot has been visited once
+        var ticks = Math.min(nowTick - currentTick, slots.length);
+        for (long tick = currentTick + 1; tick <= currentTick + ticks; tick++) {
+            var sentinel = slots[(int) (tick & mask)];
+            for (var timeout = sentinel.next; timeout != sentinel; ) {
+                var next = timeout.next;
+                if (timeout.deadline <= nowTick) {
+                    timeout.unlink();
+                    timeout.due = true;
+                    expired.add(timeout);
+                }
+                timeout = next;
+            }
+        }
+        // tasks scheduled by the expired ones are placed after the current tick
+        currentTick = nowTick;
+        Timeout timeout;
+        while ((timeout = expired.poll()) != null) {
+            // an expired task may cancel another one expiring at the same time
+            if (timeout.due) {
+                timeout.due = false;
+                timeout.task.run();
+            }
+        }
+    }
+
+    /**
+     * Gets the milliseconds until the next tick, how long the owning thread can wait before advancing the wheel
+     * @param now the current time in milliseconds
+     * @return the delay before the next tick, at least 1
+     */
+    public long delayToNextTick(long now) {
+        return Math.max(1, (currentTick + 1) * tickMillis - now);
+    }
+
+    /**
+     * Tells if no task is scheduled
+     * @return true if the wheel is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Gets the number of tasks scheduled
+     * @return the number of tasks
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * A task scheduled in a {@link TimerWheel}
+     */
+    public static final class Timeout {
+        private final TimerWheel wheel;
+        private final Runnable task;
+        private final long deadline;
+        private Timeout prev;
+        private Timeout next;
+        // unlinked from its slot, about to run
+        private boolean due;
+
+        private Timeout(TimerWheel wheel, Runnable task, long deadline) {
+            this.wheel = wheel;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        private void unlink() {
+            prev.next = next;
+            next.prev = prev;
+            prev = null;
+            next = null;
+            wheel.size--;
+        }
+
+        /**
+         * Cancels the task if it has not run yet
+         * @return true if the task was cancelled, false if it already ran or was cancelled
+         */
+        public boolean cancel() {
+            if (due) {
+                due = false;
+                return true;
+            }
+            if (next == null) {
+                return false;
+            }
+            unlink();
+            return true;
+        }
+
+        /**
+         * Tells if the task is still waiting to run
+         * @return true if the task has neither run nor been cancelled
+         */
+        public boolean isPending() {
+            return next != null || due;
+        }
+    }
+}
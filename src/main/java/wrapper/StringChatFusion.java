@@ -3,25 +3,130 @@ package main.java.wrapper;
 import main.java.BufferSerializable;
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
 
 /**
- * This record represent a way of representing a String easily convertible to a {@link ByteBuffer}.
+ * This class represent a way of representing a String easily convertible to a {@link ByteBuffer}.
  * Allowing to get the total length of a {@link ByteBuffer} conversion and to convert it into a {@link ByteBuffer} in UTF8
+ * <p>
+ * The string is encoded in UTF-8 once, when the instance is created: its size, its length in a buffer and its
+ * encoding reuse these bytes, whatever the number of frames and recipients it is written for.
+ * The server names and the logins repeated in every frame are shared through {@link StringPool}, see {@link #of(String)}.
  */
-public record StringChatFusion(String string) implements BufferSerializable {
+public final class StringChatFusion implements BufferSerializable {
+    private final String string;
+    private final byte[] bytes;
 
+    /**
+     * Creates a wire string, encoding it in UTF-8
+     * @param string the {@link String}
+     */
+    public StringChatFusion(String string) {
+        this(string, string.getBytes(UTF8));
+    }
+
+    /**
+     * Creates a wire string from its already encoded bytes, which must not be modified afterwards
+     * @param string the {@link String}
+     * @param bytes the string encoded in UTF-8
+     */
+    StringChatFusion(String string, byte[] bytes) {
+        this.string = Objects.requireNonNull(string);
+        this.bytes = bytes;
+    }
+
+    /**
+     * Gets the wire string of a server name or of a login, shared with the other frames carrying the same name
+     * @param string the {@link String}
+     * @return the interned {@link StringChatFusion}
+     */
+    public static StringChatFusion of(String string) {
+        return StringPool.intern(string);
+    }
+
+    /**
+     * Gets the {@link String}
+     * @return the {@link String}
+     */
+    public String string() {
+        return string;
+    }
+
+    /**
+     * Gets the number of bytes of the string encoded in UTF-8
+     * @return the size of the string on the wire, without its length
+     */
     public int size() {
-        return string.getBytes(UTF8).length;
+        return bytes.length;
+    }
+
+    /**
+     * Gets the string encoded in UTF-8, shared with the instance
+     * @return the bytes, which must not be modified
+     */
+    byte[] bytes() {
+        return bytes;
+    }
+
+    /**
+     * Tells if the string is the given bytes encoded in UTF-8
+     * @param source the bytes
+     * @param offset the offset of the first byte
+     * @param length the number of bytes
+     * @return true if the bytes are the ones of the string
+     */
+    boolean matches(byte[] source, int offset, int length) {
+        return length == bytes.length && Arrays.equals(bytes, 0, length, source, offset, offset + length);
+    }
+
+    /**
+     * Tells if the string is the given bytes of a buffer encoded in UTF-8
+     * @param source the buffer, its position and limit are not modified
+     * @param index the index of the first byte
+     * @param length the number of bytes
+     * @return true if the bytes are the ones of the string
+     */
+    boolean matches(ByteBuffer source, int index, int length) {
+        if (length != bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (bytes[i] != source.get(index + i)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     @Override
     public int bufferLength() {
-        return Integer.BYTES + size();
+        return Integer.BYTES + bytes.length;
     }
 
     @Override
     public ByteBuffer encode() {
         var buffer = ByteBuffer.allocate(bufferLength());
-        return buffer.putInt(size()).put(UTF8.encode(string)).flip();
+        return buffer.putInt(bytes.length).put(bytes).flip();
+    }
+
+    @Override
+    public void encodeTo(ByteBuffer buffer) {
+        buffer.putInt(bytes.length).put(bytes);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof StringChatFusion that && string.equals(that.string);
+    }
+
+    @Override
+    public int hashCode() {
+        return string.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "StringChatFusion[string=" + string + "]";
     }
 }
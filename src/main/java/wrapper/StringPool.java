@@ -0,0 +1,112 @@
+package main.java.wrapper;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * The pool of the short {@link StringChatFusion}s: the server names and the logins carried by every frame.
+ * <p>
+ * A string seen again is the same instance, already encoded, whether it comes from a {@link String} or from the
+ * bytes just read by a {@link main.java.reader.StringReader}: decoding a known name allocates nothing.
+ * <p>
+ * The pool is a fixed table of slots indexed by hash, a new string replaces the one in its slot. Its memory stays
+ * bounded whatever the logins sent by the clients, a name evicted is only encoded again. The slots are shared by
+ * every thread without locking: a {@link StringChatFusion} is immutable, a thread missing the latest write of a slot
+ * only creates another instance of the same string.
+ */
+public final class StringPool {
+    /**
+     * The longest string interned, in bytes, the longer ones are messages rather than names
+     */
+    public static final int MAX_LENGTH = 64;
+    private static final int SLOTS = 4096;
+    private static final StringChatFusion[] BY_STRING = new StringChatFusion[SLOTS];
+    private static final StringChatFusion[] BY_BYTES = new StringChatFusion[SLOTS];
+
+    private StringPool() {
+    }
+
+    /**
+     * Gets the interned {@link StringChatFusion} of a {@link String}
+     * @param string the {@link String}
+     * @return the {@link StringChatFusion}, a new one if the string is too long to be interned
+     */
+    public static StringChatFusion intern(String string) {
+        if (string.length() > MAX_LENGTH) {
+            return new StringChatFusion(string);
+        }
+        var slot = slot(string.hashCode());
+        var interned = BY_STRING[slot];
+        if (interned != null && interned.string().equals(string)) {
+            return interned;
+        }
+        interned = new StringChatFusion(string);
+        if (interned.size() <= MAX_LENGTH) {
+            BY_STRING[slot] = interned;
+            var bytes = interned.bytes();
+            BY_BYTES[slot(hash(bytes, 0, bytes.length))] = interned;
+        }
+        return interned;
+    }
+
+    /**
+     * Gets the interned {@link StringChatFusion} of a string encoded in UTF-8, without decoding it if it is known
+     * @param bytes the bytes of the string, they are copied if needed
+     * @param offset the offset of the first byte
+     * @param length the number of bytes
+     * @return the {@link StringChatFusion}, a new one if the string is too long to be interned
+     */
+    public static StringChatFusion intern(byte[] bytes, int offset, int length) {
+        if (length > MAX_LENGTH) {
+            var copy = Arrays.copyOfRange(bytes, offset, offset + length);
+            return new StringChatFusion(new String(copy, StandardCharsets.UTF_8), copy);
+        }
+        var slot = slot(hash(bytes, offset, length));
+        var interned = BY_BYTES[slot];
+        if (interned != null && interned.matches(bytes, offset, length)) {
+            return interned;
+        }
+        var copy = Arrays.copyOfRange(bytes, offset, offset + length);
+        interned = new StringChatFusion(new String(copy, StandardCharsets.UTF_8), copy);
+        BY_BYTES[slot] = interned;
+        BY_STRING[slot(interned.string().hashCode())] = interned;
+        return interned;
+    }
+
+    /**
+     * Gets the interned {@link StringChatFusion} of a string encoded in UTF-8 in a buffer, without decoding it if it
+     * is known
+     * @param buffer the buffer containing the string, its position and limit are not modified
+     * @param index the index of the first byte in the buffer
+     * @param length the number of bytes
+     * @return the {@link StringChatFusion}, a new one if the string is too long to be interned
+     */
+    public static StringChatFusion intern(ByteBuffer buffer, int index, int length) {
+        if (length <= MAX_LENGTH) {
+            var hash = 1;
+            for (int i = index; i < index + length; i++) {
+                hash = 31 * hash + buffer.get(i);
+            }
+            var interned = BY_BYTES[slot(hash)];
+            if (interned != null && interned.matches(buffer, index, length)) {
+                return interned;
+            }
+        }
+        var bytes = new byte[length];
+        buffer.get(index, bytes);
+        return intern(bytes, 0, length);
+    }
+
+    private static int hash(byte[] bytes, int offset, int length) {
+        var hash = 1;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        return hash;
+    }
+
+    private static int slot(int hash) {
+        return (hash ^ (hash >>> 16)) & (SLOTS - 1);
+    }
+}
@@ -0,0 +1,141 @@
+package test.main.java.client;
+
+import main.java.client.FileRanges;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileRangesTest {
+
+    private static FileRanges ranges(long... values) {
+        return FileRanges.of(values, Long.MAX_VALUE);
+    }
+
+    @Test
+    public void adjacentRangesAreMerged() {
+        var ranges = new FileRanges();
+        ranges.add(0, 10);
+        ranges.add(10, 5);
+        ranges.add(20, 5);
+        ranges.add(15, 5);
+        assertArrayEquals(new long[]{0, 25}, ranges.toArray(10));
+        assertEquals(25, ranges.covered());
+    }
+
+    @Test
+    public void overlappingRangesAreMerged() {
+        var ranges = new FileRanges();
+        ranges.add(10, 10);
+        ranges.add(30, 10);
+        ranges.add(50, 10);
+        // overlaps the first two, stops before the third one
+        ranges.add(5, 30);
+        assertArrayEquals(new long[]{5, 35, 50, 10}, ranges.toArray(10));
+        assertEquals(45, ranges.covered());
+        // already covered
+        ranges.add(12, 3);
+        assertArrayEquals(new long[]{5, 35, 50, 10}, ranges.toArray(10));
+        assertEquals(45, ranges.covered());
+        ranges.add(0, 100);
+        assertArrayEquals(new long[]{0, 100}, ranges.toArray(10));
+        assertEquals(100, ranges.covered());
+    }
+
+    @Test
+    public void emptyRangesAreIgnored() {
+        var ranges = new FileRanges();
+        ranges.add(10, 0);
+        ranges.add(10, -5);
+        assertTrue(ranges.isEmpty());
+        assertEquals(0, ranges.covered());
+        assertNull(ranges.first());
+    }
+
+    @Test
+    public void removeSplitsARange() {
+        var ranges = ranges(0, 100);
+        ranges.remove(40, 20);
+        assertArrayEquals(new long[]{0, 40, 60, 40}, ranges.toArray(10));
+        assertEquals(80, ranges.covered());
+        assertEquals(0, ranges.first().getKey());
+        assertEquals(40, ranges.first().getValue());
+    }
+
+    @Test
+    public void removeCutsTheRangesItOverlaps() {
+        var ranges = ranges(0, 10, 20, 10, 40, 10);
+        ranges.remove(5, 40);
+        assertArrayEquals(new long[]{0, 5, 45, 5}, ranges.toArray(10));
+        assertEquals(10, ranges.covered());
+        // outside of every range
+        ranges.remove(20, 10);
+        assertArrayEquals(new long[]{0, 5, 45, 5}, ranges.toArray(10));
+        assertEquals(10, ranges.covered());
+        ranges.remove(0, 100);
+        assertTrue(ranges.isEmpty());
+        assertEquals(0, ranges.covered());
+    }
+
+    @Test
+    public void removeAllAndAddAll() {
+        var ranges = ranges(0, 100);
+        var received = ranges(0, 10, 50, 10, 95, 10);
+        ranges.removeAll(received);
+        assertArrayEquals(new long[]{10, 40, 60, 35}, ranges.toArray(10));
+        assertEquals(75, ranges.covered());
+        ranges.addAll(received);
+        assertArrayEquals(new long[]{0, 105}, ranges.toArray(10));
+        assertEquals(105, ranges.covered());
+    }
+
+    @Test
+    public void missingParts() {
+        var ranges = ranges(10, 10, 30, 10);
+        var missing = ranges.missing(50);
+        assertArrayEquals(new long[]{0, 10, 20, 10, 40, 10}, missing.toArray(10));
+        assertEquals(30, missing.covered());
+        assertArrayEquals(new long[]{0, 50}, new FileRanges().missing(50).toArray(10));
+        assertTrue(ranges(0, 50).missing(50).isEmpty());
+    }
+
+    @Test
+    public void missingWithRangesPastTheSize() {
+        // the second range ends past the size, the third one starts past it
+        var ranges = ranges(0, 10, 20, 20, 60, 10);
+        var missing = ranges.missing(30);
+        assertArrayEquals(new long[]{10, 10}, missing.toArray(10));
+        assertEquals(10, missing.covered());
+        missing = ranges(0, 10, 40, 10).missing(30);
+        assertArrayEquals(new long[]{10, 20}, missing.toArray(10));
+        assertEquals(20, missing.covered());
+    }
+
+    @Test
+    public void rangesOutsideOfTheFileAreIgnored() {
+        var ranges = FileRanges.of(new long[]{-5, 10, 0, 10, 20, 20, 90, 20, 95, 5, 50}, 100);
+        // the odd value left has no length
+        assertArrayEquals(new long[]{0, 10, 20, 20, 95, 5}, ranges.toArray(10));
+        assertEquals(35, ranges.covered());
+    }
+
+    @Test
+    public void toArrayGivesTheFirstRanges() {
+        var ranges = ranges(0, 10, 20, 10, 40, 10);
+        assertArrayEquals(new long[]{0, 10, 20, 10}, ranges.toArray(2));
+        assertArrayEquals(new long[]{0, 10, 20, 10, 40, 10}, ranges.toArray(3));
+        assertArrayEquals(new long[]{0, 10, 20, 10, 40, 10}, ranges.toArray(100));
+        assertArrayEquals(new long[0], ranges.toArray(0));
+        assertEquals(30, ranges.covered());
+    }
+
+    @Test
+    public void blocksOfEachRange() {
+        var ranges = ranges(0, 10, 20, 11, 40, 1);
+        assertEquals(2 + 3 + 1, ranges.blocks(5));
+        assertEquals(3, ranges.blocks(100));
+        ranges.clear();
+        assertTrue(ranges.isEmpty());
+        assertEquals(0, ranges.covered());
+        assertEquals(0, ranges.blocks(5));
+    }
+}
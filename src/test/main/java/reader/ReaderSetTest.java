@@ -0,0 +1,216 @@
+package test.main.java.reader;
+
+import main.java.OpCode;
+import main.java.Utils.RequestFactory;
+import main.java.reader.Reader;
+import main.java.reader.ReaderSet;
+import main.java.request.Request;
+import main.java.request.RequestRelayed;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReaderSetTest {
+    private static final int THREADS = 8;
+    private static final int CONNECTIONS_PER_THREAD = 16;
+    private static final int FRAMES_PER_CONNECTION = 200;
+
+    /**
+     * A connection receiving a stream of frames in reads of random sizes, decoded with its own {@link ReaderSet}
+     */
+    private static final class FakeConnection {
+        private final ReaderSet readers = new ReaderSet();
+        private final boolean relay;
+        private final List<Request> sent = new ArrayList<>();
+        private final ByteBuffer stream;
+        private final ByteBuffer bufferIn = ByteBuffer.allocate(1024);
+        private final Random random;
+        private Reader<Request> reader;
+        private int received;
+
+        private FakeConnection(int id, boolean relay) {
+            this.relay = relay;
+            this.random = new Random(id);
+            for (int i = 0; i < FRAMES_PER_CONNECTION; i++) {
+                // every connection sends the same OpCodes in the same order, so their frames interleave
+                var message = "message " + i + " of connection " + id;
+                sent.add(i % 2 == 0
+                        ? RequestFactory.publicMessage("server" + id, "login" + id, message)
+                        : RequestFactory.privateMessage("server" + id, "login" + id, "server", "friend" + i, message));
+            }
+            var length = sent.stream().mapToInt(Request::bufferLength).sum();
+            stream = ByteBuffer.allocate(length);
+            sent.forEach(request -> stream.put(request.encode()));
+            stream.flip();
+        }
+
+        private boolean hasRemaining() {
+            return stream.hasRemaining();
+        }
+
+        /**
+         * Receives the next read of the connection and decodes it, the way the server does
+         */
+        private void read() {
+            var length = Math.min(Math.min(1 + random.nextInt(24), stream.remaining()), bufferIn.remaining());
+            bufferIn.put(stream.slice(stream.position(), length));
+            stream.position(stream.position() + length);
+            bufferIn.flip();
+            try {
+                while (bufferIn.hasRemaining()) {
+                    if (reader == null) {
+                        var opCode = OpCode.getOpCodeFromByte(bufferIn.get()).orElseThrow();
+                        reader = relay ? readers.relayReader(opCode) : readers.requestReader(opCode);
+                    }
+                    var status = reader.process(bufferIn);
+                    assertNotEquals(Reader.ProcessStatus.ERROR, status);
+                    if (status == Reader.ProcessStatus.REFILL) {
+                        return;
+                    }
+                    check(reader.get());
+                    reader = null;
+                }
+            } finally {
+                bufferIn.compact();
+            }
+        }
+
+        private void check(Request request) {
+            var expected = sent.get(received++);
+            if (request instanceof RequestRelayed relayed) {
+                try {
+                    assertEquals(expected.encode(), relayed.frame().view());
+                } finally {
+                    relayed.release();
+                }
+            } else {
+                assertEquals(expected, request);
+            }
+        }
+    }
+
+    /**
+     * Interleaves the reads of the given connections on the current thread until they have all been decoded
+     */
+    private static void interleave(List<FakeConnection> connections) {
+        var random = new Random(connections.size());
+        var pending = new ArrayList<>(connections);
+        while (!pending.isEmpty()) {
+            var index = random.nextInt(pending.size());
+            var connection = pending.get(index);
+            connection.read();
+            if (!connection.hasRemaining()) {
+                pending.remove(index);
+            }
+        }
+        connections.forEach(connection -> assertEquals(FRAMES_PER_CONNECTION, connection.received));
+    }
+
+    @Test
+    public void sameReaderForTheSameConnection() {
+        var readers = new ReaderSet();
+        var reader = readers.requestReader(OpCode.MESSAGE);
+        assertSame(reader, readers.requestReader(OpCode.MESSAGE));
+        assertNotSame(reader, new ReaderSet().requestReader(OpCode.MESSAGE));
+        assertNotSame(reader, readers.relayReader(OpCode.MESSAGE));
+        assertSame(readers.requestReader(OpCode.FUSION_MERGE), readers.relayReader(OpCode.FUSION_MERGE));
+    }
+
+    @Test
+    public void readerResetForEachFrame() {
+        var readers = new ReaderSet();
+        var frame = RequestFactory.publicMessage("server", "login", "message").encode();
+        frame.get();
+        var reader = readers.requestReader(OpCode.MESSAGE);
+        // a frame received partially, then abandoned
+        assertEquals(Reader.ProcessStatus.REFILL, reader.process(frame.slice(1, 6)));
+        reader = readers.requestReader(OpCode.MESSAGE);
+        assertEquals(Reader.ProcessStatus.DONE, reader.process(frame));
+        assertEquals(RequestFactory.publicMessage("server", "login", "message"), reader.get());
+    }
+
+    @Test
+    public void resumableFileRequests() {
+        var block = new byte[5000];
+        new Random(0).nextBytes(block);
+        var requests = List.of(
+                RequestFactory.fileOffer("server", "login", "other", "friend", "file.bin", 1L << 33, new byte[32]),
+                RequestFactory.fileResume("server", "friend", "other", "login", "file.bin", new long[]{0, 5000, 1L << 32, 10_000}),
+                RequestFactory.fileBlock("server", "login", "other", "friend", "file.bin", 1L << 32, 42, block.length, block),
+                RequestFactory.fileDeclined("server", "login", "other", "friend", "file.bin"));
+        for (var request : requests) {
+            var expected = request.encode();
+            var opCode = OpCode.getOpCodeFromByte(expected.get(0)).orElseThrow();
+            // read byte by byte, the way a client receives them in several reads
+            var reader = new ReaderSet().requestReader(opCode);
+            var status = Reader.ProcessStatus.REFILL;
+            for (int i = 1; i < expected.limit(); i++) {
+                assertEquals(Reader.ProcessStatus.REFILL, status);
+                status = reader.process(expected.slice(i, 1));
+            }
+            assertEquals(Reader.ProcessStatus.DONE, status);
+            assertEquals(expected, reader.get().encode());
+
+            var relay = new ReaderSet().relayReader(opCode);
+            assertEquals(Reader.ProcessStatus.DONE, relay.process(expected.slice(1, expected.limit() - 1)));
+            var relayed = (RequestRelayed) relay.get();
+            try {
+                assertEquals(expected, relayed.frame().view());
+                assertEquals("other", relayed.serverDst().string());
+            } finally {
+                relayed.release();
+            }
+        }
+    }
+
+    @Test
+    public void interleavedConnectionsOnOneThread() {
+        var connections = new ArrayList<FakeConnection>();
+        for (int i = 0; i < CONNECTIONS_PER_THREAD; i++) {
+            connections.add(new FakeConnection(i, false));
+        }
+        interleave(connections);
+    }
+
+    @Test
+    public void interleavedRelayedConnectionsOnOneThread() {
+        var connections = new ArrayList<FakeConnection>();
+        for (int i = 0; i < CONNECTIONS_PER_THREAD; i++) {
+            connections.add(new FakeConnection(i, true));
+        }
+        interleave(connections);
+    }
+
+    @Test
+    public void interleavedConnectionsOnSeveralThreads() throws Exception {
+        var executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            var tasks = new ArrayList<Callable<Void>>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                var first = thread * CONNECTIONS_PER_THREAD;
+                tasks.add(() -> {
+                    var connections = new ArrayList<FakeConnection>();
+                    for (int i = first; i < first + CONNECTIONS_PER_THREAD; i++) {
+                        connections.add(new FakeConnection(i, i % 2 == 0));
+                    }
+                    interleave(connections);
+                    return null;
+                });
+            }
+            for (var result : executor.invokeAll(tasks)) {
+                result.get(); // rethrows the failed assertions
+            }
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+    }
+}
@@ -25,6 +25,7 @@ class SocketAdressReaderTest {
         bb.put((byte) 255);
         bb.put((byte) 255);
         bb.putInt(8080);
+        bb.flip();
         var sr = new InetSocketAddressReader();
         assertEquals(Reader.ProcessStatus.DONE, sr.process(bb));
         assertEquals(expected, sr.get());
@@ -0,0 +1,232 @@
+package test.main.java.server;
+
+import main.java.Utils.RequestFactory;
+import main.java.buffer.SharedFrame;
+import main.java.server.OutboundQueue;
+import main.java.server.OutboundQueue.Budget;
+import main.java.server.OutboundQueue.Outcome;
+import main.java.server.OutboundQueue.Policy;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutboundQueueTest {
+    private static final long GRACE = 50;
+    private static final long NO_GRACE_ELAPSED = 60_000;
+
+    /**
+     * Encodes a public message, every message having the same length
+     */
+    private static SharedFrame chat(int i) {
+        return SharedFrame.encode(RequestFactory.publicMessage("server", "login", String.format("%04d", i)));
+    }
+
+    /**
+     * Encodes a frame which is not a chat message
+     */
+    private static SharedFrame control() {
+        return SharedFrame.encode(RequestFactory.fusionMerge("server"));
+    }
+
+    private static int chatLength() {
+        var frame = chat(0);
+        frame.release();
+        return frame.length();
+    }
+
+    private static boolean isReleased(SharedFrame frame) {
+        try {
+            frame.retain().release();
+            return false;
+        } catch (IllegalStateException e) {
+            return true;
+        }
+    }
+
+    @Test
+    public void framesUnderTheLimitAreQueuedInOrder() {
+        var budget = new Budget(1 << 20);
+        var queue = new OutboundQueue(budget, Policy.DROP_OLDEST, 3 * chatLength(), GRACE);
+        var frames = new SharedFrame[]{chat(0), chat(1), chat(2)};
+        for (var frame : frames) {
+            assertEquals(Outcome.QUEUED, queue.offer(frame));
+        }
+        assertEquals(3, queue.size());
+        assertEquals(3L * chatLength(), queue.bytes());
+        assertEquals(queue.bytes(), budget.queued());
+        for (var frame : frames) {
+            assertSame(frame, queue.poll());
+            frame.release();
+        }
+        assertNull(queue.poll());
+        assertTrue(queue.isEmpty());
+        assertEquals(0, budget.queued());
+    }
+
+    @Test
+    public void dropOldestDropsTheOldestChatFrames() {
+        var budget = new Budget(1 << 20);
+        var control = control();
+        var queue = new OutboundQueue(budget, Policy.DROP_OLDEST, control.length() + 2 * chatLength(), GRACE);
+        var oldest = chat(0);
+        var kept = chat(1);
+        var newest = chat(2);
+        assertEquals(Outcome.QUEUED, queue.offer(control));
+        assertEquals(Outcome.QUEUED, queue.offer(oldest));
+        assertEquals(Outcome.QUEUED, queue.offer(kept));
+        assertEquals(Outcome.QUEUED, queue.offer(newest));
+        assertTrue(isReleased(oldest));
+        assertEquals(1, budget.droppedFrames());
+        assertEquals(chatLength(), budget.droppedBytes());
+        // the frame which is not a chat message is kept in its place
+        assertSame(control, queue.poll());
+        assertSame(kept, queue.poll());
+        assertSame(newest, queue.poll());
+        assertEquals(0, budget.queued());
+    }
+
+    @Test
+    public void dropOldestDropsTheNewFrameWithoutChatFrameToDrop() {
+        var budget = new Budget(1 << 20);
+        var queue = new OutboundQueue(budget, Policy.DROP_OLDEST, chatLength(), GRACE);
+        var control = control();
+        var frame = chat(0);
+        assertEquals(Outcome.QUEUED, queue.offer(control));
+        assertEquals(Outcome.DROPPED, queue.offer(frame));
+        assertTrue(isReleased(frame));
+        assertEquals(1, queue.size());
+        assertEquals(control.length(), budget.queued());
+    }
+
+    @Test
+    public void framesWhichAreNotChatMessagesAreAlwaysQueued() {
+        var control = control();
+        var budget = new Budget(control.length());
+        for (var policy : Policy.values()) {
+            var queue = new OutboundQueue(budget, policy, 1, 0);
+            assertEquals(Outcome.QUEUED, queue.offer(control.retain()));
+            assertEquals(Outcome.QUEUED, queue.offer(control()));
+            assertEquals(0, budget.droppedFrames());
+            queue.clear();
+        }
+        control.release();
+        assertTrue(isReleased(control));
+        assertEquals(0, budget.queued());
+    }
+
+    @Test
+    public void disconnectOnceOverTheLimitForTheGracePeriod() throws InterruptedException {
+        var budget = new Budget(1 << 20);
+        var queue = new OutboundQueue(budget, Policy.DISCONNECT, chatLength(), GRACE);
+        assertEquals(Outcome.QUEUED, queue.offer(chat(0)));
+        // over the limit, the grace period starts
+        assertEquals(Outcome.QUEUED, queue.offer(chat(1)));
+        assertEquals(0, budget.disconnects());
+        Thread.sleep(GRACE + 10);
+        var late = chat(2);
+        assertEquals(Outcome.DISCONNECT, queue.offer(late));
+        assertTrue(isReleased(late));
+        assertEquals(1, budget.disconnects());
+        assertEquals(1, budget.droppedFrames());
+        assertEquals(2, queue.size());
+        queue.clear();
+    }
+
+    @Test
+    public void disconnectGracePeriodRestartsOnceDrained() throws InterruptedException {
+        var budget = new Budget(1 << 20);
+        var queue = new OutboundQueue(budget, Policy.DISCONNECT, chatLength(), GRACE);
+        assertEquals(Outcome.QUEUED, queue.offer(chat(0)));
+        assertEquals(Outcome.QUEUED, queue.offer(chat(1)));
+        Thread.sleep(GRACE + 10);
+        queue.poll().release();
+        queue.poll().release();
+        // back under the limit, a new grace period starts the next time the queue is over it
+        assertEquals(Outcome.QUEUED, queue.offer(chat(2)));
+        assertEquals(Outcome.QUEUED, queue.offer(chat(3)));
+        assertEquals(0, budget.disconnects());
+        queue.clear();
+    }
+
+    @Test
+    public void disconnectAtOnceWhenTheBudgetIsExhausted() {
+        var budget = new Budget(chatLength());
+        var other = new OutboundQueue(budget, Policy.DISCONNECT, 1 << 20, NO_GRACE_ELAPSED);
+        var queue = new OutboundQueue(budget, Policy.DISCONNECT, 1 << 20, NO_GRACE_ELAPSED);
+        assertEquals(Outcome.QUEUED, other.offer(chat(0)));
+        assertEquals(Outcome.DISCONNECT, queue.offer(chat(1)));
+        assertEquals(1, budget.disconnects());
+        assertTrue(queue.isEmpty());
+        other.clear();
+    }
+
+    @Test
+    public void backPressureQueuesAndPushesBack() {
+        var budget = new Budget(1 << 20);
+        var queue = new OutboundQueue(budget, Policy.BACK_PRESSURE, 2 * chatLength(), GRACE);
+        assertEquals(Outcome.QUEUED, queue.offer(chat(0)));
+        assertEquals(Outcome.QUEUED, queue.offer(chat(1)));
+        assertEquals(Outcome.PUSH_BACK, queue.offer(chat(2)));
+        assertEquals(3, queue.size());
+        assertEquals(0, budget.droppedFrames());
+        assertFalse(queue.isDrained());
+        queue.poll().release();
+        assertFalse(queue.isDrained());
+        queue.poll().release();
+        // the senders resume once the queue is back under half of its limit
+        assertTrue(queue.isDrained());
+        queue.clear();
+    }
+
+    @Test
+    public void budgetSharedByEveryQueue() {
+        var length = chatLength();
+        var budget = new Budget(3L * length);
+        var first = new OutboundQueue(budget, Policy.DROP_OLDEST, 1 << 20, GRACE);
+        var second = new OutboundQueue(budget, Policy.DROP_OLDEST, 1 << 20, GRACE);
+        assertEquals(Outcome.QUEUED, first.offer(chat(0)));
+        assertEquals(Outcome.QUEUED, first.offer(chat(1)));
+        assertEquals(Outcome.QUEUED, second.offer(chat(2)));
+        assertEquals(3L * length, budget.queued());
+        // the budget is full: the second queue only drops its own chat frames to make room
+        var frame = chat(3);
+        assertEquals(Outcome.QUEUED, second.offer(frame));
+        assertEquals(2, first.size());
+        assertSame(frame, second.poll());
+        assertEquals(2L * length, budget.queued());
+        second.requeue(frame);
+        assertEquals(3L * length, budget.queued());
+        first.clear();
+        second.clear();
+    }
+
+    @Test
+    public void budgetReleasedOnClose() {
+        var budget = new Budget(1 << 20);
+        var first = new OutboundQueue(budget, Policy.DROP_OLDEST, 1 << 20, GRACE);
+        var second = new OutboundQueue(budget, Policy.BACK_PRESSURE, 1 << 20, GRACE);
+        var frames = new SharedFrame[]{chat(0), chat(1), control()};
+        for (var frame : frames) {
+            first.offer(frame);
+        }
+        second.offer(chat(2));
+        assertEquals(first.bytes() + second.bytes(), budget.queued());
+        first.clear();
+        assertTrue(first.isEmpty());
+        assertEquals(0, first.bytes());
+        assertEquals(second.bytes(), budget.queued());
+        for (var frame : frames) {
+            assertTrue(isReleased(frame));
+        }
+        second.clear();
+        assertEquals(0, budget.queued());
+    }
+
+    @Test
+    public void invalidLimits() {
+        var budget = new Budget(1);
+        assertThrows(IllegalArgumentException.class, () -> new Budget(0));
+        assertThrows(IllegalArgumentException.class, () -> new OutboundQueue(budget, Policy.DROP_OLDEST, 0, GRACE));
+        assertThrows(IllegalArgumentException.class, () -> new OutboundQueue(budget, Policy.DISCONNECT, 1, -1));
+    }
+}
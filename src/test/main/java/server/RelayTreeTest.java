@@ -0,0 +1,202 @@
+package test.main.java.server;
+
+import main.java.Utils.RequestFactory;
+import main.java.buffer.SharedFrame;
+import main.java.server.ConnectionMetrics;
+import main.java.server.RelayTree;
+import main.java.server.ServerChatFusion.Connection;
+import main.java.wrapper.StringChatFusion;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RelayTreeTest {
+    private static final InetSocketAddress ADDRESS_A = new InetSocketAddress("127.0.0.1", 7001);
+    private static final InetSocketAddress ADDRESS_B = new InetSocketAddress("127.0.0.1", 7002);
+    private static final InetSocketAddress ADDRESS_C = new InetSocketAddress("127.0.0.1", 7003);
+
+    /**
+     * A link recording the frames written to it, which may hand them over to the server at the other end
+     */
+    private static final class Link implements Connection {
+        private final List<SharedFrame> received = new ArrayList<>();
+        private final Consumer<SharedFrame> peer;
+
+        private Link(Consumer<SharedFrame> peer) {
+            this.peer = peer;
+        }
+
+        private Link() {
+            this(frame -> {
+            });
+        }
+
+        @Override
+        public void send(SharedFrame frame) {
+            received.add(frame);
+            peer.accept(frame);
+            frame.release();
+        }
+
+        @Override
+        public ConnectionMetrics metrics() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void startInflating() {
+        }
+
+        @Override
+        public void silentlyClose() {
+        }
+
+        private int count(SharedFrame frame) {
+            return Collections.frequency(received, frame);
+        }
+    }
+
+    /**
+     * Broadcasts a public message from the leader to its children
+     */
+    private static SharedFrame broadcast(RelayTree leader, String origin, int i) {
+        var frame = SharedFrame.encode(RequestFactory.publicMessage(origin, "login", "message " + i));
+        leader.forward(frame, null);
+        frame.release();
+        return frame;
+    }
+
+    private static List<SharedFrame> broadcast(RelayTree leader, int count) {
+        var frames = new ArrayList<SharedFrame>();
+        for (int i = 0; i < count; i++) {
+            frames.add(broadcast(leader, "leader", i));
+        }
+        return frames;
+    }
+
+    @Test
+    public void completeTreeUnderTheLeader() {
+        var leader = new RelayTree();
+        var links = Map.of("A", new Link(), "B", new Link(), "C", new Link(), "D", new Link());
+        leader.addRelay("A", ADDRESS_A);
+        leader.addRelay("B", ADDRESS_B);
+        leader.addRelay("C", ADDRESS_C);
+        var moves = leader.layout(2, links.keySet(), links::get);
+        assertTrue(leader.isRoot());
+        // C goes under A, D did not send its address and stays under the leader
+        assertEquals(List.of(new RelayTree.Move("C", "A", ADDRESS_A)), moves);
+        assertEquals(ADDRESS_B, leader.address("B"));
+        assertNull(leader.address("D"));
+    }
+
+    @Test
+    public void messageNotSentBackToItsOrigin() {
+        var leader = new RelayTree();
+        var links = Map.of("A", new Link(), "B", new Link());
+        leader.layout(2, links.keySet(), links::get);
+        var frame = broadcast(leader, "A", 0);
+        assertEquals(0, links.get("A").count(frame));
+        assertEquals(1, links.get("B").count(frame));
+    }
+
+    @Test
+    public void fanOutChangedWhileMessagesAreFlowing() {
+        var leader = new RelayTree();
+        var relayA = new RelayTree();
+        // the public messages written to A by the leader are forwarded by A to its children
+        var linkA = new Link(frame -> relayA.forward(frame, null));
+        var linkB = new Link();
+        var links = Map.of("A", linkA, "B", linkB);
+        var members = Set.of("A", "B");
+        leader.addRelay("A", ADDRESS_A);
+        leader.addRelay("B", ADDRESS_B);
+        assertEquals(List.of(), leader.layout(2, members, links::get));
+        var before = broadcast(leader, 10);
+
+        // B is placed under A, A has not handled its join yet
+        assertEquals(List.of(new RelayTree.Move("B", "A", ADDRESS_A)), leader.layout(1, members, links::get));
+        var moving = broadcast(leader, 10);
+
+        // A handled the join of B, and has not reported it to the leader yet
+        var linkAB = new Link();
+        relayA.addChild(linkAB, StringChatFusion.of("B"));
+        var joined = broadcast(leader, 10);
+
+        assertFalse(leader.joined("B", "C"));
+        assertTrue(leader.joined("B", "A"));
+        assertFalse(leader.joined("B", "A"));
+        var after = broadcast(leader, 10);
+
+        for (var frame : before) {
+            assertEquals(1, linkB.count(frame));
+            assertEquals(0, linkAB.count(frame));
+        }
+        for (var frame : moving) {
+            assertEquals(1, linkB.count(frame));
+            assertEquals(0, linkAB.count(frame));
+        }
+        // received twice rather than lost
+        for (var frame : joined) {
+            assertEquals(1, linkB.count(frame));
+            assertEquals(1, linkAB.count(frame));
+        }
+        for (var frame : after) {
+            assertEquals(0, linkB.count(frame));
+            assertEquals(1, linkAB.count(frame));
+        }
+        for (var frames : List.of(before, moving, joined, after)) {
+            frames.forEach(frame -> assertEquals(1, linkA.count(frame)));
+        }
+    }
+
+    @Test
+    public void memberMovedBackBeforeItsJoinWasReported() {
+        var leader = new RelayTree();
+        var linkB = new Link();
+        var links = Map.of("A", new Link(), "B", linkB);
+        var members = Set.of("A", "B");
+        leader.addRelay("A", ADDRESS_A);
+        leader.addRelay("B", ADDRESS_B);
+        leader.layout(1, members, links::get);
+        assertEquals(List.of(new RelayTree.Move("B", "", null)), leader.layout(2, members, links::get));
+        // the join reported late by A does not stop the leader from writing to B
+        assertFalse(leader.joined("B", "A"));
+        var frame = broadcast(leader, "leader", 0);
+        assertEquals(1, linkB.count(frame));
+    }
+
+    @Test
+    public void memberLeavingDuringItsHandover() {
+        var leader = new RelayTree();
+        var linkB = new Link();
+        var links = Map.of("A", new Link(), "B", linkB);
+        leader.addRelay("A", ADDRESS_A);
+        leader.addRelay("B", ADDRESS_B);
+        leader.layout(1, links.keySet(), links::get);
+        leader.remove(linkB);
+        leader.layout(1, Set.of("A"), links::get);
+        assertFalse(leader.joined("B", "A"));
+        var frame = broadcast(leader, "leader", 0);
+        assertEquals(0, linkB.count(frame));
+    }
+
+    @Test
+    public void fanOutZeroWritesToEveryMember() {
+        var leader = new RelayTree();
+        var links = Map.of("A", new Link(), "B", new Link());
+        leader.addRelay("A", ADDRESS_A);
+        leader.addRelay("B", ADDRESS_B);
+        leader.layout(1, links.keySet(), links::get);
+        assertEquals(List.of(new RelayTree.Move("B", "", null)), leader.layout(0, links.keySet(), links::get));
+        assertFalse(leader.isRoot());
+        assertFalse(leader.joined("B", "A"));
+    }
+}
@@ -0,0 +1,170 @@
+package test.main.java.server;
+
+import main.java.server.TimerWheel;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimerWheelTest {
+    private static final long TICK = 10;
+    private static final int SLOTS = 8;
+    private static final long ROTATION = TICK * SLOTS;
+
+    @Test
+    public void scheduledTaskRunsAtItsTick() {
+        var wheel = new TimerWheel(TICK, SLOTS, 0);
+        var runs = new ArrayList<String>();
+        var timeout = wheel.schedule(25, () -> runs.add("task"));
+        assertEquals(1, wheel.size());
+        // 25 ms are rounded up to the third tick
+        wheel.advance(29);
+        assertEquals(List.of(), runs);
+        assertTrue(timeout.isPending());
+        wheel.advance(30);
+        assertEquals(List.of("task"), runs);
+        assertFalse(timeout.isPending());
+        assertTrue(wheel.isEmpty());
+        wheel.advance(1_000);
+        assertEquals(List.of("task"), runs);
+    }
+
+    @Test
+    public void delayShorterThanATickWaitsForTheNextTick() {
+        var wheel = new TimerWheel(TICK, SLOTS, 5);
+        var runs = new ArrayList<String>();
+        wheel.schedule(0, () -> runs.add("task"));
+        assertEquals(5, wheel.delayToNextTick(5));
+        wheel.advance(9);
+        assertEquals(List.of(), runs);
+        wheel.advance(10);
+        assertEquals(List.of("task"), runs);
+    }
+
+    @Test
+    public void cancelledTaskNeverRuns() {
+        var wheel = new TimerWheel(TICK, SLOTS, 0);
+        var runs = new ArrayList<String>();
+        var cancelled = wheel.schedule(20, () -> runs.add("cancelled"));
+        wheel.schedule(20, () -> runs.add("kept"));
+        assertTrue(cancelled.cancel());
+        assertFalse(cancelled.isPending());
+        assertFalse(cancelled.cancel());
+        assertEquals(1, wheel.size());
+        wheel.advance(100);
+        assertEquals(List.of("kept"), runs);
+        assertTrue(wheel.isEmpty());
+    }
+
+    @Test
+    public void taskAlreadyRunCannotBeCancelled() {
+        var wheel = new TimerWheel(TICK, SLOTS, 0);
+        var timeout = wheel.schedule(10, () -> {
+        });
+        wheel.advance(10);
+        assertFalse(timeout.cancel());
+        assertTrue(wheel.isEmpty());
+    }
+
+    @Test
+    public void taskCancelledByATaskExpiringAtTheSameTick() {
+        var wheel = new TimerWheel(TICK, SLOTS, 0);
+        var runs = new ArrayList<String>();
+        var timeouts = new ArrayList<TimerWheel.Timeout>();
+        // whichever runs first cancels the other one
+        timeouts.add(wheel.schedule(10, () -> {
+            runs.add("first");
+            assertTrue(timeouts.get(1).cancel());
+        }));
+        timeouts.add(wheel.schedule(10, () -> {
+            runs.add("second");
+            assertTrue(timeouts.get(0).cancel());
+        }));
+        wheel.advance(10);
+        assertEquals(1, runs.size());
+        assertFalse(timeouts.get(0).isPending());
+        assertFalse(timeouts.get(1).isPending());
+    }
+
+    @Test
+    public void tasksSharingASlotExpireOnTheirOwnRound() {
+        var wheel = new TimerWheel(TICK, SLOTS, 0);
+        var runs = new ArrayList<String>();
+        wheel.schedule(30, () -> runs.add("first round"));
+        wheel.schedule(30 + ROTATION, () -> runs.add("second round"));
+        wheel.schedule(30 + 2 * ROTATION, () -> runs.add("third round"));
+        for (long now = 0; now <= 30; now += TICK) {
+            wheel.advance(now);
+        }
+        assertEquals(List.of("first round"), runs);
+        for (long now = 30; now < 30 + ROTATION; now += TICK) {
+            wheel.advance(now);
+        }
+        assertEquals(List.of("first round"), runs);
+        wheel.advance(30 + ROTATION);
+        assertEquals(List.of("first round", "second round"), runs);
+        assertEquals(1, wheel.size());
+        wheel.advance(30 + 2 * ROTATION);
+        assertEquals(List.of("first round", "second round", "third round"), runs);
+    }
+
+    @Test
+    public void timeoutLongerThanARotation() {
+        var wheel = new TimerWheel(TICK, SLOTS, 0);
+        var runs = new ArrayList<String>();
+        wheel.schedule(10 * ROTATION, () -> runs.add("task"));
+        wheel.advance(10 * ROTATION - TICK);
+        assertEquals(List.of(), runs);
+        assertEquals(1, wheel.size());
+        wheel.advance(10 * ROTATION);
+        assertEquals(List.of("task"), runs);
+    }
+
+    @Test
+    public void jumpOverSeveralRotationsRunsEveryDueTaskOnce() {
+        var wheel = new TimerWheel(TICK, SLOTS, 0);
+        var runs = new ArrayList<Long>();
+        for (long delay = TICK; delay <= 3 * ROTATION; delay += TICK) {
+            var scheduled = delay;
+            wheel.schedule(delay, () -> runs.add(scheduled));
+        }
+        wheel.schedule(10 * ROTATION, () -> runs.add(-1L));
+        wheel.advance(5 * ROTATION);
+        assertEquals(3 * SLOTS, runs.size());
+        assertFalse(runs.contains(-1L));
+        assertEquals(1, wheel.size());
+    }
+
+    @Test
+    public void taskScheduledByAnExpiredTaskRunsLater() {
+        var wheel = new TimerWheel(TICK, SLOTS, 0);
+        var runs = new ArrayList<String>();
+        wheel.schedule(10, () -> {
+            runs.add("first");
+            wheel.schedule(10, () -> runs.add("second"));
+        });
+        wheel.advance(50);
+        assertEquals(List.of("first"), runs);
+        assertEquals(1, wheel.size());
+        assertEquals(10, wheel.delayToNextTick(50));
+        wheel.advance(60);
+        assertEquals(List.of("first", "second"), runs);
+    }
+
+    @Test
+    public void slotsRoundedUpToAPowerOfTwo() {
+        // 5 slots become 8: a task 6 ticks away must not run at the first rotation of a 5 slot wheel
+        var wheel = new TimerWheel(TICK, 5, 0);
+        var runs = new ArrayList<String>();
+        wheel.schedule(6 * TICK, () -> runs.add("task"));
+        wheel.advance(TICK);
+        wheel.advance(5 * TICK);
+        assertEquals(List.of(), runs);
+        wheel.advance(6 * TICK);
+        assertEquals(List.of("task"), runs);
+        assertThrows(IllegalArgumentException.class, () -> new TimerWheel(0, SLOTS, 0));
+        assertThrows(IllegalArgumentException.class, () -> new TimerWheel(TICK, 0, 0));
+    }
+}
@@ -0,0 +1,111 @@
+package test.main.java.wrapper;
+
+import main.java.OpCode;
+import main.java.Utils.RequestFactory;
+import main.java.reader.Reader;
+import main.java.reader.StringReader;
+import main.java.request.RequestLoginPassword;
+import main.java.request.RequestMessagePublic;
+import main.java.wrapper.StringChatFusion;
+import main.java.wrapper.StringPool;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StringPoolTest {
+
+    private static ByteBuffer encoded(String string) {
+        return new StringChatFusion(string).encode();
+    }
+
+    @Test
+    public void sameNameSameInstance() {
+        var name = StringPool.intern("pool-name");
+        assertEquals("pool-name", name.string());
+        assertSame(name, StringPool.intern("pool-name"));
+        assertSame(name, StringChatFusion.of("pool-name"));
+        var bytes = "xxpool-namexx".getBytes(StandardCharsets.UTF_8);
+        assertSame(name, StringPool.intern(bytes, 2, "pool-name".length()));
+    }
+
+    @Test
+    public void nameFromAnotherBufferSameInstance() {
+        var name = StringPool.intern("pool-buffer");
+        var buffer = ByteBuffer.allocateDirect(32).put((byte) 0).put("pool-buffer".getBytes(StandardCharsets.UTF_8)).flip();
+        assertSame(name, StringPool.intern(buffer, 1, "pool-buffer".length()));
+        // the position and limit of the buffer are not modified
+        assertEquals(0, buffer.position());
+        assertEquals(1 + "pool-buffer".length(), buffer.limit());
+    }
+
+    @Test
+    public void nameFirstSeenAsBytes() {
+        var bytes = "pool-bytes".getBytes(StandardCharsets.UTF_8);
+        var name = StringPool.intern(bytes, 0, bytes.length);
+        assertEquals("pool-bytes", name.string());
+        assertSame(name, StringPool.intern("pool-bytes"));
+        assertSame(name, StringPool.intern(bytes, 0, bytes.length));
+    }
+
+    @Test
+    public void longStringsAreNotInterned() {
+        var ascii = "a".repeat(StringPool.MAX_LENGTH + 1);
+        assertNotSame(StringPool.intern(ascii), StringPool.intern(ascii));
+        assertEquals(StringPool.intern(ascii), StringPool.intern(ascii));
+        // short enough in chars, too long once encoded
+        var accents = "é".repeat(StringPool.MAX_LENGTH / 2 + 1);
+        assertNotSame(StringPool.intern(accents), StringPool.intern(accents));
+        var bytes = accents.getBytes(StandardCharsets.UTF_8);
+        assertNotSame(StringPool.intern(bytes, 0, bytes.length), StringPool.intern(bytes, 0, bytes.length));
+    }
+
+    @Test
+    public void internedStringKeepsItsBytes() {
+        var name = StringPool.intern("pool-été");
+        assertEquals("pool-été".getBytes(StandardCharsets.UTF_8).length, name.size());
+        assertEquals(encoded("pool-été"), name.encode());
+    }
+
+    @Test
+    public void readerInternsOnlyTheNames() {
+        var reader = new StringReader();
+        assertEquals(Reader.ProcessStatus.DONE, reader.process(encoded("pool-login")));
+        var login = reader.getName();
+        assertSame(StringPool.intern("pool-login").string(), login);
+        reader.reset();
+        assertEquals(Reader.ProcessStatus.DONE, reader.process(encoded("pool-login")));
+        assertSame(login, reader.getName());
+
+        reader.reset();
+        assertEquals(Reader.ProcessStatus.DONE, reader.process(encoded("pool-secret")));
+        var password = reader.get();
+        assertEquals("pool-secret", password);
+        reader.reset();
+        assertEquals(Reader.ProcessStatus.DONE, reader.process(encoded("pool-secret")));
+        assertNotSame(password, reader.get());
+        // the password read did not enter the pool
+        assertNotSame(password, StringPool.intern("pool-secret").string());
+    }
+
+    @Test
+    public void requestReadersDoNotInternPasswordsAndMessages() {
+        var frame = RequestFactory.loginPassword("pool-user", "pool-password").encode();
+        frame.get(); // the OpCode
+        var loginReader = OpCode.LOGIN_PASSWORD.newRequestReader();
+        assertEquals(Reader.ProcessStatus.DONE, loginReader.process(frame));
+        var login = (RequestLoginPassword) loginReader.get();
+        assertSame(StringPool.intern("pool-user").string(), login.login().string());
+        assertNotSame(login.password().string(), StringPool.intern("pool-password").string());
+
+        frame = RequestFactory.publicMessage("pool-server", "pool-user", "pool-message").encode();
+        frame.get();
+        var messageReader = OpCode.MESSAGE.newRequestReader();
+        assertEquals(Reader.ProcessStatus.DONE, messageReader.process(frame));
+        var message = (RequestMessagePublic) messageReader.get();
+        assertSame(StringPool.intern("pool-server").string(), message.serverName().string());
+        assertNotSame(message.message().string(), StringPool.intern("pool-message").string());
+    }
+}